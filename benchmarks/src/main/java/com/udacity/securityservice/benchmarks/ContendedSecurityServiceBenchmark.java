@@ -0,0 +1,68 @@
+package com.udacity.securityservice.benchmarks;
+
+import com.udacity.securityservice.data.AlarmStatus;
+import com.udacity.securityservice.data.ArmingStatus;
+import com.udacity.securityservice.data.InMemorySecurityRepositoryImpl;
+import com.udacity.securityservice.data.Sensor;
+import com.udacity.securityservice.data.SensorType;
+import com.udacity.securityservice.service.SecurityService;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Several threads flipping their own sensors on one shared service, so every transition races the
+ * others for the alarm state. Run with {@code -t} to change the number of threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class ContendedSecurityServiceBenchmark {
+
+    private static final int SENSORS_PER_THREAD = 4;
+
+    @State(Scope.Benchmark)
+    public static class SharedService {
+        private SecurityService securityService;
+
+        @Setup
+        public void setUp() {
+            securityService = new SecurityService(
+                    new InMemorySecurityRepositoryImpl(AlarmStatus.NO_ALARM, ArmingStatus.ARMED_AWAY),
+                    (image, threshold) -> false);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class OwnSensors {
+        private final Sensor[] sensors = new Sensor[SENSORS_PER_THREAD];
+        private int next;
+
+        @Setup
+        public void setUp(SharedService shared) {
+            for (int i = 0; i < sensors.length; i++) {
+                sensors[i] = new Sensor("sensor " + i, SensorType.values()[i % SensorType.values().length]);
+                shared.securityService.addSensor(sensors[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    public AlarmStatus changeSensorActivationStatus(SharedService shared, OwnSensors own) {
+        Sensor sensor = own.sensors[own.next++ % own.sensors.length];
+        shared.securityService.changeSensorActivationStatus(sensor, !sensor.isActive());
+        return shared.securityService.getAlarmStatus();
+    }
+}
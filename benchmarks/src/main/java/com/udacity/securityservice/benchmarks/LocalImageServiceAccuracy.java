@@ -0,0 +1,161 @@
+package com.udacity.securityservice.benchmarks;
+
+import com.udacity.imageservice.LocalImageService;
+import com.udacity.imageservice.SyntheticCatImages;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.imageio.ImageIO;
+
+/**
+ * Measures how often {@link LocalImageService} is right on a labelled sample set, and how many frames
+ * it gets through, for example
+ * {@code java -cp benchmarks/target/benchmarks.jar com.udacity.securityservice.benchmarks.LocalImageServiceAccuracy frames=2000}.
+ *
+ * The sample set is drawn by {@link SyntheticCatImages} from a fixed seed, half of it with a cat,
+ * and differs from the samples the bundled model was trained on. The photos in the {@code photos}
+ * directory, by default the repository's images directory, are scored as well, one by one; a photo
+ * whose file name contains "not" is labelled as having no cat. Arguments are name=value pairs:
+ * {@code frames}, {@code seed}, {@code size} such as 640x480, {@code threshold} in percent and
+ * {@code photos}.
+ */
+public final class LocalImageServiceAccuracy {
+
+    static final long DEFAULT_SEED = 42;
+    // scans of each photo before the one that is timed
+    private static final int PHOTO_WARMUPS = 20;
+
+    private LocalImageServiceAccuracy() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int count = 1000;
+        long seed = DEFAULT_SEED;
+        int width = 640;
+        int height = 480;
+        float threshold = 50;
+        Path photos = Path.of("images");
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("Expected name=value but got " + arg);
+            }
+            String value = arg.substring(eq + 1);
+            switch (arg.substring(0, eq)) {
+                case "frames":
+                    count = Integer.parseInt(value);
+                    break;
+                case "seed":
+                    seed = Long.parseLong(value);
+                    break;
+                case "size":
+                    width = Integer.parseInt(value.substring(0, value.indexOf('x')));
+                    height = Integer.parseInt(value.substring(value.indexOf('x') + 1));
+                    break;
+                case "threshold":
+                    threshold = Float.parseFloat(value);
+                    break;
+                case "photos":
+                    photos = Path.of(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown argument " + arg);
+            }
+        }
+
+        Random random = new Random(seed);
+        BufferedImage[] frames = new BufferedImage[count];
+        boolean[] cats = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            cats[i] = i % 2 == 0;
+            frames[i] = SyntheticCatImages.frame(random, cats[i], width, height);
+        }
+        LocalImageService imageService = new LocalImageService();
+
+        // the first pass also warms up the JIT, so only the second one is timed
+        boolean[] verdicts = new boolean[count];
+        for (int pass = 0; pass < 2; pass++) {
+            long started = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                verdicts[i] = imageService.imageContainsCat(frames[i], threshold);
+            }
+            if (pass == 1) {
+                System.out.printf("one core: %.2f ms per frame%n", (System.nanoTime() - started) / 1e6 / count);
+            }
+        }
+        long started = System.nanoTime();
+        List<CompletableFuture<Boolean>> scans = new ArrayList<>(count);
+        for (BufferedImage frame : frames) {
+            scans.add(imageService.imageContainsCatAsync(frame, threshold));
+        }
+        CompletableFuture.allOf(scans.toArray(new CompletableFuture[0])).join();
+        System.out.printf("%d cores: %.0f frames per second%n", Runtime.getRuntime().availableProcessors(),
+                count / ((System.nanoTime() - started) / 1e9));
+
+        int truePositives = 0;
+        int falsePositives = 0;
+        int trueNegatives = 0;
+        int falseNegatives = 0;
+        for (int i = 0; i < count; i++) {
+            if (cats[i]) {
+                if (verdicts[i]) {
+                    truePositives++;
+                } else {
+                    falseNegatives++;
+                }
+            } else if (verdicts[i]) {
+                falsePositives++;
+            } else {
+                trueNegatives++;
+            }
+        }
+        System.out.printf("%d frames of %dx%d at %.0f%% confidence: %d true and %d false positives, "
+                        + "%d true and %d false negatives%n", count, width, height, threshold,
+                truePositives, falsePositives, trueNegatives, falseNegatives);
+        System.out.printf("accuracy %.1f%%, precision %.1f%%, recall %.1f%%%n",
+                100.0 * (truePositives + trueNegatives) / count,
+                100.0 * truePositives / Math.max(1, truePositives + falsePositives),
+                100.0 * truePositives / Math.max(1, truePositives + falseNegatives));
+
+        scorePhotos(imageService, photos, threshold);
+    }
+
+    private static void scorePhotos(LocalImageService imageService, Path directory, float threshold)
+            throws IOException {
+        if (!Files.isDirectory(directory)) {
+            System.out.printf("no photos in %s%n", directory);
+            return;
+        }
+        List<Path> files;
+        try (Stream<Path> listed = Files.list(directory)) {
+            files = listed.filter(f -> f.getFileName().toString().toLowerCase().matches(".*\\.(jpe?g|png)"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        int right = 0;
+        for (Path file : files) {
+            BufferedImage photo = ImageIO.read(file.toFile());
+            boolean cat = !file.getFileName().toString().toLowerCase().contains("not");
+            for (int i = 0; i < PHOTO_WARMUPS; i++) {
+                imageService.catConfidence(photo);
+            }
+            long started = System.nanoTime();
+            float confidence = imageService.catConfidence(photo);
+            double millis = (System.nanoTime() - started) / 1e6;
+            boolean verdict = confidence >= threshold;
+            if (verdict == cat) {
+                right++;
+            }
+            System.out.printf("%s, %dx%d, %s: %.1f%% in %.1f ms, %s%n", file.getFileName(), photo.getWidth(),
+                    photo.getHeight(), cat ? "cat" : "no cat", confidence, millis, verdict == cat ? "right" : "WRONG");
+        }
+        System.out.printf("%d of %d photos right at %.0f%% confidence%n", right, files.size(), threshold);
+    }
+}
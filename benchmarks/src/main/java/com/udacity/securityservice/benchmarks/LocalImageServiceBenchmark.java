@@ -0,0 +1,72 @@
+package com.udacity.securityservice.benchmarks;
+
+import com.udacity.imageservice.LocalImageService;
+import com.udacity.imageservice.SyntheticCatImages;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * How fast {@link LocalImageService} classifies camera frames, on one core and with a thread per
+ * core sharing one instance. The frames are the synthetic sample set of
+ * {@link LocalImageServiceAccuracy}, half of them with a cat.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocalImageServiceBenchmark {
+
+    private static final int FRAMES = 32;
+
+    @Param({"320x240", "640x480", "1280x720"})
+    private String frameSize;
+
+    private LocalImageService imageService;
+    private BufferedImage[] frames;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+    }
+
+    @Setup
+    public void setUp() {
+        int x = frameSize.indexOf('x');
+        int width = Integer.parseInt(frameSize.substring(0, x));
+        int height = Integer.parseInt(frameSize.substring(x + 1));
+        Random random = new Random(LocalImageServiceAccuracy.DEFAULT_SEED);
+        frames = new BufferedImage[FRAMES];
+        for (int i = 0; i < FRAMES; i++) {
+            frames[i] = SyntheticCatImages.frame(random, i % 2 == 0, width, height);
+        }
+        imageService = new LocalImageService();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public float classify(Cursor cursor) {
+        return imageService.catConfidence(frames[cursor.next++ % FRAMES]);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public float classifyOnAllCores(Cursor cursor) {
+        return imageService.catConfidence(frames[cursor.next++ % FRAMES]);
+    }
+}
@@ -0,0 +1,99 @@
+package com.udacity.securityservice.benchmarks;
+
+import com.google.common.reflect.TypeToken;
+import com.google.gson.Gson;
+import com.udacity.securityservice.data.JournalSecurityRepositoryImpl;
+import com.udacity.securityservice.data.Sensor;
+import com.udacity.securityservice.data.SensorType;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Loading the sensors on startup: the journal repository recovering from a snapshot plus a journal
+ * tail, against parsing the Gson JSON the repository used to keep in one preference. Preferences
+ * cap a value at 8 KB, so the JSON is parsed from memory, which is as fast as the old path could
+ * ever have been.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecoveryBenchmark {
+
+    private static final Gson gson = new Gson();
+    private static final Type SENSOR_SET_TYPE = new TypeToken<Set<Sensor>>(){}.getType();
+    // one update in ten is still in the journal when the repository is reopened
+    private static final int TAIL_SHARE = 10;
+
+    @Param({"1000", "100000"})
+    private int sensorCount;
+
+    private Path directory;
+    private String json;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("udasecurity-recovery");
+        Set<Sensor> sensors = new TreeSet<>();
+        List<Sensor> added = new ArrayList<>(sensorCount);
+        try (JournalSecurityRepositoryImpl repository = new JournalSecurityRepositoryImpl(directory, Integer.MAX_VALUE)) {
+            for (int i = 0; i < sensorCount; i++) {
+                Sensor sensor = new Sensor("sensor " + i, SensorType.values()[i % SensorType.values().length]);
+                repository.addSensor(sensor);
+                sensors.add(sensor);
+                added.add(sensor);
+            }
+            repository.compact();
+            for (int i = 0; i < sensorCount / TAIL_SHARE; i++) {
+                Sensor sensor = added.get(i * TAIL_SHARE);
+                sensor.setActive(true);
+                repository.updateSensor(sensor);
+            }
+        }
+        json = gson.toJson(sensors, SENSOR_SET_TYPE);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public Set<Sensor> journalRecovery() {
+        try (JournalSecurityRepositoryImpl repository = new JournalSecurityRepositoryImpl(directory, Integer.MAX_VALUE)) {
+            return repository.getSensors();
+        }
+    }
+
+    @Benchmark
+    public Set<Sensor> gsonLoad() {
+        return gson.fromJson(json, SENSOR_SET_TYPE);
+    }
+}
@@ -0,0 +1,90 @@
+package com.udacity.securityservice.benchmarks;
+
+import com.udacity.securityservice.data.PretendDatabaseSecurityRepositoryImpl;
+import com.udacity.securityservice.data.Sensor;
+import com.udacity.securityservice.data.SensorType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Adding and updating sensors in the preferences-backed repository, both writing every change
+ * through and writing behind. Every trial works on its own preference node, which is removed again
+ * afterwards, so the application's own sensors are never touched.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepositoryBenchmark {
+
+    private static final String BENCHMARK_NODE = "udasecurity-benchmarks";
+
+    @Param({"10", "1000", "100000"})
+    private int sensorCount;
+
+    /**
+     * Zero writes every change through, as the repository does by default.
+     */
+    @Param({"0", "500"})
+    private long flushDelayMillis;
+
+    private Preferences node;
+    private PretendDatabaseSecurityRepositoryImpl repository;
+    private List<Sensor> sensors;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        node = Preferences.userRoot().node(BENCHMARK_NODE).node(UUID.randomUUID().toString());
+        repository = new PretendDatabaseSecurityRepositoryImpl(node, flushDelayMillis, 256, false);
+        sensors = new ArrayList<>(sensorCount);
+        for (int i = 0; i < sensorCount; i++) {
+            Sensor sensor = new Sensor("sensor " + i, SensorType.values()[i % SensorType.values().length]);
+            repository.addSensor(sensor);
+            sensors.add(sensor);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws BackingStoreException {
+        repository.close();
+        node.removeNode();
+    }
+
+    /**
+     * Adds a sensor and removes it again, so the repository keeps its size.
+     */
+    @Benchmark
+    public Sensor addSensor() {
+        Sensor sensor = new Sensor("added " + next++, SensorType.DOOR);
+        repository.addSensor(sensor);
+        repository.removeSensor(sensor);
+        return sensor;
+    }
+
+    @Benchmark
+    public Sensor updateSensor() {
+        Sensor sensor = sensors.get(next++ % sensors.size());
+        sensor.setActive(!sensor.isActive());
+        repository.updateSensor(sensor);
+        return sensor;
+    }
+}
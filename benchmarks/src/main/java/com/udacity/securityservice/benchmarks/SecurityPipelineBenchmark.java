@@ -0,0 +1,87 @@
+package com.udacity.securityservice.benchmarks;
+
+import com.udacity.securityservice.data.AlarmStatus;
+import com.udacity.securityservice.data.ArmingStatus;
+import com.udacity.securityservice.data.InMemorySecurityRepositoryImpl;
+import com.udacity.securityservice.data.Sensor;
+import com.udacity.securityservice.data.SensorType;
+import com.udacity.securityservice.service.SecurityPipeline;
+import com.udacity.securityservice.service.SecurityService;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sensor changes handed to the {@link SecurityPipeline} against the same changes made directly on
+ * the service. The pipeline is drained after every iteration, so its score includes the work left
+ * in the ring.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SecurityPipelineBenchmark {
+
+    private static final int SENSORS = 64;
+
+    private Sensor[] directSensors;
+    private Sensor[] pipelinedSensors;
+    private SecurityService direct;
+    private SecurityPipeline pipeline;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        direct = newArmedService();
+        directSensors = direct.getSensors().toArray(new Sensor[0]);
+        SecurityService pipelined = newArmedService();
+        pipelinedSensors = pipelined.getSensors().toArray(new Sensor[0]);
+        // no flap detection, so both make exactly the same changes
+        pipeline = new SecurityPipeline(pipelined, SecurityPipeline.DEFAULT_RING_SIZE, Map.of());
+    }
+
+    @TearDown(Level.Iteration)
+    public void drain() {
+        pipeline.drain();
+    }
+
+    @TearDown
+    public void tearDown() {
+        pipeline.close();
+    }
+
+    @Benchmark
+    public void direct() {
+        int i = next++;
+        direct.changeSensorActivationStatus(directSensors[i % SENSORS], (i / SENSORS & 1) == 0);
+    }
+
+    @Benchmark
+    public void pipelined() {
+        int i = next++;
+        pipeline.publish(pipelinedSensors[i % SENSORS], (i / SENSORS & 1) == 0);
+    }
+
+    private static SecurityService newArmedService() {
+        SecurityService securityService = new SecurityService(
+                new InMemorySecurityRepositoryImpl(AlarmStatus.NO_ALARM, ArmingStatus.ARMED_AWAY),
+                (image, threshold) -> false);
+        for (int i = 0; i < SENSORS; i++) {
+            securityService.addSensor(new Sensor("sensor " + i, SensorType.values()[i % SensorType.values().length]));
+        }
+        return securityService;
+    }
+}
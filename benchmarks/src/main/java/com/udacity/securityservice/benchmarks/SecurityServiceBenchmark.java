@@ -0,0 +1,89 @@
+package com.udacity.securityservice.benchmarks;
+
+import com.udacity.securityservice.data.AlarmStatus;
+import com.udacity.securityservice.data.ArmingStatus;
+import com.udacity.securityservice.data.InMemorySecurityRepositoryImpl;
+import com.udacity.securityservice.data.Sensor;
+import com.udacity.securityservice.data.SensorType;
+import com.udacity.securityservice.service.SecurityService;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The service's entry points over an in-memory repository and an image service that answers
+ * instantly, so the numbers are the service's own cost. Arming walks every sensor, so it is run
+ * at several sensor counts.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SecurityServiceBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int sensorCount;
+
+    private SecurityService securityService;
+    private List<Sensor> sensors;
+    private BufferedImage image;
+    private boolean catInImage;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        securityService = new SecurityService(
+                new InMemorySecurityRepositoryImpl(AlarmStatus.NO_ALARM, ArmingStatus.ARMED_HOME),
+                (image, threshold) -> catInImage = !catInImage);
+        sensors = new ArrayList<>(sensorCount);
+        for (int i = 0; i < sensorCount; i++) {
+            Sensor sensor = new Sensor("sensor " + i, SensorType.values()[i % SensorType.values().length]);
+            securityService.addSensor(sensor);
+            sensors.add(sensor);
+        }
+        image = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+    }
+
+    /**
+     * Flips one sensor after another, so the alarm keeps moving between its statuses.
+     */
+    @Benchmark
+    public AlarmStatus changeSensorActivationStatus() {
+        Sensor sensor = sensors.get(next++ % sensors.size());
+        securityService.changeSensorActivationStatus(sensor, !sensor.isActive());
+        return securityService.getAlarmStatus();
+    }
+
+    /**
+     * Arms and disarms in turn. Arming resets every sensor that is active.
+     */
+    @Benchmark
+    public ArmingStatus setArmingStatus() {
+        ArmingStatus status = next++ % 2 == 0 ? ArmingStatus.DISARMED : ArmingStatus.ARMED_HOME;
+        securityService.setArmingStatus(status);
+        return status;
+    }
+
+    /**
+     * Alternates between images with and without a cat.
+     */
+    @Benchmark
+    public AlarmStatus processImage() {
+        securityService.processImage(image);
+        return securityService.getAlarmStatus();
+    }
+}
@@ -0,0 +1,73 @@
+package com.udacity.securityservice.benchmarks;
+
+import com.udacity.securityservice.data.Sensor;
+import com.udacity.securityservice.data.SensorType;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The comparisons behind every sorted sensor set and every hash lookup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SensorBenchmark {
+
+    private static final int SORTED_SENSORS = 1_000;
+
+    private Sensor sensor;
+    private Sensor differentName;
+    private Sensor sameName;
+    private Sensor[] unsorted;
+
+    @Setup
+    public void setUp() {
+        sensor = new Sensor("front door", SensorType.DOOR);
+        differentName = new Sensor("back door", SensorType.DOOR);
+        sameName = new Sensor("front door", SensorType.WINDOW);
+        unsorted = new Sensor[SORTED_SENSORS];
+        for (int i = 0; i < unsorted.length; i++) {
+            unsorted[i] = new Sensor("sensor " + (i * 7919 % SORTED_SENSORS), SensorType.MOTION);
+        }
+    }
+
+    @Benchmark
+    public int compareToDifferentName() {
+        return sensor.compareTo(differentName);
+    }
+
+    /**
+     * Equal names fall through to the later fields.
+     */
+    @Benchmark
+    public int compareToSameName() {
+        return sensor.compareTo(sameName);
+    }
+
+    @Benchmark
+    public int hashCodeOfSensor() {
+        return sensor.hashCode();
+    }
+
+    @Benchmark
+    public TreeSet<Sensor> sortSensors() {
+        TreeSet<Sensor> sorted = new TreeSet<>();
+        for (Sensor s : unsorted) {
+            sorted.add(s);
+        }
+        return sorted;
+    }
+}
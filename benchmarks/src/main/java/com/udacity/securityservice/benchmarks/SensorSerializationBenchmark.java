@@ -0,0 +1,83 @@
+package com.udacity.securityservice.benchmarks;
+
+import com.google.common.reflect.TypeToken;
+import com.google.gson.Gson;
+import com.udacity.securityservice.data.Sensor;
+import com.udacity.securityservice.data.SensorCodec;
+import com.udacity.securityservice.data.SensorType;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Writing the whole sensor set out and reading it back, as Gson JSON the way the repository used
+ * to store it and in the binary {@link SensorCodec} encoding it stores now.
+ *
+ * The sizes don't change from run to run, so SensorCodecTest checks them instead: a sensor takes
+ * 18 bytes plus its name in the codec and 92 plus its name and type as JSON, 29 against 109 bytes
+ * for a window named "Sensor 1234".
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SensorSerializationBenchmark {
+
+    private static final Gson gson = new Gson();
+    private static final Type SENSOR_SET_TYPE = new TypeToken<Set<Sensor>>(){}.getType();
+
+    @Param({"10", "1000", "100000"})
+    private int sensorCount;
+
+    private Set<Sensor> sensors;
+    private ByteBuffer buffer;
+
+    @Setup
+    public void setUp() {
+        sensors = new TreeSet<>();
+        int encodedSize = 0;
+        for (int i = 0; i < sensorCount; i++) {
+            Sensor sensor = new Sensor("sensor " + i, SensorType.values()[i % SensorType.values().length]);
+            sensor.setActive(i % 2 == 0);
+            sensors.add(sensor);
+            encodedSize += SensorCodec.maxEncodedSize(sensor);
+        }
+        buffer = ByteBuffer.allocate(encodedSize);
+    }
+
+    @Benchmark
+    public Set<Sensor> gsonRoundTrip() {
+        String json = gson.toJson(sensors, SENSOR_SET_TYPE);
+        return gson.fromJson(json, SENSOR_SET_TYPE);
+    }
+
+    @Benchmark
+    public Set<Sensor> codecRoundTrip() {
+        buffer.clear();
+        for (Sensor sensor : sensors) {
+            SensorCodec.write(sensor, buffer);
+        }
+        buffer.flip();
+        Set<Sensor> read = new HashSet<>(sensors.size() * 2);
+        while (buffer.hasRemaining()) {
+            read.add(SensorCodec.read(buffer));
+        }
+        return read;
+    }
+}
@@ -7,6 +7,7 @@ import software.amazon.awssdk.auth.credentials.AwsCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.core.SdkBytes;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.rekognition.RekognitionAsyncClient;
 import software.amazon.awssdk.services.rekognition.RekognitionClient;
 import software.amazon.awssdk.services.rekognition.model.DetectLabelsRequest;
 import software.amazon.awssdk.services.rekognition.model.DetectLabelsResponse;
@@ -17,7 +18,10 @@ import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 /**
@@ -39,6 +43,7 @@ public class AwsImageService implements ImageService {
 
     //aws recommendation is to maintain only a single instance of client objects
     private static RekognitionClient rekognitionClient;
+    private static RekognitionAsyncClient rekognitionAsyncClient;
 
     public AwsImageService() {
         Properties props = new Properties();
@@ -58,20 +63,106 @@ public class AwsImageService implements ImageService {
                 .credentialsProvider(StaticCredentialsProvider.create(awsCredentials))
                 .region(Region.of(awsRegion))
                 .build();
+        rekognitionAsyncClient = RekognitionAsyncClient.builder()
+                .credentialsProvider(StaticCredentialsProvider.create(awsCredentials))
+                .region(Region.of(awsRegion))
+                .build();
     }
 
     @Override
     public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
-        Image awsImage = null;
+        Image awsImage = toAwsImage(image);
+        if (awsImage == null) {
+            return false;
+        }
+        DetectLabelsResponse response = rekognitionClient.detectLabels(detectLabelsRequest(awsImage, confidenceThreshold));
+        return containsCat(response);
+    }
+
+    /**
+     * Uses the given clients instead of the ones built from config.properties.
+     */
+    AwsImageService(RekognitionClient client, RekognitionAsyncClient asyncClient) {
+        rekognitionClient = client;
+        rekognitionAsyncClient = asyncClient;
+    }
+
+    /**
+     * Encodes the image on the common pool and sends it with the async client, so no thread waits
+     * for the round trip. Completing the future before the verdict, by cancelling it or by a timeout
+     * such as {@link CompletableFuture#orTimeout}, aborts the request, or skips it if the image is
+     * still being encoded.
+     */
+    @Override
+    public CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image, float confidenceThreshold) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        CompletableFuture<Image> encoded = CompletableFuture.supplyAsync(() -> toAwsImage(image));
+        encoded.whenComplete((awsImage, encodingFailure) -> {
+            if (encodingFailure != null) {
+                result.completeExceptionally(encodingFailure);
+            } else if (awsImage == null) {
+                result.complete(false);
+            } else if (!result.isDone()) {
+                CompletableFuture<DetectLabelsResponse> request =
+                        rekognitionAsyncClient.detectLabels(detectLabelsRequest(awsImage, confidenceThreshold));
+                // runs at once if the result was completed while the request was being sent
+                result.whenComplete((cat, e) -> {
+                    if (e != null) {
+                        request.cancel(true);
+                    }
+                });
+                request.whenComplete((response, requestFailure) -> {
+                    if (requestFailure != null) {
+                        result.completeExceptionally(requestFailure);
+                        return;
+                    }
+                    try {
+                        result.complete(containsCat(response));
+                    } catch (RuntimeException e) {
+                        result.completeExceptionally(e);
+                    }
+                });
+            }
+        });
+        result.whenComplete((cat, e) -> {
+            if (e != null) {
+                encoded.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Sends all the images at once and waits for the last verdict, so the round trips overlap.
+     */
+    @Override
+    public List<Boolean> imageContainsCatBatch(List<BufferedImage> images, float confidenceThreshold) {
+        List<CompletableFuture<Boolean>> calls = new ArrayList<>(images.size());
+        for (BufferedImage image : images) {
+            calls.add(imageContainsCatAsync(image, confidenceThreshold));
+        }
+        List<Boolean> verdicts = new ArrayList<>(calls.size());
+        for (CompletableFuture<Boolean> call : calls) {
+            verdicts.add(call.join());
+        }
+        return verdicts;
+    }
+
+    private Image toAwsImage(BufferedImage image) {
         try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
             ImageIO.write(image, "jpg", os);
-            awsImage = Image.builder().bytes(SdkBytes.fromByteArray(os.toByteArray())).build();
+            return Image.builder().bytes(SdkBytes.fromByteArray(os.toByteArray())).build();
         } catch (IOException ioe) {
             log.error("Error building image byte array", ioe);
-            return false;
+            return null;
         }
-        DetectLabelsRequest detectLabelsRequest = DetectLabelsRequest.builder().image(awsImage).minConfidence(confidenceThreshold).build();
-        DetectLabelsResponse response = rekognitionClient.detectLabels(detectLabelsRequest);
+    }
+
+    private static DetectLabelsRequest detectLabelsRequest(Image awsImage, float confidenceThreshold) {
+        return DetectLabelsRequest.builder().image(awsImage).minConfidence(confidenceThreshold).build();
+    }
+
+    private boolean containsCat(DetectLabelsResponse response) {
         logLabelsForFun(response);
         return response.labels().stream().filter(l -> l.name().toLowerCase().contains("cat")).findFirst().isPresent();
     }
@@ -0,0 +1,319 @@
+package com.udacity.imageservice;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Image service that reuses recent verdicts for images that look the same. Cameras resend nearly
+ * identical frames, and each one would otherwise cost a JPEG encode and a round trip.
+ *
+ * Every image is reduced to a 64 bit difference hash (dHash): the image is averaged down to 9x8
+ * gray cells and each bit says whether a cell is clearly darker than its right neighbour. Frames
+ * that differ only by noise, compression or a small change in light have hashes a few bits apart,
+ * so a cat verdict is reused for any image whose hash is within {@code maxDistance} bits of a
+ * cached one, for the same confidence threshold.
+ *
+ * A verdict of no cat needs more. A cat that walks into a cached scene covers only a few of the
+ * hash cells and often leaves the hash as it was, so the cache also keeps a 32x24 grid of the scene
+ * and reuses the verdict only if no cell of the new image strays further from it than sensor noise
+ * does. The cache holds the most recently used verdicts, each for a limited time.
+ *
+ * Hashing and the grid read a few thousand pixels each, so they take a fraction of a millisecond
+ * whatever the size of the image, and a lookup compares against every cached hash in microseconds.
+ * Both are far below one classification.
+ */
+public class CachingImageService implements ImageService {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final long DEFAULT_TTL_MILLIS = 30_000;
+    public static final int DEFAULT_MAX_DISTANCE = 4;
+
+    private static final int HASH_WIDTH = 9;
+    private static final int HASH_HEIGHT = 8;
+    private static final int SAMPLES_PER_CELL = 16;
+    // a cell must be this much darker than its neighbour to set its bit, so flat areas don't flip on noise
+    private static final int MARGIN = 2 * LumaGrid.SCALE;
+    private static final int GRID_COLUMNS = 32;
+    private static final int GRID_ROWS = 24;
+    private static final int GRID_SAMPLES_PER_CELL = 4;
+    // sensor noise moves a cell of the grid by up to about six luma levels
+    private static final int NO_CAT_CELL_TOLERANCE = 8 * LumaGrid.SCALE;
+
+    private final ImageService delegate;
+    private final int capacity;
+    private final long ttlNanos;
+    private final int maxDistance;
+    // least recently used first
+    private final LinkedHashMap<Key, Verdict> verdicts;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder savedNanos = new LongAdder();
+
+    public CachingImageService(ImageService delegate) {
+        this(delegate, DEFAULT_CAPACITY, DEFAULT_TTL_MILLIS, DEFAULT_MAX_DISTANCE);
+    }
+
+    /**
+     * @param capacity How many verdicts to keep.
+     * @param ttlMillis How long a verdict may be reused.
+     * @param maxDistance How many of the 64 hash bits may differ for two images to count as the same.
+     */
+    public CachingImageService(ImageService delegate, int capacity, long ttlMillis, int maxDistance) {
+        if (capacity < 1 || ttlMillis < 0 || maxDistance < 0 || maxDistance > Long.SIZE) {
+            throw new IllegalArgumentException("Invalid cache settings");
+        }
+        this.delegate = delegate;
+        this.capacity = capacity;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.maxDistance = maxDistance;
+        this.verdicts = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Verdict> eldest) {
+                return size() > CachingImageService.this.capacity;
+            }
+        };
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        if (image == null) {
+            return delegate.imageContainsCat(image, confidenceThreshold);
+        }
+        Key key = new Key(hash(image), confidenceThreshold);
+        int[] grid = grid(image);
+        Verdict cached = lookUp(key, grid);
+        if (cached != null) {
+            return cached.cat;
+        }
+        long started = System.nanoTime();
+        boolean cat = delegate.imageContainsCat(image, confidenceThreshold);
+        store(key, grid, cat, System.nanoTime() - started);
+        return cat;
+    }
+
+    /**
+     * Answers from the cache at once when it can. Otherwise asks the wrapped service, and cancelling
+     * the returned future cancels that call.
+     */
+    @Override
+    public CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image, float confidenceThreshold) {
+        if (image == null) {
+            return delegate.imageContainsCatAsync(image, confidenceThreshold);
+        }
+        Key key = new Key(hash(image), confidenceThreshold);
+        int[] grid = grid(image);
+        Verdict cached = lookUp(key, grid);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached.cat);
+        }
+        long started = System.nanoTime();
+        CompletableFuture<Boolean> call = delegate.imageContainsCatAsync(image, confidenceThreshold);
+        CompletableFuture<Boolean> result = call.thenApply(cat -> {
+            store(key, grid, cat, System.nanoTime() - started);
+            return cat;
+        });
+        result.whenComplete((cat, e) -> {
+            if (result.isCancelled()) {
+                call.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Answers what it can from the cache and passes the rest on to the wrapped service as one batch.
+     */
+    @Override
+    public List<Boolean> imageContainsCatBatch(List<BufferedImage> images, float confidenceThreshold) {
+        Boolean[] verdicts = new Boolean[images.size()];
+        List<Integer> missed = new ArrayList<>();
+        List<BufferedImage> missedImages = new ArrayList<>();
+        Key[] keys = new Key[images.size()];
+        int[][] grids = new int[images.size()][];
+        for (int i = 0; i < images.size(); i++) {
+            BufferedImage image = images.get(i);
+            Verdict cached = null;
+            if (image != null) {
+                keys[i] = new Key(hash(image), confidenceThreshold);
+                grids[i] = grid(image);
+                cached = lookUp(keys[i], grids[i]);
+            }
+            if (cached != null) {
+                verdicts[i] = cached.cat;
+            } else {
+                missed.add(i);
+                missedImages.add(image);
+            }
+        }
+        if (!missedImages.isEmpty()) {
+            long started = System.nanoTime();
+            List<Boolean> classified = delegate.imageContainsCatBatch(missedImages, confidenceThreshold);
+            // each image is credited with its share of the batch
+            long classificationNanos = (System.nanoTime() - started) / missedImages.size();
+            for (int m = 0; m < missed.size(); m++) {
+                int i = missed.get(m);
+                verdicts[i] = classified.get(m);
+                if (keys[i] != null) {
+                    store(keys[i], grids[i], verdicts[i], classificationNanos);
+                }
+            }
+        }
+        return Arrays.asList(verdicts);
+    }
+
+    private synchronized Verdict lookUp(Key key, int[] grid) {
+        long now = System.nanoTime();
+        Verdict exact = verdicts.get(key);
+        if (exact != null && now - exact.storedAt <= ttlNanos && exact.holdsFor(grid)) {
+            return hit(exact);
+        }
+        Key closest = null;
+        int closestDistance = maxDistance + 1;
+        for (Iterator<Map.Entry<Key, Verdict>> it = verdicts.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Key, Verdict> entry = it.next();
+            if (now - entry.getValue().storedAt > ttlNanos) {
+                it.remove();
+                continue;
+            }
+            Key candidate = entry.getKey();
+            if (candidate.confidenceThreshold == key.confidenceThreshold) {
+                int distance = Long.bitCount(candidate.hash ^ key.hash);
+                if (distance < closestDistance && entry.getValue().holdsFor(grid)) {
+                    closest = candidate;
+                    closestDistance = distance;
+                }
+            }
+        }
+        if (closest == null) {
+            misses.increment();
+            return null;
+        }
+        // marks it as recently used
+        return hit(verdicts.get(closest));
+    }
+
+    private Verdict hit(Verdict verdict) {
+        hits.increment();
+        savedNanos.add(verdict.classificationNanos);
+        return verdict;
+    }
+
+    private synchronized void store(Key key, int[] grid, boolean cat, long classificationNanos) {
+        verdicts.put(key, new Verdict(cat, cat ? null : grid, classificationNanos, System.nanoTime()));
+    }
+
+    /**
+     * @return the difference hash of the image, row by row with the top left cell in the highest bit
+     */
+    static long hash(BufferedImage image) {
+        int[] luminance = LumaGrid.of(image, HASH_WIDTH, HASH_HEIGHT, SAMPLES_PER_CELL);
+        long hash = 0;
+        for (int cy = 0; cy < HASH_HEIGHT; cy++) {
+            for (int cx = 0; cx < HASH_WIDTH - 1; cx++) {
+                int cell = cy * HASH_WIDTH + cx;
+                hash = hash << 1 | (luminance[cell] + MARGIN < luminance[cell + 1] ? 1 : 0);
+            }
+        }
+        return hash;
+    }
+
+    private static int[] grid(BufferedImage image) {
+        return LumaGrid.of(image, GRID_COLUMNS, GRID_ROWS, GRID_SAMPLES_PER_CELL);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the share of images answered from the cache, between 0 and 1
+     */
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /**
+     * @return how long the wrapped service took for the verdicts that were reused, added up
+     */
+    public long getSavedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(savedNanos.sum());
+    }
+
+    public synchronized int getSize() {
+        return verdicts.size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d hits, %d misses (%.1f%% hit rate), %d ms saved, %d cached",
+                getHits(), getMisses(), getHitRate() * 100, getSavedMillis(), getSize());
+    }
+
+    private static final class Key {
+        private final long hash;
+        private final float confidenceThreshold;
+
+        Key(long hash, float confidenceThreshold) {
+            this.hash = hash;
+            this.confidenceThreshold = confidenceThreshold;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash && Float.compare(confidenceThreshold, other.confidenceThreshold) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hash) * 31 + Float.hashCode(confidenceThreshold);
+        }
+    }
+
+    private static final class Verdict {
+        private final boolean cat;
+        // grid of the scene, kept for verdicts of no cat only
+        private final int[] grid;
+        private final long classificationNanos;
+        private final long storedAt;
+
+        Verdict(boolean cat, int[] grid, long classificationNanos, long storedAt) {
+            this.cat = cat;
+            this.grid = grid;
+            this.classificationNanos = classificationNanos;
+            this.storedAt = storedAt;
+        }
+
+        /**
+         * @return true if the verdict may be reused for an image with the given grid and a similar hash
+         */
+        boolean holdsFor(int[] other) {
+            if (cat) {
+                return true;
+            }
+            for (int i = 0; i < grid.length; i++) {
+                if (Math.abs(grid[i] - other[i]) > NO_CAT_CELL_TOLERANCE) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
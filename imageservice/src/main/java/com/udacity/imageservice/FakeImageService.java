@@ -2,6 +2,7 @@ package com.udacity.imageservice;
 
 import java.awt.image.BufferedImage;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 
 public class FakeImageService implements ImageService {
 
@@ -11,4 +12,9 @@ public class FakeImageService implements ImageService {
     public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
         return r.nextBoolean();
     }
+
+    @Override
+    public CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image, float confidenceThreshold) {
+        return CompletableFuture.completedFuture(imageContainsCat(image, confidenceThreshold));
+    }
 }
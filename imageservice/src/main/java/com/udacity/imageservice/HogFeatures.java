@@ -0,0 +1,230 @@
+package com.udacity.imageservice;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+
+/**
+ * Histograms of oriented gradients, as in Dalal and Triggs: the gray image is split into 8x8 pixel
+ * cells, each cell gets a histogram of its gradient directions weighted by their strength, and
+ * every 2x2 cells form a block whose four histograms are normalized together. A detection window is
+ * 8x8 cells, so its descriptor is the 7x7 blocks inside it.
+ *
+ * Everything works on primitive float arrays laid out row by row, and the block descriptors of an
+ * image are computed once for all the windows that overlap them.
+ */
+final class HogFeatures {
+
+    static final int CELL_SIZE = 8;
+    static final int BINS = 9;
+    static final int BLOCK_CELLS = 2;
+    static final int BLOCK_LENGTH = BLOCK_CELLS * BLOCK_CELLS * BINS;
+    static final int WINDOW_CELLS = 8;
+    static final int WINDOW_SIZE = WINDOW_CELLS * CELL_SIZE;
+    static final int WINDOW_BLOCKS = WINDOW_CELLS - BLOCK_CELLS + 1;
+    static final int WINDOW_LENGTH = WINDOW_BLOCKS * WINDOW_BLOCKS * BLOCK_LENGTH;
+
+    // L2-Hys: block values are clipped to this after the first normalization
+    private static final float CLIP = 0.2f;
+    private static final float EPSILON = 1e-6f;
+    // pixels read per output pixel and direction when scaling an image down
+    private static final int SAMPLES_PER_PIXEL = 2;
+
+    private HogFeatures() {
+    }
+
+    /**
+     * Block descriptors of one image, ready to be read window by window.
+     */
+    static final class Blocks {
+        final float[] values;
+        final int blocksX;
+        final int blocksY;
+
+        Blocks(float[] values, int blocksX, int blocksY) {
+            this.values = values;
+            this.blocksX = blocksX;
+            this.blocksY = blocksY;
+        }
+
+        /**
+         * @return how many windows fit across, stepping one cell at a time
+         */
+        int windowsX() {
+            return Math.max(0, blocksX - WINDOW_BLOCKS + 1);
+        }
+
+        int windowsY() {
+            return Math.max(0, blocksY - WINDOW_BLOCKS + 1);
+        }
+
+        /**
+         * @return the descriptor of the window whose top left cell is given, as its own array
+         */
+        float[] window(int cellX, int cellY) {
+            float[] window = new float[WINDOW_LENGTH];
+            for (int by = 0; by < WINDOW_BLOCKS; by++) {
+                System.arraycopy(values, ((cellY + by) * blocksX + cellX) * BLOCK_LENGTH,
+                        window, by * WINDOW_BLOCKS * BLOCK_LENGTH, WINDOW_BLOCKS * BLOCK_LENGTH);
+            }
+            return window;
+        }
+    }
+
+    /**
+     * @return the image scaled to the given size, in gray levels between 0 and 1
+     */
+    static float[] gray(BufferedImage image, int width, int height) {
+        int imageWidth = image.getWidth();
+        int imageHeight = image.getHeight();
+        int[] left = new int[width];
+        int[] right = new int[width];
+        int[] stepX = new int[width];
+        for (int x = 0; x < width; x++) {
+            left[x] = x * imageWidth / width;
+            right[x] = Math.min(imageWidth, Math.max(left[x] + 1, (x + 1) * imageWidth / width));
+            stepX[x] = Math.max(1, (right[x] - left[x]) / SAMPLES_PER_PIXEL);
+        }
+        float[] gray = new float[width * height];
+        float[] sums = new float[width];
+        int[] counts = new int[width];
+        int[] row = new int[imageWidth];
+        // camera frames are usually packed RGB, whose rows can be copied without converting each pixel
+        boolean packed = image.getType() == BufferedImage.TYPE_INT_RGB || image.getType() == BufferedImage.TYPE_INT_ARGB;
+        WritableRaster raster = image.getRaster();
+        for (int y = 0; y < height; y++) {
+            int top = y * imageHeight / height;
+            int bottom = Math.min(imageHeight, Math.max(top + 1, (y + 1) * imageHeight / height));
+            int stepY = Math.max(1, (bottom - top) / SAMPLES_PER_PIXEL);
+            Arrays.fill(sums, 0);
+            Arrays.fill(counts, 0);
+            for (int sy = top; sy < bottom; sy += stepY) {
+                if (packed) {
+                    raster.getDataElements(0, sy, imageWidth, 1, row);
+                } else {
+                    image.getRGB(0, sy, imageWidth, 1, row, 0, imageWidth);
+                }
+                for (int x = 0; x < width; x++) {
+                    for (int sx = left[x]; sx < right[x]; sx += stepX[x]) {
+                        int rgb = row[sx];
+                        sums[x] += 0.299f * (rgb >> 16 & 0xff) + 0.587f * (rgb >> 8 & 0xff) + 0.114f * (rgb & 0xff);
+                        counts[x]++;
+                    }
+                }
+            }
+            for (int x = 0; x < width; x++) {
+                gray[y * width + x] = sums[x] / (255f * counts[x]);
+            }
+        }
+        return gray;
+    }
+
+    /**
+     * @return the gray image scaled down to the given size, each pixel the average of the pixels it covers
+     */
+    static float[] shrink(float[] gray, int width, int height, int toWidth, int toHeight) {
+        float[] shrunk = new float[toWidth * toHeight];
+        for (int y = 0; y < toHeight; y++) {
+            int top = y * height / toHeight;
+            int bottom = Math.max(top + 1, (y + 1) * height / toHeight);
+            for (int x = 0; x < toWidth; x++) {
+                int left = x * width / toWidth;
+                int right = Math.max(left + 1, (x + 1) * width / toWidth);
+                float sum = 0;
+                for (int sy = top; sy < bottom; sy++) {
+                    for (int sx = left; sx < right; sx++) {
+                        sum += gray[sy * width + sx];
+                    }
+                }
+                shrunk[y * toWidth + x] = sum / ((bottom - top) * (right - left));
+            }
+        }
+        return shrunk;
+    }
+
+    /**
+     * @return the normalized block descriptors of a gray image
+     */
+    static Blocks blocks(float[] gray, int width, int height) {
+        int cellsX = width / CELL_SIZE;
+        int cellsY = height / CELL_SIZE;
+        float[] cells = cellHistograms(gray, width, height, cellsX, cellsY);
+        int blocksX = Math.max(0, cellsX - BLOCK_CELLS + 1);
+        int blocksY = Math.max(0, cellsY - BLOCK_CELLS + 1);
+        float[] blocks = new float[blocksX * blocksY * BLOCK_LENGTH];
+        for (int by = 0; by < blocksY; by++) {
+            for (int bx = 0; bx < blocksX; bx++) {
+                int offset = (by * blocksX + bx) * BLOCK_LENGTH;
+                for (int cy = 0; cy < BLOCK_CELLS; cy++) {
+                    for (int cx = 0; cx < BLOCK_CELLS; cx++) {
+                        System.arraycopy(cells, ((by + cy) * cellsX + bx + cx) * BINS,
+                                blocks, offset + (cy * BLOCK_CELLS + cx) * BINS, BINS);
+                    }
+                }
+                normalize(blocks, offset);
+                for (int i = offset; i < offset + BLOCK_LENGTH; i++) {
+                    blocks[i] = Math.min(blocks[i], CLIP);
+                }
+                normalize(blocks, offset);
+            }
+        }
+        return new Blocks(blocks, blocksX, blocksY);
+    }
+
+    private static float[] cellHistograms(float[] gray, int width, int height, int cellsX, int cellsY) {
+        float[] cells = new float[cellsX * cellsY * BINS];
+        float binWidth = (float) Math.PI / BINS;
+        for (int y = 0; y < cellsY * CELL_SIZE; y++) {
+            int up = Math.max(0, y - 1) * width;
+            int down = Math.min(height - 1, y + 1) * width;
+            int row = y * width;
+            int cellRow = y / CELL_SIZE * cellsX;
+            for (int x = 0; x < cellsX * CELL_SIZE; x++) {
+                float dx = gray[row + Math.min(width - 1, x + 1)] - gray[row + Math.max(0, x - 1)];
+                float dy = gray[down + x] - gray[up + x];
+                float magnitude = (float) Math.sqrt(dx * dx + dy * dy);
+                if (magnitude == 0) {
+                    continue;
+                }
+                // unsigned orientation, shared between the two nearest bins
+                float position = orientation(dx, dy) / binWidth - 0.5f;
+                int lower = position < 0 ? -1 : (int) position;
+                float upperShare = position - lower;
+                int cell = (cellRow + x / CELL_SIZE) * BINS;
+                cells[cell + (lower < 0 ? BINS - 1 : lower)] += magnitude * (1 - upperShare);
+                cells[cell + (lower + 1 == BINS ? 0 : lower + 1)] += magnitude * upperShare;
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * @return the direction of the gradient between 0 and pi, within a thousandth of a radian; a
+     * third order arctangent is several times faster than {@link Math#atan2}
+     */
+    static float orientation(float dx, float dy) {
+        if (dy < 0) {
+            dx = -dx;
+            dy = -dy;
+        }
+        float ax = Math.abs(dx);
+        float ratio = Math.min(ax, dy) / Math.max(ax, dy);
+        float square = ratio * ratio;
+        float angle = ((-0.0464964749f * square + 0.15931422f) * square - 0.327622764f) * square * ratio + ratio;
+        if (dy > ax) {
+            angle = (float) (Math.PI / 2) - angle;
+        }
+        return dx < 0 ? (float) Math.PI - angle : angle;
+    }
+
+    private static void normalize(float[] values, int offset) {
+        float sum = EPSILON;
+        for (int i = offset; i < offset + BLOCK_LENGTH; i++) {
+            sum += values[i] * values[i];
+        }
+        float scale = (float) (1 / Math.sqrt(sum));
+        for (int i = offset; i < offset + BLOCK_LENGTH; i++) {
+            values[i] *= scale;
+        }
+    }
+}
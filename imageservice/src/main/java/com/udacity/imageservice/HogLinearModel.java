@@ -0,0 +1,104 @@
+package com.udacity.imageservice;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Linear model over the HOG descriptor of a 64x64 pixel window: the score of a window is the dot
+ * product of its descriptor with the weights, plus the bias, and the logistic function turns the
+ * score into the probability that the window shows a cat.
+ *
+ * The model is stored as a small binary file: a magic number, a format version, the descriptor
+ * settings it was trained for, then the weights and the bias as big-endian floats.
+ */
+public final class HogLinearModel {
+
+    private static final int MAGIC = 0x484F474C; // "HOGL"
+    private static final int VERSION = 1;
+
+    private final float[] weights;
+    private final float bias;
+
+    HogLinearModel(float[] weights, float bias) {
+        if (weights.length != HogFeatures.WINDOW_LENGTH) {
+            throw new IllegalArgumentException("Expected " + HogFeatures.WINDOW_LENGTH + " weights, got " + weights.length);
+        }
+        this.weights = weights.clone();
+        this.bias = bias;
+    }
+
+    /**
+     * Reads a model written by {@link #write}.
+     *
+     * @throws IOException if the stream holds no model, or one for other descriptor settings
+     */
+    public static HogLinearModel read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a HOG model");
+        }
+        int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported HOG model version " + version);
+        }
+        if (data.readInt() != HogFeatures.CELL_SIZE || data.readInt() != HogFeatures.BINS
+                || data.readInt() != HogFeatures.WINDOW_CELLS || data.readInt() != HogFeatures.WINDOW_LENGTH) {
+            throw new IOException("HOG model was trained for other descriptor settings");
+        }
+        float[] weights = new float[HogFeatures.WINDOW_LENGTH];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = data.readFloat();
+        }
+        return new HogLinearModel(weights, data.readFloat());
+    }
+
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(HogFeatures.CELL_SIZE);
+        data.writeInt(HogFeatures.BINS);
+        data.writeInt(HogFeatures.WINDOW_CELLS);
+        data.writeInt(HogFeatures.WINDOW_LENGTH);
+        for (float weight : weights) {
+            data.writeFloat(weight);
+        }
+        data.writeFloat(bias);
+        data.flush();
+    }
+
+    /**
+     * @return the score of the window whose top left cell is given, without copying its descriptor
+     */
+    float score(HogFeatures.Blocks blocks, int cellX, int cellY) {
+        float[] values = blocks.values;
+        int rowLength = HogFeatures.WINDOW_BLOCKS * HogFeatures.BLOCK_LENGTH;
+        float sum = bias;
+        for (int by = 0; by < HogFeatures.WINDOW_BLOCKS; by++) {
+            int from = ((cellY + by) * blocks.blocksX + cellX) * HogFeatures.BLOCK_LENGTH;
+            int w = by * rowLength;
+            for (int i = 0; i < rowLength; i++) {
+                sum += weights[w + i] * values[from + i];
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * @return the score of a descriptor laid out as {@link HogFeatures.Blocks#window} returns it
+     */
+    float score(float[] window) {
+        float sum = bias;
+        for (int i = 0; i < weights.length; i++) {
+            sum += weights[i] * window[i];
+        }
+        return sum;
+    }
+
+    static float probability(float score) {
+        return (float) (1 / (1 + Math.exp(-score)));
+    }
+}
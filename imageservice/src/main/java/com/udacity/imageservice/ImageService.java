@@ -1,9 +1,38 @@
 package com.udacity.imageservice;
 
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface ImageService {
 
     public boolean imageContainsCat(BufferedImage image, float confidenceThreshold);
 
+    /**
+     * Classifies the image without blocking the caller. Cancelling the returned future may abort the
+     * classification, so every call must return a future of its own.
+     *
+     * The default runs {@link #imageContainsCat} on the common pool; services that wait on the
+     * network should override it with a truly asynchronous call.
+     */
+    public default CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image, float confidenceThreshold) {
+        return CompletableFuture.supplyAsync(() -> imageContainsCat(image, confidenceThreshold));
+    }
+
+    /**
+     * Classifies several images in one call, typically frames of different cameras.
+     *
+     * The default classifies them one after the other; services that can share work between the
+     * images, or overlap their calls, should override it.
+     * @return the verdict on each image, in the order of the images
+     */
+    public default List<Boolean> imageContainsCatBatch(List<BufferedImage> images, float confidenceThreshold) {
+        List<Boolean> verdicts = new ArrayList<>(images.size());
+        for (BufferedImage image : images) {
+            verdicts.add(imageContainsCat(image, confidenceThreshold));
+        }
+        return verdicts;
+    }
+
 }
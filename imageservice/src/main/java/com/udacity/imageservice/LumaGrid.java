@@ -0,0 +1,49 @@
+package com.udacity.imageservice;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Reduces an image to a small grid of gray cells, for comparing images cheaply. Each cell holds the
+ * average brightness of its part of the image, in sixteenths of a luma level so that small
+ * differences survive the averaging.
+ */
+final class LumaGrid {
+
+    // steps of a cell's brightness per luma level
+    static final int SCALE = 16;
+
+    private LumaGrid() {
+    }
+
+    /**
+     * @param samplesPerCell Pixels read per cell and direction at most; larger images are sampled.
+     * @return the brightness of each cell, row by row
+     */
+    static int[] of(BufferedImage image, int columns, int rows, int samplesPerCell) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] cells = new int[columns * rows];
+        for (int cy = 0; cy < rows; cy++) {
+            int top = cy * height / rows;
+            int bottom = Math.max(top + 1, (cy + 1) * height / rows);
+            int stepY = Math.max(1, (bottom - top) / samplesPerCell);
+            for (int cx = 0; cx < columns; cx++) {
+                int left = cx * width / columns;
+                int right = Math.max(left + 1, (cx + 1) * width / columns);
+                int stepX = Math.max(1, (right - left) / samplesPerCell);
+                int sum = 0;
+                int samples = 0;
+                for (int y = top; y < bottom && y < height; y += stepY) {
+                    for (int x = left; x < right && x < width; x += stepX) {
+                        int rgb = image.getRGB(x, y);
+                        // integer Rec. 601 luma
+                        sum += (299 * (rgb >> 16 & 0xff) + 587 * (rgb >> 8 & 0xff) + 114 * (rgb & 0xff)) / 1000;
+                        samples++;
+                    }
+                }
+                cells[cy * columns + cx] = samples == 0 ? 0 : sum * SCALE / samples;
+            }
+        }
+        return cells;
+    }
+}
@@ -0,0 +1,182 @@
+package com.udacity.imageservice;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Image service that only asks the wrapped service about frames in which something moved. Most
+ * camera frames show a static scene, and for those the last verdict still holds.
+ *
+ * Each frame is reduced to a 32x24 grid of gray cells and compared with the grid of the frame that
+ * was last classified, so slow changes add up until they count. A cell has changed when its
+ * brightness differs by more than {@code cellThreshold} luma levels, and the frame is classified
+ * when more than {@code changedShare} of the cells have changed, when the confidence threshold
+ * differs, or when the last verdict is older than {@code maxReuseMillis}.
+ *
+ * One instance remembers one camera: give every camera its own. A batch holds frames of different
+ * cameras, so it bypasses the gate; the gate can't sit under a pipeline that batches the frames of
+ * many cameras, and belongs in front of it, one per camera.
+ */
+public class MotionGatedImageService implements ImageService {
+
+    public static final int DEFAULT_CELL_THRESHOLD = 10;
+    // more than two of the 768 cells, about what a cat across the room covers
+    public static final double DEFAULT_CHANGED_SHARE = 0.003;
+    public static final long DEFAULT_MAX_REUSE_MILLIS = 60_000;
+
+    private static final int COLUMNS = 32;
+    private static final int ROWS = 24;
+    private static final int SAMPLES_PER_CELL = 4;
+
+    private final ImageService delegate;
+    private final int cellThreshold;
+    private final int maxChangedCells;
+    private final long maxReuseNanos;
+    // grid, threshold and verdict of the last frame classified; guarded by this
+    private int[] reference;
+    private float referenceConfidenceThreshold;
+    private boolean verdict;
+    private long classifiedAt;
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder classified = new LongAdder();
+
+    public MotionGatedImageService(ImageService delegate) {
+        this(delegate, DEFAULT_CELL_THRESHOLD, DEFAULT_CHANGED_SHARE, DEFAULT_MAX_REUSE_MILLIS);
+    }
+
+    /**
+     * @param cellThreshold Luma levels, out of 255, by which a cell must change to count as changed.
+     * @param changedShare Share of changed cells, between 0 and 1, above which the frame is classified.
+     * @param maxReuseMillis How long a verdict may be reused for a static scene.
+     */
+    public MotionGatedImageService(ImageService delegate, int cellThreshold, double changedShare, long maxReuseMillis) {
+        if (cellThreshold < 0 || changedShare < 0 || changedShare > 1 || maxReuseMillis < 0) {
+            throw new IllegalArgumentException("Invalid motion gate settings");
+        }
+        this.delegate = delegate;
+        this.cellThreshold = cellThreshold * LumaGrid.SCALE;
+        this.maxChangedCells = (int) (changedShare * COLUMNS * ROWS);
+        this.maxReuseNanos = TimeUnit.MILLISECONDS.toNanos(maxReuseMillis);
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        if (image == null) {
+            return delegate.imageContainsCat(image, confidenceThreshold);
+        }
+        int[] grid = LumaGrid.of(image, COLUMNS, ROWS, SAMPLES_PER_CELL);
+        long started = System.nanoTime();
+        Boolean reused = reuse(grid, confidenceThreshold, started);
+        if (reused != null) {
+            return reused;
+        }
+        boolean cat = delegate.imageContainsCat(image, confidenceThreshold);
+        classified(grid, confidenceThreshold, cat, started);
+        return cat;
+    }
+
+    /**
+     * Answers a static frame at once with the last verdict. Otherwise asks the wrapped service, and
+     * cancelling the returned future cancels that call.
+     */
+    @Override
+    public CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image, float confidenceThreshold) {
+        if (image == null) {
+            return delegate.imageContainsCatAsync(image, confidenceThreshold);
+        }
+        int[] grid = LumaGrid.of(image, COLUMNS, ROWS, SAMPLES_PER_CELL);
+        long started = System.nanoTime();
+        Boolean reused = reuse(grid, confidenceThreshold, started);
+        if (reused != null) {
+            return CompletableFuture.completedFuture(reused);
+        }
+        CompletableFuture<Boolean> call = delegate.imageContainsCatAsync(image, confidenceThreshold);
+        CompletableFuture<Boolean> result = call.thenApply(cat -> {
+            classified(grid, confidenceThreshold, cat, started);
+            return cat;
+        });
+        result.whenComplete((cat, e) -> {
+            if (result.isCancelled()) {
+                call.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Passes the batch on whole, without comparing the frames with the reference or replacing it:
+     * they need not come from the camera this gate remembers.
+     */
+    @Override
+    public List<Boolean> imageContainsCatBatch(List<BufferedImage> images, float confidenceThreshold) {
+        return delegate.imageContainsCatBatch(images, confidenceThreshold);
+    }
+
+    /**
+     * @return the last verdict if the frame shows the same scene, otherwise null
+     */
+    private synchronized Boolean reuse(int[] grid, float confidenceThreshold, long now) {
+        if (reference == null || referenceConfidenceThreshold != confidenceThreshold
+                || now - classifiedAt > maxReuseNanos || moved(grid)) {
+            classified.increment();
+            return null;
+        }
+        skipped.increment();
+        return verdict;
+    }
+
+    private boolean moved(int[] grid) {
+        int changed = 0;
+        for (int i = 0; i < grid.length; i++) {
+            if (Math.abs(grid[i] - reference[i]) > cellThreshold && ++changed > maxChangedCells) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Makes the frame the new reference, unless a frame that came after it was classified first.
+     */
+    private synchronized void classified(int[] grid, float confidenceThreshold, boolean cat, long started) {
+        if (reference != null && started - classifiedAt < 0) {
+            return;
+        }
+        reference = grid;
+        referenceConfidenceThreshold = confidenceThreshold;
+        verdict = cat;
+        classifiedAt = started;
+    }
+
+    /**
+     * @return how many frames were answered with the last verdict
+     */
+    public long getSkipped() {
+        return skipped.sum();
+    }
+
+    /**
+     * @return how many frames were passed on to the wrapped service
+     */
+    public long getClassified() {
+        return classified.sum();
+    }
+
+    /**
+     * @return the share of frames that were not passed on, between 0 and 1
+     */
+    public double getSkipRate() {
+        long s = skipped.sum();
+        long total = s + classified.sum();
+        return total == 0 ? 0 : (double) s / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d frames skipped, %d classified (%.1f%% skipped)",
+                getSkipped(), getClassified(), getSkipRate() * 100);
+    }
+}
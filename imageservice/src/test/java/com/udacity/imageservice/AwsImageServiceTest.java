@@ -0,0 +1,58 @@
+package com.udacity.imageservice;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.rekognition.RekognitionAsyncClient;
+import software.amazon.awssdk.services.rekognition.model.DetectLabelsRequest;
+import software.amazon.awssdk.services.rekognition.model.DetectLabelsResponse;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class AwsImageServiceTest {
+
+    @Test
+    void given_requestInFlight_when_resultTimesOut_then_requestIsCancelled() throws Exception {
+        // Given
+        PendingRekognition rekognition = new PendingRekognition();
+        AwsImageService service = new AwsImageService(null, rekognition);
+        CompletableFuture<Boolean> result = service.imageContainsCatAsync(
+                new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB), 50);
+        CompletableFuture<DetectLabelsResponse> request = rekognition.sent.get(5, TimeUnit.SECONDS);
+
+        // When
+        result.orTimeout(10, TimeUnit.MILLISECONDS);
+
+        // Then
+        assertThrows(CancellationException.class, () -> request.get(5, TimeUnit.SECONDS));
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertTrue(failure.getCause() instanceof TimeoutException);
+    }
+
+    /**
+     * Takes requests and never answers them.
+     */
+    private static final class PendingRekognition implements RekognitionAsyncClient {
+        private final CompletableFuture<CompletableFuture<DetectLabelsResponse>> sent = new CompletableFuture<>();
+
+        @Override
+        public CompletableFuture<DetectLabelsResponse> detectLabels(DetectLabelsRequest request) {
+            CompletableFuture<DetectLabelsResponse> response = new CompletableFuture<>();
+            sent.complete(response);
+            return response;
+        }
+
+        @Override
+        public String serviceName() {
+            return SERVICE_NAME;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
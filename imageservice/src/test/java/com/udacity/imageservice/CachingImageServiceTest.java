@@ -0,0 +1,200 @@
+package com.udacity.imageservice;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public class CachingImageServiceTest {
+
+    private final CountingImageService delegate = new CountingImageService();
+
+    @Test
+    void given_cachedSceneWithoutCat_when_catWalksIn_then_theImageIsClassifiedAgain() {
+        // Given
+        CachingImageService cache = new CachingImageService(delegate);
+        BufferedImage empty = SyntheticCatImages.frame(new Random(1), false, 640, 480);
+        BufferedImage withCat = withBlob(empty, 300, 200, 60);
+        delegate.cats.add(withCat);
+        // the cat hardly changes the hash
+        assertTrue(Long.bitCount(CachingImageService.hash(empty) ^ CachingImageService.hash(withCat))
+                <= CachingImageService.DEFAULT_MAX_DISTANCE);
+        assertFalse(cache.imageContainsCat(empty, 50));
+
+        // When
+        boolean cat = cache.imageContainsCat(withCat, 50);
+
+        // Then
+        assertTrue(cat);
+        assertEquals(2, delegate.calls);
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    void given_cachedVerdict_when_onlyNoiseChanges_then_itIsReused() {
+        // Given
+        CachingImageService cache = new CachingImageService(delegate);
+        BufferedImage empty = SyntheticCatImages.frame(new Random(1), false, 640, 480);
+        BufferedImage cat = SyntheticCatImages.frame(new Random(2), true, 640, 480);
+        delegate.cats.add(cat);
+        cache.imageContainsCat(empty, 50);
+        cache.imageContainsCat(cat, 50);
+
+        // When
+        boolean emptyAgain = cache.imageContainsCat(withNoise(empty, new Random(3)), 50);
+        boolean catAgain = cache.imageContainsCat(withNoise(cat, new Random(4)), 50);
+
+        // Then
+        assertFalse(emptyAgain);
+        assertTrue(catAgain);
+        assertEquals(2, delegate.calls);
+        assertEquals(2, cache.getHits());
+    }
+
+    @Test
+    void given_otherConfidenceThreshold_when_sameImage_then_itIsClassifiedAgain() {
+        // Given
+        CachingImageService cache = new CachingImageService(delegate);
+        BufferedImage cat = SyntheticCatImages.frame(new Random(2), true, 640, 480);
+        delegate.cats.add(cat);
+        cache.imageContainsCat(cat, 50);
+
+        // When
+        cache.imageContainsCat(cat, 80);
+        cache.imageContainsCat(cat, 50);
+        cache.imageContainsCat(cat, 80);
+
+        // Then
+        assertEquals(2, delegate.calls);
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getSize());
+    }
+
+    @Test
+    void given_expiredVerdict_when_sameImage_then_itIsClassifiedAgain() {
+        // Given
+        CachingImageService cache = new CachingImageService(delegate, 16, 0, CachingImageService.DEFAULT_MAX_DISTANCE);
+        BufferedImage cat = SyntheticCatImages.frame(new Random(2), true, 640, 480);
+        delegate.cats.add(cat);
+        cache.imageContainsCat(cat, 50);
+
+        // When
+        boolean again = cache.imageContainsCat(cat, 50);
+
+        // Then
+        assertTrue(again);
+        assertEquals(2, delegate.calls);
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    void given_fullCache_when_newImageComesIn_then_theLeastRecentlyUsedVerdictIsDropped() {
+        // Given
+        CachingImageService cache = new CachingImageService(delegate, 2, CachingImageService.DEFAULT_TTL_MILLIS,
+                CachingImageService.DEFAULT_MAX_DISTANCE);
+        List<BufferedImage> scenes = List.of(SyntheticCatImages.frame(new Random(5), true, 320, 240),
+                SyntheticCatImages.frame(new Random(6), true, 320, 240),
+                SyntheticCatImages.frame(new Random(7), true, 320, 240));
+        delegate.cats.addAll(scenes);
+        for (int i = 0; i < scenes.size(); i++) {
+            for (int j = i + 1; j < scenes.size(); j++) {
+                assertTrue(Long.bitCount(CachingImageService.hash(scenes.get(i)) ^ CachingImageService.hash(scenes.get(j)))
+                        > CachingImageService.DEFAULT_MAX_DISTANCE);
+            }
+        }
+        cache.imageContainsCat(scenes.get(0), 50);
+        cache.imageContainsCat(scenes.get(1), 50);
+        cache.imageContainsCat(scenes.get(0), 50);
+
+        // When
+        cache.imageContainsCat(scenes.get(2), 50);
+
+        // Then
+        assertEquals(2, cache.getSize());
+        cache.imageContainsCat(scenes.get(0), 50);
+        assertEquals(3, delegate.calls);
+        cache.imageContainsCat(scenes.get(1), 50);
+        assertEquals(4, delegate.calls);
+    }
+
+    @Test
+    void given_batch_when_someImagesAreCached_then_onlyTheOthersArePassedOn() {
+        // Given
+        CachingImageService cache = new CachingImageService(delegate);
+        BufferedImage empty = SyntheticCatImages.frame(new Random(1), false, 640, 480);
+        BufferedImage cat = SyntheticCatImages.frame(new Random(2), true, 640, 480);
+        BufferedImage withCat = withBlob(empty, 300, 200, 60);
+        delegate.cats.add(cat);
+        delegate.cats.add(withCat);
+        cache.imageContainsCat(empty, 50);
+
+        // When
+        List<Boolean> verdicts = cache.imageContainsCatBatch(List.of(empty, cat, withCat), 50);
+
+        // Then
+        assertEquals(List.of(false, true, true), verdicts);
+        assertEquals(3, delegate.calls);
+        assertEquals(1, cache.getHits());
+    }
+
+    /**
+     * @return a copy of the image with a dark cat-sized blob, a body and a head, in it
+     */
+    private static BufferedImage withBlob(BufferedImage image, int x, int y, int size) {
+        BufferedImage copy = copy(image);
+        Graphics2D g = copy.createGraphics();
+        g.setColor(new Color(15, 15, 20));
+        g.fillOval(x, y + size / 3, size, size * 2 / 3);
+        g.fillOval(x + size / 4, y, size / 2, size / 2);
+        g.dispose();
+        return copy;
+    }
+
+    /**
+     * @return a copy of the image with fresh sensor noise, as the next frame of a static scene
+     */
+    private static BufferedImage withNoise(BufferedImage image, Random random) {
+        BufferedImage copy = copy(image);
+        for (int y = 0; y < copy.getHeight(); y++) {
+            for (int x = 0; x < copy.getWidth(); x++) {
+                int rgb = copy.getRGB(x, y);
+                int n = (int) (random.nextGaussian() * 4);
+                copy.setRGB(x, y, clamp((rgb >> 16 & 0xff) + n) << 16 | clamp((rgb >> 8 & 0xff) + n) << 8
+                        | clamp((rgb & 0xff) + n));
+            }
+        }
+        return copy;
+    }
+
+    private static BufferedImage copy(BufferedImage image) {
+        BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = copy.createGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return copy;
+    }
+
+    private static int clamp(int level) {
+        return Math.max(0, Math.min(255, level));
+    }
+
+    /**
+     * Sees a cat in the images it was told about, and counts how often it was asked.
+     */
+    private static final class CountingImageService implements ImageService {
+        private final Set<BufferedImage> cats = new HashSet<>();
+        private int calls;
+
+        @Override
+        public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+            calls++;
+            return cats.contains(image);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.udacity.imageservice;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+public class HogLinearModelTest {
+
+    // offsets of the header fields, in bytes
+    private static final int VERSION = 4;
+    private static final int CELL_SIZE = 8;
+
+    @Test
+    void given_writtenModel_when_readBack_then_itScoresTheSame() throws IOException {
+        // Given
+        HogLinearModel model = model();
+        float[] window = LocalImageService.descriptor(SyntheticCatImages.window(new Random(1), true, 320));
+
+        // When
+        HogLinearModel read = HogLinearModel.read(new ByteArrayInputStream(bytes(model)));
+
+        // Then
+        assertEquals(model.score(window), read.score(window));
+    }
+
+    @Test
+    void given_otherFile_when_read_then_itIsRejected() {
+        // Given
+        byte[] bytes = bytes(model());
+        ByteBuffer.wrap(bytes).putInt(0, 0x89504E47); // a PNG
+
+        // When
+        IOException e = assertThrows(IOException.class, () -> HogLinearModel.read(new ByteArrayInputStream(bytes)));
+
+        // Then
+        assertEquals("Not a HOG model", e.getMessage());
+    }
+
+    @Test
+    void given_otherVersion_when_read_then_itIsRejected() {
+        // Given
+        byte[] bytes = bytes(model());
+        ByteBuffer.wrap(bytes).putInt(VERSION, 2);
+
+        // When
+        IOException e = assertThrows(IOException.class, () -> HogLinearModel.read(new ByteArrayInputStream(bytes)));
+
+        // Then
+        assertEquals("Unsupported HOG model version 2", e.getMessage());
+    }
+
+    @Test
+    void given_modelForOtherDescriptorSettings_when_read_then_itIsRejected() {
+        // Given
+        byte[] bytes = bytes(model());
+        ByteBuffer.wrap(bytes).putInt(CELL_SIZE, HogFeatures.CELL_SIZE * 2);
+
+        // When
+        IOException e = assertThrows(IOException.class, () -> HogLinearModel.read(new ByteArrayInputStream(bytes)));
+
+        // Then
+        assertEquals("HOG model was trained for other descriptor settings", e.getMessage());
+    }
+
+    @Test
+    void given_truncatedModel_when_read_then_itIsRejected() {
+        // Given
+        byte[] bytes = bytes(model());
+        byte[] withoutBias = Arrays.copyOf(bytes, bytes.length - Float.BYTES);
+        byte[] headerOnly = Arrays.copyOf(bytes, 6 * Integer.BYTES);
+        byte[] partOfMagic = Arrays.copyOf(bytes, 2);
+
+        // When Then
+        assertThrows(EOFException.class, () -> HogLinearModel.read(new ByteArrayInputStream(withoutBias)));
+        assertThrows(EOFException.class, () -> HogLinearModel.read(new ByteArrayInputStream(headerOnly)));
+        assertThrows(EOFException.class, () -> HogLinearModel.read(new ByteArrayInputStream(partOfMagic)));
+    }
+
+    private static HogLinearModel model() {
+        Random random = new Random(7);
+        float[] weights = new float[HogFeatures.WINDOW_LENGTH];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = (float) random.nextGaussian();
+        }
+        return new HogLinearModel(weights, 0.5f);
+    }
+
+    private static byte[] bytes(HogLinearModel model) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            model.write(out);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,231 @@
+package com.udacity.imageservice;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Trains the {@link HogLinearModel} that {@link LocalImageService} uses, by logistic regression with
+ * stochastic gradient descent, then improves it as Dalal and Triggs did: every window of the
+ * negative frames that the model still takes for a cat is added as a negative, and the model is
+ * trained again.
+ *
+ * The samples come from a folder of photos when {@code photos=<dir>} is given, with the cats in
+ * {@code <dir>/cat} and everything else in {@code <dir>/other}; cat photos should be cropped to the
+ * cat. Otherwise they are drawn by {@link SyntheticCatImages}. The bundled model was trained with
+ * the defaults.
+ */
+public final class HogLinearTrainer {
+
+    static final String DEFAULT_OUTPUT = "imageservice/src/main/resources/com/udacity/imageservice/"
+            + LocalImageService.MODEL_RESOURCE;
+
+    // synthetic samples are drawn at camera resolution, then scaled down like frames
+    private static final int WINDOW_PIXELS = 320;
+    private static final int FRAME_WIDTH = 640;
+    private static final int FRAME_HEIGHT = 480;
+    private static final int RANDOM_WINDOWS_PER_FRAME = 4;
+    private static final int EPOCHS = 12;
+    private static final float LEARNING_RATE = 0.05f;
+    private static final float L2 = 1e-4f;
+    private static final int MINING_ROUNDS = 4;
+    // windows scoring above this on a negative frame are added as hard negatives
+    private static final float HARD_SCORE = -1;
+    private static final int MAX_HARD_PER_FRAME = 8;
+
+    private final Random random;
+    private final List<float[]> positives = new ArrayList<>();
+    private final List<float[]> negatives = new ArrayList<>();
+    // whole images without a cat, at every scale, mined for hard negatives
+    private final List<HogFeatures.Blocks[]> negativeFrames = new ArrayList<>();
+
+    HogLinearTrainer(long seed) {
+        this.random = new Random(seed);
+    }
+
+    void addSynthetic(int windows, int frames) {
+        for (int i = 0; i < windows; i++) {
+            positives.add(LocalImageService.descriptor(SyntheticCatImages.window(random, true, WINDOW_PIXELS)));
+            negatives.add(LocalImageService.descriptor(SyntheticCatImages.window(random, false, WINDOW_PIXELS)));
+        }
+        for (int i = 0; i < frames; i++) {
+            addNegativeFrame(SyntheticCatImages.frame(random, false, FRAME_WIDTH, FRAME_HEIGHT));
+        }
+    }
+
+    void addPhotos(File folder) throws IOException {
+        for (File file : images(new File(folder, "cat"))) {
+            positives.add(LocalImageService.descriptor(ImageIO.read(file)));
+        }
+        for (File file : images(new File(folder, "other"))) {
+            BufferedImage image = ImageIO.read(file);
+            negatives.add(LocalImageService.descriptor(image));
+            addNegativeFrame(image);
+        }
+        if (positives.isEmpty() || negatives.isEmpty()) {
+            throw new IllegalArgumentException("Expected images in " + folder + "/cat and " + folder + "/other");
+        }
+    }
+
+    private static List<File> images(File folder) {
+        List<File> images = new ArrayList<>();
+        File[] files = folder.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName().toLowerCase();
+                if (name.endsWith(".jpg") || name.endsWith(".jpeg") || name.endsWith(".png")) {
+                    images.add(file);
+                }
+            }
+        }
+        Collections.sort(images);
+        return images;
+    }
+
+    private void addNegativeFrame(BufferedImage image) {
+        HogFeatures.Blocks[] pyramid = LocalImageService.pyramid(image);
+        negativeFrames.add(pyramid);
+        for (int i = 0; i < RANDOM_WINDOWS_PER_FRAME; i++) {
+            HogFeatures.Blocks blocks = pyramid[random.nextInt(pyramid.length)];
+            negatives.add(blocks.window(random.nextInt(blocks.windowsX()), random.nextInt(blocks.windowsY())));
+        }
+    }
+
+    HogLinearModel train() {
+        HogLinearModel model = fit();
+        for (int round = 0; round < MINING_ROUNDS; round++) {
+            int hard = 0;
+            for (HogFeatures.Blocks[] pyramid : negativeFrames) {
+                hard += mine(model, pyramid);
+            }
+            System.out.printf("round %d: %d hard negatives added%n", round + 1, hard);
+            if (hard == 0) {
+                break;
+            }
+            model = fit();
+        }
+        return model;
+    }
+
+    private int mine(HogLinearModel model, HogFeatures.Blocks[] pyramid) {
+        int added = 0;
+        for (HogFeatures.Blocks blocks : pyramid) {
+            for (int y = 0; y < blocks.windowsY() && added < MAX_HARD_PER_FRAME; y++) {
+                for (int x = 0; x < blocks.windowsX() && added < MAX_HARD_PER_FRAME; x++) {
+                    if (model.score(blocks, x, y) > HARD_SCORE) {
+                        negatives.add(blocks.window(x, y));
+                        added++;
+                    }
+                }
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Logistic regression on all samples so far, each class weighted by its share so that neither
+     * drowns the other.
+     */
+    private HogLinearModel fit() {
+        List<float[]> samples = new ArrayList<>(positives);
+        samples.addAll(negatives);
+        int[] order = new int[samples.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        float positiveWeight = (float) samples.size() / (2 * positives.size());
+        float negativeWeight = (float) samples.size() / (2 * negatives.size());
+        float[] weights = new float[HogFeatures.WINDOW_LENGTH];
+        float bias = 0;
+        for (int epoch = 0; epoch < EPOCHS; epoch++) {
+            shuffle(order);
+            float rate = LEARNING_RATE / (1 + epoch);
+            double loss = 0;
+            for (int index : order) {
+                float[] x = samples.get(index);
+                boolean cat = index < positives.size();
+                float score = bias;
+                for (int i = 0; i < x.length; i++) {
+                    score += weights[i] * x[i];
+                }
+                float p = HogLinearModel.probability(score);
+                float weight = cat ? positiveWeight : negativeWeight;
+                float gradient = weight * (p - (cat ? 1 : 0));
+                loss -= weight * Math.log(Math.max(1e-7, cat ? p : 1 - p));
+                for (int i = 0; i < x.length; i++) {
+                    weights[i] -= rate * (gradient * x[i] + L2 * weights[i]);
+                }
+                bias -= rate * gradient;
+            }
+            System.out.printf("epoch %d: loss %.4f over %d positives and %d negatives%n",
+                    epoch + 1, loss / order.length, positives.size(), negatives.size());
+        }
+        return new HogLinearModel(weights, bias);
+    }
+
+    private void shuffle(int[] order) {
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+    }
+
+    /**
+     * Arguments are name=value pairs: {@code photos} a folder of photos, {@code out} the model file to
+     * write, {@code seed}, and for synthetic samples {@code windows} and {@code frames}.
+     */
+    public static void main(String[] args) throws IOException {
+        String photos = null;
+        String output = DEFAULT_OUTPUT;
+        long seed = 1;
+        int windows = 3000;
+        int frames = 1000;
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("Expected name=value but got " + arg);
+            }
+            String value = arg.substring(eq + 1);
+            switch (arg.substring(0, eq)) {
+                case "photos":
+                    photos = value;
+                    break;
+                case "out":
+                    output = value;
+                    break;
+                case "seed":
+                    seed = Long.parseLong(value);
+                    break;
+                case "windows":
+                    windows = Integer.parseInt(value);
+                    break;
+                case "frames":
+                    frames = Integer.parseInt(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown argument " + arg);
+            }
+        }
+
+        HogLinearTrainer trainer = new HogLinearTrainer(seed);
+        if (photos == null) {
+            trainer.addSynthetic(windows, frames);
+        } else {
+            trainer.addPhotos(new File(photos));
+        }
+        HogLinearModel model = trainer.train();
+        try (OutputStream out = new FileOutputStream(output)) {
+            model.write(out);
+        }
+        System.out.println("model written to " + output);
+    }
+}
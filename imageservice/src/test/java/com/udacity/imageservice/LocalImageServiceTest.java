@@ -0,0 +1,116 @@
+package com.udacity.imageservice;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import javax.imageio.ImageIO;
+
+public class LocalImageServiceTest {
+
+    private final LocalImageService service = new LocalImageService();
+
+    @Test
+    void given_noImage_when_classified_then_noCatIsFound() {
+        // Given
+        BufferedImage cat = SyntheticCatImages.frame(new Random(2), true, 640, 480);
+
+        // When
+        boolean single = service.imageContainsCat(null, 0);
+        boolean async = service.imageContainsCatAsync(null, 0).join();
+        List<Boolean> batch = service.imageContainsCatBatch(Arrays.asList(null, cat, null), 0);
+
+        // Then
+        assertFalse(single);
+        assertFalse(async);
+        assertEquals(List.of(false, true, false), batch);
+    }
+
+    @Test
+    void given_veryWideImage_when_classified_then_itIsSqueezedToTheWidestFrame() {
+        // Given
+        BufferedImage banner = SyntheticCatImages.frame(new Random(3), false, 4000, 20);
+        BufferedImage widest = new BufferedImage(3 * 160, 160, BufferedImage.TYPE_INT_RGB);
+
+        // When
+        HogFeatures.Blocks[] pyramid = LocalImageService.pyramid(banner);
+        float confidence = service.catConfidence(banner);
+
+        // Then
+        assertSameShape(LocalImageService.pyramid(widest), pyramid);
+        assertTrue(confidence >= 0 && confidence <= 100);
+    }
+
+    @Test
+    void given_veryTallImage_when_classified_then_itIsStretchedToOneWindow() {
+        // Given
+        BufferedImage pole = SyntheticCatImages.frame(new Random(4), false, 20, 4000);
+
+        // When
+        HogFeatures.Blocks[] pyramid = LocalImageService.pyramid(pole);
+        float confidence = service.catConfidence(pole);
+
+        // Then
+        for (HogFeatures.Blocks blocks : pyramid) {
+            assertEquals(1, blocks.windowsX());
+        }
+        assertTrue(confidence >= 0 && confidence <= 100);
+    }
+
+    @Test
+    void given_singlePixelImage_when_classified_then_itIsScoredLikeAnyOther() {
+        // Given
+        BufferedImage pixel = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+        pixel.setRGB(0, 0, 0x808080);
+
+        // When
+        float confidence = service.catConfidence(pixel);
+        boolean cat = service.imageContainsCat(pixel, 50);
+
+        // Then
+        assertTrue(confidence >= 0 && confidence <= 100);
+        assertFalse(cat);
+    }
+
+    @Test
+    void given_repositoryPhotos_when_scored_then_bundledModelStillGetsThemWrong() throws IOException {
+        // Given
+        BufferedImage cat = photo("sample-cat.jpg");
+        BufferedImage insects = photo("sample-not-cat.jpg");
+
+        // When
+        boolean catFound = service.imageContainsCat(cat, 50);
+        boolean insectsTakenForCat = service.imageContainsCat(insects, 50);
+
+        // Then
+        // the model only knows drawings, which is why CatPointGui doesn't offer it. Once a model
+        // trained on photos gets these right, turn this around and offer it again
+        assertFalse(catFound);
+        assertTrue(insectsTakenForCat);
+    }
+
+    /**
+     * Reads a photo from the repository's images directory, from the module or the repository root.
+     */
+    private static BufferedImage photo(String name) throws IOException {
+        Path file = Path.of("..", "images", name);
+        if (!Files.exists(file)) {
+            file = Path.of("images", name);
+        }
+        return ImageIO.read(file.toFile());
+    }
+
+    private static void assertSameShape(HogFeatures.Blocks[] expected, HogFeatures.Blocks[] actual) {
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i].blocksX, actual[i].blocksX);
+            assertEquals(expected[i].blocksY, actual[i].blocksY);
+        }
+    }
+}
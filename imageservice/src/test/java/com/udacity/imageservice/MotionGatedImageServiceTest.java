@@ -0,0 +1,189 @@
+package com.udacity.imageservice;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class MotionGatedImageServiceTest {
+
+    // 320x240 frames make every cell of the 32x24 grid 10x10 pixels
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 240;
+    private static final int CELL = 10;
+
+    private final ScriptedImageService delegate = new ScriptedImageService();
+
+    @Test
+    void given_staticScene_when_cellsChangeLessThanTheThreshold_then_theLastVerdictIsReused() {
+        // Given
+        MotionGatedImageService gate = new MotionGatedImageService(delegate, 10, 0, 60_000);
+        delegate.verdicts.add(true);
+        gate.imageContainsCat(scene(100), 50);
+
+        // When
+        boolean cat = gate.imageContainsCat(scene(108), 50);
+
+        // Then
+        assertTrue(cat);
+        assertEquals(1, delegate.calls);
+        assertEquals(1, gate.getSkipped());
+    }
+
+    @Test
+    void given_staticScene_when_moreCellsChangeThanAllowed_then_theFrameIsClassified() {
+        // Given
+        MotionGatedImageService gate = new MotionGatedImageService(delegate, 10, 3.0 / (32 * 24), 60_000);
+        delegate.verdicts.add(false);
+        delegate.verdicts.add(true);
+        BufferedImage empty = scene(100);
+        gate.imageContainsCat(empty, 50);
+
+        // When
+        boolean fewChanged = gate.imageContainsCat(withCells(empty, 3, 200), 50);
+        boolean manyChanged = gate.imageContainsCat(withCells(empty, 4, 200), 50);
+
+        // Then
+        assertFalse(fewChanged);
+        assertTrue(manyChanged);
+        assertEquals(2, delegate.calls);
+    }
+
+    @Test
+    void given_reuseWindowPassed_when_sameScene_then_theFrameIsClassified() {
+        // Given
+        MotionGatedImageService gate = new MotionGatedImageService(delegate, 10, 0, 0);
+        delegate.verdicts.add(false);
+        delegate.verdicts.add(true);
+        BufferedImage empty = scene(100);
+        gate.imageContainsCat(empty, 50);
+
+        // When
+        boolean cat = gate.imageContainsCat(empty, 50);
+
+        // Then
+        assertTrue(cat);
+        assertEquals(2, delegate.calls);
+        assertEquals(0, gate.getSkipped());
+    }
+
+    @Test
+    void given_otherConfidenceThreshold_when_sameScene_then_theFrameIsClassified() {
+        // Given
+        MotionGatedImageService gate = new MotionGatedImageService(delegate);
+        delegate.verdicts.add(false);
+        delegate.verdicts.add(true);
+        BufferedImage empty = scene(100);
+        gate.imageContainsCat(empty, 50);
+
+        // When
+        boolean cat = gate.imageContainsCat(empty, 80);
+        boolean again = gate.imageContainsCat(empty, 80);
+
+        // Then
+        assertTrue(cat);
+        assertTrue(again);
+        assertEquals(2, delegate.calls);
+    }
+
+    @Test
+    void given_olderFrameClassifiedLast_when_itsVerdictArrives_then_theNewerFrameStaysTheReference() {
+        // Given
+        MotionGatedImageService gate = new MotionGatedImageService(delegate, 10, 0, 60_000);
+        BufferedImage older = scene(100);
+        BufferedImage newer = withCells(older, 20, 200);
+        CompletableFuture<Boolean> olderVerdict = gate.imageContainsCatAsync(older, 50);
+        CompletableFuture<Boolean> newerVerdict = gate.imageContainsCatAsync(newer, 50);
+
+        // When
+        delegate.pending.get(1).complete(true);
+        delegate.pending.get(0).complete(false);
+
+        // Then
+        assertTrue(newerVerdict.join());
+        assertFalse(olderVerdict.join());
+        assertTrue(gate.imageContainsCat(newer, 50)); // the verdict on the newer frame still holds
+        assertEquals(2, delegate.calls);
+    }
+
+    @Test
+    void given_pendingCall_when_resultIsCancelled_then_theCallIsCancelled() {
+        // Given
+        MotionGatedImageService gate = new MotionGatedImageService(delegate);
+        CompletableFuture<Boolean> verdict = gate.imageContainsCatAsync(scene(100), 50);
+
+        // When
+        verdict.cancel(true);
+
+        // Then
+        assertTrue(delegate.pending.get(0).isCancelled());
+    }
+
+    @Test
+    void given_staticScene_when_batchOfOtherCamerasComesIn_then_itIsPassedOnWholeAndTheReferenceIsKept() {
+        // Given
+        MotionGatedImageService gate = new MotionGatedImageService(delegate, 10, 0, 60_000);
+        delegate.verdicts.addAll(List.of(false, true, false));
+        BufferedImage empty = scene(100);
+        gate.imageContainsCat(empty, 50);
+
+        // When
+        List<Boolean> verdicts = gate.imageContainsCatBatch(List.of(empty, withCells(empty, 20, 200)), 50);
+
+        // Then
+        assertEquals(List.of(true, false), verdicts);
+        assertEquals(3, delegate.calls);
+        assertEquals(0, gate.getSkipped());
+        assertFalse(gate.imageContainsCat(empty, 50)); // still the verdict on the camera's own frame
+        assertEquals(3, delegate.calls);
+    }
+
+    private static BufferedImage scene(int level) {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(new Color(level, level, level));
+        g.fillRect(0, 0, WIDTH, HEIGHT);
+        g.dispose();
+        return image;
+    }
+
+    /**
+     * @return a copy of the image with the first cells of the top row set to the given level
+     */
+    private static BufferedImage withCells(BufferedImage image, int cells, int level) {
+        BufferedImage copy = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = copy.createGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.setColor(new Color(level, level, level));
+        g.fillRect(0, 0, cells * CELL, CELL);
+        g.dispose();
+        return copy;
+    }
+
+    /**
+     * Answers with the queued verdicts, and leaves async calls pending until the test completes them.
+     */
+    private static final class ScriptedImageService implements ImageService {
+        private final List<Boolean> verdicts = new ArrayList<>();
+        private final List<CompletableFuture<Boolean>> pending = new ArrayList<>();
+        private int calls;
+
+        @Override
+        public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+            return verdicts.get(calls++);
+        }
+
+        @Override
+        public CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image, float confidenceThreshold) {
+            calls++;
+            CompletableFuture<Boolean> call = new CompletableFuture<>();
+            pending.add(call);
+            return call;
+        }
+    }
+}
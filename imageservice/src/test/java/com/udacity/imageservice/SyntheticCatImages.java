@@ -0,0 +1,187 @@
+package com.udacity.imageservice;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Polygon;
+import java.awt.RenderingHints;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.QuadCurve2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+/**
+ * Draws labelled sample images for training and measuring {@link LocalImageService} without a photo
+ * collection: a room of random furniture, lighting and sensor noise, and for the positive samples a
+ * sitting cat, seen from the front, somewhere in it. Negative samples hold the same clutter and
+ * look-alikes with no pointed ears: balls, boxes, plants and dogs.
+ *
+ * The same seed always draws the same images, so the set can be rebuilt anywhere instead of being
+ * shipped. A model that does well on it has learned the cat silhouette, which says little about
+ * photos; it serves to check the pipeline end to end and to measure its speed.
+ */
+public final class SyntheticCatImages {
+
+    private static final Color[] FUR = {
+            new Color(40, 40, 40), new Color(90, 90, 95), new Color(200, 120, 50),
+            new Color(235, 230, 220), new Color(130, 100, 70), new Color(15, 15, 20)
+    };
+    // standard deviation of the sensor noise, in levels
+    private static final int NOISE = 6;
+
+    private SyntheticCatImages() {
+    }
+
+    /**
+     * @return a camera frame, with a cat between two fifths and all of its height tall if {@code cat}
+     */
+    public static BufferedImage frame(Random random, boolean cat, int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = graphics(image);
+        room(g, random, width, height);
+        int clutter = 2 + random.nextInt(5);
+        for (int i = 0; i < clutter; i++) {
+            int size = (int) (height * (0.2 + random.nextDouble() * 0.6));
+            lookAlike(g, random, random.nextInt(width) - size / 2, random.nextInt(height) - size / 2, size);
+        }
+        if (cat) {
+            int size = (int) (height * (0.4 + random.nextDouble() * 0.55));
+            cat(g, random, random.nextInt(Math.max(1, width - size)), random.nextInt(Math.max(1, height - size)), size);
+        }
+        g.dispose();
+        noise(image, random);
+        return image;
+    }
+
+    /**
+     * @return a square the size of a detection window, filled by a cat if {@code cat}, for training
+     */
+    public static BufferedImage window(Random random, boolean cat, int size) {
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = graphics(image);
+        room(g, random, size, size);
+        int clutter = random.nextInt(3);
+        for (int i = 0; i < clutter; i++) {
+            int s = (int) (size * (0.3 + random.nextDouble() * 0.9));
+            lookAlike(g, random, random.nextInt(size) - s / 2, random.nextInt(size) - s / 2, s);
+        }
+        if (cat) {
+            int s = (int) (size * (0.85 + random.nextDouble() * 0.15));
+            cat(g, random, random.nextInt(size - s + 1), random.nextInt(size - s + 1), s);
+        } else if (random.nextBoolean()) {
+            int s = (int) (size * (0.7 + random.nextDouble() * 0.3));
+            lookAlike(g, random, random.nextInt(size - s + 1), random.nextInt(size - s + 1), s);
+        }
+        g.dispose();
+        noise(image, random);
+        return image;
+    }
+
+    private static Graphics2D graphics(BufferedImage image) {
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        return g;
+    }
+
+    private static void room(Graphics2D g, Random random, int width, int height) {
+        int floor = (int) (height * (0.5 + random.nextDouble() * 0.4));
+        g.setColor(randomColor(random, 60, 230));
+        g.fillRect(0, 0, width, floor);
+        g.setColor(randomColor(random, 30, 200));
+        g.fillRect(0, floor, width, height - floor);
+        int furniture = random.nextInt(4);
+        for (int i = 0; i < furniture; i++) {
+            g.setColor(randomColor(random, 20, 220));
+            int w = (int) (width * (0.1 + random.nextDouble() * 0.4));
+            int h = (int) (height * (0.1 + random.nextDouble() * 0.5));
+            g.fillRect(random.nextInt(width), floor - h + random.nextInt(Math.max(1, height - floor)), w, h);
+        }
+    }
+
+    /**
+     * Draws a cat sitting inside the square of the given side, head and ears at the top.
+     */
+    private static void cat(Graphics2D g, Random random, int x, int y, int size) {
+        double s = size;
+        Color fur = FUR[random.nextInt(FUR.length)];
+        double headX = x + s * (0.45 + random.nextDouble() * 0.1);
+        double headY = y + s * 0.36;
+        double headRadius = s * (0.17 + random.nextDouble() * 0.04);
+        g.setColor(fur);
+        g.fill(new Ellipse2D.Double(x + s * 0.22, y + s * 0.45, s * 0.56, s * 0.55));
+        boolean tailRight = random.nextBoolean();
+        double tailRoot = tailRight ? x + s * 0.72 : x + s * 0.28;
+        double tailTip = tailRight ? x + s * 0.95 : x + s * 0.05;
+        g.setStroke(new BasicStroke((float) (s * 0.06), BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+        g.draw(new QuadCurve2D.Double(tailRoot, y + s * 0.92, tailTip, y + s * 0.95, tailTip, y + s * 0.6));
+        g.fill(new Ellipse2D.Double(headX - headRadius, headY - headRadius, headRadius * 2, headRadius * 2));
+        double earHeight = s * (0.16 + random.nextDouble() * 0.06);
+        for (int side = -1; side <= 1; side += 2) {
+            Polygon ear = new Polygon();
+            ear.addPoint((int) (headX + side * headRadius * 0.95), (int) (headY - headRadius * 0.1));
+            ear.addPoint((int) (headX + side * headRadius * 0.15), (int) (headY - headRadius * 0.95));
+            ear.addPoint((int) (headX + side * headRadius * 0.85), (int) (headY - headRadius - earHeight));
+            g.fillPolygon(ear);
+        }
+        g.setColor(new Color(120 + random.nextInt(60), 170 + random.nextInt(60), 60));
+        for (int side = -1; side <= 1; side += 2) {
+            double eyeX = headX + side * headRadius * 0.42;
+            g.fill(new Ellipse2D.Double(eyeX - s * 0.03, headY - s * 0.03, s * 0.06, s * 0.045));
+        }
+    }
+
+    /**
+     * Draws something of about the given size that a careless detector might take for a cat.
+     */
+    private static void lookAlike(Graphics2D g, Random random, int x, int y, int size) {
+        double s = size;
+        g.setColor(random.nextInt(3) == 0 ? FUR[random.nextInt(FUR.length)] : randomColor(random, 0, 255));
+        switch (random.nextInt(4)) {
+            case 0: // ball
+                g.fill(new Ellipse2D.Double(x, y, s * 0.8, s * 0.8));
+                break;
+            case 1: // box
+                g.fillRect(x, y + size / 4, (int) (s * (0.4 + random.nextDouble() * 0.6)), (int) (s * 0.75));
+                break;
+            case 2: // plant: a pot and a round crown
+                g.fillRect((int) (x + s * 0.35), (int) (y + s * 0.6), (int) (s * 0.3), (int) (s * 0.4));
+                g.fill(new Ellipse2D.Double(x + s * 0.15, y, s * 0.7, s * 0.65));
+                break;
+            default: // dog: round head with hanging ears on a body
+                double headRadius = s * 0.18;
+                double headX = x + s * 0.5;
+                double headY = y + s * 0.32;
+                g.fill(new Ellipse2D.Double(x + s * 0.2, y + s * 0.45, s * 0.6, s * 0.55));
+                g.fill(new Ellipse2D.Double(headX - headRadius, headY - headRadius, headRadius * 2, headRadius * 2));
+                for (int side = -1; side <= 1; side += 2) {
+                    g.fill(new Ellipse2D.Double(headX + side * headRadius * 0.9 - s * 0.06, headY - headRadius * 0.6,
+                            s * 0.12, s * 0.3));
+                }
+                break;
+        }
+    }
+
+    private static void noise(BufferedImage image, Random random) {
+        int width = image.getWidth();
+        int[] row = new int[width];
+        for (int y = 0; y < image.getHeight(); y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int x = 0; x < width; x++) {
+                int n = (int) (random.nextGaussian() * NOISE);
+                int rgb = row[x];
+                row[x] = clamp((rgb >> 16 & 0xff) + n) << 16 | clamp((rgb >> 8 & 0xff) + n) << 8 | clamp((rgb & 0xff) + n);
+            }
+            image.setRGB(0, y, width, 1, row, 0, width);
+        }
+    }
+
+    private static int clamp(int level) {
+        return Math.max(0, Math.min(255, level));
+    }
+
+    private static Color randomColor(Random random, int min, int max) {
+        int base = min + random.nextInt(max - min + 1);
+        return new Color(clamp(base + random.nextInt(41) - 20), clamp(base + random.nextInt(41) - 20),
+                clamp(base + random.nextInt(41) - 20));
+    }
+}
@@ -4,7 +4,8 @@ public class CatPointApp {
 
     public static void main( String[] args )
     {
-        CatPointGui gui = new CatPointGui();
+        long startNanos = System.nanoTime();
+        CatPointGui gui = new CatPointGui(startNanos);
         gui.setVisible(true);
     }
 
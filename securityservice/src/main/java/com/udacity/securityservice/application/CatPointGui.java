@@ -1,33 +1,87 @@
 package com.udacity.securityservice.application;
 
+import com.udacity.imageservice.CachingImageService;
 import com.udacity.imageservice.FakeImageService;
-import com.udacity.imageservice.ImageService;
+import com.udacity.imageservice.MotionGatedImageService;
 import com.udacity.securityservice.data.PretendDatabaseSecurityRepositoryImpl;
 import com.udacity.securityservice.data.SecurityRepository;
+import com.udacity.securityservice.eventlog.BinarySecurityEventLog;
 import com.udacity.securityservice.service.SecurityService;
 import net.miginfocom.swing.MigLayout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import javax.swing.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This is the primary JFrame for the application that contains all the top-level JPanels.
  *
  * We're not using any dependency injection framework, so this class also handles constructing
  * all our dependencies and providing them to other classes as necessary.
+ *
+ * The sensors are loaded in the background so the frame shows up right away; the panels hold back
+ * the inputs that need the sensors until they are in. Startup times are logged.
+ *
+ * Start with {@code -Dcatpoint.eventLog=<file>} to record every input of the security service, so
+ * the session can be replayed with {@link com.udacity.securityservice.service.SecurityEventReplayer}.
+ * The service's metrics are shown over JMX under {@code com.udacity.securityservice:type=SecurityMetrics}.
  */
 public class CatPointGui extends JFrame {
-    private final transient SecurityRepository securityRepository = new PretendDatabaseSecurityRepositoryImpl();
-    private final transient ImageService imageService = new FakeImageService();
+    private static final Logger log = LoggerFactory.getLogger(CatPointGui.class);
+
+    // sensor changes are coalesced and written at most this often
+    private static final long REPOSITORY_FLUSH_DELAY_MILLIS = 500;
+    private static final int REPOSITORY_MAX_PENDING_WRITES = 256;
+    private static final String EVENT_LOG_PROPERTY = "catpoint.eventLog";
+    private static final String METRICS_NAME = "catpoint";
+
+    private final transient SecurityRepository securityRepository =
+            new PretendDatabaseSecurityRepositoryImpl(REPOSITORY_FLUSH_DELAY_MILLIS, REPOSITORY_MAX_PENDING_WRITES, true);
+    // a camera that shows the same scene as last time reuses its verdict. The LocalImageService is not
+    // offered until its model gets the sample photos in the images directory right
+    private final transient MotionGatedImageService motionGate = new MotionGatedImageService(new FakeImageService());
+    // and so does rescanning a picture seen before. The cache sits in front, so a frame in which the
+    // gate sees movement goes straight to the image service
+    private final transient CachingImageService imageService = new CachingImageService(motionGate);
     private final SecurityService securityService = new SecurityService(securityRepository, imageService);
     private final DisplayPanel displayPanel = new DisplayPanel(securityService);
     private final ControlPanel controlPanel = new ControlPanel(securityService);
     private final SensorPanel sensorPanel = new SensorPanel(securityService);
     private final ImagePanel imagePanel = new ImagePanel(securityService);
+    private transient BinarySecurityEventLog eventLog;
 
     public CatPointGui() {
+        this(System.nanoTime());
+    }
+
+    /**
+     * @param startNanos {@link System#nanoTime()} at application start, used to report startup times
+     */
+    public CatPointGui(long startNanos) {
         setLocation(100, 100);
         setSize(600, 850);
         setTitle("Very Secure App");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        //window listeners run before the frame exits the JVM, so pending writes still make it to disk
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                securityRepository.flush();
+                securityService.getMetrics().unregister();
+                log.info("Image cache: {}, motion gate: {}", imageService, motionGate);
+                if (eventLog != null) {
+                    eventLog.close();
+                }
+            }
+
+            @Override
+            public void windowOpened(WindowEvent e) {
+                log.info("Time to first frame: {} ms", elapsedMillis(startNanos));
+            }
+        });
 
         JPanel mainPanel = new JPanel();
         mainPanel.setLayout(new MigLayout());
@@ -37,6 +91,29 @@ public class CatPointGui extends JFrame {
         mainPanel.add(sensorPanel);
 
         getContentPane().add(mainPanel);
+        securityService.getMetrics().register(METRICS_NAME);
+
+        securityRepository.whenSensorsLoaded().thenRun(() -> SwingUtilities.invokeLater(() -> {
+            startEventLog();
+            log.info("Time to fully loaded: {} ms ({} sensors)", elapsedMillis(startNanos),
+                    securityService.getSensors().size());
+        }));
+    }
+
+    /**
+     * Starts recording once the sensors are loaded, so the recording begins with all of them.
+     */
+    private void startEventLog() {
+        String file = System.getProperty(EVENT_LOG_PROPERTY);
+        if (file == null || file.isBlank()) {
+            return;
+        }
+        eventLog = new BinarySecurityEventLog(Path.of(file));
+        securityService.setEventLog(eventLog);
+        log.info("Recording security events to {}", file);
+    }
 
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
     }
 }
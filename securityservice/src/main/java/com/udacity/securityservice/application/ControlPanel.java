@@ -40,6 +40,11 @@ public class ControlPanel extends JPanel {
         //map order above is arbitrary, so loop again in order to add buttons in enum-order
         Arrays.stream(ArmingStatus.values()).forEach(status -> add(buttonMap.get(status)));
 
+        //arming deactivates the sensors, which would block the EDT until they are loaded
+        buttonMap.values().forEach(button -> button.setEnabled(false));
+        securityService.whenSensorsLoaded().thenRun(() -> SwingUtilities.invokeLater(() ->
+                buttonMap.values().forEach(button -> button.setEnabled(true))));
+
         ArmingStatus currentStatus = securityService.getArmingStatus();
         buttonMap.get(currentStatus).setBackground(currentStatus.getColor());
 
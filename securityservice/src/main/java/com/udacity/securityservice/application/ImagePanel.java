@@ -10,6 +10,9 @@ import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
 
 public class ImagePanel extends JPanel implements StatusListener {
 
@@ -25,7 +28,7 @@ public class ImagePanel extends JPanel implements StatusListener {
         super();
         setLayout(new MigLayout());
         this.securityService = securityService;
-        securityService.addStatusListener(this);
+        securityService.addStatusListener(this, SwingUtilities::invokeLater);
 
         cameraHeader = new JLabel("Camera Feed");
         cameraHeader.setFont(StyleService.HEADING_FONT);
@@ -55,16 +58,35 @@ public class ImagePanel extends JPanel implements StatusListener {
             repaint();
         });
 
-        //button that sends the image to the image service
+        //button that sends the image to the image service, without waiting for it on the event thread
         JButton scanPictureButton = new JButton("Scan Picture");
         scanPictureButton.addActionListener(e -> {
-            securityService.processImage(currentCameraImage);
+            cameraHeader.setText("Camera Feed - Scanning...");
+            securityService.processImageAsync(currentCameraImage).whenComplete((cat, failure) -> {
+                if (failure != null) {
+                    SwingUtilities.invokeLater(() -> scanFailed(failure));
+                }
+            });
         });
 
         add(cameraHeader, "span 3, wrap");
         add(cameraLabel, "span 3, wrap");
         add(addPictureButton);
         add(scanPictureButton);
+
+        //a verdict may be applied on the EDT, and applying it looks at the sensors
+        scanPictureButton.setEnabled(false);
+        securityService.whenSensorsLoaded().thenRun(() -> SwingUtilities.invokeLater(() ->
+                scanPictureButton.setEnabled(true)));
+    }
+
+    private void scanFailed(Throwable failure) {
+        Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+        if (cause instanceof CancellationException) {
+            return; // a newer scan is running and will set the header
+        }
+        cameraHeader.setText(cause instanceof TimeoutException
+                ? "Camera Feed - Scan timed out" : "Camera Feed - Scan failed");
     }
 
     @Override
@@ -26,7 +26,7 @@ public class SensorPanel extends JPanel implements StatusListener {
         super();
         setLayout(new MigLayout());
         this.securityService = securityService;
-        securityService.addStatusListener(this);
+        securityService.addStatusListener(this, SwingUtilities::invokeLater);
 
         panelLabel.setFont(StyleService.HEADING_FONT);
         addNewSensorButton.addActionListener(e ->
@@ -38,6 +38,7 @@ public class SensorPanel extends JPanel implements StatusListener {
         sensorListPanel.setLayout(new MigLayout());
 
         updateSensorList(sensorListPanel);
+        securityService.whenSensorsLoaded().thenRun(() -> SwingUtilities.invokeLater(this::sensorStatusChanged));
 
         add(panelLabel, "wrap");
         add(newSensorPanel, "span");
@@ -65,12 +66,19 @@ public class SensorPanel extends JPanel implements StatusListener {
      */
     private void updateSensorList(JPanel p) {
         p.removeAll();
+        //reading the sensors waits for them to be loaded, which mustn't happen on the EDT
+        boolean loaded = securityService.whenSensorsLoaded().isDone();
+        addNewSensorButton.setEnabled(loaded);
+        if (!loaded) {
+            p.add(new JLabel("Loading sensors..."));
+            return;
+        }
         securityService.getSensors().stream().sorted().forEach(s -> {
-            JLabel sensorLabel = new JLabel(String.format("%s(%s): %s", s.getName(),  s.getSensorType().toString(),(s.getActive() ? "Active" : "Inactive")));
-            JButton sensorToggleButton = new JButton((s.getActive() ? "Deactivate" : "Activate"));
+            JLabel sensorLabel = new JLabel(String.format("%s(%s): %s", s.getName(),  s.getSensorType().toString(),(s.isActive() ? "Active" : "Inactive")));
+            JButton sensorToggleButton = new JButton((s.isActive() ? "Deactivate" : "Activate"));
             JButton sensorRemoveButton = new JButton("Remove Sensor");
 
-            sensorToggleButton.addActionListener(e -> setSensorActivity(s, !s.getActive()) );
+            sensorToggleButton.addActionListener(e -> setSensorActivity(s, !s.isActive()) );
             sensorRemoveButton.addActionListener(e -> removeSensor(s));
 
             //hard code some sizes, tsk tsk
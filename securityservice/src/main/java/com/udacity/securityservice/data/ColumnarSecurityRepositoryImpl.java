@@ -0,0 +1,105 @@
+package com.udacity.securityservice.data;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Repository that keeps the sensors in memory in a {@link SensorTable}, for installations with so
+ * many sensors that one object per sensor is too much heap. Persists nothing, like
+ * {@link InMemorySecurityRepositoryImpl}.
+ *
+ * The sensors it hands out are views over the table rows. They read and write their row under the
+ * repository lock, so a view set active is active in the repository before {@link #updateSensor}
+ * is called, and a view of a removed sensor keeps its last values without coming back.
+ */
+public final class ColumnarSecurityRepositoryImpl implements SecurityRepository {
+
+    private final SensorTable sensors;
+    private AlarmStatus alarmStatus;
+    private ArmingStatus armingStatus;
+
+    public ColumnarSecurityRepositoryImpl() {
+        this(AlarmStatus.NO_ALARM, ArmingStatus.DISARMED);
+    }
+
+    public ColumnarSecurityRepositoryImpl(AlarmStatus alarmStatus, ArmingStatus armingStatus) {
+        this(alarmStatus, armingStatus, 0);
+    }
+
+    /**
+     * @param expectedSensors Number of sensors to size the table for, so it doesn't have to grow.
+     */
+    public ColumnarSecurityRepositoryImpl(AlarmStatus alarmStatus, ArmingStatus armingStatus, int expectedSensors) {
+        this.sensors = new SensorTable(this, expectedSensors);
+        this.alarmStatus = alarmStatus;
+        this.armingStatus = armingStatus;
+    }
+
+    @Override
+    public synchronized void addSensor(Sensor sensor) {
+        sensors.put(sensor);
+    }
+
+    @Override
+    public synchronized void removeSensor(Sensor sensor) {
+        sensors.remove(sensor.getSensorId());
+    }
+
+    @Override
+    public synchronized void updateSensor(Sensor sensor) {
+        sensors.put(sensor);
+    }
+
+    @Override
+    public synchronized void updateSensors(Collection<Sensor> updated) {
+        updated.forEach(sensors::put);
+    }
+
+    @Override
+    public synchronized void setAlarmStatus(AlarmStatus alarmStatus) {
+        this.alarmStatus = alarmStatus;
+    }
+
+    @Override
+    public synchronized void setArmingStatus(ArmingStatus armingStatus) {
+        this.armingStatus = armingStatus;
+    }
+
+    @Override
+    public synchronized Set<Sensor> getSensors() {
+        return sensors.snapshot();
+    }
+
+    @Override
+    public synchronized Sensor getSensor(UUID sensorId) {
+        return sensors.get(sensorId);
+    }
+
+    @Override
+    public synchronized boolean hasActiveSensors() {
+        return sensors.hasActiveSensors();
+    }
+
+    @Override
+    public synchronized int getActiveSensorCount() {
+        return sensors.getActiveCount();
+    }
+
+    @Override
+    public synchronized AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    @Override
+    public synchronized ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+
+    /**
+     * @return the bytes the sensor table holds, see {@link SensorTable#footprintBytes()}
+     */
+    public synchronized long footprintBytes() {
+        return sensors.footprintBytes();
+    }
+}
@@ -0,0 +1,85 @@
+package com.udacity.securityservice.data;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Repository that keeps everything in memory and persists nothing. Meant for replays, simulations
+ * and tests, where the state is thrown away afterwards.
+ */
+public final class InMemorySecurityRepositoryImpl implements SecurityRepository {
+
+    private final SensorStore sensors = new SensorStore();
+    private AlarmStatus alarmStatus;
+    private ArmingStatus armingStatus;
+
+    public InMemorySecurityRepositoryImpl() {
+        this(AlarmStatus.NO_ALARM, ArmingStatus.DISARMED);
+    }
+
+    public InMemorySecurityRepositoryImpl(AlarmStatus alarmStatus, ArmingStatus armingStatus) {
+        this.alarmStatus = alarmStatus;
+        this.armingStatus = armingStatus;
+    }
+
+    @Override
+    public synchronized void addSensor(Sensor sensor) {
+        sensors.put(sensor);
+    }
+
+    @Override
+    public synchronized void removeSensor(Sensor sensor) {
+        sensors.remove(sensor.getSensorId());
+    }
+
+    @Override
+    public synchronized void updateSensor(Sensor sensor) {
+        sensors.put(sensor);
+    }
+
+    @Override
+    public synchronized void updateSensors(Collection<Sensor> updated) {
+        updated.forEach(sensors::put);
+    }
+
+    @Override
+    public synchronized void setAlarmStatus(AlarmStatus alarmStatus) {
+        this.alarmStatus = alarmStatus;
+    }
+
+    @Override
+    public synchronized void setArmingStatus(ArmingStatus armingStatus) {
+        this.armingStatus = armingStatus;
+    }
+
+    @Override
+    public synchronized Set<Sensor> getSensors() {
+        return sensors.snapshot();
+    }
+
+    @Override
+    public synchronized Sensor getSensor(UUID sensorId) {
+        return sensors.get(sensorId);
+    }
+
+    @Override
+    public synchronized boolean hasActiveSensors() {
+        return sensors.hasActiveSensors();
+    }
+
+    @Override
+    public synchronized int getActiveSensorCount() {
+        return sensors.getActiveCount();
+    }
+
+    @Override
+    public synchronized AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    @Override
+    public synchronized ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+}
@@ -0,0 +1,466 @@
+package com.udacity.securityservice.data;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Repository that stores every change as a small record appended to a journal file, so updating a
+ * sensor costs one short sequential write instead of rewriting the whole sensor set.
+ *
+ * Once the journal has grown past a number of records, a background thread writes a snapshot of
+ * the full state and drops the journals the snapshot covers. Journals are numbered by generation:
+ * a snapshot of generation g holds everything written to journals before g, so on startup the
+ * repository loads the snapshot and replays journal g and any later ones on top of it.
+ */
+public final class JournalSecurityRepositoryImpl implements SecurityRepository, AutoCloseable {
+
+    private static final int DEFAULT_COMPACT_AFTER_RECORDS = 10_000;
+    private static final long COMPACTION_TIMEOUT_SECONDS = 30;
+
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+    private static final String SNAPSHOT_TEMP_FILE = "snapshot.tmp";
+    private static final String JOURNAL_PREFIX = "journal-";
+    private static final String JOURNAL_SUFFIX = ".log";
+
+    private static final int SNAPSHOT_MAGIC = 0x43415453; // "CATS"
+    private static final byte SNAPSHOT_VERSION = SensorCodec.VERSION;
+
+    // Journal record types
+    private static final byte PUT_SENSOR = 1;
+    private static final byte REMOVE_SENSOR = 2;
+    private static final byte SET_ALARM_STATUS = 3;
+    private static final byte SET_ARMING_STATUS = 4;
+
+    // length and checksum in front of every record
+    private static final int RECORD_HEADER_BYTES = Integer.BYTES * 2;
+    private static final int RECORD_BUFFER_BYTES = 256;
+    // a batch may grow the record buffer past this, but it is not kept around afterwards
+    private static final int MAX_RETAINED_RECORD_BUFFER_BYTES = 64 * 1024;
+
+    private final Path directory;
+    private final int compactAfterRecords;
+    private final ExecutorService compactor;
+    private final Object compactLock = new Object();
+    private final SensorStore sensors = new SensorStore();
+    private AlarmStatus alarmStatus = AlarmStatus.NO_ALARM;
+    private ArmingStatus armingStatus = ArmingStatus.DISARMED;
+
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer recordBuffer = ByteBuffer.allocate(RECORD_BUFFER_BYTES);
+    private int recordStart;
+    private int bufferedRecords;
+    private FileChannel journal;
+    private long generation;
+    private int journalRecords;
+    private boolean compacting;
+
+    public JournalSecurityRepositoryImpl(Path directory) {
+        this(directory, DEFAULT_COMPACT_AFTER_RECORDS);
+    }
+
+    /**
+     * @param directory Directory holding the snapshot and journal files. It is created if missing.
+     * @param compactAfterRecords How many records the current journal may hold before it is compacted into a snapshot.
+     */
+    public JournalSecurityRepositoryImpl(Path directory, int compactAfterRecords) {
+        if (compactAfterRecords < 1) {
+            throw new IllegalArgumentException("compactAfterRecords must be at least 1");
+        }
+        this.directory = directory;
+        this.compactAfterRecords = compactAfterRecords;
+        this.compactor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "security-journal-compactor");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            Files.createDirectories(directory);
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open the security journal in " + directory, e);
+        }
+    }
+
+    @Override
+    public synchronized void addSensor(Sensor sensor) {
+        sensors.put(sensor);
+        appendSensor(sensor);
+    }
+
+    @Override
+    public synchronized void removeSensor(Sensor sensor) {
+        sensors.remove(sensor.getSensorId());
+        ByteBuffer b = startRecord(REMOVE_SENSOR, Long.BYTES * 2);
+        b.putLong(sensor.getSensorId().getMostSignificantBits());
+        b.putLong(sensor.getSensorId().getLeastSignificantBits());
+        append();
+    }
+
+    @Override
+    public synchronized void updateSensor(Sensor sensor) {
+        sensors.put(sensor);
+        appendSensor(sensor);
+    }
+
+    /**
+     * Appends the whole batch to the journal with a single write.
+     */
+    @Override
+    public synchronized void updateSensors(Collection<Sensor> updated) {
+        if (updated.isEmpty()) {
+            return;
+        }
+        recordBuffer.clear();
+        bufferedRecords = 0;
+        for (Sensor sensor : updated) {
+            sensors.put(sensor);
+            SensorCodec.write(sensor, nextRecord(PUT_SENSOR, SensorCodec.maxEncodedSize(sensor)));
+        }
+        append();
+    }
+
+    @Override
+    public synchronized void setAlarmStatus(AlarmStatus alarmStatus) {
+        this.alarmStatus = alarmStatus;
+        startRecord(SET_ALARM_STATUS, 1).put(SensorCodec.encode(alarmStatus));
+        append();
+    }
+
+    @Override
+    public synchronized void setArmingStatus(ArmingStatus armingStatus) {
+        this.armingStatus = armingStatus;
+        startRecord(SET_ARMING_STATUS, 1).put(SensorCodec.encode(armingStatus));
+        append();
+    }
+
+    @Override
+    public synchronized Set<Sensor> getSensors() {
+        return sensors.snapshot();
+    }
+
+    @Override
+    public synchronized Sensor getSensor(UUID sensorId) {
+        return sensors.get(sensorId);
+    }
+
+    @Override
+    public synchronized boolean hasActiveSensors() {
+        return sensors.hasActiveSensors();
+    }
+
+    @Override
+    public synchronized int getActiveSensorCount() {
+        return sensors.getActiveCount();
+    }
+
+    @Override
+    public AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    @Override
+    public ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+
+    /**
+     * Forces the journal to disk.
+     */
+    @Override
+    public synchronized void flush() {
+        try {
+            journal.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to flush the security journal", e);
+        }
+    }
+
+    /**
+     * Writes a snapshot of the current state and removes the journals it replaces, on the calling thread.
+     */
+    public void compact() {
+        // snapshots must be written in generation order
+        synchronized (compactLock) {
+            ByteBuffer snapshot;
+            long snapshotGeneration;
+            synchronized (this) {
+                try {
+                    journal.close();
+                    snapshotGeneration = ++generation;
+                    journal = openJournal(snapshotGeneration);
+                    journalRecords = 0;
+                    snapshot = encodeSnapshot(snapshotGeneration);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Unable to rotate the security journal", e);
+                }
+            }
+            try {
+                Path temp = directory.resolve(SNAPSHOT_TEMP_FILE);
+                try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+                    while (snapshot.hasRemaining()) {
+                        out.write(snapshot);
+                    }
+                    out.force(true);
+                }
+                Files.move(temp, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+                for (Path old : journalFiles()) {
+                    if (journalGeneration(old) < snapshotGeneration) {
+                        Files.deleteIfExists(old);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to write the security snapshot", e);
+            }
+        }
+    }
+
+    /**
+     * Stops the background compaction, then flushes and closes the journal.
+     */
+    @Override
+    public void close() {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(COMPACTION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            try {
+                journal.force(false);
+                journal.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to close the security journal", e);
+            }
+        }
+    }
+
+    private void appendSensor(Sensor sensor) {
+        SensorCodec.write(sensor, startRecord(PUT_SENSOR, SensorCodec.maxEncodedSize(sensor)));
+        append();
+    }
+
+    /**
+     * Clears the record buffer and starts its first record.
+     */
+    private ByteBuffer startRecord(byte type, int payloadBytes) {
+        recordBuffer.clear();
+        bufferedRecords = 0;
+        return nextRecord(type, payloadBytes);
+    }
+
+    /**
+     * Seals the record being written, if any, and starts another one behind it, growing the buffer
+     * if needed. Leaves the buffer positioned after the record type.
+     */
+    private ByteBuffer nextRecord(byte type, int payloadBytes) {
+        if (bufferedRecords > 0) {
+            sealRecord();
+        }
+        int size = RECORD_HEADER_BYTES + 1 + payloadBytes;
+        if (recordBuffer.remaining() < size) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(recordBuffer.position() + size, recordBuffer.capacity() * 2));
+            recordBuffer.flip();
+            grown.put(recordBuffer);
+            recordBuffer = grown;
+        }
+        recordStart = recordBuffer.position();
+        recordBuffer.position(recordStart + RECORD_HEADER_BYTES);
+        recordBuffer.put(type);
+        bufferedRecords++;
+        return recordBuffer;
+    }
+
+    /**
+     * Fills in the length and checksum of the record being written.
+     */
+    private void sealRecord() {
+        int length = recordBuffer.position() - recordStart - RECORD_HEADER_BYTES;
+        crc.reset();
+        crc.update(recordBuffer.array(), recordStart + RECORD_HEADER_BYTES, length);
+        recordBuffer.putInt(recordStart, length);
+        recordBuffer.putInt(recordStart + Integer.BYTES, (int) crc.getValue());
+    }
+
+    /**
+     * Seals the last record and writes every record in the buffer to the end of the journal.
+     */
+    private void append() {
+        sealRecord();
+        recordBuffer.flip();
+        try {
+            while (recordBuffer.hasRemaining()) {
+                journal.write(recordBuffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to append to the security journal", e);
+        }
+        if (recordBuffer.capacity() > MAX_RETAINED_RECORD_BUFFER_BYTES) {
+            recordBuffer = ByteBuffer.allocate(RECORD_BUFFER_BYTES);
+        }
+        journalRecords += bufferedRecords;
+        if (journalRecords >= compactAfterRecords && !compacting) {
+            compacting = true;
+            try {
+                compactor.execute(() -> {
+                    try {
+                        compact();
+                    } finally {
+                        synchronized (this) {
+                            compacting = false;
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                compacting = false;
+            }
+        }
+    }
+
+    private ByteBuffer encodeSnapshot(long snapshotGeneration) {
+        int size = Integer.BYTES + 1 + Long.BYTES + 2 + Integer.BYTES;
+        for (Sensor s : sensors.view()) {
+            size += SensorCodec.maxEncodedSize(s);
+        }
+        ByteBuffer b = ByteBuffer.allocate(size);
+        b.putInt(SNAPSHOT_MAGIC);
+        b.put(SNAPSHOT_VERSION);
+        b.putLong(snapshotGeneration);
+        b.put(SensorCodec.encode(alarmStatus));
+        b.put(SensorCodec.encode(armingStatus));
+        b.putInt(sensors.size());
+        for (Sensor s : sensors.view()) {
+            SensorCodec.write(s, b);
+        }
+        return b.flip();
+    }
+
+    /**
+     * Loads the snapshot, replays the journals written since, and opens the newest journal for appending.
+     */
+    private void recover() throws IOException {
+        Path snapshotFile = directory.resolve(SNAPSHOT_FILE);
+        long snapshotGeneration = 0;
+        if (Files.exists(snapshotFile)) {
+            ByteBuffer in = read(snapshotFile);
+            try {
+                if (in.getInt() != SNAPSHOT_MAGIC || in.get() != SNAPSHOT_VERSION) {
+                    throw new IOException("Unrecognized security snapshot " + snapshotFile);
+                }
+                snapshotGeneration = in.getLong();
+                alarmStatus = SensorCodec.decodeAlarmStatus(in.get());
+                armingStatus = SensorCodec.decodeArmingStatus(in.get());
+                int count = in.getInt();
+                // a damaged count must not size the list past what the file can hold
+                List<Sensor> loaded = new ArrayList<>(Math.min(count, in.remaining()));
+                for (int i = 0; i < count; i++) {
+                    loaded.add(SensorCodec.read(in));
+                }
+                sensors.putAll(loaded);
+            } catch (BufferUnderflowException e) {
+                throw new IOException("Truncated security snapshot " + snapshotFile, e);
+            }
+        }
+
+        generation = snapshotGeneration;
+        for (Path file : journalFiles()) {
+            long fileGeneration = journalGeneration(file);
+            if (fileGeneration < snapshotGeneration) {
+                Files.deleteIfExists(file);
+                continue;
+            }
+            long goodBytes = replay(file);
+            generation = Math.max(generation, fileGeneration);
+            if (goodBytes < Files.size(file)) {
+                // a torn record at the end of a journal is a write that never completed, drop it
+                try (FileChannel c = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    c.truncate(goodBytes);
+                }
+            }
+        }
+        journal = openJournal(generation);
+    }
+
+    /**
+     * Applies every intact record of a journal file.
+     * @return the number of bytes that were read successfully
+     */
+    private long replay(Path file) throws IOException {
+        ByteBuffer in = read(file);
+        CRC32 check = new CRC32();
+        while (in.remaining() >= RECORD_HEADER_BYTES) {
+            int start = in.position();
+            int length = in.getInt();
+            int checksum = in.getInt();
+            if (length < 1 || length > in.remaining()) {
+                return start;
+            }
+            ByteBuffer record = in.slice(in.position(), length);
+            check.reset();
+            check.update(record);
+            if ((int) check.getValue() != checksum) {
+                return start;
+            }
+            applyRecord(in);
+            in.position(start + RECORD_HEADER_BYTES + length);
+        }
+        return in.position();
+    }
+
+    private void applyRecord(ByteBuffer in) throws IOException {
+        switch (in.get()) {
+            case PUT_SENSOR -> sensors.put(SensorCodec.read(in));
+            case REMOVE_SENSOR -> sensors.remove(new UUID(in.getLong(), in.getLong()));
+            case SET_ALARM_STATUS -> alarmStatus = SensorCodec.decodeAlarmStatus(in.get());
+            case SET_ARMING_STATUS -> armingStatus = SensorCodec.decodeArmingStatus(in.get());
+            default -> throw new IOException("Unknown security journal record type");
+        }
+    }
+
+    /**
+     * Reads the whole file onto the heap. Files are not memory-mapped: a mapping lasts until its
+     * buffer is garbage collected, and on Windows a mapped file can't be truncated, replaced or deleted.
+     */
+    private static ByteBuffer read(Path file) throws IOException {
+        return ByteBuffer.wrap(Files.readAllBytes(file));
+    }
+
+    private FileChannel openJournal(long journalGeneration) throws IOException {
+        return FileChannel.open(directory.resolve(JOURNAL_PREFIX + journalGeneration + JOURNAL_SUFFIX),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private List<Path> journalFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, JOURNAL_PREFIX + "*" + JOURNAL_SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        files.sort((a, b) -> Long.compare(journalGeneration(a), journalGeneration(b)));
+        return files;
+    }
+
+    private static long journalGeneration(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(JOURNAL_PREFIX.length(), name.length() - JOURNAL_SUFFIX.length()));
+    }
+}
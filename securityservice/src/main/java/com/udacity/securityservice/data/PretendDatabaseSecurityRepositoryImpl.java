@@ -1,76 +1,275 @@
 package com.udacity.securityservice.data;
 
-import com.google.common.reflect.TypeToken;
-import com.google.gson.Gson;
-import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.prefs.BackingStoreException;
 import java.util.prefs.Preferences;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-public final class PretendDatabaseSecurityRepositoryImpl implements SecurityRepository{
+/**
+ * Repository that stores the system state in the user {@link Preferences}. Each sensor is kept as
+ * its own entry under the sensors node, keyed by its id and encoded with {@link SensorCodec}, so a
+ * change to one sensor only rewrites that sensor.
+ *
+ * By default every change is written through immediately. When constructed with a flush delay the
+ * repository runs in write-behind mode instead: changes only mark the state dirty, and a background
+ * thread writes everything that changed in one go once the delay has passed or enough changes have
+ * piled up. Call {@link #flush()} or {@link #close()} before shutting down so nothing is lost.
+ *
+ * The sensors can also be loaded on a background thread. The statuses are read right away, while
+ * every read or change of the sensors waits for the load to finish, so nobody acts on a sensor set
+ * that is still empty. A sensor that can't be read is logged and left out, and so is the rest of
+ * the sensors if the preferences can't be read at all; the repository carries on with what it has.
+ */
+public final class PretendDatabaseSecurityRepositoryImpl implements SecurityRepository, AutoCloseable {
 
-    private final Set<Sensor> sensors;
+    private static final Logger log = LoggerFactory.getLogger(PretendDatabaseSecurityRepositoryImpl.class);
+
+    // a thread of its own, so the load doesn't depend on the size of the common pool
+    private static final Executor BACKGROUND_LOADER = r -> {
+        Thread t = new Thread(r, "security-repository-loader");
+        t.setDaemon(true);
+        t.start();
+    };
+
+    // replaced once by the background load, so readers never see a half-filled store
+    private volatile SensorStore sensors = new SensorStore();
     private AlarmStatus alarmStatus;
     private ArmingStatus armingStatus;
 
     // Preference keys
-    private static final String SENSORS = "SENSORS";
+    private static final String SENSORS = "SENSORS"; // legacy blob holding every sensor, migrated on startup
+    private static final String SENSOR_NODE = "sensors";
     private static final String ALARM_STATUS = "ALARM_STATUS";
     private static final String ARMING_STATUS = "ARMING_STATUS";
 
-    private static final Preferences prefs = Preferences.userNodeForPackage(PretendDatabaseSecurityRepositoryImpl.class);
-    private static final Gson gson = new Gson(); // Used to serialize objects into JSON
+    private final Preferences prefs;
+    private final Preferences sensorPrefs;
+
+    // Write-behind state, the flusher is null when every change is written through
+    private final ScheduledExecutorService flusher;
+    private final long flushDelayMillis;
+    private final int maxPendingWrites;
+    private final Object flushLock = new Object();
+    private ScheduledFuture<?> scheduledFlush;
+    private int pendingWrites;
+    private final Map<UUID, Sensor> dirtySensors = new HashMap<>(); // a null value marks a removed sensor
+    private boolean alarmStatusDirty;
+    private boolean armingStatusDirty;
+    private boolean closed;
+
+    private final CompletableFuture<Void> sensorsLoaded;
 
     public PretendDatabaseSecurityRepositoryImpl() {
+        this(0, 1);
+    }
+
+    public PretendDatabaseSecurityRepositoryImpl(long flushDelayMillis, int maxPendingWrites) {
+        this(flushDelayMillis, maxPendingWrites, false);
+    }
+
+    /**
+     * Creates a repository that coalesces writes.
+     * @param flushDelayMillis How long a change may stay unwritten. Zero or less writes every change through.
+     * @param maxPendingWrites How many changes may pile up before they are flushed without waiting for the delay.
+     * @param loadSensorsInBackground True to return before the sensors have been read.
+     */
+    public PretendDatabaseSecurityRepositoryImpl(long flushDelayMillis, int maxPendingWrites, boolean loadSensorsInBackground) {
+        this(Preferences.userNodeForPackage(PretendDatabaseSecurityRepositoryImpl.class), flushDelayMillis,
+                maxPendingWrites, loadSensorsInBackground);
+    }
+
+    /**
+     * Creates a repository that keeps its state under the given preference node, so several
+     * repositories can live side by side.
+     */
+    public PretendDatabaseSecurityRepositoryImpl(Preferences node, long flushDelayMillis, int maxPendingWrites,
+                                                 boolean loadSensorsInBackground) {
+        this(node, flushDelayMillis, maxPendingWrites, loadSensorsInBackground ? BACKGROUND_LOADER : Runnable::run);
+    }
+
+    /**
+     * @param sensorLoader Runs the load of the sensors.
+     */
+    PretendDatabaseSecurityRepositoryImpl(Preferences node, long flushDelayMillis, int maxPendingWrites,
+                                          Executor sensorLoader) {
+        if (maxPendingWrites < 1) {
+            throw new IllegalArgumentException("maxPendingWrites must be at least 1");
+        }
+        this.prefs = node;
+        this.sensorPrefs = node.node(SENSOR_NODE);
+        this.flushDelayMillis = flushDelayMillis;
+        this.maxPendingWrites = maxPendingWrites;
+        this.flusher = flushDelayMillis > 0 ? Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "security-repository-flusher");
+            t.setDaemon(true);
+            return t;
+        }) : null;
+
         // Load system state from prefs, or else default
         alarmStatus = AlarmStatus.valueOf(prefs.get(ALARM_STATUS, AlarmStatus.NO_ALARM.toString()));
         armingStatus = ArmingStatus.valueOf(prefs.get(ARMING_STATUS, ArmingStatus.DISARMED.toString()));
 
-        //we've serialized our sensor objects for storage, which should be a good warning sign that
-        // this is likely an impractical solution for a real system
-        String sensorString = prefs.get(SENSORS, null);
-        if (sensorString == null) {
-            sensors = new TreeSet<>();
-        } else {
-            Type type = new TypeToken<Set<Sensor>>(){}.getType();
-            sensors = gson.fromJson(sensorString, type);
+        sensorsLoaded = CompletableFuture.runAsync(this::loadSensors, sensorLoader);
+    }
+
+    /**
+     * Reads every sensor it can. Never fails, so that waiting for the load never fails either.
+     */
+    private void loadSensors() {
+        try {
+            migrateSensorBlob();
+        } catch (RuntimeException e) {
+            log.error("Unable to migrate the legacy sensors, leaving them in place", e);
         }
+
+        SensorStore loaded = new SensorStore();
+        try {
+            //we've serialized our sensor objects for storage, which should be a good warning sign that
+            // this is likely an impractical solution for a real system
+            for (String key : sensorPrefs.keys()) {
+                try {
+                    // entries written before the binary encoding are JSON, which is not valid Base64
+                    byte[] encoded = sensorPrefs.getByteArray(key, null);
+                    String sensorString = encoded == null ? sensorPrefs.get(key, null) : null;
+                    if (encoded != null) {
+                        loaded.put(SensorCodec.decode(encoded));
+                    } else if (sensorString != null) {
+                        loaded.put(SensorCodec.fromJson(sensorString));
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Skipping sensor {}, which can't be read", key, e);
+                }
+            }
+        } catch (BackingStoreException | RuntimeException e) {
+            log.error("Unable to read the sensors from the preferences, carrying on with {} of them", loaded.size(), e);
+        }
+        synchronized (this) {
+            sensors = loaded;
+        }
+    }
+
+    /**
+     * Blocks until the sensors have been loaded.
+     */
+    private void awaitSensors() {
+        sensorsLoaded.join();
     }
 
     @Override
     public void addSensor(Sensor sensor) {
-        sensors.add(sensor);
-        prefs.put(SENSORS, gson.toJson(sensors));
+        awaitSensors();
+        synchronized (this) {
+            sensors.put(sensor);
+            dirtySensors.put(sensor.getSensorId(), sensor);
+        }
+        persist();
     }
 
     @Override
     public void removeSensor(Sensor sensor) {
-        sensors.remove(sensor);
-        prefs.put(SENSORS, gson.toJson(sensors));
+        awaitSensors();
+        synchronized (this) {
+            sensors.remove(sensor.getSensorId());
+            dirtySensors.put(sensor.getSensorId(), null);
+        }
+        persist();
     }
 
     @Override
     public void updateSensor(Sensor sensor) {
-        sensors.remove(sensor);
-        sensors.add(sensor);
-        prefs.put(SENSORS, gson.toJson(sensors));
+        awaitSensors();
+        synchronized (this) {
+            sensors.put(sensor);
+            dirtySensors.put(sensor.getSensorId(), sensor);
+        }
+        persist();
+    }
+
+    /**
+     * Marks the whole batch dirty and persists it with a single write.
+     */
+    @Override
+    public void updateSensors(Collection<Sensor> updated) {
+        if (updated.isEmpty()) {
+            return;
+        }
+        awaitSensors();
+        synchronized (this) {
+            for (Sensor sensor : updated) {
+                sensors.put(sensor);
+                dirtySensors.put(sensor.getSensorId(), sensor);
+            }
+        }
+        persist();
     }
 
     @Override
     public void setAlarmStatus(AlarmStatus alarmStatus) {
-        this.alarmStatus = alarmStatus;
-        prefs.put(ALARM_STATUS, this.alarmStatus.toString());
+        synchronized (this) {
+            this.alarmStatus = alarmStatus;
+            alarmStatusDirty = true;
+        }
+        persist();
     }
 
     @Override
     public void setArmingStatus(ArmingStatus armingStatus) {
-        this.armingStatus = armingStatus;
-        prefs.put(ARMING_STATUS, this.armingStatus.toString());
+        synchronized (this) {
+            this.armingStatus = armingStatus;
+            armingStatusDirty = true;
+        }
+        persist();
     }
 
     @Override
     public Set<Sensor> getSensors() {
-        return sensors;
+        awaitSensors();
+        synchronized (this) {
+            return sensors.snapshot();
+        }
+    }
+
+    @Override
+    public Sensor getSensor(UUID sensorId) {
+        awaitSensors();
+        synchronized (this) {
+            return sensors.get(sensorId);
+        }
+    }
+
+    @Override
+    public boolean hasActiveSensors() {
+        awaitSensors();
+        synchronized (this) {
+            return sensors.hasActiveSensors();
+        }
+    }
+
+    @Override
+    public int getActiveSensorCount() {
+        awaitSensors();
+        synchronized (this) {
+            return sensors.getActiveCount();
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> whenSensorsLoaded() {
+        return sensorsLoaded;
     }
 
     @Override
@@ -82,4 +281,116 @@ public final class PretendDatabaseSecurityRepositoryImpl implements SecurityRepo
     public ArmingStatus getArmingStatus() {
         return armingStatus;
     }
+
+    /**
+     * Writes every pending change to the preferences on the calling thread.
+     */
+    @Override
+    public void flush() {
+        synchronized (flushLock) {
+            List<String> removedKeys = new ArrayList<>();
+            Map<String, byte[]> encodedSensors = new HashMap<>();
+            String alarm = null;
+            String arming = null;
+            synchronized (this) {
+                if (scheduledFlush != null) {
+                    scheduledFlush.cancel(false);
+                    scheduledFlush = null;
+                }
+                pendingWrites = 0;
+                dirtySensors.forEach((id, sensor) -> {
+                    if (sensor == null) {
+                        removedKeys.add(id.toString());
+                    } else {
+                        encodedSensors.put(id.toString(), SensorCodec.encode(sensor));
+                    }
+                });
+                dirtySensors.clear();
+                if (alarmStatusDirty) {
+                    alarm = alarmStatus.toString();
+                }
+                if (armingStatusDirty) {
+                    arming = armingStatus.toString();
+                }
+                alarmStatusDirty = armingStatusDirty = false;
+            }
+            // the slow part happens outside the repository lock so callers are never held up by it
+            removedKeys.forEach(sensorPrefs::remove);
+            encodedSensors.forEach(sensorPrefs::putByteArray);
+            if (alarm != null) {
+                prefs.put(ALARM_STATUS, alarm);
+            }
+            if (arming != null) {
+                prefs.put(ARMING_STATUS, arming);
+            }
+        }
+    }
+
+    /**
+     * Flushes pending changes, forces them to the backing store and stops the background flusher.
+     * Changes made after closing are written through.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        flush();
+        try {
+            prefs.flush();
+        } catch (BackingStoreException e) {
+            throw new IllegalStateException("Unable to write the system state to the preferences", e);
+        }
+    }
+
+    /**
+     * Moves the sensors out of the legacy single JSON blob into one entry per sensor. Runs once, the
+     * blob is removed after the sensors have been written.
+     */
+    private void migrateSensorBlob() {
+        String sensorString = prefs.get(SENSORS, null);
+        if (sensorString == null) {
+            return;
+        }
+        Set<Sensor> legacySensors = SensorCodec.fromJsonSet(sensorString);
+        legacySensors.forEach(s -> sensorPrefs.putByteArray(s.getSensorId().toString(), SensorCodec.encode(s)));
+        prefs.remove(SENSORS);
+    }
+
+    /**
+     * Called after every change. Writes through or hands the change to the background flusher,
+     * depending on the mode.
+     */
+    private void persist() {
+        if (!scheduleFlush()) {
+            flush();
+        }
+    }
+
+    /**
+     * Schedules the background flush for a pending change.
+     * @return false if the change has to be written through instead
+     */
+    private synchronized boolean scheduleFlush() {
+        if (flusher == null || closed) {
+            return false;
+        }
+        pendingWrites++;
+        try {
+            if (pendingWrites >= maxPendingWrites) {
+                if (scheduledFlush != null) {
+                    scheduledFlush.cancel(false);
+                }
+                scheduledFlush = flusher.schedule(this::flush, 0, TimeUnit.MILLISECONDS);
+            } else if (scheduledFlush == null) {
+                scheduledFlush = flusher.schedule(this::flush, flushDelayMillis, TimeUnit.MILLISECONDS);
+            }
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+        return true;
+    }
 }
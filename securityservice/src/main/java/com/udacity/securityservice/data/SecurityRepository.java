@@ -1,6 +1,9 @@
 package com.udacity.securityservice.data;
 
+import java.util.Collection;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 public interface SecurityRepository {
     void addSensor(Sensor sensor);
@@ -11,4 +14,48 @@ public interface SecurityRepository {
     Set<Sensor> getSensors();
     AlarmStatus getAlarmStatus();
     ArmingStatus getArmingStatus();
+
+    /**
+     * Stores several updated sensors at once. Repositories should write the batch in one go rather
+     * than once per sensor.
+     */
+    default void updateSensors(Collection<Sensor> sensors) {
+        sensors.forEach(this::updateSensor);
+    }
+
+    /**
+     * @return the sensor with this id, or null if there is none
+     */
+    default Sensor getSensor(UUID sensorId) {
+        return getSensors().stream().filter(s -> s.getSensorId().equals(sensorId)).findFirst().orElse(null);
+    }
+
+    /**
+     * @return true if at least one sensor is active
+     */
+    default boolean hasActiveSensors() {
+        return getSensors().stream().anyMatch(Sensor::getActive);
+    }
+
+    /**
+     * @return the number of active sensors
+     */
+    default int getActiveSensorCount() {
+        return (int) getSensors().stream().filter(Sensor::isActive).count();
+    }
+
+    /**
+     * @return a future that completes once the sensors have been loaded. Until then reading or
+     * changing the sensors waits for the load.
+     */
+    default CompletableFuture<Void> whenSensorsLoaded() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Writes any changes the repository is still holding back. Repositories that write every change
+     * through have nothing to do here.
+     */
+    default void flush() {
+    }
 }
@@ -1,20 +1,36 @@
 package com.udacity.securityservice.data;
 
-import com.google.common.collect.ComparisonChain;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Objects;
 import java.util.UUID;
 
 public class Sensor implements Comparable<Sensor> {
 
+    // position of each type, by ordinal, when sensors are ordered by type name
+    private static final int[] TYPE_RANKS = typeRanks();
+    private static final int NAME_KEY_CHARS = Long.SIZE / Character.SIZE;
+
     private UUID sensorId;
     private String name;
-    private Boolean active;
+    private boolean active;
     private SensorType sensorType;
+    // the name with its sort key, replaced along with the name. Immutable, so a thread that reads it
+    // sees a key that belongs to the name next to it.
+    private transient SortName sortName;
 
     public Sensor(String name, SensorType sensorType) {
         this.sensorId = UUID.randomUUID();
         this.name = name;
-        this.active = Boolean.FALSE;
+        this.sortName = new SortName(name);
+        this.sensorType = sensorType;
+    }
+
+    public Sensor(UUID sensorId, String name, SensorType sensorType, Boolean active) {
+        this.sensorId = sensorId;
+        this.name = name;
+        this.sortName = new SortName(name);
+        this.active = Boolean.TRUE.equals(active);
         this.sensorType = sensorType;
     }
 
@@ -32,13 +48,21 @@ public class Sensor implements Comparable<Sensor> {
 
     public void setName(String name) {
         this.name = name;
+        this.sortName = new SortName(name);
     }
 
-    public Boolean getActive() {
+    public boolean isActive() {
         return active;
     }
 
-    public void setActive(Boolean active) {
+    /**
+     * @return {@link #isActive()} as one of the shared {@link Boolean} constants
+     */
+    public Boolean getActive() {
+        return isActive();
+    }
+
+    public void setActive(boolean active) {
         this.active = active;
     }
 
@@ -53,22 +77,82 @@ public class Sensor implements Comparable<Sensor> {
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        Sensor sensor = (Sensor) o;
+        if (!(o instanceof Sensor sensor)) return false;
         return Objects.equals(sensorId, sensor.sensorId);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(sensorId);
+        return Objects.hashCode(sensorId);
     }
 
+    /**
+     * Orders by name, then type name, then id. Names that differ in their first few characters are
+     * told apart by a precomputed key without looking at the strings, and nothing is allocated.
+     */
     @Override
     public int compareTo(Sensor o) {
-        return ComparisonChain.start()
-                .compare(this.name, o.name)
-                .compare(this.sensorType.toString(), o.sensorType.toString())
-                .compare(this.sensorId, o.sensorId)
-                .result();
+        SortName mine = sortName();
+        SortName theirs = o.sortName();
+        int result = Long.compareUnsigned(mine.key, theirs.key);
+        if (result == 0) {
+            result = mine.name.compareTo(theirs.name);
+        }
+        if (result == 0) {
+            result = Integer.compare(typeRank(getSensorType()), typeRank(o.getSensorType()));
+        }
+        return result != 0 ? result : getSensorId().compareTo(o.getSensorId());
+    }
+
+    private SortName sortName() {
+        SortName current = sortName;
+        if (current == null) { // read by Gson, which sets the name without a constructor
+            current = new SortName(name);
+            sortName = current;
+        }
+        return current;
+    }
+
+    /**
+     * Packs the first characters of the name, so that two keys compared unsigned order like the
+     * names do whenever the keys differ. Equal keys say nothing, the names have to be compared.
+     */
+    static long nameKey(String name) {
+        long key = 0;
+        int length = name == null ? 0 : Math.min(name.length(), NAME_KEY_CHARS);
+        for (int i = 0; i < NAME_KEY_CHARS; i++) {
+            key = key << Character.SIZE | (i < length ? name.charAt(i) : 0);
+        }
+        return key;
+    }
+
+    /**
+     * @return the position of the type when types are ordered by name
+     */
+    static int typeRank(SensorType sensorType) {
+        return TYPE_RANKS[sensorType.ordinal()];
+    }
+
+    /**
+     * A name and its sort key.
+     */
+    private static final class SortName {
+        private final String name;
+        private final long key;
+
+        private SortName(String name) {
+            this.name = name;
+            this.key = nameKey(name);
+        }
+    }
+
+    private static int[] typeRanks() {
+        SensorType[] byName = SensorType.values();
+        Arrays.sort(byName, Comparator.comparing(SensorType::toString));
+        int[] ranks = new int[byName.length];
+        for (int i = 0; i < byName.length; i++) {
+            ranks[byName[i].ordinal()] = i;
+        }
+        return ranks;
     }
 }
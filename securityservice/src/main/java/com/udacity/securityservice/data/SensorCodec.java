@@ -0,0 +1,197 @@
+package com.udacity.securityservice.data;
+
+import com.google.common.reflect.TypeToken;
+import com.google.gson.Gson;
+import java.lang.reflect.Type;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Compact binary encoding for sensors and the system status enums.
+ *
+ * A sensor is written as its id (two longs), one byte holding the type ordinal and the active flag,
+ * and the name as a varint length followed by UTF-8 bytes. Standalone encodings from
+ * {@link #encode(Sensor)} start with a version byte; {@link #decode(byte[])} also still reads the
+ * JSON that older versions of the repository stored.
+ */
+public final class SensorCodec {
+
+    public static final byte VERSION = 1;
+
+    // two id longs plus the type and active byte
+    private static final int FIXED_BYTES = Long.BYTES * 2 + 1;
+    private static final int MAX_VARINT_BYTES = 5;
+    private static final int ACTIVE_BIT = 1;
+
+    private static final SensorType[] SENSOR_TYPES = SensorType.values();
+    private static final AlarmStatus[] ALARM_STATUSES = AlarmStatus.values();
+    private static final ArmingStatus[] ARMING_STATUSES = ArmingStatus.values();
+
+    private static final Gson gson = new Gson();
+    private static final Type SENSOR_SET_TYPE = new TypeToken<Set<Sensor>>(){}.getType();
+
+    private SensorCodec() {
+    }
+
+    /**
+     * @return an upper bound for the bytes {@link #write(Sensor, ByteBuffer)} needs for this sensor
+     */
+    public static int maxEncodedSize(Sensor sensor) {
+        return FIXED_BYTES + MAX_VARINT_BYTES + sensor.getName().length() * 3;
+    }
+
+    /**
+     * Writes the sensor at the buffer's position, without a version byte.
+     */
+    public static void write(Sensor sensor, ByteBuffer out) {
+        UUID id = sensor.getSensorId();
+        out.putLong(id.getMostSignificantBits());
+        out.putLong(id.getLeastSignificantBits());
+        int active = sensor.isActive() ? ACTIVE_BIT : 0;
+        out.put((byte) (sensor.getSensorType().ordinal() << 1 | active));
+        writeString(sensor.getName(), out);
+    }
+
+    /**
+     * Reads a sensor written by {@link #write(Sensor, ByteBuffer)}.
+     */
+    public static Sensor read(ByteBuffer in) {
+        UUID id = new UUID(in.getLong(), in.getLong());
+        int flags = in.get();
+        SensorType type = SENSOR_TYPES[(flags & 0xFF) >>> 1];
+        String name = readString(in);
+        return new Sensor(id, name, type, (flags & ACTIVE_BIT) != 0);
+    }
+
+    /**
+     * @return the version byte followed by the encoded sensor
+     */
+    public static byte[] encode(Sensor sensor) {
+        ByteBuffer out = ByteBuffer.allocate(1 + maxEncodedSize(sensor));
+        out.put(VERSION);
+        write(sensor, out);
+        byte[] encoded = new byte[out.position()];
+        System.arraycopy(out.array(), 0, encoded, 0, encoded.length);
+        return encoded;
+    }
+
+    /**
+     * Decodes the output of {@link #encode(Sensor)}, or the JSON of a single sensor.
+     */
+    public static Sensor decode(byte[] encoded) {
+        if (encoded.length > 0 && encoded[0] == '{') {
+            return fromJson(new String(encoded, StandardCharsets.UTF_8));
+        }
+        ByteBuffer in = ByteBuffer.wrap(encoded);
+        byte version = in.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported sensor encoding version " + version);
+        }
+        try {
+            return read(in);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated sensor encoding", e);
+        }
+    }
+
+    public static Sensor fromJson(String json) {
+        return gson.fromJson(json, Sensor.class);
+    }
+
+    /**
+     * Reads the legacy JSON array holding every sensor.
+     */
+    public static Set<Sensor> fromJsonSet(String json) {
+        return gson.fromJson(json, SENSOR_SET_TYPE);
+    }
+
+    public static byte encode(AlarmStatus alarmStatus) {
+        return (byte) alarmStatus.ordinal();
+    }
+
+    public static AlarmStatus decodeAlarmStatus(byte encoded) {
+        return ALARM_STATUSES[encoded];
+    }
+
+    public static byte encode(ArmingStatus armingStatus) {
+        return (byte) armingStatus.ordinal();
+    }
+
+    public static ArmingStatus decodeArmingStatus(byte encoded) {
+        return ARMING_STATUSES[encoded];
+    }
+
+    private static void writeString(String s, ByteBuffer out) {
+        int length = s.length();
+        int utf8Length = 0;
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                utf8Length++;
+            } else if (c < 0x800) {
+                utf8Length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                utf8Length += 4;
+                i++;
+            } else {
+                utf8Length += 3;
+            }
+        }
+        writeVarint(utf8Length, out);
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                out.put((byte) c);
+            } else if (c < 0x800) {
+                out.put((byte) (0xC0 | c >> 6));
+                out.put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                out.put((byte) (0xF0 | cp >> 18));
+                out.put((byte) (0x80 | cp >> 12 & 0x3F));
+                out.put((byte) (0x80 | cp >> 6 & 0x3F));
+                out.put((byte) (0x80 | cp & 0x3F));
+            } else {
+                // unpaired surrogates are written as is, like the JDK's modified UTF-8
+                out.put((byte) (0xE0 | c >> 12));
+                out.put((byte) (0x80 | c >> 6 & 0x3F));
+                out.put((byte) (0x80 | c & 0x3F));
+            }
+        }
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = readVarint(in);
+        if (in.hasArray()) {
+            String s = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+            return s;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarint(int value, ByteBuffer out) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static int readVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed length in sensor encoding");
+    }
+}
@@ -0,0 +1,321 @@
+package com.udacity.securityservice.data;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * In-memory sensor collection used by the repositories. Sensors are indexed by id, so lookups and
+ * updates never compare names, and the store keeps a sorted view for display plus a running count
+ * of active sensors.
+ *
+ * Sensors are mutable and callers change them before handing them back through {@link #put(Sensor)},
+ * so the store remembers the name, type and active flag each sensor had when it was last put. That
+ * way a renamed sensor is still found in the sorted view and the active count stays right. A sensor
+ * put back under the same name and type keeps its place in the sorted view, so updating sensors
+ * allocates nothing.
+ *
+ * Not thread-safe, the owning repository is expected to guard it. What the repository hands out is
+ * a {@link #snapshot()}, which callers can iterate without the lock while the store changes.
+ */
+public final class SensorStore {
+
+    private final Map<UUID, Entry> index = new HashMap<>();
+    private final TreeSet<Entry> sorted = new TreeSet<>();
+    private final Set<Sensor> view = new SortedView();
+    private int activeCount;
+    // the sensors in view order as of the last change of membership or order, null once stale
+    private Set<Sensor> snapshot;
+
+    /**
+     * Adds the sensor, or refreshes the stored state of a sensor with the same id.
+     */
+    public void put(Sensor sensor) {
+        Entry entry = index.get(sensor.getSensorId());
+        boolean active = sensor.isActive();
+        if (entry == null) {
+            entry = new Entry(sensor);
+            index.put(entry.id, entry);
+            sorted.add(entry);
+            snapshot = null;
+        } else {
+            if (entry.active) {
+                activeCount--;
+            }
+            if (entry.sortsLike(sensor)) {
+                if (entry.sensor != sensor) {
+                    entry.sensor = sensor;
+                    snapshot = null;
+                }
+            } else {
+                sorted.remove(entry);
+                entry.refresh(sensor);
+                sorted.add(entry);
+                snapshot = null;
+            }
+        }
+        entry.active = active;
+        if (active) {
+            activeCount++;
+        }
+    }
+
+    /**
+     * Adds sensors to the store. Sensors put into an empty store in the order of {@link #view()}, as a
+     * snapshot written from it holds them, are linked into the sorted view in linear time rather than
+     * one by one.
+     */
+    public void putAll(Collection<Sensor> sensors) {
+        snapshot = null;
+        if (!index.isEmpty()) {
+            sensors.forEach(this::put);
+            return;
+        }
+        List<Entry> entries = new ArrayList<>(sensors.size());
+        Entry previous = null;
+        for (Sensor sensor : sensors) {
+            Entry entry = new Entry(sensor);
+            if (previous != null && previous.compareTo(entry) >= 0 || index.putIfAbsent(entry.id, entry) != null) {
+                // out of order or repeated, so add them the slow way
+                index.clear();
+                activeCount = 0;
+                sensors.forEach(this::put);
+                return;
+            }
+            entry.active = sensor.isActive();
+            if (entry.active) {
+                activeCount++;
+            }
+            entries.add(entry);
+            previous = entry;
+        }
+        sorted.addAll(new InOrder(entries));
+    }
+
+    /**
+     * @return the removed sensor, or null if no sensor had this id
+     */
+    public Sensor remove(UUID sensorId) {
+        Entry entry = index.remove(sensorId);
+        if (entry == null) {
+            return null;
+        }
+        sorted.remove(entry);
+        snapshot = null;
+        if (entry.active) {
+            activeCount--;
+        }
+        return entry.sensor;
+    }
+
+    public Sensor get(UUID sensorId) {
+        Entry entry = index.get(sensorId);
+        return entry == null ? null : entry.sensor;
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    public int getActiveCount() {
+        return activeCount;
+    }
+
+    public boolean hasActiveSensors() {
+        return activeCount > 0;
+    }
+
+    /**
+     * @return a read-only view of the sensors in name, type and id order. It is live, so it may only
+     * be used while holding the owner's lock.
+     */
+    public Set<Sensor> view() {
+        return view;
+    }
+
+    /**
+     * @return an immutable copy of {@link #view()}, safe to iterate while the store changes. The copy
+     * is kept until sensors are added, removed or reordered, so reading the sensors repeatedly, or
+     * changing only whether they are active, copies nothing.
+     */
+    public Set<Sensor> snapshot() {
+        Set<Sensor> current = snapshot;
+        if (current == null) {
+            current = new Snapshot(view.toArray(new Sensor[0]));
+            snapshot = current;
+        }
+        return current;
+    }
+
+    private final class SortedView extends AbstractSet<Sensor> {
+
+        @Override
+        public Iterator<Sensor> iterator() {
+            Iterator<Entry> entries = sorted.iterator();
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return entries.hasNext();
+                }
+
+                @Override
+                public Sensor next() {
+                    return entries.next().sensor;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return index.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Sensor s && index.containsKey(s.getSensorId());
+        }
+    }
+
+    /**
+     * The sensors at one point in time. Lookups scan the array: callers that look sensors up by id
+     * should ask the repository instead.
+     */
+    private static final class Snapshot extends AbstractSet<Sensor> {
+        private final Sensor[] sensors;
+
+        private Snapshot(Sensor[] sensors) {
+            this.sensors = sensors;
+        }
+
+        @Override
+        public Iterator<Sensor> iterator() {
+            return new Iterator<>() {
+                private int next;
+
+                @Override
+                public boolean hasNext() {
+                    return next < sensors.length;
+                }
+
+                @Override
+                public Sensor next() {
+                    if (next >= sensors.length) {
+                        throw new NoSuchElementException();
+                    }
+                    return sensors[next++];
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return sensors.length;
+        }
+    }
+
+    /**
+     * Entries known to be in order. Handing them to an empty {@link TreeSet} as a sorted set lets it
+     * build its tree directly instead of inserting them one at a time; nothing else is supported.
+     */
+    private static final class InOrder extends AbstractSet<Entry> implements SortedSet<Entry> {
+        private final List<Entry> entries;
+
+        private InOrder(List<Entry> entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        public Iterator<Entry> iterator() {
+            return entries.iterator();
+        }
+
+        @Override
+        public int size() {
+            return entries.size();
+        }
+
+        @Override
+        public Comparator<? super Entry> comparator() {
+            return null;
+        }
+
+        @Override
+        public SortedSet<Entry> subSet(Entry fromElement, Entry toElement) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SortedSet<Entry> headSet(Entry toElement) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SortedSet<Entry> tailSet(Entry fromElement) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Entry first() {
+            return entries.get(0);
+        }
+
+        @Override
+        public Entry last() {
+            return entries.get(entries.size() - 1);
+        }
+    }
+
+    /**
+     * The stored state of one sensor. Ordered the same way as {@link Sensor#compareTo(Sensor)}, but on
+     * the values captured at the last put rather than the live ones.
+     */
+    private static final class Entry implements Comparable<Entry> {
+        private final UUID id;
+        private Sensor sensor;
+        private String name;
+        private long nameKey;
+        private int typeRank;
+        private boolean active;
+
+        private Entry(Sensor sensor) {
+            this.id = sensor.getSensorId();
+            refresh(sensor);
+        }
+
+        private void refresh(Sensor sensor) {
+            this.sensor = sensor;
+            this.name = sensor.getName();
+            this.nameKey = Sensor.nameKey(name);
+            this.typeRank = Sensor.typeRank(sensor.getSensorType());
+        }
+
+        /**
+         * @return true if the sensor would sort where the entry already is
+         */
+        private boolean sortsLike(Sensor sensor) {
+            return typeRank == Sensor.typeRank(sensor.getSensorType()) && name.equals(sensor.getName());
+        }
+
+        @Override
+        public int compareTo(Entry o) {
+            int result = Long.compareUnsigned(nameKey, o.nameKey);
+            if (result == 0) {
+                result = name.compareTo(o.name);
+            }
+            if (result == 0) {
+                result = Integer.compare(typeRank, o.typeRank);
+            }
+            return result != 0 ? result : id.compareTo(o.id);
+        }
+    }
+}
@@ -0,0 +1,433 @@
+package com.udacity.securityservice.data;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Column-oriented sensor storage for installations with very many sensors. Each column is a
+ * primitive array: the id halves, the type ordinal, the active flags as a bitset and the names,
+ * which are interned so sites with repeating names share them. Rows are found through an
+ * open-addressing hash of the id, so there is no per-sensor object on the heap at all.
+ *
+ * {@link #get(UUID)} and {@link #snapshot()} hand out {@link Sensor} views over rows. A view reads
+ * and writes its row, so setting a view active also updates the active count. Removing a row moves
+ * the last row into its place; views look their row up again when that happens. A view of a removed
+ * sensor keeps the values it last saw and becomes a plain sensor that belongs to no table.
+ *
+ * The owner guards the table with a lock, which it hands to the table: views take the same lock
+ * for every read and write, so callers can use them on any thread.
+ */
+public final class SensorTable {
+
+    private static final int MIN_CAPACITY = 16;
+    private static final SensorType[] SENSOR_TYPES = SensorType.values();
+
+    private long[] idHigh;
+    private long[] idLow;
+    private byte[] types;
+    private long[] activeBits;
+    private String[] names;
+    private int size;
+    private int activeCount;
+
+    // open addressing index, each slot holds row + 1 and 0 marks an empty slot
+    private int[] slots;
+    private int mask;
+
+    private final Map<String, String> namePool = new HashMap<>();
+    private final Object lock;
+
+    /**
+     * @param lock The lock the owner holds while using the table.
+     */
+    public SensorTable(Object lock) {
+        this(lock, MIN_CAPACITY);
+    }
+
+    /**
+     * @param lock The lock the owner holds while using the table.
+     * @param expectedSensors Number of rows to size the columns for, so they don't have to grow.
+     */
+    public SensorTable(Object lock, int expectedSensors) {
+        this.lock = lock;
+        int capacity = Math.max(MIN_CAPACITY, expectedSensors);
+        idHigh = new long[capacity];
+        idLow = new long[capacity];
+        types = new byte[capacity];
+        activeBits = new long[(capacity + 63) >>> 6];
+        names = new String[capacity];
+        slots = new int[slotCapacity(capacity)];
+        mask = slots.length - 1;
+    }
+
+    /**
+     * Adds a row for the sensor, or copies its fields over the row with the same id.
+     * @return a view of the row
+     */
+    public Sensor put(Sensor sensor) {
+        return put(sensor.getSensorId(), sensor.getName(), sensor.getSensorType(), Boolean.TRUE.equals(sensor.getActive()));
+    }
+
+    public Sensor put(UUID sensorId, String name, SensorType sensorType, boolean active) {
+        long high = sensorId.getMostSignificantBits();
+        long low = sensorId.getLeastSignificantBits();
+        int row = find(high, low);
+        if (row < 0) {
+            row = size;
+            ensureCapacity(size + 1);
+            idHigh[row] = high;
+            idLow[row] = low;
+            size++;
+            slots[findSlot(high, low)] = row + 1;
+        }
+        setName(row, name);
+        types[row] = (byte) sensorType.ordinal();
+        setActive(row, active);
+        return new RowSensor(row);
+    }
+
+    /**
+     * @return a view of the row with this id, or null if there is none
+     */
+    public Sensor get(UUID sensorId) {
+        long high = sensorId.getMostSignificantBits();
+        long low = sensorId.getLeastSignificantBits();
+        int row = find(high, low);
+        return row < 0 ? null : new RowSensor(row);
+    }
+
+    public boolean contains(UUID sensorId) {
+        return find(sensorId.getMostSignificantBits(), sensorId.getLeastSignificantBits()) >= 0;
+    }
+
+    /**
+     * @return true if a row was removed
+     */
+    public boolean remove(UUID sensorId) {
+        long high = sensorId.getMostSignificantBits();
+        long low = sensorId.getLeastSignificantBits();
+        int slot = findSlot(high, low);
+        if (slots[slot] == 0) {
+            return false;
+        }
+        int row = slots[slot] - 1;
+        deleteSlot(slot);
+        setActive(row, false);
+
+        int last = size - 1;
+        if (row != last) {
+            idHigh[row] = idHigh[last];
+            idLow[row] = idLow[last];
+            types[row] = types[last];
+            names[row] = names[last];
+            boolean lastActive = isActive(last);
+            setActive(last, false);
+            setActive(row, lastActive);
+            slots[findSlot(idHigh[row], idLow[row])] = row + 1;
+        }
+        names[last] = null;
+        size--;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getActiveCount() {
+        return activeCount;
+    }
+
+    public boolean hasActiveSensors() {
+        return activeCount > 0;
+    }
+
+    /**
+     * @return a read-only set of views over the rows there are now, in row order. Only the ids are
+     * copied; a view is made as the iterator reaches its row, and rows removed by then are skipped,
+     * so iterating may return fewer sensors than {@code size()}.
+     */
+    public Set<Sensor> snapshot() {
+        return new Snapshot(Arrays.copyOf(idHigh, size), Arrays.copyOf(idLow, size));
+    }
+
+    /**
+     * @return the bytes held by the columns and the index, with compressed references and not
+     * counting the interned names
+     */
+    public long footprintBytes() {
+        int capacity = idHigh.length;
+        return (long) capacity * (Long.BYTES * 2 + 1 + Integer.BYTES) // ids, type, name reference
+                + (long) activeBits.length * Long.BYTES
+                + (long) slots.length * Integer.BYTES;
+    }
+
+    private boolean isActive(int row) {
+        return (activeBits[row >>> 6] & (1L << row)) != 0;
+    }
+
+    private void setActive(int row, boolean active) {
+        if (isActive(row) == active) {
+            return;
+        }
+        activeBits[row >>> 6] ^= 1L << row;
+        activeCount += active ? 1 : -1;
+    }
+
+    private void setName(int row, String name) {
+        names[row] = name == null ? null : namePool.computeIfAbsent(name, n -> n);
+    }
+
+    /**
+     * @return the row holding this id, or -1
+     */
+    private int find(long high, long low) {
+        return slots[findSlot(high, low)] - 1;
+    }
+
+    /**
+     * @return the slot holding this id, or the empty slot where it would go
+     */
+    private int findSlot(long high, long low) {
+        int slot = home(high, low);
+        while (true) {
+            int entry = slots[slot];
+            if (entry == 0 || idHigh[entry - 1] == high && idLow[entry - 1] == low) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private int home(long high, long low) {
+        long h = high ^ low;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+
+    /**
+     * Empties a slot and shifts later entries of the same probe run back, so lookups never stop early.
+     */
+    private void deleteSlot(int slot) {
+        int hole = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            int entry = slots[next];
+            if (entry == 0) {
+                break;
+            }
+            int home = home(idHigh[entry - 1], idLow[entry - 1]);
+            // the entry may only move back if its home is not between the hole and its current slot
+            boolean stays = hole <= next ? hole < home && home <= next : hole < home || home <= next;
+            if (!stays) {
+                slots[hole] = entry;
+                hole = next;
+            }
+        }
+        slots[hole] = 0;
+    }
+
+    private void ensureCapacity(int required) {
+        int capacity = idHigh.length;
+        if (required <= capacity) {
+            return;
+        }
+        int newCapacity = Math.max(required, capacity + (capacity >> 1));
+        idHigh = Arrays.copyOf(idHigh, newCapacity);
+        idLow = Arrays.copyOf(idLow, newCapacity);
+        types = Arrays.copyOf(types, newCapacity);
+        names = Arrays.copyOf(names, newCapacity);
+        activeBits = Arrays.copyOf(activeBits, (newCapacity + 63) >>> 6);
+        if (slotCapacity(newCapacity) > slots.length) {
+            slots = new int[slotCapacity(newCapacity)];
+            mask = slots.length - 1;
+            for (int row = 0; row < size; row++) {
+                slots[findSlot(idHigh[row], idLow[row])] = row + 1;
+            }
+        }
+    }
+
+    /**
+     * @return a power of two that keeps the index at most half full
+     */
+    private static int slotCapacity(int rows) {
+        return Integer.highestOneBit(Math.max(MIN_CAPACITY, rows) * 2 - 1) << 1;
+    }
+
+    private final class Snapshot extends AbstractSet<Sensor> {
+        private final long[] highs;
+        private final long[] lows;
+
+        private Snapshot(long[] highs, long[] lows) {
+            this.highs = highs;
+            this.lows = lows;
+        }
+
+        @Override
+        public Iterator<Sensor> iterator() {
+            return new Iterator<>() {
+                private int next;
+                private Sensor ahead;
+
+                @Override
+                public boolean hasNext() {
+                    synchronized (lock) {
+                        while (ahead == null && next < highs.length) {
+                            int row = find(highs[next], lows[next]);
+                            next++;
+                            if (row >= 0) {
+                                ahead = new RowSensor(row);
+                            }
+                        }
+                    }
+                    return ahead != null;
+                }
+
+                @Override
+                public Sensor next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    Sensor sensor = ahead;
+                    ahead = null;
+                    return sensor;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return highs.length;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Sensor s)) {
+                return false;
+            }
+            UUID id = s.getSensorId();
+            for (int i = 0; i < highs.length; i++) {
+                if (highs[i] == id.getMostSignificantBits() && lows[i] == id.getLeastSignificantBits()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A sensor whose fields live in the table. The fields of the plain sensor it extends hold the
+     * values last seen in the row, which is all that is left once the row is removed.
+     */
+    private final class RowSensor extends Sensor {
+        private final long high;
+        private final long low;
+        // guarded by lock
+        private int row;
+
+        // called with the lock held
+        private RowSensor(int row) {
+            super(new UUID(idHigh[row], idLow[row]), names[row], SENSOR_TYPES[types[row]], SensorTable.this.isActive(row));
+            this.high = idHigh[row];
+            this.low = idLow[row];
+            this.row = row;
+        }
+
+        /**
+         * Finds the row again if it moved, and copies its values into this sensor.
+         * @return the row, or -1 if it was removed
+         */
+        private int sync() {
+            if (row < 0 || row >= size || idHigh[row] != high || idLow[row] != low) {
+                row = find(high, low);
+            }
+            if (row >= 0) {
+                if (names[row] != super.getName()) {
+                    super.setName(names[row]);
+                }
+                super.setSensorType(SENSOR_TYPES[types[row]]);
+                super.setActive(SensorTable.this.isActive(row));
+            }
+            return row;
+        }
+
+        @Override
+        public void setSensorId(UUID sensorId) {
+            throw new UnsupportedOperationException("The id of a table row cannot change");
+        }
+
+        @Override
+        public String getName() {
+            synchronized (lock) {
+                sync();
+                return super.getName();
+            }
+        }
+
+        @Override
+        public void setName(String name) {
+            synchronized (lock) {
+                super.setName(name);
+                if (sync() >= 0) {
+                    SensorTable.this.setName(row, name);
+                }
+            }
+        }
+
+        @Override
+        public boolean isActive() {
+            synchronized (lock) {
+                sync();
+                return super.isActive();
+            }
+        }
+
+        @Override
+        public void setActive(boolean active) {
+            synchronized (lock) {
+                super.setActive(active);
+                if (sync() >= 0) {
+                    SensorTable.this.setActive(row, active);
+                }
+            }
+        }
+
+        @Override
+        public SensorType getSensorType() {
+            synchronized (lock) {
+                sync();
+                return super.getSensorType();
+            }
+        }
+
+        @Override
+        public void setSensorType(SensorType sensorType) {
+            synchronized (lock) {
+                super.setSensorType(sensorType);
+                if (sync() >= 0) {
+                    types[row] = (byte) sensorType.ordinal();
+                }
+            }
+        }
+
+        @Override
+        public int compareTo(Sensor o) {
+            synchronized (lock) {
+                sync();
+                if (o instanceof RowSensor other) {
+                    other.sync();
+                }
+                return super.compareTo(o);
+            }
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.udacity.securityservice.eventlog;
+
+import com.udacity.securityservice.data.AlarmStatus;
+import com.udacity.securityservice.data.ArmingStatus;
+import com.udacity.securityservice.data.Sensor;
+import com.udacity.securityservice.data.SensorCodec;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Appends the events of a security service to a file, each stamped with the wall clock time in
+ * microseconds. Records are gathered in a buffer and written once it fills up or on {@link #flush()},
+ * so logging costs a few bytes of copying per event. Read the file back with
+ * {@link SecurityEventLogReader}.
+ *
+ * The file starts with a magic number and the format version. Every record is its length, its type,
+ * its timestamp and its payload; sensors are written with {@link SensorCodec}.
+ */
+public final class BinarySecurityEventLog implements SecurityEventLog, AutoCloseable {
+
+    static final int MAGIC = 0x43455654; // "CEVT"
+    static final byte VERSION = 1;
+
+    // Record types
+    static final byte STATE_CAPTURED = 1;
+    static final byte SENSOR_ADDED = 2;
+    static final byte SENSOR_REMOVED = 3;
+    static final byte SENSOR_UPDATED = 4;
+    static final byte SENSOR_ACTIVATION_CHANGED = 5;
+    static final byte SENSOR_ACTIVATIONS_CHANGED = 6;
+    static final byte ARMING_STATUS_CHANGED = 7;
+    static final byte ALARM_STATUS_SET = 8;
+    static final byte CAT_DETECTED = 9;
+    static final byte ALARM_STATUS_CHANGED = 10;
+
+    // length, type and timestamp in front of every payload
+    static final int RECORD_HEADER_BYTES = Integer.BYTES + 1 + Long.BYTES;
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final FileChannel channel;
+    private final Clock clock;
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+    private int recordStart;
+    private long records;
+
+    public BinarySecurityEventLog(Path file) {
+        this(file, Clock.systemUTC());
+    }
+
+    /**
+     * @param file File to write. An existing file is replaced.
+     * @param clock Clock for the timestamps.
+     */
+    public BinarySecurityEventLog(Path file, Clock clock) {
+        this.clock = clock;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open the security event log " + file, e);
+        }
+        buffer.putInt(MAGIC);
+        buffer.put(VERSION);
+    }
+
+    @Override
+    public synchronized void stateCaptured(AlarmStatus alarmStatus, ArmingStatus armingStatus, Boolean catDetected,
+                                           Collection<Sensor> sensors) {
+        int size = 3 + Integer.BYTES;
+        for (Sensor sensor : sensors) {
+            size += SensorCodec.maxEncodedSize(sensor);
+        }
+        ByteBuffer b = startRecord(STATE_CAPTURED, size);
+        b.put(SensorCodec.encode(alarmStatus));
+        b.put(SensorCodec.encode(armingStatus));
+        b.put(encode(catDetected));
+        b.putInt(sensors.size());
+        for (Sensor sensor : sensors) {
+            SensorCodec.write(sensor, b);
+        }
+        endRecord();
+    }
+
+    @Override
+    public synchronized void sensorAdded(Sensor sensor) {
+        writeSensor(SENSOR_ADDED, sensor);
+    }
+
+    @Override
+    public synchronized void sensorRemoved(Sensor sensor) {
+        writeSensor(SENSOR_REMOVED, sensor);
+    }
+
+    @Override
+    public synchronized void sensorUpdated(Sensor sensor) {
+        writeSensor(SENSOR_UPDATED, sensor);
+    }
+
+    @Override
+    public synchronized void sensorActivationChanged(Sensor sensor, Boolean active) {
+        ByteBuffer b = startRecord(SENSOR_ACTIVATION_CHANGED, SensorCodec.maxEncodedSize(sensor) + 1);
+        SensorCodec.write(sensor, b);
+        b.put(encode(active));
+        endRecord();
+    }
+
+    @Override
+    public synchronized void sensorActivationsChanged(Map<Sensor, Boolean> changes) {
+        int size = Integer.BYTES;
+        for (Sensor sensor : changes.keySet()) {
+            size += SensorCodec.maxEncodedSize(sensor) + 1;
+        }
+        ByteBuffer b = startRecord(SENSOR_ACTIVATIONS_CHANGED, size);
+        b.putInt(changes.size());
+        for (Map.Entry<Sensor, Boolean> change : changes.entrySet()) {
+            SensorCodec.write(change.getKey(), b);
+            b.put(encode(change.getValue()));
+        }
+        endRecord();
+    }
+
+    @Override
+    public synchronized void armingStatusChanged(ArmingStatus armingStatus) {
+        startRecord(ARMING_STATUS_CHANGED, 1).put(SensorCodec.encode(armingStatus));
+        endRecord();
+    }
+
+    @Override
+    public synchronized void alarmStatusSet(AlarmStatus alarmStatus) {
+        startRecord(ALARM_STATUS_SET, 1).put(SensorCodec.encode(alarmStatus));
+        endRecord();
+    }
+
+    @Override
+    public synchronized void catDetected(Boolean catDetected) {
+        startRecord(CAT_DETECTED, 1).put(encode(catDetected));
+        endRecord();
+    }
+
+    @Override
+    public synchronized void alarmStatusChanged(AlarmStatus alarmStatus) {
+        startRecord(ALARM_STATUS_CHANGED, 1).put(SensorCodec.encode(alarmStatus));
+        endRecord();
+    }
+
+    /**
+     * @return the number of records written so far
+     */
+    public synchronized long getRecords() {
+        return records;
+    }
+
+    /**
+     * Writes the buffered records to the file.
+     */
+    public synchronized void flush() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write the security event log", e);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes the buffered records, forces them to disk and closes the file.
+     */
+    @Override
+    public synchronized void close() {
+        flush();
+        try {
+            channel.force(false);
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to close the security event log", e);
+        }
+    }
+
+    static byte encode(Boolean value) {
+        return value == null ? 2 : value ? (byte) 1 : (byte) 0;
+    }
+
+    static Boolean decodeBoolean(byte encoded) {
+        return encoded == 2 ? null : encoded == 1;
+    }
+
+    private void writeSensor(byte type, Sensor sensor) {
+        SensorCodec.write(sensor, startRecord(type, SensorCodec.maxEncodedSize(sensor)));
+        endRecord();
+    }
+
+    /**
+     * Makes room for the record, writing out or growing the buffer, and leaves it positioned at the payload.
+     */
+    private ByteBuffer startRecord(byte type, int payloadBytes) {
+        int size = RECORD_HEADER_BYTES + payloadBytes;
+        if (buffer.remaining() < size) {
+            flush();
+            if (buffer.capacity() < size) {
+                buffer = ByteBuffer.allocate(size);
+            }
+        }
+        Instant now = clock.instant();
+        recordStart = buffer.position();
+        buffer.position(recordStart + Integer.BYTES);
+        buffer.put(type);
+        buffer.putLong(now.getEpochSecond() * 1_000_000 + now.getNano() / 1_000);
+        return buffer;
+    }
+
+    private void endRecord() {
+        buffer.putInt(recordStart, buffer.position() - recordStart - Integer.BYTES);
+        records++;
+        if (buffer.capacity() > BUFFER_BYTES && buffer.position() > 0) {
+            flush();
+            buffer = ByteBuffer.allocate(BUFFER_BYTES); // don't keep a buffer grown for one large record
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.udacity.securityservice.eventlog;
+
+import com.udacity.securityservice.data.AlarmStatus;
+import com.udacity.securityservice.data.ArmingStatus;
+import com.udacity.securityservice.data.Sensor;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Receives every input of a {@link com.udacity.securityservice.service.SecurityService} in the order
+ * the service handled it, plus each alarm status the service decided on. Inputs are reported before
+ * they are applied, so sensors still hold the state they had when they were passed in.
+ *
+ * Images are reported as the verdict of the image service, so a log can be replayed without one.
+ * Every method does nothing by default.
+ */
+public interface SecurityEventLog {
+
+    SecurityEventLog NONE = new SecurityEventLog() {
+    };
+
+    /**
+     * The state of the service when logging started.
+     * @param catDetected The last image verdict, or null if no image has been processed.
+     */
+    default void stateCaptured(AlarmStatus alarmStatus, ArmingStatus armingStatus, Boolean catDetected,
+                               Collection<Sensor> sensors) {
+    }
+
+    default void sensorAdded(Sensor sensor) {
+    }
+
+    default void sensorRemoved(Sensor sensor) {
+    }
+
+    /**
+     * A sensor passed in with its activation status already changed.
+     */
+    default void sensorUpdated(Sensor sensor) {
+    }
+
+    default void sensorActivationChanged(Sensor sensor, Boolean active) {
+    }
+
+    default void sensorActivationsChanged(Map<Sensor, Boolean> changes) {
+    }
+
+    default void armingStatusChanged(ArmingStatus armingStatus) {
+    }
+
+    /**
+     * The alarm status was set from outside the service.
+     */
+    default void alarmStatusSet(AlarmStatus alarmStatus) {
+    }
+
+    default void catDetected(Boolean catDetected) {
+    }
+
+    /**
+     * The service stored a new alarm status. This is an output, not an input.
+     */
+    default void alarmStatusChanged(AlarmStatus alarmStatus) {
+    }
+}
@@ -0,0 +1,185 @@
+package com.udacity.securityservice.eventlog;
+
+import static com.udacity.securityservice.eventlog.BinarySecurityEventLog.*;
+
+import com.udacity.securityservice.data.AlarmStatus;
+import com.udacity.securityservice.data.ArmingStatus;
+import com.udacity.securityservice.data.Sensor;
+import com.udacity.securityservice.data.SensorCodec;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads a file written by {@link BinarySecurityEventLog} and hands each record to a
+ * {@link SecurityEventLog}, in the order it was written. The file is streamed through a fixed
+ * buffer, so logs of any size can be read. A record cut off at the end of the file, as left by a
+ * crash, ends the log.
+ */
+public final class SecurityEventLogReader implements AutoCloseable {
+
+    private static final int BUFFER_BYTES = 1 << 20;
+    // anything longer can only be a damaged length field
+    private static final int MAX_RECORD_BYTES = 1 << 28;
+
+    private final FileChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES).flip();
+    private boolean endOfFile;
+    private long timestampMicros;
+    private long records;
+
+    public SecurityEventLogReader(Path file) {
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open the security event log " + file, e);
+        }
+        try {
+            if (!fill(Integer.BYTES + 1) || buffer.getInt() != MAGIC) {
+                throw new IllegalStateException(file + " is not a security event log");
+            }
+            byte version = buffer.get();
+            if (version != VERSION) {
+                throw new IllegalStateException("Unsupported security event log version " + version);
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e instanceof IOException io
+                    ? new UncheckedIOException("Unable to read the security event log " + file, io)
+                    : (RuntimeException) e;
+        }
+    }
+
+    /**
+     * Reads the next record and passes it to the handler.
+     * @return false at the end of the log
+     */
+    public boolean next(SecurityEventLog handler) {
+        try {
+            if (!fill(Integer.BYTES)) {
+                return false;
+            }
+            int length = buffer.getInt(buffer.position());
+            if (length < RECORD_HEADER_BYTES - Integer.BYTES || length > MAX_RECORD_BYTES) {
+                return false; // damaged record
+            }
+            if (!fill(Integer.BYTES + length)) {
+                return false; // torn record
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read the security event log", e);
+        }
+        int length = buffer.getInt();
+        int end = buffer.position() + length;
+        byte type = buffer.get();
+        timestampMicros = buffer.getLong();
+        dispatch(type, handler);
+        buffer.position(end); // skips record types this version does not know
+        records++;
+        return true;
+    }
+
+    /**
+     * Passes every remaining record to the handler.
+     * @return the number of records read
+     */
+    public long readAll(SecurityEventLog handler) {
+        long count = 0;
+        while (next(handler)) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return the wall clock time of the record read last, in microseconds since the epoch
+     */
+    public long getTimestampMicros() {
+        return timestampMicros;
+    }
+
+    /**
+     * @return the number of records read so far
+     */
+    public long getRecords() {
+        return records;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to close the security event log", e);
+        }
+    }
+
+    private void dispatch(byte type, SecurityEventLog handler) {
+        switch (type) {
+            case STATE_CAPTURED -> {
+                AlarmStatus alarmStatus = SensorCodec.decodeAlarmStatus(buffer.get());
+                ArmingStatus armingStatus = SensorCodec.decodeArmingStatus(buffer.get());
+                Boolean catDetected = decodeBoolean(buffer.get());
+                int count = buffer.getInt();
+                List<Sensor> sensors = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    sensors.add(SensorCodec.read(buffer));
+                }
+                handler.stateCaptured(alarmStatus, armingStatus, catDetected, sensors);
+            }
+            case SENSOR_ADDED -> handler.sensorAdded(SensorCodec.read(buffer));
+            case SENSOR_REMOVED -> handler.sensorRemoved(SensorCodec.read(buffer));
+            case SENSOR_UPDATED -> handler.sensorUpdated(SensorCodec.read(buffer));
+            case SENSOR_ACTIVATION_CHANGED -> {
+                Sensor sensor = SensorCodec.read(buffer);
+                handler.sensorActivationChanged(sensor, decodeBoolean(buffer.get()));
+            }
+            case SENSOR_ACTIVATIONS_CHANGED -> {
+                int count = buffer.getInt();
+                Map<Sensor, Boolean> changes = new LinkedHashMap<>();
+                for (int i = 0; i < count; i++) {
+                    Sensor sensor = SensorCodec.read(buffer);
+                    changes.put(sensor, decodeBoolean(buffer.get()));
+                }
+                handler.sensorActivationsChanged(changes);
+            }
+            case ARMING_STATUS_CHANGED -> handler.armingStatusChanged(SensorCodec.decodeArmingStatus(buffer.get()));
+            case ALARM_STATUS_SET -> handler.alarmStatusSet(SensorCodec.decodeAlarmStatus(buffer.get()));
+            case CAT_DETECTED -> handler.catDetected(decodeBoolean(buffer.get()));
+            case ALARM_STATUS_CHANGED -> handler.alarmStatusChanged(SensorCodec.decodeAlarmStatus(buffer.get()));
+            default -> {
+                // written by a newer version, skipped
+            }
+        }
+    }
+
+    /**
+     * Makes sure the buffer holds at least this many unread bytes, reading more of the file if needed.
+     * @return false if the file ends first
+     */
+    private boolean fill(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return true;
+        }
+        if (buffer.capacity() < bytes) {
+            ByteBuffer grown = ByteBuffer.allocate(bytes);
+            grown.put(buffer);
+            buffer = grown.flip();
+        }
+        buffer.compact();
+        while (buffer.position() < bytes && !endOfFile) {
+            if (channel.read(buffer) < 0) {
+                endOfFile = true;
+            }
+        }
+        buffer.flip();
+        return buffer.remaining() >= bytes;
+    }
+}
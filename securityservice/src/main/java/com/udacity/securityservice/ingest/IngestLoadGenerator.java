@@ -0,0 +1,147 @@
+package com.udacity.securityservice.ingest;
+
+import com.udacity.securityservice.data.ArmingStatus;
+import com.udacity.securityservice.data.JournalSecurityRepositoryImpl;
+import com.udacity.securityservice.data.Sensor;
+import com.udacity.securityservice.data.SensorType;
+import com.udacity.securityservice.service.SecurityService;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Measures the ingestion path end to end on one machine. It starts a server backed by a journal
+ * repository in a temporary directory, connects one TCP connection per sensor, and has a few writer
+ * threads send alternating states on every connection. It reports the events per second and the
+ * time from a report arriving until its batch has gone through the alarm state machine.
+ *
+ * Arguments: [connections] [events per connection] [writer threads]. Tens of thousands of
+ * connections need a raised open file limit, since every connection uses two descriptors here.
+ */
+public final class IngestLoadGenerator {
+
+    private static final long TIMEOUT_SECONDS = 120;
+
+    private IngestLoadGenerator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int connections = intArg(args, 0, 10_000);
+        int eventsPerConnection = intArg(args, 1, 20);
+        int writers = intArg(args, 2, Runtime.getRuntime().availableProcessors());
+
+        Path directory = Files.createTempDirectory("sensor-ingest-load");
+        try (JournalSecurityRepositoryImpl repository = new JournalSecurityRepositoryImpl(directory)) {
+            SecurityService securityService = new SecurityService(repository, (image, threshold) -> false);
+            List<Sensor> sensors = new ArrayList<>(connections);
+            for (int i = 0; i < connections; i++) {
+                Sensor sensor = new Sensor("device " + i, SensorType.values()[i % SensorType.values().length]);
+                securityService.addSensor(sensor);
+                sensors.add(sensor);
+            }
+            securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+
+            try (SensorEventBatcher batcher = new SensorEventBatcher(repository::getSensor,
+                         securityService::changeSensorActivationStatuses, 1024, 5, 65_536);
+                 SensorIngestServer server = new SensorIngestServer(batcher,
+                         new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), null).start()) {
+                List<Socket> sockets = connect(server.getTcpPort(), connections);
+                try {
+                    awaitOpenConnections(server, connections);
+                    run(sensors, sockets, batcher, eventsPerConnection, writers);
+                } finally {
+                    for (Socket socket : sockets) {
+                        socket.close();
+                    }
+                }
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    private static void run(List<Sensor> sensors, List<Socket> sockets, SensorEventBatcher batcher,
+                            int eventsPerConnection, int writers) throws InterruptedException {
+        long total = (long) sockets.size() * eventsPerConnection;
+        long started = System.nanoTime();
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            Thread t = new Thread(() -> {
+                try {
+                    for (int round = 0; round < eventsPerConnection; round++) {
+                        for (int i = writer; i < sockets.size(); i += writers) {
+                            OutputStream out = sockets.get(i).getOutputStream();
+                            out.write(SensorEventParser.formatLine(sensors.get(i).getSensorId(), round % 2 == 0));
+                        }
+                    }
+                } catch (IOException e) {
+                    failure.compareAndSet(null, e);
+                }
+            }, "sensor-ingest-load-" + w);
+            threads.add(t);
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        if (failure.get() != null) {
+            throw new UncheckedIOException("Unable to send sensor events", failure.get());
+        }
+        long sent = System.nanoTime();
+        long deadline = sent + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (batcher.getAppliedEvents() < total && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        long elapsed = System.nanoTime() - started;
+
+        System.out.printf("connections: %d, events: %d of %d applied in %d batches, %d unknown%n",
+                sockets.size(), batcher.getAppliedEvents(), total, batcher.getBatches(), batcher.getUnknownSensorEvents());
+        System.out.printf("sent in %d ms, applied in %d ms: %.0f events/s%n",
+                TimeUnit.NANOSECONDS.toMillis(sent - started), TimeUnit.NANOSECONDS.toMillis(elapsed),
+                batcher.getAppliedEvents() / (elapsed / 1e9));
+        System.out.println("ingest to alarm: " + batcher.getLatency().summary(TimeUnit.MILLISECONDS));
+    }
+
+    private static List<Socket> connect(int port, int connections) throws IOException {
+        List<Socket> sockets = new ArrayList<>(connections);
+        long started = System.nanoTime();
+        for (int i = 0; i < connections; i++) {
+            Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            socket.setTcpNoDelay(true);
+            sockets.add(socket);
+        }
+        System.out.printf("connected %d sockets in %d ms%n", connections,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        return sockets;
+    }
+
+    private static void awaitOpenConnections(SensorIngestServer server, int connections) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (server.getOpenConnections() < connections && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        if (server.getOpenConnections() < connections) {
+            throw new IllegalStateException("Only " + server.getOpenConnections() + " of " + connections
+                    + " connections were accepted, check the open file limit");
+        }
+    }
+
+    private static int intArg(String[] args, int index, int defaultValue) {
+        return args.length > index ? Integer.parseInt(args[index]) : defaultValue;
+    }
+}
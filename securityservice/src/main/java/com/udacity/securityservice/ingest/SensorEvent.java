@@ -0,0 +1,39 @@
+package com.udacity.securityservice.ingest;
+
+import java.util.UUID;
+
+/**
+ * A state report from a device: which sensor, whether it is active, and when the report arrived.
+ */
+public final class SensorEvent {
+
+    private final UUID sensorId;
+    private final boolean active;
+    private final long receivedNanos;
+
+    /**
+     * @param receivedNanos {@link System#nanoTime()} when the report arrived.
+     */
+    public SensorEvent(UUID sensorId, boolean active, long receivedNanos) {
+        this.sensorId = sensorId;
+        this.active = active;
+        this.receivedNanos = receivedNanos;
+    }
+
+    public UUID getSensorId() {
+        return sensorId;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public long getReceivedNanos() {
+        return receivedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return sensorId + " " + (active ? "1" : "0");
+    }
+}
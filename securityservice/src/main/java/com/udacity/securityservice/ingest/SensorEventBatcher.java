@@ -0,0 +1,195 @@
+package com.udacity.securityservice.ingest;
+
+import com.udacity.securityservice.data.Sensor;
+import com.udacity.securityservice.metrics.LatencyHistogram;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Gathers sensor events from any number of threads and hands them on in batches from a single
+ * thread. A batch closes once it is full or once its first event has waited for the maximum delay.
+ * Within a batch only the latest state of each sensor is kept, and events for unknown sensors are
+ * dropped.
+ *
+ * The time from an event's arrival until its batch has been applied is recorded in
+ * {@link #getLatency()}.
+ */
+public final class SensorEventBatcher implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SensorEventBatcher.class);
+    private static final long POLL_MILLIS = 100;
+
+    private final Function<UUID, Sensor> sensorLookup;
+    private final Consumer<Map<Sensor, Boolean>> sink;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final BlockingQueue<SensorEvent> queue;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder unknown = new LongAdder();
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    /**
+     * @param sensorLookup Finds the sensor for an id, or returns null if there is none. Called on the batch thread.
+     * @param sink Applies a batch, for example {@code securityService::changeSensorActivationStatuses}. Called on the batch thread.
+     * @param maxBatchSize Most events in one batch.
+     * @param maxDelayMillis How long the first event of a batch may wait for more to join it.
+     * @param capacity How many events may wait before producers are held back.
+     */
+    public SensorEventBatcher(Function<UUID, Sensor> sensorLookup, Consumer<Map<Sensor, Boolean>> sink,
+                              int maxBatchSize, long maxDelayMillis, int capacity) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be at least 1");
+        }
+        this.sensorLookup = sensorLookup;
+        this.sink = sink;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.worker = new Thread(this::run, "sensor-event-batcher");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Queues the event, waiting for room if the queue is full. Used for connections, where waiting
+     * slows the sender down.
+     */
+    public void put(SensorEvent event) throws InterruptedException {
+        queue.put(event);
+        received.increment();
+    }
+
+    /**
+     * Queues the event if there is room. Used for datagrams, which cannot be slowed down.
+     * @return false if the queue was full and the event was dropped
+     */
+    public boolean offer(SensorEvent event) {
+        if (queue.offer(event)) {
+            received.increment();
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public long getReceivedEvents() {
+        return received.sum();
+    }
+
+    /**
+     * @return the number of events dropped because the queue was full
+     */
+    public long getRejectedEvents() {
+        return rejected.sum();
+    }
+
+    public long getUnknownSensorEvents() {
+        return unknown.sum();
+    }
+
+    /**
+     * @return the number of events in batches that have been applied, including superseded ones
+     */
+    public long getAppliedEvents() {
+        return applied.sum();
+    }
+
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Applies the events already queued, then stops the batch thread.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<SensorEvent> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (running || !queue.isEmpty()) {
+                SensorEvent first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long wait = deadline - System.nanoTime();
+                    SensorEvent next = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                apply(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void apply(List<SensorEvent> batch) {
+        // a new map every time, the sink may hold on to it
+        Map<Sensor, Boolean> changes = new LinkedHashMap<>();
+        for (SensorEvent event : batch) {
+            Sensor sensor = sensorLookup.apply(event.getSensorId());
+            if (sensor == null) {
+                unknown.increment();
+                continue;
+            }
+            changes.remove(sensor); // keep the latest state, in the order it arrived
+            changes.put(sensor, event.isActive());
+        }
+        try {
+            if (!changes.isEmpty()) {
+                sink.accept(changes);
+            }
+        } catch (RuntimeException e) {
+            log.error("Unable to apply a batch of {} sensor events", batch.size(), e);
+            return;
+        }
+        long now = System.nanoTime();
+        for (SensorEvent event : batch) {
+            latency.record(now - event.getReceivedNanos());
+        }
+        applied.add(batch.size());
+        batches.increment();
+    }
+}
@@ -0,0 +1,129 @@
+package com.udacity.securityservice.ingest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Parses the ingestion line protocol straight from bytes. A line is a sensor id in the canonical
+ * 36 character UUID form, whitespace, and a state: {@code 1}, {@code on}, {@code true} or
+ * {@code active} for active, {@code 0}, {@code off}, {@code false} or {@code inactive} for
+ * inactive. States are case-insensitive and a trailing carriage return is ignored, for example:
+ * <pre>
+ * 3f2504e0-4f89-11d3-9a0c-0305e82c3301 1
+ * </pre>
+ */
+public final class SensorEventParser {
+
+    // results of decode
+    public static final int INACTIVE = 0;
+    public static final int ACTIVE = 1;
+    public static final int MALFORMED = -1;
+
+    private static final int UUID_CHARS = 36;
+
+    private SensorEventParser() {
+    }
+
+    /**
+     * @param receivedNanos {@link System#nanoTime()} when the line arrived.
+     * @return the event, or null if the line is malformed
+     */
+    public static SensorEvent parse(byte[] line, int offset, int length, long receivedNanos) {
+        long[] sensorId = new long[2];
+        int state = decode(line, offset, length, sensorId);
+        return state == MALFORMED ? null : new SensorEvent(new UUID(sensorId[0], sensorId[1]), state == ACTIVE, receivedNanos);
+    }
+
+    /**
+     * Parses the line without allocating anything.
+     * @param sensorId Receives the most and the least significant bits of the sensor id, in that order.
+     * @return {@link #ACTIVE}, {@link #INACTIVE}, or {@link #MALFORMED}, in which case the id is undefined
+     */
+    public static int decode(byte[] line, int offset, int length, long[] sensorId) {
+        int end = offset + length;
+        while (end > offset && isWhitespace(line[end - 1])) {
+            end--;
+        }
+        int i = offset;
+        while (i < end && isWhitespace(line[i])) {
+            i++;
+        }
+        if (end - i < UUID_CHARS + 2 || !parseUuid(line, i, sensorId)) {
+            return MALFORMED;
+        }
+        i += UUID_CHARS;
+        if (!isWhitespace(line[i])) {
+            return MALFORMED;
+        }
+        while (i < end && isWhitespace(line[i])) {
+            i++;
+        }
+        return parseState(line, i, end);
+    }
+
+    /**
+     * @return the line for a sensor event, without the line feed
+     */
+    public static String format(UUID sensorId, boolean active) {
+        return sensorId + (active ? " 1" : " 0");
+    }
+
+    public static byte[] formatLine(UUID sensorId, boolean active) {
+        return (format(sensorId, active) + "\n").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static boolean parseUuid(byte[] b, int offset, long[] sensorId) {
+        if (b[offset + 8] != '-' || b[offset + 13] != '-' || b[offset + 18] != '-' || b[offset + 23] != '-') {
+            return false;
+        }
+        long high = 0;
+        long low = 0;
+        for (int i = 0; i < UUID_CHARS; i++) {
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                continue;
+            }
+            int digit = Character.digit(b[offset + i], 16);
+            if (digit < 0) {
+                return false;
+            }
+            if (i < 19) {
+                high = high << 4 | digit;
+            } else {
+                low = low << 4 | digit;
+            }
+        }
+        sensorId[0] = high;
+        sensorId[1] = low;
+        return true;
+    }
+
+    private static int parseState(byte[] b, int from, int to) {
+        int length = to - from;
+        if (length == 1) {
+            return b[from] == '1' ? ACTIVE : b[from] == '0' ? INACTIVE : MALFORMED;
+        }
+        if (matches(b, from, length, "on") || matches(b, from, length, "true") || matches(b, from, length, "active")) {
+            return ACTIVE;
+        }
+        if (matches(b, from, length, "off") || matches(b, from, length, "false") || matches(b, from, length, "inactive")) {
+            return INACTIVE;
+        }
+        return MALFORMED;
+    }
+
+    private static boolean matches(byte[] b, int from, int length, String word) {
+        if (length != word.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (Character.toLowerCase(b[from + i]) != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+}
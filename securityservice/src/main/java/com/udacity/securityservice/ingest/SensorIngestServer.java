@@ -0,0 +1,282 @@
+package com.udacity.securityservice.ingest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Accepts sensor state reports from devices and feeds them to a {@link SensorEventBatcher}. Devices
+ * either keep a TCP connection open and write one line per report, or send UDP datagrams holding
+ * one or more lines. The line format is described in {@link SensorEventParser}.
+ *
+ * Every connection is served by its own thread doing blocking reads with a small buffer. On a JVM
+ * with virtual threads those are virtual threads; otherwise they are daemon platform threads with a
+ * small stack. Datagrams are read by a single thread, so they scale to any number of devices.
+ */
+public final class SensorIngestServer implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SensorIngestServer.class);
+
+    private static final int ACCEPT_BACKLOG = 4096;
+    private static final int LINE_BUFFER_BYTES = 128;
+    private static final int DATAGRAM_BYTES = 8192;
+    private static final long CONNECTION_STACK_BYTES = 128 * 1024;
+    // pause after a failed accept, which usually means the process ran out of file descriptors
+    private static final long ACCEPT_RETRY_MILLIS = 10;
+
+    private final SensorEventBatcher batcher;
+    private final InetSocketAddress tcpAddress;
+    private final InetSocketAddress udpAddress;
+    private final ExecutorService connections = newConnectionExecutor();
+    private final Set<Socket> openSockets = ConcurrentHashMap.newKeySet();
+    private final List<Thread> listeners = new ArrayList<>();
+    private ServerSocket serverSocket;
+    private DatagramSocket datagramSocket;
+    private volatile boolean closed;
+
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final LongAdder acceptedConnections = new LongAdder();
+    private final LongAdder malformedLines = new LongAdder();
+
+    /**
+     * @param tcpAddress Address to accept connections on, or null for no TCP. Port 0 picks a free port.
+     * @param udpAddress Address to receive datagrams on, or null for no UDP. Port 0 picks a free port.
+     */
+    public SensorIngestServer(SensorEventBatcher batcher, InetSocketAddress tcpAddress, InetSocketAddress udpAddress) {
+        this.batcher = batcher;
+        this.tcpAddress = tcpAddress;
+        this.udpAddress = udpAddress;
+    }
+
+    /**
+     * Binds the sockets and starts accepting reports.
+     */
+    public synchronized SensorIngestServer start() {
+        try {
+            if (tcpAddress != null) {
+                serverSocket = new ServerSocket();
+                serverSocket.setReuseAddress(true);
+                serverSocket.bind(tcpAddress, ACCEPT_BACKLOG);
+                listeners.add(startListener("sensor-ingest-acceptor", this::acceptConnections));
+            }
+            if (udpAddress != null) {
+                datagramSocket = new DatagramSocket(udpAddress);
+                listeners.add(startListener("sensor-ingest-datagrams", this::receiveDatagrams));
+            }
+        } catch (IOException e) {
+            close();
+            throw new UncheckedIOException("Unable to start the sensor ingest server", e);
+        }
+        log.info("Sensor ingest server listening on tcp {} udp {}", getTcpPort(), getUdpPort());
+        return this;
+    }
+
+    /**
+     * @return the bound TCP port, or -1 if TCP is off
+     */
+    public int getTcpPort() {
+        return serverSocket == null ? -1 : serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return the bound UDP port, or -1 if UDP is off
+     */
+    public int getUdpPort() {
+        return datagramSocket == null ? -1 : datagramSocket.getLocalPort();
+    }
+
+    public int getOpenConnections() {
+        return openConnections.get();
+    }
+
+    public long getAcceptedConnections() {
+        return acceptedConnections.sum();
+    }
+
+    public long getMalformedLines() {
+        return malformedLines.sum();
+    }
+
+    /**
+     * Stops accepting reports and closes every connection. The batcher is left running.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        closeQuietly(serverSocket);
+        if (datagramSocket != null) {
+            datagramSocket.close();
+        }
+        openSockets.forEach(SensorIngestServer::closeQuietly);
+        connections.shutdownNow();
+        for (Thread listener : listeners) {
+            try {
+                listener.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void acceptConnections() {
+        while (!closed) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (!closed) {
+                    log.warn("Unable to accept a sensor connection", e);
+                    try {
+                        Thread.sleep(ACCEPT_RETRY_MILLIS);
+                    } catch (InterruptedException ie) {
+                        return;
+                    }
+                }
+                continue;
+            }
+            acceptedConnections.increment();
+            openSockets.add(socket);
+            try {
+                connections.execute(() -> serve(socket));
+            } catch (RejectedExecutionException e) {
+                openSockets.remove(socket);
+                closeQuietly(socket);
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        openConnections.incrementAndGet();
+        byte[] buffer = new byte[LINE_BUFFER_BYTES];
+        int filled = 0;
+        try (socket; InputStream in = socket.getInputStream()) {
+            socket.setTcpNoDelay(true);
+            int read;
+            while (!closed && (read = in.read(buffer, filled, buffer.length - filled)) > 0) {
+                long now = System.nanoTime();
+                int end = filled + read;
+                int lineStart = 0;
+                for (int i = filled; i < end; i++) {
+                    if (buffer[i] == '\n') {
+                        accept(buffer, lineStart, i - lineStart, now);
+                        lineStart = i + 1;
+                    }
+                }
+                filled = end - lineStart;
+                if (filled == buffer.length) {
+                    malformedLines.increment();
+                    log.warn("Closing sensor connection {}, line too long", socket.getRemoteSocketAddress());
+                    return;
+                }
+                System.arraycopy(buffer, lineStart, buffer, 0, filled);
+            }
+        } catch (SocketException e) {
+            // closed by the device or by close()
+        } catch (IOException e) {
+            log.warn("Sensor connection {} failed", socket.getRemoteSocketAddress(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            openConnections.decrementAndGet();
+            openSockets.remove(socket);
+        }
+    }
+
+    private void accept(byte[] buffer, int offset, int length, long receivedNanos) throws InterruptedException {
+        if (length == 0) {
+            return;
+        }
+        SensorEvent event = SensorEventParser.parse(buffer, offset, length, receivedNanos);
+        if (event == null) {
+            malformedLines.increment();
+        } else {
+            batcher.put(event);
+        }
+    }
+
+    private void receiveDatagrams() {
+        byte[] buffer = new byte[DATAGRAM_BYTES];
+        DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+        while (!closed) {
+            try {
+                packet.setLength(buffer.length);
+                datagramSocket.receive(packet);
+            } catch (IOException e) {
+                if (!closed) {
+                    log.warn("Unable to receive a sensor datagram", e);
+                }
+                continue;
+            }
+            long now = System.nanoTime();
+            int end = packet.getLength();
+            int lineStart = 0;
+            for (int i = 0; i <= end; i++) {
+                if (i == end || buffer[i] == '\n') {
+                    if (i > lineStart) {
+                        SensorEvent event = SensorEventParser.parse(buffer, lineStart, i - lineStart, now);
+                        if (event == null) {
+                            malformedLines.increment();
+                        } else {
+                            batcher.offer(event);
+                        }
+                    }
+                    lineStart = i + 1;
+                }
+            }
+        }
+    }
+
+    private static Thread startListener(String name, Runnable task) {
+        Thread t = new Thread(task, name);
+        t.setDaemon(true);
+        t.start();
+        return t;
+    }
+
+    /**
+     * Uses a virtual thread per task where the JVM has them, and small-stack daemon threads otherwise.
+     */
+    private static ExecutorService newConnectionExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(null, r, "sensor-ingest-connection-" + count.incrementAndGet(), CONNECTION_STACK_BYTES);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // nothing left to do with it
+        }
+    }
+}
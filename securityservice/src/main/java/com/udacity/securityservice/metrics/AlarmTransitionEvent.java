@@ -0,0 +1,22 @@
+package com.udacity.securityservice.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.udacity.securityservice.AlarmTransition")
+@Label("Alarm Transition")
+@Category("CatPoint")
+@Description("The alarm status of the security system changed")
+@StackTrace(false)
+final class AlarmTransitionEvent extends Event {
+
+    @Label("From")
+    String from;
+
+    @Label("To")
+    String to;
+}
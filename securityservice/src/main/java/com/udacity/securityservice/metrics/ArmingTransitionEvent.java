@@ -0,0 +1,22 @@
+package com.udacity.securityservice.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.udacity.securityservice.ArmingTransition")
+@Label("Arming Transition")
+@Category("CatPoint")
+@Description("The security system was armed or disarmed")
+@StackTrace(false)
+final class ArmingTransitionEvent extends Event {
+
+    @Label("From")
+    String from;
+
+    @Label("To")
+    String to;
+}
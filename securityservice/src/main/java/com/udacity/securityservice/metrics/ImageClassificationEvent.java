@@ -0,0 +1,24 @@
+package com.udacity.securityservice.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("com.udacity.securityservice.ImageClassification")
+@Label("Image Classification")
+@Category("CatPoint")
+@Description("The image service looked for a cat in a camera image")
+@StackTrace(false)
+final class ImageClassificationEvent extends Event {
+
+    @Label("Cat Detected")
+    boolean catDetected;
+
+    @Label("Classification Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long classificationTime;
+}
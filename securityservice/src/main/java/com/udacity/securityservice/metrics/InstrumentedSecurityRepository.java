@@ -0,0 +1,109 @@
+package com.udacity.securityservice.metrics;
+
+import com.udacity.securityservice.data.AlarmStatus;
+import com.udacity.securityservice.data.ArmingStatus;
+import com.udacity.securityservice.data.SecurityRepository;
+import com.udacity.securityservice.data.Sensor;
+import java.util.Collection;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Passes every call on to another repository and records how long each write took. Reads are
+ * passed on untimed.
+ */
+public final class InstrumentedSecurityRepository implements SecurityRepository {
+
+    private final SecurityRepository delegate;
+    private final SecurityMetrics metrics;
+
+    public InstrumentedSecurityRepository(SecurityRepository delegate, SecurityMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void addSensor(Sensor sensor) {
+        long started = System.nanoTime();
+        delegate.addSensor(sensor);
+        metrics.repositoryWritten(System.nanoTime() - started);
+    }
+
+    @Override
+    public void removeSensor(Sensor sensor) {
+        long started = System.nanoTime();
+        delegate.removeSensor(sensor);
+        metrics.repositoryWritten(System.nanoTime() - started);
+    }
+
+    @Override
+    public void updateSensor(Sensor sensor) {
+        long started = System.nanoTime();
+        delegate.updateSensor(sensor);
+        metrics.repositoryWritten(System.nanoTime() - started);
+    }
+
+    @Override
+    public void updateSensors(Collection<Sensor> sensors) {
+        long started = System.nanoTime();
+        delegate.updateSensors(sensors);
+        metrics.repositoryWritten(System.nanoTime() - started);
+    }
+
+    @Override
+    public void setAlarmStatus(AlarmStatus alarmStatus) {
+        long started = System.nanoTime();
+        delegate.setAlarmStatus(alarmStatus);
+        metrics.repositoryWritten(System.nanoTime() - started);
+    }
+
+    @Override
+    public void setArmingStatus(ArmingStatus armingStatus) {
+        long started = System.nanoTime();
+        delegate.setArmingStatus(armingStatus);
+        metrics.repositoryWritten(System.nanoTime() - started);
+    }
+
+    @Override
+    public void flush() {
+        long started = System.nanoTime();
+        delegate.flush();
+        metrics.repositoryWritten(System.nanoTime() - started);
+    }
+
+    @Override
+    public Set<Sensor> getSensors() {
+        return delegate.getSensors();
+    }
+
+    @Override
+    public AlarmStatus getAlarmStatus() {
+        return delegate.getAlarmStatus();
+    }
+
+    @Override
+    public ArmingStatus getArmingStatus() {
+        return delegate.getArmingStatus();
+    }
+
+    @Override
+    public Sensor getSensor(UUID sensorId) {
+        return delegate.getSensor(sensorId);
+    }
+
+    @Override
+    public boolean hasActiveSensors() {
+        return delegate.hasActiveSensors();
+    }
+
+    @Override
+    public int getActiveSensorCount() {
+        return delegate.getActiveSensorCount();
+    }
+
+    @Override
+    public CompletableFuture<Void> whenSensorsLoaded() {
+        return delegate.whenSensorsLoaded();
+    }
+}
@@ -0,0 +1,68 @@
+package com.udacity.securityservice.metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Summary of a {@link LatencyHistogram} at one moment, in microseconds. Shows up in JMX consoles
+ * as one composite value.
+ */
+public final class LatencySnapshot {
+
+    private static final double NANOS_PER_MICRO = 1_000.0;
+
+    private final long count;
+    private final double meanMicros;
+    private final double p50Micros;
+    private final double p99Micros;
+    private final double p999Micros;
+    private final double maxMicros;
+
+    @ConstructorProperties({"count", "meanMicros", "p50Micros", "p99Micros", "p999Micros", "maxMicros"})
+    public LatencySnapshot(long count, double meanMicros, double p50Micros, double p99Micros, double p999Micros,
+                           double maxMicros) {
+        this.count = count;
+        this.meanMicros = meanMicros;
+        this.p50Micros = p50Micros;
+        this.p99Micros = p99Micros;
+        this.p999Micros = p999Micros;
+        this.maxMicros = maxMicros;
+    }
+
+    public static LatencySnapshot of(LatencyHistogram histogram) {
+        return new LatencySnapshot(histogram.getCount(), histogram.getMeanNanos() / NANOS_PER_MICRO,
+                histogram.getValueAtPercentile(50) / NANOS_PER_MICRO,
+                histogram.getValueAtPercentile(99) / NANOS_PER_MICRO,
+                histogram.getValueAtPercentile(99.9) / NANOS_PER_MICRO,
+                histogram.getMaxNanos() / NANOS_PER_MICRO);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMeanMicros() {
+        return meanMicros;
+    }
+
+    public double getP50Micros() {
+        return p50Micros;
+    }
+
+    public double getP99Micros() {
+        return p99Micros;
+    }
+
+    public double getP999Micros() {
+        return p999Micros;
+    }
+
+    public double getMaxMicros() {
+        return maxMicros;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%.2f p50=%.2f p99=%.2f p99.9=%.2f max=%.2f (microseconds)",
+                count, meanMicros, p50Micros, p99Micros, p999Micros, maxMicros);
+    }
+}
@@ -0,0 +1,239 @@
+package com.udacity.securityservice.metrics;
+
+import com.udacity.securityservice.data.AlarmStatus;
+import com.udacity.securityservice.data.ArmingStatus;
+import com.udacity.securityservice.data.SecurityRepository;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import jdk.jfr.EventType;
+
+/**
+ * Counters and latency histograms of one security service: every alarm and arming transition,
+ * image classification and processing times, repository writes and listener dispatch, and the
+ * number of sensors. Shown over JMX once {@link #register(String)} has been called.
+ *
+ * Transitions and image classifications are also emitted as JFR events, under the CatPoint
+ * category, while a recording has them enabled. Recording never allocates unless such a recording
+ * is running, so the metrics are always on.
+ */
+public final class SecurityMetrics implements SecurityMetricsMXBean {
+
+    private static final AlarmStatus[] ALARM_STATUSES = AlarmStatus.values();
+    private static final ArmingStatus[] ARMING_STATUSES = ArmingStatus.values();
+    private static final EventType ALARM_TRANSITION = EventType.getEventType(AlarmTransitionEvent.class);
+    private static final EventType ARMING_TRANSITION = EventType.getEventType(ArmingTransitionEvent.class);
+    private static final EventType IMAGE_CLASSIFICATION = EventType.getEventType(ImageClassificationEvent.class);
+
+    private final SecurityRepository sensors;
+    // indexed by from * statuses + to
+    private final AtomicLongArray alarmTransitions = new AtomicLongArray(ALARM_STATUSES.length * ALARM_STATUSES.length);
+    private final AtomicLongArray armingTransitions = new AtomicLongArray(ARMING_STATUSES.length * ARMING_STATUSES.length);
+    private final LongAdder catsDetected = new LongAdder();
+    private final LatencyHistogram imageClassification = new LatencyHistogram();
+    private final LatencyHistogram imageProcessing = new LatencyHistogram();
+    private final LatencyHistogram repositoryWrites = new LatencyHistogram();
+    private final LatencyHistogram listenerDispatch = new LatencyHistogram();
+    private ObjectName registeredAs;
+
+    /**
+     * @param sensors Repository of the sensors, read only when the sensor gauges are.
+     */
+    public SecurityMetrics(SecurityRepository sensors) {
+        this.sensors = sensors;
+    }
+
+    /**
+     * Counts a change of the alarm status. A change from an unknown status, as when the repository
+     * had none stored, is only sent to JFR.
+     */
+    public void alarmStatusChanged(AlarmStatus from, AlarmStatus to) {
+        if (from != null && to != null) {
+            alarmTransitions.incrementAndGet(from.ordinal() * ALARM_STATUSES.length + to.ordinal());
+        }
+        if (ALARM_TRANSITION.isEnabled()) {
+            AlarmTransitionEvent event = new AlarmTransitionEvent();
+            event.from = from == null ? null : from.name();
+            event.to = to == null ? null : to.name();
+            event.commit();
+        }
+    }
+
+    /**
+     * Counts a change of the arming status. A change from an unknown status is only sent to JFR.
+     */
+    public void armingStatusChanged(ArmingStatus from, ArmingStatus to) {
+        if (from != null && to != null) {
+            armingTransitions.incrementAndGet(from.ordinal() * ARMING_STATUSES.length + to.ordinal());
+        }
+        if (ARMING_TRANSITION.isEnabled()) {
+            ArmingTransitionEvent event = new ArmingTransitionEvent();
+            event.from = from == null ? null : from.name();
+            event.to = to == null ? null : to.name();
+            event.commit();
+        }
+    }
+
+    /**
+     * @param nanos Time the image service took.
+     * @param cat Its verdict.
+     */
+    public void imageClassified(long nanos, boolean cat) {
+        imageClassification.record(nanos);
+        if (cat) {
+            catsDetected.increment();
+        }
+        if (IMAGE_CLASSIFICATION.isEnabled()) {
+            ImageClassificationEvent event = new ImageClassificationEvent();
+            event.catDetected = cat;
+            event.classificationTime = nanos;
+            event.commit();
+        }
+    }
+
+    public void imageProcessed(long nanos) {
+        imageProcessing.record(nanos);
+    }
+
+    public void repositoryWritten(long nanos) {
+        repositoryWrites.record(nanos);
+    }
+
+    public void listenersDispatched(long nanos) {
+        listenerDispatch.record(nanos);
+    }
+
+    /**
+     * @return how often the alarm status went from one status to the other
+     */
+    public long getAlarmTransitions(AlarmStatus from, AlarmStatus to) {
+        return alarmTransitions.get(from.ordinal() * ALARM_STATUSES.length + to.ordinal());
+    }
+
+    /**
+     * @return how often the arming status went from one status to the other
+     */
+    public long getArmingTransitions(ArmingStatus from, ArmingStatus to) {
+        return armingTransitions.get(from.ordinal() * ARMING_STATUSES.length + to.ordinal());
+    }
+
+    @Override
+    public Map<String, Long> getAlarmTransitions() {
+        Map<String, Long> transitions = new LinkedHashMap<>();
+        for (AlarmStatus from : ALARM_STATUSES) {
+            for (AlarmStatus to : ALARM_STATUSES) {
+                if (from != to) {
+                    transitions.put(from + "->" + to, getAlarmTransitions(from, to));
+                }
+            }
+        }
+        return transitions;
+    }
+
+    @Override
+    public Map<String, Long> getArmingTransitions() {
+        Map<String, Long> transitions = new LinkedHashMap<>();
+        for (ArmingStatus from : ARMING_STATUSES) {
+            for (ArmingStatus to : ARMING_STATUSES) {
+                if (from != to) {
+                    transitions.put(from + "->" + to, getArmingTransitions(from, to));
+                }
+            }
+        }
+        return transitions;
+    }
+
+    @Override
+    public LatencySnapshot getImageClassificationLatency() {
+        return LatencySnapshot.of(imageClassification);
+    }
+
+    @Override
+    public LatencySnapshot getImageProcessingLatency() {
+        return LatencySnapshot.of(imageProcessing);
+    }
+
+    @Override
+    public LatencySnapshot getRepositoryWriteLatency() {
+        return LatencySnapshot.of(repositoryWrites);
+    }
+
+    @Override
+    public LatencySnapshot getListenerDispatchLatency() {
+        return LatencySnapshot.of(listenerDispatch);
+    }
+
+    @Override
+    public long getCatsDetected() {
+        return catsDetected.sum();
+    }
+
+    @Override
+    public int getSensorCount() {
+        return sensors.getSensors().size();
+    }
+
+    @Override
+    public int getActiveSensorCount() {
+        return sensors.getActiveSensorCount(); // counted by the repository as sensors change
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < alarmTransitions.length(); i++) {
+            alarmTransitions.set(i, 0);
+        }
+        for (int i = 0; i < armingTransitions.length(); i++) {
+            armingTransitions.set(i, 0);
+        }
+        catsDetected.reset();
+        imageClassification.reset();
+        imageProcessing.reset();
+        repositoryWrites.reset();
+        listenerDispatch.reset();
+    }
+
+    /**
+     * Shows the metrics in the platform MBean server as
+     * {@code com.udacity.securityservice:type=SecurityMetrics,name=<name>}.
+     * @param name Name that tells this service apart from others in the same JVM.
+     */
+    public synchronized ObjectName register(String name) {
+        if (registeredAs != null) {
+            throw new IllegalStateException("Already registered as " + registeredAs);
+        }
+        try {
+            ObjectName objectName = new ObjectName("com.udacity.securityservice:type=SecurityMetrics,name="
+                    + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            registeredAs = objectName;
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("Unable to register the security metrics as " + name, e);
+        }
+    }
+
+    /**
+     * Removes the metrics from the MBean server again, if they were registered.
+     */
+    public synchronized void unregister() {
+        if (registeredAs == null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (server.isRegistered(registeredAs)) {
+                server.unregisterMBean(registeredAs);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Unable to unregister " + registeredAs, e);
+        } finally {
+            registeredAs = null;
+        }
+    }
+}
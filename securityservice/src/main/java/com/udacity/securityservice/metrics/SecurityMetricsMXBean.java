@@ -0,0 +1,47 @@
+package com.udacity.securityservice.metrics;
+
+import java.util.Map;
+
+/**
+ * What {@link SecurityMetrics} shows over JMX, for example in JConsole or JDK Mission Control.
+ */
+public interface SecurityMetricsMXBean {
+
+    /**
+     * @return how often the alarm status went from one status to another, keyed like {@code NO_ALARM->PENDING_ALARM}
+     */
+    Map<String, Long> getAlarmTransitions();
+
+    /**
+     * @return how often the arming status went from one status to another, keyed like {@code DISARMED->ARMED_HOME}
+     */
+    Map<String, Long> getArmingTransitions();
+
+    /**
+     * @return time the image service took to decide whether an image shows a cat
+     */
+    LatencySnapshot getImageClassificationLatency();
+
+    /**
+     * @return time from handing an image to the security service until its verdict was applied
+     */
+    LatencySnapshot getImageProcessingLatency();
+
+    LatencySnapshot getRepositoryWriteLatency();
+
+    /**
+     * @return time taken to call every status listener about one change
+     */
+    LatencySnapshot getListenerDispatchLatency();
+
+    long getCatsDetected();
+
+    int getSensorCount();
+
+    int getActiveSensorCount();
+
+    /**
+     * Clears every counter and histogram.
+     */
+    void reset();
+}
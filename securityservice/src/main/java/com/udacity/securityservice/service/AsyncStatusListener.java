@@ -0,0 +1,196 @@
+package com.udacity.securityservice.service;
+
+import com.udacity.securityservice.application.StatusListener;
+import com.udacity.securityservice.data.AlarmStatus;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Delivers status events to a listener on an executor, so a slow listener never holds up the
+ * thread that changed the state.
+ *
+ * Events that have not been delivered yet are merged: only the latest alarm status and the latest
+ * cat verdict are kept, and repeated sensor changes collapse into one. A merged event moves behind
+ * the other pending ones, so the listener always ends up on the newest state. The queue therefore
+ * never holds more than one event of each kind. Events reach the listener one at a time and in
+ * queue order, never concurrently.
+ */
+public final class AsyncStatusListener implements StatusListener, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncStatusListener.class);
+
+    private enum Kind { ALARM_STATUS, CAT_DETECTED, SENSOR_STATUS }
+
+    private final StatusListener delegate;
+    private final Executor executor;
+
+    // guarded by this
+    private final ArrayDeque<Kind> pending = new ArrayDeque<>(Kind.values().length);
+    private AlarmStatus pendingStatus;
+    private boolean pendingCat;
+    private boolean scheduled;
+    private boolean closed;
+    private long merged;
+    private long delivered;
+    private long dropped;
+
+    /**
+     * @param delegate Listener that receives the events.
+     * @param executor Executor that runs the delivery, for example {@code SwingUtilities::invokeLater} for Swing components.
+     */
+    public AsyncStatusListener(StatusListener delegate, Executor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    @Override
+    public void notify(AlarmStatus status) {
+        boolean schedule;
+        synchronized (this) {
+            pendingStatus = status;
+            schedule = enqueue(Kind.ALARM_STATUS);
+        }
+        if (schedule) {
+            schedule();
+        }
+    }
+
+    @Override
+    public void catDetected(boolean catDetected) {
+        boolean schedule;
+        synchronized (this) {
+            pendingCat = catDetected;
+            schedule = enqueue(Kind.CAT_DETECTED);
+        }
+        if (schedule) {
+            schedule();
+        }
+    }
+
+    @Override
+    public void sensorStatusChanged() {
+        boolean schedule;
+        synchronized (this) {
+            schedule = enqueue(Kind.SENSOR_STATUS);
+        }
+        if (schedule) {
+            schedule();
+        }
+    }
+
+    public StatusListener getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * @return the number of events waiting to be delivered
+     */
+    public synchronized int getQueueDepth() {
+        return pending.size();
+    }
+
+    /**
+     * @return the number of events that were folded into a newer event of the same kind
+     */
+    public synchronized long getMergedEvents() {
+        return merged;
+    }
+
+    public synchronized long getDeliveredEvents() {
+        return delivered;
+    }
+
+    /**
+     * @return the number of events thrown away because the listener was closed or the executor refused them
+     */
+    public synchronized long getDroppedEvents() {
+        return dropped;
+    }
+
+    /**
+     * Stops delivery. Pending and later events are dropped.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        dropped += pending.size();
+        pending.clear();
+    }
+
+    /**
+     * Queues an event of this kind, merging it with a pending one. Must hold the lock.
+     * @return true if the caller has to schedule a drain
+     */
+    private boolean enqueue(Kind kind) {
+        if (closed) {
+            dropped++;
+            return false;
+        }
+        if (pending.remove(kind)) {
+            merged++;
+        }
+        pending.addLast(kind);
+        if (scheduled) {
+            return false;
+        }
+        scheduled = true;
+        return true;
+    }
+
+    private void schedule() {
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            synchronized (this) {
+                dropped += pending.size();
+                pending.clear();
+                scheduled = false;
+            }
+            log.warn("Dropped status events for {}, the executor refused them", delegate, e);
+        }
+    }
+
+    /**
+     * Delivers the events that were pending when it started, then hands the executor back if more arrived.
+     */
+    private void drain() {
+        int batch;
+        synchronized (this) {
+            batch = pending.size();
+        }
+        for (int i = 0; i < batch; i++) {
+            Kind kind;
+            AlarmStatus status;
+            boolean cat;
+            synchronized (this) {
+                kind = pending.pollFirst();
+                if (kind == null) {
+                    break; // closed in the meantime
+                }
+                status = pendingStatus;
+                cat = pendingCat;
+                delivered++;
+            }
+            try {
+                switch (kind) {
+                    case ALARM_STATUS -> delegate.notify(status);
+                    case CAT_DETECTED -> delegate.catDetected(cat);
+                    case SENSOR_STATUS -> delegate.sensorStatusChanged();
+                }
+            } catch (RuntimeException e) {
+                log.warn("Status listener {} failed", delegate, e);
+            }
+        }
+        boolean again;
+        synchronized (this) {
+            again = !pending.isEmpty();
+            scheduled = again;
+        }
+        if (again) {
+            schedule();
+        }
+    }
+}
@@ -0,0 +1,427 @@
+package com.udacity.securityservice.service;
+
+import com.udacity.securityservice.metrics.LatencyHistogram;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Classifies the frames of many cameras in micro-batches and feeds the verdicts back to a
+ * {@link SecurityService}, for sites with more cameras than frame-at-a-time
+ * {@link SecurityService#processImage} keeps up with.
+ *
+ * Frames wait in a queue until {@code batchSize} of them have come in or the first has waited
+ * {@code maxWait}. A collector thread then hands the batch to a work-stealing pool with a worker
+ * per core and starts on the next one, so several batches are classified at once, each with a
+ * single call of the image service's batch method. Only a camera's latest frame counts: a frame
+ * still waiting when a newer one of its camera comes in is dropped, and so is a verdict that
+ * arrives after the verdict on a newer frame.
+ *
+ * The service keeps one cat verdict for the whole site, so the pipeline keeps the last verdict of
+ * every camera and, after each batch, tells the service whether any camera shows a cat. Cameras
+ * are told apart by name. A camera that stops sending frames, or whose frames take too long to
+ * classify, must not hold the site's verdict forever, so a verdict on a frame older than
+ * {@code verdictHorizon} no longer counts; {@link #removeCamera} drops a camera's verdict at once.
+ */
+public final class CameraFramePipeline implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(CameraFramePipeline.class);
+
+    public static final int DEFAULT_BATCH_SIZE = 16;
+    public static final long DEFAULT_MAX_WAIT_MILLIS = 50;
+    public static final long DEFAULT_VERDICT_HORIZON_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    // how often a waiting collector checks whether the pipeline was closed
+    private static final long POLL_MILLIS = 100;
+    private static final long POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(POLL_MILLIS);
+
+    private final SecurityService securityService;
+    private final LongSupplier nanoClock;
+    private final int batchSize;
+    private final long maxWaitNanos;
+    private final long verdictHorizonNanos;
+    private final BlockingQueue<Frame> queue = new LinkedBlockingQueue<>();
+    // the newest frame of each camera, until it has been classified
+    private final Map<String, Frame> latest = new ConcurrentHashMap<>();
+    // guarded by this
+    private long sequence;
+    private final ForkJoinPool pool;
+    private final Thread collector;
+    private volatile boolean accepting = true;
+
+    // orders the verdicts applied to the service
+    private final Object applyLock = new Object();
+    // guarded by applyLock
+    private final Map<String, CameraVerdict> verdicts = new HashMap<>();
+    private int camerasWithCat;
+    // when the collector last aged out verdicts; only read by the collector
+    private long expiredNanos;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder superseded = new LongAdder();
+    private final LongAdder classified = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    public CameraFramePipeline(SecurityService securityService) {
+        this(securityService, DEFAULT_BATCH_SIZE, DEFAULT_MAX_WAIT_MILLIS, TimeUnit.MILLISECONDS,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param batchSize Most frames classified in one call.
+     * @param maxWait Longest a frame waits for others to share its batch.
+     * @param parallelism Workers of the pool, typically the number of cores.
+     */
+    public CameraFramePipeline(SecurityService securityService, int batchSize, long maxWait, TimeUnit unit,
+                               int parallelism) {
+        this(securityService, batchSize, maxWait, unit.convert(DEFAULT_VERDICT_HORIZON_MILLIS, TimeUnit.MILLISECONDS),
+                unit, parallelism);
+    }
+
+    /**
+     * @param batchSize Most frames classified in one call.
+     * @param maxWait Longest a frame waits for others to share its batch.
+     * @param verdictHorizon Age of a frame after which its verdict no longer counts.
+     * @param parallelism Workers of the pool, typically the number of cores.
+     */
+    public CameraFramePipeline(SecurityService securityService, int batchSize, long maxWait, long verdictHorizon,
+                               TimeUnit unit, int parallelism) {
+        this(securityService, batchSize, maxWait, verdictHorizon, unit, parallelism, System::nanoTime);
+    }
+
+    /**
+     * @param batchSize Most frames classified in one call.
+     * @param maxWait Longest a frame waits for others to share its batch.
+     * @param verdictHorizon Age of a frame after which its verdict no longer counts.
+     * @param parallelism Workers of the pool, typically the number of cores.
+     * @param nanoClock Source of {@link System#nanoTime()}-like timestamps, for batching, verdict ages and latency.
+     */
+    public CameraFramePipeline(SecurityService securityService, int batchSize, long maxWait, long verdictHorizon,
+                               TimeUnit unit, int parallelism, LongSupplier nanoClock) {
+        if (batchSize < 1 || maxWait < 0 || verdictHorizon < 1 || parallelism < 1) {
+            throw new IllegalArgumentException("Invalid camera frame pipeline settings");
+        }
+        this.securityService = securityService;
+        this.nanoClock = nanoClock;
+        this.expiredNanos = nanoClock.getAsLong();
+        this.batchSize = batchSize;
+        this.maxWaitNanos = unit.toNanos(maxWait);
+        this.verdictHorizonNanos = unit.toNanos(verdictHorizon);
+        this.pool = new ForkJoinPool(parallelism, p -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            t.setName("camera-frame-classifier-" + t.getPoolIndex());
+            t.setDaemon(true);
+            return t;
+        }, null, true);
+        this.collector = new Thread(this::collect, "camera-frame-collector");
+        collector.setDaemon(true);
+        collector.start();
+    }
+
+    /**
+     * Queues a frame of the camera for classification.
+     * @return the verdict on the frame once it has been applied; cancelled if a newer frame of the
+     * same camera replaced it
+     */
+    public CompletableFuture<Boolean> submit(String camera, BufferedImage image) {
+        Frame frame;
+        // frames are numbered in queue order, and close can't miss one queued while it stops the collector
+        synchronized (this) {
+            if (!accepting) {
+                throw new IllegalStateException("The camera frame pipeline has been closed");
+            }
+            frame = new Frame(camera, image, ++sequence, nanoClock.getAsLong());
+            latest.put(camera, frame);
+            queue.add(frame);
+        }
+        submitted.increment();
+        return frame.verdict;
+    }
+
+    /**
+     * Forgets the camera: its verdict no longer counts, and its frames submitted so far are dropped.
+     * Frames it sends afterwards are classified as those of a new camera.
+     */
+    public void removeCamera(String camera) {
+        long removedAt;
+        synchronized (this) {
+            latest.remove(camera);
+            removedAt = sequence;
+        }
+        long now = nanoClock.getAsLong();
+        synchronized (applyLock) {
+            // kept as a verdict without a cat, so that frames still being classified can't bring the camera back
+            CameraVerdict last = verdicts.computeIfAbsent(camera, c -> new CameraVerdict());
+            boolean hadCat = last.cat;
+            last.sequence = removedAt;
+            last.cat = false;
+            last.seenNanos = now;
+            if (hadCat) {
+                camerasWithCat--;
+                securityService.catDetected(camerasWithCat > 0);
+            }
+        }
+    }
+
+    private void collect() {
+        try {
+            while (accepting || !queue.isEmpty()) {
+                expireVerdicts();
+                Frame first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<Frame> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                long deadline = first.submittedNanos + maxWaitNanos;
+                while (batch.size() < batchSize) {
+                    Frame next = queue.poll();
+                    if (next == null) {
+                        long remaining = deadline - nanoClock.getAsLong();
+                        if (remaining <= 0 || !accepting) {
+                            break; // closing sends what has come in at once
+                        }
+                        next = queue.poll(Math.min(remaining, POLL_NANOS), TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            continue;
+                        }
+                    }
+                    batch.add(next);
+                }
+                dispatch(batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Drops the verdicts on frames older than the horizon, at most once per poll, and gives the
+     * service the site's verdict if a camera that showed a cat was among them.
+     */
+    private void expireVerdicts() {
+        long now = nanoClock.getAsLong();
+        if (now - expiredNanos < POLL_NANOS) {
+            return;
+        }
+        expiredNanos = now;
+        synchronized (applyLock) {
+            boolean catGone = false;
+            for (Iterator<CameraVerdict> it = verdicts.values().iterator(); it.hasNext(); ) {
+                CameraVerdict last = it.next();
+                if (now - last.seenNanos > verdictHorizonNanos) {
+                    it.remove();
+                    if (last.cat) {
+                        camerasWithCat--;
+                        catGone = true;
+                        expired.increment();
+                    }
+                }
+            }
+            if (catGone) {
+                securityService.catDetected(camerasWithCat > 0);
+            }
+        }
+    }
+
+    private void dispatch(List<Frame> frames) {
+        List<Frame> batch = new ArrayList<>(frames.size());
+        for (Frame frame : frames) {
+            if (latest.get(frame.camera) == frame) {
+                batch.add(frame);
+            } else {
+                supersede(frame);
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.increment();
+            pool.execute(() -> classify(batch));
+        }
+    }
+
+    private void classify(List<Frame> batch) {
+        List<BufferedImage> images = new ArrayList<>(batch.size());
+        for (Frame frame : batch) {
+            images.add(frame.image);
+        }
+        List<Boolean> cats;
+        try {
+            cats = securityService.containsCats(images);
+            if (cats.size() != batch.size()) {
+                throw new IllegalStateException("Expected " + batch.size() + " verdicts but got " + cats.size());
+            }
+        } catch (RuntimeException e) {
+            log.warn("Unable to classify a batch of {} camera frames", batch.size(), e);
+            failed.add(batch.size());
+            for (Frame frame : batch) {
+                latest.remove(frame.camera, frame);
+                frame.verdict.completeExceptionally(e);
+            }
+            return;
+        }
+        apply(batch, cats);
+    }
+
+    /**
+     * Records the verdict of every camera in the batch and gives the service the site's verdict,
+     * under the lock so that batches finishing together can't apply them out of order.
+     */
+    private void apply(List<Frame> batch, List<Boolean> cats) {
+        boolean[] current = new boolean[batch.size()];
+        synchronized (applyLock) {
+            long now = nanoClock.getAsLong();
+            boolean applied = false;
+            for (int i = 0; i < batch.size(); i++) {
+                Frame frame = batch.get(i);
+                boolean cat = Boolean.TRUE.equals(cats.get(i));
+                if (now - frame.submittedNanos > verdictHorizonNanos) {
+                    continue; // too old to tell what the camera sees now
+                }
+                CameraVerdict last = verdicts.computeIfAbsent(frame.camera, c -> new CameraVerdict());
+                if (frame.sequence <= last.sequence) {
+                    continue; // a newer frame of this camera was applied first, or the camera was removed
+                }
+                if (cat != last.cat) {
+                    camerasWithCat += cat ? 1 : -1;
+                }
+                last.sequence = frame.sequence;
+                last.cat = cat;
+                last.seenNanos = frame.submittedNanos;
+                current[i] = true;
+                applied = true;
+            }
+            if (applied) {
+                securityService.catDetected(camerasWithCat > 0);
+            }
+        }
+        long now = nanoClock.getAsLong();
+        for (int i = 0; i < batch.size(); i++) {
+            Frame frame = batch.get(i);
+            latest.remove(frame.camera, frame);
+            if (!current[i]) {
+                supersede(frame);
+                continue;
+            }
+            long nanos = now - frame.submittedNanos;
+            latency.record(nanos);
+            securityService.getMetrics().imageProcessed(nanos);
+            classified.increment();
+            frame.verdict.complete(cats.get(i));
+        }
+    }
+
+    private void supersede(Frame frame) {
+        superseded.increment();
+        frame.verdict.cancel(false);
+    }
+
+    /**
+     * @return the time from submitting a frame until its verdict was applied
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public long getSubmittedFrames() {
+        return submitted.sum();
+    }
+
+    /**
+     * @return the number of frames dropped because a newer frame of the same camera came in, the
+     * camera was removed, or the verdict came in after the horizon
+     */
+    public long getSupersededFrames() {
+        return superseded.sum();
+    }
+
+    /**
+     * @return the number of frames whose verdict was applied
+     */
+    public long getClassifiedFrames() {
+        return classified.sum();
+    }
+
+    /**
+     * @return the number of frames the image service failed to classify
+     */
+    public long getFailedFrames() {
+        return failed.sum();
+    }
+
+    /**
+     * @return the number of cat verdicts dropped because no newer frame of their camera came in
+     * within the horizon
+     */
+    public long getExpiredVerdicts() {
+        return expired.sum();
+    }
+
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    /**
+     * @return the number of frames waiting to be put in a batch
+     */
+    public int getBacklog() {
+        return queue.size();
+    }
+
+    /**
+     * Stops accepting frames, and waits until the frames already submitted have been classified.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (!accepting) {
+                return;
+            }
+            accepting = false;
+        }
+        try {
+            collector.join();
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Frame {
+        private final String camera;
+        private final BufferedImage image;
+        private final long sequence;
+        private final long submittedNanos;
+        private final CompletableFuture<Boolean> verdict = new CompletableFuture<>();
+
+        Frame(String camera, BufferedImage image, long sequence, long submittedNanos) {
+            this.camera = camera;
+            this.image = image;
+            this.sequence = sequence;
+            this.submittedNanos = submittedNanos;
+        }
+    }
+
+    private static final class CameraVerdict {
+        private long sequence;
+        private boolean cat;
+        private long seenNanos;
+    }
+}
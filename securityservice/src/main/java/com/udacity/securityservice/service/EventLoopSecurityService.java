@@ -0,0 +1,143 @@
+package com.udacity.securityservice.service;
+
+import com.udacity.securityservice.data.AlarmStatus;
+import com.udacity.securityservice.data.ArmingStatus;
+import com.udacity.securityservice.data.Sensor;
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+/**
+ * Runs a {@link SecurityService} on a single dedicated thread. Every command is queued to that
+ * thread and applied in submission order, so state transitions never interleave and no locks are
+ * needed, no matter how many threads submit. Submitting never blocks; each command returns a future
+ * that completes on the loop thread once it has been applied.
+ *
+ * Image classification is slow and stateless, so it runs on a separate executor and only the verdict
+ * is queued to the loop. Listeners registered with the service are called on the loop thread.
+ *
+ * The wrapped service must not be used directly by other threads while the loop owns it.
+ */
+public class EventLoopSecurityService implements AutoCloseable {
+
+    private final SecurityService securityService;
+    private final ExecutorService loop;
+    private final Executor classifier;
+    private volatile Thread loopThread;
+
+    public EventLoopSecurityService(SecurityService securityService) {
+        this(securityService, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param classifier Executor that runs image classification before the verdict is queued.
+     */
+    public EventLoopSecurityService(SecurityService securityService, Executor classifier) {
+        this.securityService = securityService;
+        this.classifier = classifier;
+        this.loop = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "security-event-loop");
+            t.setDaemon(true);
+            loopThread = t;
+            return t;
+        });
+    }
+
+    /**
+     * Queues a command to run against the service on the loop thread. Whatever the command throws,
+     * errors included, fails its future and leaves the loop running.
+     * @return the command's result, or a failed future if the command threw or the loop is closed
+     */
+    public <T> CompletableFuture<T> submit(Function<SecurityService, T> command) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            loop.execute(() -> {
+                try {
+                    result.complete(command.apply(securityService));
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * @return the alarm status after the change has been applied
+     */
+    public CompletableFuture<AlarmStatus> changeSensorActivationStatus(Sensor sensor, Boolean active) {
+        return submit(s -> {
+            s.changeSensorActivationStatus(sensor, active);
+            return s.getAlarmStatus();
+        });
+    }
+
+    /**
+     * @return the alarm status after the whole batch has been applied
+     */
+    public CompletableFuture<AlarmStatus> changeSensorActivationStatuses(Map<Sensor, Boolean> changes) {
+        return submit(s -> {
+            s.changeSensorActivationStatuses(changes);
+            return s.getAlarmStatus();
+        });
+    }
+
+    /**
+     * @return the alarm status after the change has been applied
+     */
+    public CompletableFuture<AlarmStatus> setArmingStatus(ArmingStatus armingStatus) {
+        return submit(s -> {
+            s.setArmingStatus(armingStatus);
+            return s.getAlarmStatus();
+        });
+    }
+
+    /**
+     * Classifies the image off the loop, then applies the verdict on it.
+     * @return the alarm status after the verdict has been applied
+     */
+    public CompletableFuture<AlarmStatus> processImage(BufferedImage image) {
+        return CompletableFuture.supplyAsync(() -> securityService.containsCat(image), classifier)
+                .thenCompose(cat -> submit(s -> {
+                    s.catDetected(cat);
+                    return s.getAlarmStatus();
+                }));
+    }
+
+    public CompletableFuture<Void> addSensor(Sensor sensor) {
+        return submit(s -> {
+            s.addSensor(sensor);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> removeSensor(Sensor sensor) {
+        return submit(s -> {
+            s.removeSensor(sensor);
+            return null;
+        });
+    }
+
+    /**
+     * @return true if called from the loop thread
+     */
+    public boolean inEventLoop() {
+        return Thread.currentThread() == loopThread;
+    }
+
+    /**
+     * Stops accepting commands. Commands already queued still run.
+     */
+    @Override
+    public void close() {
+        loop.shutdown();
+    }
+}
@@ -0,0 +1,215 @@
+package com.udacity.securityservice.service;
+
+import com.udacity.imageservice.ImageService;
+import com.udacity.securityservice.data.AlarmStatus;
+import com.udacity.securityservice.data.ArmingStatus;
+import com.udacity.securityservice.data.InMemorySecurityRepositoryImpl;
+import com.udacity.securityservice.data.Sensor;
+import com.udacity.securityservice.eventlog.SecurityEventLog;
+import com.udacity.securityservice.eventlog.SecurityEventLogReader;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Feeds a recorded event log through a fresh {@link SecurityService} backed by an in-memory
+ * repository, as fast as the service can take it, and checks that it decides on the same sequence
+ * of alarm statuses as the recorded one did. Images are replayed as their recorded verdicts, so no
+ * image service is needed.
+ *
+ * Replaying with a changed service shows whether, and at which event, a rule change alters the
+ * outcome of recorded traffic.
+ */
+public final class SecurityEventReplayer {
+
+    private static final ImageService NO_IMAGES = (image, confidenceThreshold) -> {
+        throw new IllegalStateException("Replays use the recorded image verdicts");
+    };
+
+    private SecurityEventReplayer() {
+    }
+
+    public static ReplayResult replay(Path logFile) {
+        try (SecurityEventLogReader reader = new SecurityEventLogReader(logFile)) {
+            Replay replay = new Replay(reader);
+            long started = System.nanoTime();
+            reader.readAll(replay);
+            return replay.finish(System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * Outcome of a replay.
+     */
+    public static final class ReplayResult {
+        private final long events;
+        private final long alarmChanges;
+        private final long mismatches;
+        private final String firstMismatch;
+        private final AlarmStatus finalAlarmStatus;
+        private final long elapsedNanos;
+
+        private ReplayResult(long events, long alarmChanges, long mismatches, String firstMismatch,
+                             AlarmStatus finalAlarmStatus, long elapsedNanos) {
+            this.events = events;
+            this.alarmChanges = alarmChanges;
+            this.mismatches = mismatches;
+            this.firstMismatch = firstMismatch;
+            this.finalAlarmStatus = finalAlarmStatus;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * @return true if the replay decided on exactly the recorded alarm statuses
+         */
+        public boolean isReproduced() {
+            return mismatches == 0;
+        }
+
+        /**
+         * @return the number of records read, inputs and recorded decisions together
+         */
+        public long getEvents() {
+            return events;
+        }
+
+        public long getAlarmChanges() {
+            return alarmChanges;
+        }
+
+        public long getMismatches() {
+            return mismatches;
+        }
+
+        /**
+         * @return where the replay first went a different way, or null if it never did
+         */
+        public String getFirstMismatch() {
+            return firstMismatch;
+        }
+
+        public AlarmStatus getFinalAlarmStatus() {
+            return finalAlarmStatus;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public double getEventsPerSecond() {
+            return elapsedNanos == 0 ? 0 : events / (elapsedNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d events, %d alarm changes, %d mismatches in %d ms (%.0f events/s)%s",
+                    events, alarmChanges, mismatches, elapsedNanos / 1_000_000, getEventsPerSecond(),
+                    firstMismatch == null ? "" : ", first: " + firstMismatch);
+        }
+    }
+
+    /**
+     * Applies the recorded inputs to the replayed service and compares its decisions with the recorded ones.
+     */
+    private static final class Replay implements SecurityEventLog {
+        private final SecurityEventLogReader reader;
+        private final ArrayDeque<AlarmStatus> decisions = new ArrayDeque<>();
+        private SecurityService service;
+        private long alarmChanges;
+        private long mismatches;
+        private String firstMismatch;
+
+        private Replay(SecurityEventLogReader reader) {
+            this.reader = reader;
+            reset(new InMemorySecurityRepositoryImpl(), null);
+        }
+
+        @Override
+        public void stateCaptured(AlarmStatus alarmStatus, ArmingStatus armingStatus, Boolean catDetected,
+                                  Collection<Sensor> sensors) {
+            InMemorySecurityRepositoryImpl repository = new InMemorySecurityRepositoryImpl(alarmStatus, armingStatus);
+            sensors.forEach(repository::addSensor);
+            reset(repository, catDetected);
+        }
+
+        @Override
+        public void sensorAdded(Sensor sensor) {
+            service.addSensor(sensor);
+        }
+
+        @Override
+        public void sensorRemoved(Sensor sensor) {
+            service.removeSensor(sensor);
+        }
+
+        @Override
+        public void sensorUpdated(Sensor sensor) {
+            service.changeSensorActivationStatus(sensor);
+        }
+
+        @Override
+        public void sensorActivationChanged(Sensor sensor, Boolean active) {
+            service.changeSensorActivationStatus(sensor, active);
+        }
+
+        @Override
+        public void sensorActivationsChanged(Map<Sensor, Boolean> changes) {
+            service.changeSensorActivationStatuses(changes);
+        }
+
+        @Override
+        public void armingStatusChanged(ArmingStatus armingStatus) {
+            service.setArmingStatus(armingStatus);
+        }
+
+        @Override
+        public void alarmStatusSet(AlarmStatus alarmStatus) {
+            service.setAlarmStatus(alarmStatus);
+        }
+
+        @Override
+        public void catDetected(Boolean catDetected) {
+            service.catDetected(catDetected);
+        }
+
+        @Override
+        public void alarmStatusChanged(AlarmStatus recorded) {
+            alarmChanges++;
+            AlarmStatus replayed = decisions.poll();
+            if (replayed != recorded) {
+                mismatch("expected " + recorded + " but replay decided " + replayed);
+            }
+        }
+
+        private void reset(InMemorySecurityRepositoryImpl repository, Boolean catDetected) {
+            service = new SecurityService(repository, NO_IMAGES);
+            service.restoreCatDetected(catDetected);
+            service.setEventLog(new SecurityEventLog() {
+                @Override
+                public void alarmStatusChanged(AlarmStatus alarmStatus) {
+                    decisions.add(alarmStatus);
+                }
+            });
+            decisions.clear();
+        }
+
+        private void mismatch(String description) {
+            mismatches++;
+            if (firstMismatch == null) {
+                Instant at = Instant.EPOCH.plus(reader.getTimestampMicros(), ChronoUnit.MICROS);
+                firstMismatch = "record " + reader.getRecords() + " at " + at + ": " + description;
+            }
+        }
+
+        private ReplayResult finish(long elapsedNanos) {
+            for (AlarmStatus extra : decisions) {
+                mismatch("replay decided " + extra + " where nothing was recorded");
+            }
+            return new ReplayResult(reader.getRecords(), alarmChanges, mismatches, firstMismatch,
+                    service.getAlarmStatus(), elapsedNanos);
+        }
+    }
+}
@@ -0,0 +1,774 @@
+package com.udacity.securityservice.service;
+
+import com.udacity.securityservice.data.Sensor;
+import com.udacity.securityservice.data.SensorType;
+import com.udacity.securityservice.ingest.SensorEventParser;
+import com.udacity.securityservice.metrics.LatencyHistogram;
+import java.awt.image.BufferedImage;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Feeds sensor reports and image verdicts to a {@link SecurityService} through a pre-allocated ring
+ * of events, in the style of the LMAX Disruptor. Each event passes five stages. Every stage runs on
+ * its own thread and follows the stage before it around the ring:
+ * <ol>
+ * <li>decode parses raw report lines and finds the sensor,</li>
+ * <li>debounce drops repeated states and holds back flapping sensors,</li>
+ * <li>evaluate applies the event to the alarm state,</li>
+ * <li>persist stores every sensor changed in the events it finds ready, in one repository call,</li>
+ * <li>notify tells the listeners once per batch and records the latency.</li>
+ * </ol>
+ * Producers claim a slot, fill it in and publish it. Nothing is allocated per event on the way
+ * through unless the alarm state changes. A stage that falls behind, typically persistence, takes
+ * everything that has piled up as one batch, so slow writes cost less per event the busier the
+ * pipeline gets. When the ring is full, producers wait for the last stage.
+ *
+ * Debouncing here works on the stream alone. A report that repeats a sensor's last state is
+ * dropped, unless it reports an active sensor again while that still changes the alarm status, as
+ * it does while the alarm is pending. A sensor that changes too often within its flap window is held back until its
+ * quarantine ends, then its latest report is passed on. The minimum stable time of the
+ * {@link SensorDebouncer.Settings} is not applied, since it needs a timer per reading; put a
+ * {@link SensorDebouncer} in front for that.
+ *
+ * Sensors fed through the pipeline should only be changed through it, because the debounce stage
+ * keeps its own record of what it has passed on.
+ */
+public final class SecurityPipeline implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SecurityPipeline.class);
+
+    public static final int DEFAULT_RING_SIZE = 8192;
+    // longest report line, like the ingestion gateway's
+    public static final int MAX_LINE_BYTES = 128;
+
+    // Event kinds
+    private static final byte LINE = 1;
+    private static final byte SENSOR = 2;
+    private static final byte RELEASE = 3;
+    private static final byte IMAGE = 4;
+    private static final byte REMOVE = 5;
+
+    // how waiting stages and producers back off: spin, then yield, then park
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+    private static final long PARK_NANOS = 50_000;
+    private static final long RELEASE_CHECK_MILLIS = 100;
+
+    private final SecurityService securityService;
+    private final LongSupplier nanoClock;
+    private final Map<SensorType, SensorDebouncer.Settings> settings;
+    private final Event[] ring;
+    private final int mask;
+    private final int indexShift;
+    // the lap each slot was last published in
+    private final AtomicIntegerArray published;
+    // last sequence claimed by a producer
+    private final Sequence claimed = new Sequence();
+    private final List<Stage> stages = new ArrayList<>();
+    private final Stage last;
+    private volatile boolean accepting = true;
+    private volatile boolean running = true;
+
+    // guarded by this
+    private final Map<UUID, Tracked> tracked = new HashMap<>();
+    private volatile SensorIndex index;
+    private final ConcurrentLinkedQueue<Tracked> quarantined = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService releaser;
+
+    // owned by the decode stage
+    private final long[] sensorIdBits = new long[2];
+    // owned by the persist stage
+    private final List<Sensor> unsaved = new ArrayList<>();
+    private long persistBatch;
+    // owned by the notify stage
+    private boolean sensorsChanged;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder publishedEvents = new LongAdder();
+    private final LongAdder malformed = new LongAdder();
+    private final LongAdder unknown = new LongAdder();
+    private final LongAdder suppressed = new LongAdder();
+    private final LongAdder quarantines = new LongAdder();
+    private final LongAdder applied = new LongAdder();
+
+    public SecurityPipeline(SecurityService securityService) {
+        this(securityService, DEFAULT_RING_SIZE, SensorDebouncer.defaultSettings());
+    }
+
+    /**
+     * @param ringSize Number of slots, a power of two. Producers wait once this many events are in flight.
+     * @param settings Flap detection of each sensor type. Types without settings are never quarantined.
+     */
+    public SecurityPipeline(SecurityService securityService, int ringSize,
+                            Map<SensorType, SensorDebouncer.Settings> settings) {
+        this(securityService, ringSize, settings, System::nanoTime);
+    }
+
+    /**
+     * @param ringSize Number of slots, a power of two. Producers wait once this many events are in flight.
+     * @param settings Flap detection of each sensor type. Types without settings are never quarantined.
+     * @param nanoClock Source of {@link System#nanoTime()}-like timestamps, for quarantines and latency.
+     */
+    public SecurityPipeline(SecurityService securityService, int ringSize,
+                            Map<SensorType, SensorDebouncer.Settings> settings, LongSupplier nanoClock) {
+        if (ringSize < 1 || Integer.bitCount(ringSize) != 1) {
+            throw new IllegalArgumentException("ringSize must be a power of two");
+        }
+        this.securityService = securityService;
+        this.nanoClock = nanoClock;
+        this.settings = new EnumMap<>(SensorType.class);
+        this.settings.putAll(settings);
+        this.ring = new Event[ringSize];
+        for (int i = 0; i < ringSize; i++) {
+            ring[i] = new Event();
+        }
+        this.mask = ringSize - 1;
+        this.indexShift = Integer.numberOfTrailingZeros(ringSize);
+        this.published = new AtomicIntegerArray(ringSize);
+        for (int i = 0; i < ringSize; i++) {
+            published.set(i, -1);
+        }
+        synchronized (this) {
+            securityService.getSensors().forEach(s -> tracked.put(s.getSensorId(), newTracked(s)));
+            index = new SensorIndex(tracked.values());
+        }
+
+        Stage decode = addStage("decode", null, this::decode);
+        Stage debounce = addStage("debounce", decode, this::debounce);
+        Stage evaluate = addStage("evaluate", debounce, this::evaluate);
+        Stage persist = addStage("persist", evaluate, this::persist);
+        last = addStage("notify", persist, this::notify);
+        stages.forEach(Stage::start);
+
+        releaser = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "security-pipeline-release");
+            t.setDaemon(true);
+            return t;
+        });
+        releaser.scheduleWithFixedDelay(this::releaseQuarantined, RELEASE_CHECK_MILLIS, RELEASE_CHECK_MILLIS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Publishes a report in the ingestion line protocol, see {@link SensorEventParser}. A trailing line
+     * feed is ignored. The bytes are copied, so the caller may reuse its buffer.
+     * @return false if the line is too long to be a report, or the offset and length are outside the array
+     */
+    public boolean publishLine(byte[] line, int offset, int length) {
+        // checked before a slot is claimed, since a claimed slot has to be published
+        if (offset < 0 || length < 0 || length > line.length - offset) {
+            malformed.increment();
+            return false;
+        }
+        if (length > 0 && line[offset + length - 1] == '\n') {
+            length--;
+        }
+        if (length > MAX_LINE_BYTES) {
+            malformed.increment();
+            return false;
+        }
+        long sequence = claim();
+        Event e = ring[(int) sequence & mask];
+        e.kind = LINE;
+        System.arraycopy(line, offset, e.line, 0, length);
+        e.lineLength = length;
+        e.receivedNanos = nanoClock.getAsLong();
+        publish(sequence);
+        return true;
+    }
+
+    /**
+     * Publishes the reported state of a sensor.
+     */
+    public void publish(Sensor sensor, boolean active) {
+        long sequence = claim();
+        Event e = ring[(int) sequence & mask];
+        e.kind = SENSOR;
+        e.sensor = sensor;
+        e.active = active;
+        e.receivedNanos = nanoClock.getAsLong();
+        publish(sequence);
+    }
+
+    /**
+     * Publishes the verdict on a camera image.
+     */
+    public void publishCatDetected(boolean cat) {
+        long sequence = claim();
+        Event e = ring[(int) sequence & mask];
+        e.kind = IMAGE;
+        e.active = cat;
+        e.receivedNanos = nanoClock.getAsLong();
+        publish(sequence);
+    }
+
+    /**
+     * Classifies the image on the calling thread and publishes the verdict.
+     */
+    public void processImage(BufferedImage image) {
+        publishCatDetected(securityService.containsCat(image));
+    }
+
+    /**
+     * Adds the sensor to the service; reports for it are accepted from now on.
+     */
+    public synchronized void addSensor(Sensor sensor) {
+        securityService.addSensor(sensor);
+        tracked.put(sensor.getSensorId(), newTracked(sensor));
+        index = new SensorIndex(tracked.values());
+    }
+
+    /**
+     * Stops accepting reports for the sensor, and removes it from the service once the reports
+     * already published have been stored.
+     */
+    public void removeSensor(Sensor sensor) {
+        synchronized (this) {
+            Tracked t = tracked.remove(sensor.getSensorId());
+            if (t != null) {
+                t.removed = true; // a release already on its way is dropped by the debounce stage
+                quarantined.remove(t);
+            }
+            index = new SensorIndex(tracked.values());
+        }
+        long sequence = claim();
+        Event e = ring[(int) sequence & mask];
+        e.kind = REMOVE;
+        e.sensor = sensor;
+        e.receivedNanos = nanoClock.getAsLong();
+        publish(sequence);
+    }
+
+    /**
+     * Waits until every event published so far has passed all stages.
+     */
+    public void drain() {
+        long end = claimed.get();
+        int idle = 0;
+        while (last.sequence.get() < end) {
+            idle = idle(idle);
+        }
+    }
+
+    /**
+     * @return the time from publishing an event until the notify stage is done with it
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public long getPublishedEvents() {
+        return publishedEvents.sum();
+    }
+
+    public long getMalformedLines() {
+        return malformed.sum();
+    }
+
+    public long getUnknownSensorEvents() {
+        return unknown.sum();
+    }
+
+    /**
+     * @return the number of reports dropped as repeats or held back from a quarantined sensor
+     */
+    public long getSuppressedEvents() {
+        return suppressed.sum();
+    }
+
+    public long getQuarantines() {
+        return quarantines.sum();
+    }
+
+    /**
+     * @return the number of events that reached the service
+     */
+    public long getAppliedEvents() {
+        return applied.sum();
+    }
+
+    /**
+     * @return the number of events published but not yet through every stage
+     */
+    public long getBacklog() {
+        return claimed.get() - last.sequence.get();
+    }
+
+    /**
+     * Stops accepting events, waits for the ones already published, and stops the stages.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (!accepting) {
+                return;
+            }
+            accepting = false;
+        }
+        releaser.shutdownNow();
+        drain();
+        running = false;
+        for (Stage stage : stages) {
+            try {
+                stage.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private Stage addStage(String name, Stage upstream, Handler handler) {
+        Stage stage = new Stage(name, upstream, handler);
+        stages.add(stage);
+        return stage;
+    }
+
+    private Tracked newTracked(Sensor sensor) {
+        return new Tracked(sensor, settings.get(sensor.getSensorType()), nanoClock.getAsLong());
+    }
+
+    private long claim() {
+        if (!accepting) {
+            throw new IllegalStateException("The security pipeline has been closed");
+        }
+        int idle = 0;
+        while (true) {
+            long current = claimed.get();
+            long next = current + 1;
+            if (next - ring.length > last.sequence.get()) {
+                idle = idle(idle); // full, wait for the last stage to free a slot
+            } else if (claimed.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    private void publish(long sequence) {
+        published.setRelease((int) sequence & mask, (int) (sequence >>> indexShift));
+        publishedEvents.increment();
+    }
+
+    /**
+     * @return the highest sequence up to which every slot has been published, or from - 1 if none
+     */
+    private long highestPublished(long from, long upTo) {
+        for (long sequence = from; sequence <= upTo; sequence++) {
+            if (published.getAcquire((int) sequence & mask) != (int) (sequence >>> indexShift)) {
+                return sequence - 1;
+            }
+        }
+        return upTo;
+    }
+
+    private static int idle(int idleCount) {
+        if (idleCount < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else if (idleCount < SPIN_TRIES + YIELD_TRIES) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        return idleCount + 1;
+    }
+
+    private void decode(Event e, boolean endOfBatch) {
+        e.dropped = false;
+        switch (e.kind) {
+            case LINE -> {
+                int state = SensorEventParser.decode(e.line, 0, e.lineLength, sensorIdBits);
+                if (state == SensorEventParser.MALFORMED) {
+                    malformed.increment();
+                    e.dropped = true;
+                    return;
+                }
+                e.active = state == SensorEventParser.ACTIVE;
+                e.tracked = index.get(sensorIdBits[0], sensorIdBits[1]);
+            }
+            case SENSOR -> {
+                UUID sensorId = e.sensor.getSensorId();
+                e.tracked = index.get(sensorId.getMostSignificantBits(), sensorId.getLeastSignificantBits());
+            }
+            default -> {
+                return;
+            }
+        }
+        if (e.tracked == null) {
+            unknown.increment();
+            e.dropped = true;
+        }
+    }
+
+    private void debounce(Event e, boolean endOfBatch) {
+        e.repeat = false;
+        if (e.dropped || e.kind == IMAGE || e.kind == REMOVE) {
+            return;
+        }
+        Tracked t = e.tracked;
+        long now = e.receivedNanos;
+        if (e.kind == RELEASE) {
+            t.queued = false;
+            if (t.removed) {
+                e.dropped = true;
+                return;
+            }
+            if (t.isQuarantined(now)) {
+                // it flapped again since the releaser looked
+                t.queued = true;
+                quarantined.add(t);
+            } else if (t.latest != t.reported) {
+                e.active = t.latest;
+                t.reported = t.latest;
+                return;
+            }
+            e.dropped = true;
+            return;
+        }
+        if (e.active == t.latest) {
+            if (e.active && t.reported && !t.isQuarantined(now)) {
+                e.repeat = true; // the evaluate stage knows whether it still changes the alarm status
+                return;
+            }
+            suppressed.increment();
+            e.dropped = true;
+            return;
+        }
+        t.latest = e.active;
+        if (t.flapped(now)) {
+            if (!t.isQuarantined(now)) {
+                quarantines.increment();
+                log.warn("Sensor {} is flapping, holding back its reports for {} ms", t.sensor.getName(),
+                        TimeUnit.NANOSECONDS.toMillis(t.quarantineNanos));
+            }
+            t.quarantinedUntil = now + t.quarantineNanos; // for as long as it keeps flapping
+            if (!t.queued) {
+                t.queued = true;
+                quarantined.add(t);
+            }
+        }
+        if (t.isQuarantined(now) || e.active == t.reported) {
+            suppressed.increment();
+            e.dropped = true;
+            return;
+        }
+        t.reported = e.active;
+    }
+
+    private void evaluate(Event e, boolean endOfBatch) {
+        if (e.dropped) {
+            return;
+        }
+        if (e.repeat && !securityService.isChangedByRepeatedActivation()) {
+            suppressed.increment();
+            e.dropped = true;
+            return;
+        }
+        switch (e.kind) {
+            case LINE, SENSOR, RELEASE -> securityService.applySensorActivationStatus(e.tracked.sensor, e.active);
+            case IMAGE -> securityService.applyCatDetected(e.active);
+            default -> {
+                // removals are applied in order by the persist stage
+            }
+        }
+    }
+
+    private void persist(Event e, boolean endOfBatch) {
+        if (!e.dropped) {
+            switch (e.kind) {
+                case LINE, SENSOR, RELEASE -> {
+                    Tracked t = e.tracked;
+                    if (t.persistBatch != persistBatch) { // each sensor once per batch
+                        t.persistBatch = persistBatch;
+                        unsaved.add(t.sensor);
+                    }
+                }
+                case REMOVE -> {
+                    storeUnsaved();
+                    securityService.removeSensor(e.sensor);
+                }
+                default -> {
+                }
+            }
+        }
+        if (endOfBatch) {
+            storeUnsaved();
+        }
+    }
+
+    private void storeUnsaved() {
+        persistBatch++;
+        if (!unsaved.isEmpty()) {
+            securityService.storeSensors(unsaved);
+            unsaved.clear();
+        }
+    }
+
+    private void notify(Event e, boolean endOfBatch) {
+        if (!e.dropped) {
+            if (e.kind == IMAGE) {
+                securityService.notifyCatDetected(e.active);
+            } else {
+                sensorsChanged = true;
+            }
+            applied.increment();
+        }
+        latency.record(nanoClock.getAsLong() - e.receivedNanos);
+        if (endOfBatch && sensorsChanged) {
+            sensorsChanged = false;
+            securityService.notifySensorStatusChanged();
+        }
+    }
+
+    /**
+     * Publishes a release for every sensor whose quarantine has ended, so the debounce stage can
+     * pass on its latest report. Runs every {@value #RELEASE_CHECK_MILLIS} ms.
+     */
+    void releaseQuarantined() {
+        try {
+            long now = nanoClock.getAsLong();
+            Iterator<Tracked> it = quarantined.iterator();
+            while (it.hasNext()) {
+                Tracked t = it.next();
+                if (t.removed) {
+                    it.remove();
+                } else if (!t.isQuarantined(now)) {
+                    it.remove();
+                    long sequence = claim();
+                    Event e = ring[(int) sequence & mask];
+                    e.kind = RELEASE;
+                    e.tracked = t;
+                    e.receivedNanos = nanoClock.getAsLong();
+                    publish(sequence);
+                }
+            }
+        } catch (Throwable e) { // an Error would cancel every later release
+            log.error("Unable to release quarantined sensors", e);
+        }
+    }
+
+    /**
+     * Handles the events of one stage.
+     */
+    private interface Handler {
+        void onEvent(Event e, boolean endOfBatch);
+    }
+
+    /**
+     * A slot of the ring. Producers fill in the input fields, the stages the rest.
+     */
+    private static final class Event {
+        private byte kind;
+        private final byte[] line = new byte[MAX_LINE_BYTES];
+        private int lineLength;
+        private Sensor sensor;
+        private boolean active;
+        private long receivedNanos;
+        private Tracked tracked;
+        // an active report of a sensor that is already active
+        private boolean repeat;
+        private boolean dropped;
+    }
+
+    /**
+     * One stage and its thread. It handles every event up to the sequence of the stage before it, or
+     * for the first stage up to the last published event, then moves its own sequence on.
+     */
+    private final class Stage {
+        private final String name;
+        private final Stage upstream;
+        private final Handler handler;
+        private final Sequence sequence = new Sequence();
+        private final Thread thread;
+
+        private Stage(String name, Stage upstream, Handler handler) {
+            this.name = name;
+            this.upstream = upstream;
+            this.handler = handler;
+            this.thread = new Thread(this::run, "security-pipeline-" + name);
+            thread.setDaemon(true);
+        }
+
+        private void start() {
+            thread.start();
+        }
+
+        private void run() {
+            long next = 0;
+            int idle = 0;
+            while (true) {
+                long available = upstream == null ? highestPublished(next, claimed.get()) : upstream.sequence.get();
+                if (available < next) {
+                    if (!running) {
+                        return;
+                    }
+                    idle = idle(idle);
+                    continue;
+                }
+                idle = 0;
+                for (long s = next; s <= available; s++) {
+                    try {
+                        handler.onEvent(ring[(int) s & mask], s == available);
+                    } catch (Throwable e) { // an Error would end the thread and stall every stage behind it
+                        log.error("The {} stage failed on an event", name, e);
+                    }
+                }
+                sequence.set(available);
+                next = available + 1;
+            }
+        }
+    }
+
+    /**
+     * Debounce state of one sensor. Only the debounce stage changes it, apart from the batch marker
+     * that belongs to the persist stage and the removal mark.
+     */
+    private static final class Tracked {
+        private final Sensor sensor;
+        private final long flapWindowNanos;
+        private final long quarantineNanos;
+        // times of the latest changes, as a ring
+        private final long[] changes;
+        private int nextChange;
+        private long changeCount;
+        private boolean latest;
+        private boolean reported;
+        // read by the releaser
+        private volatile long quarantinedUntil;
+        private boolean queued;
+        // set once the sensor has been removed, read by the releaser and the debounce stage
+        private volatile boolean removed;
+        private long persistBatch = -1;
+
+        private Tracked(Sensor sensor, SensorDebouncer.Settings settings, long now) {
+            this.sensor = sensor;
+            this.latest = sensor.isActive();
+            this.reported = latest;
+            this.quarantinedUntil = now;
+            if (settings == null) {
+                changes = new long[0];
+                flapWindowNanos = 0;
+                quarantineNanos = 0;
+            } else {
+                changes = new long[settings.getFlapTransitions()];
+                flapWindowNanos = TimeUnit.MILLISECONDS.toNanos(settings.getFlapWindowMillis());
+                quarantineNanos = TimeUnit.MILLISECONDS.toNanos(settings.getQuarantineMillis());
+            }
+        }
+
+        private boolean isQuarantined(long now) {
+            return quarantinedUntil - now > 0;
+        }
+
+        /**
+         * Records a change.
+         * @return true if it makes as many changes within the flap window as flapping takes
+         */
+        private boolean flapped(long now) {
+            if (changes.length == 0) {
+                return false;
+            }
+            changes[nextChange] = now;
+            nextChange = (nextChange + 1) % changes.length;
+            changeCount++;
+            // the slot written next holds the oldest of the latest changes
+            return changeCount >= changes.length && now - changes[nextChange] <= flapWindowNanos;
+        }
+    }
+
+    /**
+     * Open addressing table from sensor id to its state, so lookups by the bits of a decoded id
+     * allocate nothing. Rebuilt whenever a sensor is added or removed.
+     */
+    private static final class SensorIndex {
+        private final long[] most;
+        private final long[] least;
+        private final Tracked[] values;
+        private final int indexMask;
+
+        private SensorIndex(Collection<Tracked> all) {
+            int capacity = Math.max(16, Integer.highestOneBit(Math.max(1, all.size()) * 2 - 1) << 1);
+            most = new long[capacity];
+            least = new long[capacity];
+            values = new Tracked[capacity];
+            indexMask = capacity - 1;
+            for (Tracked t : all) {
+                UUID id = t.sensor.getSensorId();
+                int i = slot(id.getMostSignificantBits(), id.getLeastSignificantBits());
+                while (values[i] != null) {
+                    i = (i + 1) & indexMask;
+                }
+                most[i] = id.getMostSignificantBits();
+                least[i] = id.getLeastSignificantBits();
+                values[i] = t;
+            }
+        }
+
+        private Tracked get(long mostBits, long leastBits) {
+            for (int i = slot(mostBits, leastBits); values[i] != null; i = (i + 1) & indexMask) {
+                if (most[i] == mostBits && least[i] == leastBits) {
+                    return values[i];
+                }
+            }
+            return null;
+        }
+
+        private int slot(long mostBits, long leastBits) {
+            long h = (mostBits ^ leastBits) * 0x9E3779B97F4A7C15L;
+            return (int) (h >>> 32) & indexMask;
+        }
+    }
+
+    // Sequences are padded on both sides, so two stages never share a cache line.
+    private static class LeftPadding {
+        protected long p1, p2, p3, p4, p5, p6, p7;
+    }
+
+    private static class SequenceValue extends LeftPadding {
+        protected volatile long value = -1;
+    }
+
+    private static final class Sequence extends SequenceValue {
+        private static final VarHandle VALUE;
+
+        static {
+            try {
+                VALUE = MethodHandles.lookup().findVarHandle(SequenceValue.class, "value", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        protected long p9, p10, p11, p12, p13, p14, p15;
+
+        private long get() {
+            return value;
+        }
+
+        private void set(long newValue) {
+            VALUE.setRelease(this, newValue);
+        }
+
+        private boolean compareAndSet(long expected, long newValue) {
+            return VALUE.compareAndSet(this, expected, newValue);
+        }
+    }
+}
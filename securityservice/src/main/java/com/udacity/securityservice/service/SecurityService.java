@@ -6,10 +6,25 @@ import com.udacity.securityservice.data.AlarmStatus;
 import com.udacity.securityservice.data.ArmingStatus;
 import com.udacity.securityservice.data.SecurityRepository;
 import com.udacity.securityservice.data.Sensor;
+import com.udacity.securityservice.eventlog.SecurityEventLog;
+import com.udacity.securityservice.metrics.InstrumentedSecurityRepository;
+import com.udacity.securityservice.metrics.SecurityMetrics;
 import java.awt.image.BufferedImage;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
 
 /***
  * Service that receives information about changes to the security system. Responsible for
@@ -17,16 +32,45 @@ import java.util.concurrent.ConcurrentSkipListSet;
  *
  * This is the class that should contain most of the business logic for our system, and it is the
  * class you will be writing unit test for. *
+ *
+ * The alarm status, arming status and last image verdict are held as one immutable
+ * {@link SystemState}, read from the repository on first use. Every transition derives the next
+ * state from the current one and installs it with a compare-and-set, retrying if another thread
+ * got there first, so deciding never takes a lock. Only a transition that changed something writes
+ * to the repository and notifies the listeners, and those writes are made in state order: a slower
+ * transition never overwrites a newer state. Listeners are called while the writes are ordered, so
+ * they should hand off anything slow, as {@link AsyncStatusListener} does.
+ *
+ * Transitions, image calls, repository writes and listener calls are recorded in the service's
+ * {@link SecurityMetrics}, which can be shown over JMX.
  */
 public class SecurityService {
 
+    static final float CAT_CONFIDENCE_THRESHOLD = 50.0f;
+    static final long IMAGE_TIMEOUT_MILLIS = 10_000;
+
     private final ImageService imageService;
     private final SecurityRepository securityRepository;
-    private final Set<StatusListener> statusListeners = new HashSet<>();
-    private Boolean isDetected;
+    // listeners may be added from any thread while another one is notifying them
+    private final Set<StatusListener> statusListeners = new CopyOnWriteArraySet<>();
+    // asynchronous wrappers by the listener they deliver to, so the listener can be removed again
+    private final Map<StatusListener, AsyncStatusListener> asyncListeners = new ConcurrentHashMap<>();
+    private final AtomicReference<SystemState> state = new AtomicReference<>();
+    // orders the writes of transitions; the state itself is never locked
+    private final Object writeLock = new Object();
+    // last state written to the repository
+    private volatile SystemState written;
+    private final LongAdder contendedTransitions = new LongAdder();
+    private final SecurityMetrics metrics;
+    private SecurityEventLog eventLog = SecurityEventLog.NONE;
+    // the asynchronous scan whose verdict counts, while one is running
+    private final Object scanLock = new Object();
+    // guarded by scanLock
+    private CompletableFuture<Boolean> latestScan;
 
     public SecurityService(SecurityRepository securityRepository, ImageService imageService) {
-        this.securityRepository = securityRepository;
+        this.metrics = new SecurityMetrics(securityRepository);
+        this.securityRepository = new InstrumentedSecurityRepository(securityRepository, metrics);
         this.imageService = imageService;
     }
 
@@ -36,17 +80,55 @@ public class SecurityService {
      * @param armingStatus ArmingStatus
      */
     public void setArmingStatus(ArmingStatus armingStatus) {
-        if (Boolean.TRUE.equals(isDetected) && armingStatus == ArmingStatus.ARMED_HOME) {
-            setAlarmStatus(AlarmStatus.ALARM);
+        eventLog.armingStatusChanged(armingStatus);
+        // sensors that are already inactive would come out unchanged, so they are not written again
+        List<Sensor> deactivated = armingStatus == ArmingStatus.DISARMED ? List.of() : activeSensors();
+        transition(current -> {
+            AlarmStatus status = current.getAlarmStatus();
+            if (Boolean.TRUE.equals(current.getCatDetected()) && armingStatus == ArmingStatus.ARMED_HOME) {
+                status = AlarmStatus.ALARM;
+            }
+            if (armingStatus == ArmingStatus.DISARMED) {
+                status = AlarmStatus.NO_ALARM;
+            } else {
+                status = afterSensorsDeactivated(status, deactivated.size());
+            }
+            return current.with(status, armingStatus, current.getCatDetected());
+        });
+        if (!deactivated.isEmpty()) {
+            for (Sensor sensor : deactivated) {
+                sensor.setActive(false);
+            }
+            securityRepository.updateSensors(deactivated);
         }
-        if(armingStatus == ArmingStatus.DISARMED) {
-            setAlarmStatus(AlarmStatus.NO_ALARM);
-        } else {
-            ConcurrentSkipListSet<Sensor> sensors = new ConcurrentSkipListSet<>(getSensors());
-            sensors.forEach(s -> changeSensorActivationStatus(s, false));
+        notifySensorStatusChanged();
+    }
+
+    /**
+     * @return the sensors that are active right now, in an array of exactly their number, so nothing
+     * is allocated per sensor and nothing at all if there are none
+     */
+    private List<Sensor> activeSensors() {
+        Set<Sensor> sensors = getSensors();
+        int count = 0;
+        for (Sensor sensor : sensors) {
+            if (sensor.isActive()) {
+                count++;
+            }
         }
-        securityRepository.setArmingStatus(armingStatus);
-        statusListeners.forEach(StatusListener::sensorStatusChanged);
+        if (count == 0) {
+            return List.of();
+        }
+        Sensor[] active = new Sensor[count];
+        int found = 0;
+        for (Sensor sensor : sensors) {
+            if (sensor.isActive() && found < active.length) {
+                active[found++] = sensor;
+            }
+        }
+        // another thread may have deactivated some in between
+        List<Sensor> list = Arrays.asList(active);
+        return found == active.length ? list : list.subList(0, found);
     }
 
     /***
@@ -54,8 +136,111 @@ public class SecurityService {
      * @param status AlarmStatus
      */
     public void setAlarmStatus(AlarmStatus status) {
-        securityRepository.setAlarmStatus(status);
-        statusListeners.forEach(sl -> sl.notify(status));
+        eventLog.alarmStatusSet(status);
+        transition(current -> current.withAlarmStatus(status));
+    }
+
+    /**
+     * Installs the state the change derives from the current one, retrying until no other transition
+     * gets in between, then writes it if it changed anything. The change may run several times, so it
+     * must not have side effects.
+     */
+    private void transition(UnaryOperator<SystemState> change) {
+        SystemState current;
+        do {
+            current = currentState();
+        } while (!install(current, change.apply(current)));
+    }
+
+    /**
+     * @return false if another transition replaced the current state first, so the next one has to be derived again
+     */
+    private boolean install(SystemState current, SystemState next) {
+        if (next == current) {
+            return true;
+        }
+        if (state.compareAndSet(current, next)) {
+            publish(next);
+            return true;
+        }
+        contendedTransitions.increment();
+        return false;
+    }
+
+    /**
+     * Writes the newest state to the repository and tells the listeners about a changed alarm status.
+     * Whichever transition gets here first writes for all that have won so far; the others find
+     * their state already written.
+     */
+    private void publish(SystemState next) {
+        if (written.getVersion() >= next.getVersion()) {
+            return;
+        }
+        synchronized (writeLock) {
+            SystemState previous = written;
+            SystemState latest = state.get();
+            if (previous.getVersion() >= latest.getVersion()) {
+                return;
+            }
+            written = latest;
+            if (latest.getArmingStatus() != previous.getArmingStatus()) {
+                securityRepository.setArmingStatus(latest.getArmingStatus());
+                metrics.armingStatusChanged(previous.getArmingStatus(), latest.getArmingStatus());
+            }
+            AlarmStatus status = latest.getAlarmStatus();
+            if (status != previous.getAlarmStatus()) {
+                securityRepository.setAlarmStatus(status);
+                metrics.alarmStatusChanged(previous.getAlarmStatus(), status);
+                eventLog.alarmStatusChanged(status);
+                long started = System.nanoTime();
+                statusListeners.forEach(sl -> sl.notify(status));
+                metrics.listenersDispatched(System.nanoTime() - started);
+            }
+        }
+    }
+
+    private SystemState currentState() {
+        SystemState current = state.get();
+        return current != null ? current : loadState();
+    }
+
+    private SystemState loadState() {
+        synchronized (writeLock) {
+            SystemState current = state.get();
+            if (current == null) {
+                current = new SystemState(securityRepository.getAlarmStatus(), securityRepository.getArmingStatus(),
+                        null, 0);
+                written = current;
+                state.set(current);
+            }
+            return current;
+        }
+    }
+
+    /**
+     * @return how often a transition had to start over because another one won the race
+     */
+    long getContendedTransitions() {
+        return contendedTransitions.sum();
+    }
+
+    /**
+     * Start reporting every input and every alarm status decision to the event log. The log first
+     * receives the current state, so it can be replayed from there.
+     * @param eventLog Log to report to, or null to stop logging.
+     */
+    public void setEventLog(SecurityEventLog eventLog) {
+        this.eventLog = eventLog == null ? SecurityEventLog.NONE : eventLog;
+        SystemState current = currentState();
+        this.eventLog.stateCaptured(current.getAlarmStatus(), current.getArmingStatus(), current.getCatDetected(),
+                getSensors());
+    }
+
+    /**
+     * Restores the last image verdict without acting on it, for replays that start from a captured state.
+     */
+    void restoreCatDetected(Boolean cat) {
+        transition(current -> current.with(current.getAlarmStatus(), current.getArmingStatus(), cat));
     }
 
     /**
@@ -63,17 +248,39 @@ public class SecurityService {
      * the camera currently shows a cat.
      * @param cat True if a cat is detected, otherwise false.
      */
-    private void catDetected(Boolean cat) {
-        isDetected = cat;
-        boolean hasInactiveSensors = getSensors().stream().noneMatch(Sensor::getActive);
-        if(Boolean.TRUE.equals(cat) && getArmingStatus() == ArmingStatus.ARMED_HOME) {
-            setAlarmStatus(AlarmStatus.ALARM);
-        }
-        if (Boolean.TRUE.equals(!cat) && hasInactiveSensors){
-            setAlarmStatus(AlarmStatus.NO_ALARM);
-        }
+    void catDetected(Boolean cat) {
+        applyCatDetected(cat);
+        notifyCatDetected(cat);
+    }
 
+    /**
+     * The alarm side of {@link #catDetected(Boolean)}, without telling the listeners about the image.
+     */
+    void applyCatDetected(Boolean cat) {
+        eventLog.catDetected(cat);
+        boolean hasInactiveSensors = !securityRepository.hasActiveSensors();
+        transition(current -> {
+            AlarmStatus status = current.getAlarmStatus();
+            if (Boolean.TRUE.equals(cat) && current.getArmingStatus() == ArmingStatus.ARMED_HOME) {
+                status = AlarmStatus.ALARM;
+            }
+            if (Boolean.FALSE.equals(cat) && hasInactiveSensors) {
+                status = AlarmStatus.NO_ALARM;
+            }
+            return current.with(status, current.getArmingStatus(), cat);
+        });
+    }
+
+    void notifyCatDetected(Boolean cat) {
+        long started = System.nanoTime();
         statusListeners.forEach(sl -> sl.catDetected(cat));
+        metrics.listenersDispatched(System.nanoTime() - started);
+    }
+
+    void notifySensorStatusChanged() {
+        long started = System.nanoTime();
+        statusListeners.forEach(StatusListener::sensorStatusChanged);
+        metrics.listenersDispatched(System.nanoTime() - started);
     }
 
     /**
@@ -84,61 +291,177 @@ public class SecurityService {
         statusListeners.add(statusListener);
     }
 
+    /**
+     * Register the StatusListener so that it is called on the given executor instead of on the thread
+     * that changed the state. Events the listener has not caught up with yet are merged.
+     * @param statusListener
+     * @param executor Executor that calls the listener, for example {@code SwingUtilities::invokeLater}.
+     * @return the wrapper that delivers the events, which also reports queue metrics
+     */
+    public AsyncStatusListener addStatusListener(StatusListener statusListener, Executor executor) {
+        AsyncStatusListener async = new AsyncStatusListener(statusListener, executor);
+        AsyncStatusListener previous = asyncListeners.put(statusListener, async);
+        if (previous != null) {
+            statusListeners.remove(previous);
+            previous.close();
+        }
+        statusListeners.add(async);
+        return async;
+    }
+
     public void removeStatusListener(StatusListener statusListener) {
+        AsyncStatusListener async = asyncListeners.remove(statusListener);
+        if (async != null) {
+            statusListeners.remove(async);
+            async.close();
+        }
         statusListeners.remove(statusListener);
     }
 
     /**
-     * Internal method for updating the alarm status when a sensor has been activated.
+     * Store a sensor whose activation status has been changed elsewhere. A deactivated sensor calms a
+     * pending alarm, and any sensor update steps an alarm down once the system is disarmed.
+     * @param sensor
      */
-    private void handleSensorActivated() {
-        if(securityRepository.getArmingStatus() == ArmingStatus.DISARMED) {
-            return; //no problem if the system is disarmed
-        }
-        switch(securityRepository.getAlarmStatus()) {
-            case NO_ALARM -> setAlarmStatus(AlarmStatus.PENDING_ALARM);
-            case PENDING_ALARM -> setAlarmStatus(AlarmStatus.ALARM);
+    public void changeSensorActivationStatus(Sensor sensor) {
+        eventLog.sensorUpdated(sensor);
+        boolean inactive = !sensor.isActive();
+        transition(current -> {
+            AlarmStatus status = current.getAlarmStatus();
+            if (status == AlarmStatus.PENDING_ALARM && inactive
+                    || status == AlarmStatus.ALARM && current.getArmingStatus() == ArmingStatus.DISARMED) {
+                status = afterSensorDeactivated(status);
+            }
+            return current.withAlarmStatus(status);
+        });
+        securityRepository.updateSensor(sensor);
+    }
+
+    /**
+     * Change the activation status for the specified sensor and update alarm status if necessary.
+     * @param sensor
+     * @param active
+     */
+    public void changeSensorActivationStatus(Sensor sensor, Boolean active) {
+        applySensorActivationStatus(sensor, active);
+        securityRepository.updateSensor(sensor);
+    }
+
+    /**
+     * Applies the new activation status to the alarm state and to the sensor, but leaves storing the
+     * sensor to the caller. Allocates nothing unless the alarm state changes.
+     */
+    void applySensorActivationStatus(Sensor sensor, Boolean active) {
+        eventLog.sensorActivationChanged(sensor, active);
+        boolean wasActive = sensor.isActive();
+        boolean nowActive = Boolean.TRUE.equals(active);
+        SystemState current;
+        do {
+            current = currentState();
+        } while (!install(current, current.withAlarmStatus(
+                afterSensorActivationStatus(current.getAlarmStatus(), current.getArmingStatus(), wasActive, nowActive))));
+        sensor.setActive(nowActive);
+    }
+
+    /**
+     * @return true if reporting an already active sensor as active again would change the alarm status,
+     * as it does while the alarm is pending
+     */
+    boolean isChangedByRepeatedActivation() {
+        SystemState current = currentState();
+        return afterSensorActivationStatus(current.getAlarmStatus(), current.getArmingStatus(), true, true)
+                != current.getAlarmStatus();
+    }
+
+    /**
+     * Stores sensors whose activation status has already been applied.
+     */
+    void storeSensors(Collection<Sensor> sensors) {
+        securityRepository.updateSensors(sensors);
+    }
+
+    /**
+     * Change the activation status of several sensors at once. The alarm status is worked out for the
+     * whole batch and stored once, the sensors are written to the repository in a single call, and
+     * each listener hears about the batch once.
+     * @param changes New activation status of each sensor, applied in iteration order.
+     */
+    public void changeSensorActivationStatuses(Map<Sensor, Boolean> changes) {
+        if (changes.isEmpty()) {
+            return;
         }
+        eventLog.sensorActivationsChanged(changes);
+        transition(current -> current.withAlarmStatus(
+                afterSensorActivationStatuses(current.getAlarmStatus(), current.getArmingStatus(), changes)));
+        storeSensorActivationStatuses(changes);
+        notifySensorStatusChanged();
     }
 
     /**
-     * Internal method for updating the alarm status when a sensor has been deactivated
+     * Runs each change through the same transitions as {@link #changeSensorActivationStatus(Sensor, Boolean)},
+     * without changing the sensors.
+     * @return the alarm status after the last change
      */
-    private void handleSensorDeactivated() {
-        switch(securityRepository.getAlarmStatus()) {
-            case PENDING_ALARM -> setAlarmStatus(AlarmStatus.NO_ALARM);
-            case ALARM -> setAlarmStatus(AlarmStatus.PENDING_ALARM);
+    private static AlarmStatus afterSensorActivationStatuses(AlarmStatus status, ArmingStatus armingStatus,
+                                                             Map<Sensor, Boolean> changes) {
+        for (Map.Entry<Sensor, Boolean> change : changes.entrySet()) {
+            status = afterSensorActivationStatus(status, armingStatus, change.getKey().isActive(),
+                    Boolean.TRUE.equals(change.getValue()));
         }
+        return status;
     }
 
-    public void changeSensorActivationStatus(Sensor sensor) {
-        AlarmStatus actualAlarmStatus = this.getAlarmStatus();
-        ArmingStatus actualArmingStatus = this.getArmingStatus();
+    private void storeSensorActivationStatuses(Map<Sensor, Boolean> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        List<Sensor> updated = new ArrayList<>(changes.size());
+        for (Map.Entry<Sensor, Boolean> change : changes.entrySet()) {
+            Sensor sensor = change.getKey();
+            sensor.setActive(Boolean.TRUE.equals(change.getValue()));
+            updated.add(sensor);
+        }
+        securityRepository.updateSensors(updated);
+    }
 
-        if (actualAlarmStatus == AlarmStatus.PENDING_ALARM && Boolean.TRUE.equals(!sensor.getActive())
-            || (actualAlarmStatus == AlarmStatus.ALARM && actualArmingStatus == ArmingStatus.DISARMED)
-        ) {
-            handleSensorDeactivated();
+    /**
+     * A sensor can't change the alarm status once the alarm is on. Otherwise activating one raises it
+     * a step while the system is armed, and deactivating an active one lowers it a step.
+     */
+    private static AlarmStatus afterSensorActivationStatus(AlarmStatus status, ArmingStatus armingStatus,
+                                                           boolean wasActive, boolean active) {
+        if (status == AlarmStatus.ALARM) {
+            return status;
         }
-        securityRepository.updateSensor(sensor);
+        if (active) {
+            return afterSensorActivated(status, armingStatus);
+        }
+        return wasActive ? afterSensorDeactivated(status) : status;
     }
 
     /**
-     * Change the activation status for the specified sensor and update alarm status if necessary.
-     * @param sensor
-     * @param active
+     * The same as deactivating that many active sensors one after another: the first calms a
+     * pending alarm and the rest change nothing.
      */
-    public void changeSensorActivationStatus(Sensor sensor, Boolean active) {
-        AlarmStatus status = securityRepository.getAlarmStatus();
-        if (status != AlarmStatus.ALARM) {
-            if(Boolean.TRUE.equals(active)) {
-                handleSensorActivated();
-            } else if (Boolean.TRUE.equals(sensor.getActive())) {
-                handleSensorDeactivated();
-            }
+    private static AlarmStatus afterSensorsDeactivated(AlarmStatus status, int deactivated) {
+        return deactivated > 0 && status == AlarmStatus.PENDING_ALARM ? AlarmStatus.NO_ALARM : status;
+    }
+
+    private static AlarmStatus afterSensorActivated(AlarmStatus status, ArmingStatus armingStatus) {
+        if (armingStatus == ArmingStatus.DISARMED) {
+            return status;
         }
-        sensor.setActive(active);
-        securityRepository.updateSensor(sensor);
+        if (status == AlarmStatus.NO_ALARM) {
+            return AlarmStatus.PENDING_ALARM;
+        }
+        return status == AlarmStatus.PENDING_ALARM ? AlarmStatus.ALARM : status;
+    }
+
+    private static AlarmStatus afterSensorDeactivated(AlarmStatus status) {
+        if (status == AlarmStatus.PENDING_ALARM) {
+            return AlarmStatus.NO_ALARM;
+        }
+        return status == AlarmStatus.ALARM ? AlarmStatus.PENDING_ALARM : status;
     }
 
     /**
@@ -147,26 +470,124 @@ public class SecurityService {
      * @param currentCameraImage
      */
     public void processImage(BufferedImage currentCameraImage) {
-        catDetected(imageService.imageContainsCat(currentCameraImage, 50.0f));
+        long started = System.nanoTime();
+        catDetected(containsCat(currentCameraImage));
+        metrics.imageProcessed(System.nanoTime() - started);
+    }
+
+    /**
+     * Sends an image to the image service without waiting for the verdict, and applies the verdict
+     * once it arrives, as {@link #processImage(BufferedImage)} would. Gives up after
+     * {@value #IMAGE_TIMEOUT_MILLIS} ms.
+     * @see #processImageAsync(BufferedImage, long, TimeUnit)
+     */
+    public CompletableFuture<Boolean> processImageAsync(BufferedImage currentCameraImage) {
+        return processImageAsync(currentCameraImage, IMAGE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sends an image to the image service without waiting for the verdict, and applies the verdict
+     * once it arrives. Only the latest image counts: scanning another one cancels a scan still
+     * running, and a verdict that arrives after a newer scan started is dropped. A scan that fails or
+     * times out leaves the state as it was.
+     *
+     * The verdict is applied, and the listeners are told, on whichever thread completed the scan.
+     * @return the verdict once it has been applied; fails with a {@link CancellationException} if a
+     * newer scan replaced it, or with a {@link java.util.concurrent.TimeoutException} if it took too long
+     */
+    public CompletableFuture<Boolean> processImageAsync(BufferedImage currentCameraImage, long timeout, TimeUnit unit) {
+        long started = System.nanoTime();
+        CompletableFuture<Boolean> scan = imageService.imageContainsCatAsync(currentCameraImage, CAT_CONFIDENCE_THRESHOLD);
+        CompletableFuture<Boolean> replaced;
+        synchronized (scanLock) {
+            replaced = latestScan;
+            latestScan = scan;
+        }
+        if (replaced != null) {
+            replaced.cancel(true);
+        }
+        return scan.orTimeout(timeout, unit)
+                .thenApply(cat -> {
+                    metrics.imageClassified(System.nanoTime() - started, cat);
+                    // under the lock, so a newer scan can't apply its verdict before this one
+                    synchronized (scanLock) {
+                        if (latestScan != scan) {
+                            throw new CancellationException("A newer image was scanned");
+                        }
+                        latestScan = null;
+                        catDetected(cat);
+                    }
+                    metrics.imageProcessed(System.nanoTime() - started);
+                    return cat;
+                })
+                .whenComplete((cat, e) -> {
+                    synchronized (scanLock) {
+                        if (latestScan == scan) {
+                            latestScan = null;
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Asks the image service whether the image shows a cat, without changing any state.
+     */
+    boolean containsCat(BufferedImage image) {
+        long started = System.nanoTime();
+        boolean cat = imageService.imageContainsCat(image, CAT_CONFIDENCE_THRESHOLD);
+        metrics.imageClassified(System.nanoTime() - started, cat);
+        return cat;
+    }
+
+    /**
+     * Asks the image service about several images in one call, without changing any state. Each
+     * image is recorded with its share of the call's time.
+     */
+    List<Boolean> containsCats(List<BufferedImage> images) {
+        long started = System.nanoTime();
+        List<Boolean> cats = imageService.imageContainsCatBatch(images, CAT_CONFIDENCE_THRESHOLD);
+        long perImage = (System.nanoTime() - started) / Math.max(1, images.size());
+        for (Boolean cat : cats) {
+            metrics.imageClassified(perImage, cat);
+        }
+        return cats;
+    }
+
+    /**
+     * @return the counters and latencies of this service, to read directly or to register with JMX
+     */
+    public SecurityMetrics getMetrics() {
+        return metrics;
     }
 
     public AlarmStatus getAlarmStatus() {
-        return securityRepository.getAlarmStatus();
+        return currentState().getAlarmStatus();
     }
 
     public Set<Sensor> getSensors() {
         return securityRepository.getSensors();
     }
 
+    /**
+     * @return a future that completes once the repository has loaded the sensors. Until then every
+     * input that looks at the sensors waits for them, so callers that mustn't block, like the GUI,
+     * should hold their inputs back.
+     */
+    public CompletableFuture<Void> whenSensorsLoaded() {
+        return securityRepository.whenSensorsLoaded();
+    }
+
     public void addSensor(Sensor sensor) {
+        eventLog.sensorAdded(sensor);
         securityRepository.addSensor(sensor);
     }
 
     public void removeSensor(Sensor sensor) {
+        eventLog.sensorRemoved(sensor);
         securityRepository.removeSensor(sensor);
     }
 
     public ArmingStatus getArmingStatus() {
-        return securityRepository.getArmingStatus();
+        return currentState().getArmingStatus();
     }
 }
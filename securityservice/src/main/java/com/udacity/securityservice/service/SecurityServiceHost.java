@@ -0,0 +1,254 @@
+package com.udacity.securityservice.service;
+
+import com.google.common.util.concurrent.Striped;
+import com.udacity.imageservice.ImageService;
+import com.udacity.securityservice.data.SecurityRepository;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hosts the security systems of many sites in one JVM. Each site gets its own
+ * {@link SecurityService} and its own repository, created by the repository factory from the site id.
+ *
+ * Sites are activated on first use and evicted again once they have been idle for a while, so
+ * memory follows the number of active sites rather than the number of known ones. Work on a site
+ * holds only that site's lock; activation and eviction take a lock stripe picked by the site id, so
+ * sites on different stripes never wait for each other. An evicted site's repository is flushed and
+ * closed after those locks are released, and the site is only activated again once that is done,
+ * so two repositories of one site are never open at the same time.
+ */
+public class SecurityServiceHost implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SecurityServiceHost.class);
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final Function<String, SecurityRepository> repositoryFactory;
+    private final ImageService imageService;
+    private final long idleTimeoutNanos;
+    private final ConcurrentHashMap<String, Site> sites = new ConcurrentHashMap<>();
+    // evicted sites whose repository is still being closed
+    private final ConcurrentHashMap<String, Site> closing = new ConcurrentHashMap<>();
+    private final Striped<Lock> activationLocks = Striped.lock(LOCK_STRIPES);
+    private final ScheduledExecutorService evictor;
+
+    /**
+     * @param repositoryFactory Creates the repository partition of a site from its id.
+     * @param imageService Image service shared by every site.
+     * @param idleTimeoutMillis How long a site may go unused before it is evicted. Zero or less keeps sites until {@link #evict(String)}.
+     */
+    public SecurityServiceHost(Function<String, SecurityRepository> repositoryFactory, ImageService imageService,
+                               long idleTimeoutMillis) {
+        this.repositoryFactory = repositoryFactory;
+        this.imageService = imageService;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        if (idleTimeoutMillis > 0) {
+            evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "security-site-evictor");
+                t.setDaemon(true);
+                return t;
+            });
+            long period = Math.max(1, idleTimeoutMillis / 2);
+            evictor.scheduleWithFixedDelay(this::evictIdleSites, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            evictor = null;
+        }
+    }
+
+    /**
+     * Runs the action against the site's service, activating the site if needed. Actions on the same
+     * site run one at a time.
+     */
+    public <T> T withSite(String siteId, Function<SecurityService, T> action) {
+        while (true) {
+            Site site = activate(siteId);
+            synchronized (site) {
+                if (site.evicted) {
+                    continue; // evicted between activation and locking, activate it again
+                }
+                site.lastAccessNanos = System.nanoTime();
+                return action.apply(site.securityService);
+            }
+        }
+    }
+
+    public void runOnSite(String siteId, Consumer<SecurityService> action) {
+        withSite(siteId, service -> {
+            action.accept(service);
+            return null;
+        });
+    }
+
+    public boolean isActive(String siteId) {
+        return sites.containsKey(siteId);
+    }
+
+    public int getActiveSiteCount() {
+        return sites.size();
+    }
+
+    /**
+     * Evicts every site that has been idle longer than the idle timeout. A site whose repository
+     * fails to close is logged and evicted all the same.
+     * @return the number of evicted sites
+     */
+    public int evictIdleSites() {
+        if (idleTimeoutNanos <= 0) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        int evicted = 0;
+        for (Site site : sites.values()) {
+            if (now - site.lastAccessNanos > idleTimeoutNanos && retire(site, now)) {
+                evicted++;
+                // runs on the evictor, where a failure would cancel every later eviction
+                try {
+                    release(site);
+                } catch (RuntimeException e) {
+                    log.error("Unable to close the repository of site {}", site.siteId, e);
+                }
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Flushes and evicts a site right away.
+     * @return false if the site was not active
+     * @throws IllegalStateException if the repository failed to flush or close; the site is evicted anyway
+     */
+    public boolean evict(String siteId) {
+        Site site = sites.get(siteId);
+        if (site == null || !retire(site, Long.MIN_VALUE)) {
+            return false;
+        }
+        release(site);
+        return true;
+    }
+
+    /**
+     * Stops the idle eviction and flushes and evicts every active site.
+     */
+    @Override
+    public void close() {
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+        List<String> active = new ArrayList<>(sites.keySet());
+        for (String siteId : active) {
+            try {
+                evict(siteId);
+            } catch (RuntimeException e) {
+                log.error("Unable to close the repository of site {}", siteId, e);
+            }
+        }
+    }
+
+    private Site activate(String siteId) {
+        while (true) {
+            Site site = sites.get(siteId);
+            if (site != null) {
+                return site;
+            }
+            Site previous;
+            Lock lock = activationLocks.get(siteId);
+            lock.lock();
+            try {
+                site = sites.get(siteId);
+                if (site != null) {
+                    return site;
+                }
+                previous = closing.get(siteId);
+                if (previous == null) {
+                    SecurityRepository repository = repositoryFactory.apply(siteId);
+                    site = new Site(siteId, repository, new SecurityService(repository, imageService));
+                    sites.put(siteId, site);
+                    return site;
+                }
+            } finally {
+                lock.unlock();
+            }
+            // the last repository of the site may still hold writes, wait until they are out
+            previous.released.join();
+        }
+    }
+
+    /**
+     * Takes the site out of service, under its locks.
+     * @param now time of the idle check, or Long.MIN_VALUE to evict regardless of idleness
+     * @return false if the site was already evicted or has been used since the idle check
+     */
+    private boolean retire(Site site, long now) {
+        Lock lock = activationLocks.get(site.siteId);
+        lock.lock();
+        try {
+            synchronized (site) {
+                if (site.evicted || now != Long.MIN_VALUE && now - site.lastAccessNanos <= idleTimeoutNanos) {
+                    return false;
+                }
+                site.evicted = true;
+                sites.remove(site.siteId, site);
+                closing.put(site.siteId, site);
+                return true;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Flushes and closes the repository of a retired site, without holding any lock, then lets the
+     * site be activated again. The repository is closed even if the flush fails.
+     */
+    private void release(Site site) {
+        RuntimeException failure = null;
+        try {
+            site.repository.flush();
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+        try {
+            if (site.repository instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        } catch (Exception e) {
+            if (failure == null) {
+                failure = new IllegalStateException("Unable to close the repository of site " + site.siteId, e);
+            } else {
+                failure.addSuppressed(e);
+            }
+        } finally {
+            closing.remove(site.siteId, site);
+            site.released.complete(null);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static final class Site {
+        private final String siteId;
+        private final SecurityRepository repository;
+        private final SecurityService securityService;
+        private volatile long lastAccessNanos = System.nanoTime();
+        private boolean evicted;
+        // completes once the repository has been closed after eviction
+        private final CompletableFuture<Void> released = new CompletableFuture<>();
+
+        private Site(String siteId, SecurityRepository repository, SecurityService securityService) {
+            this.siteId = siteId;
+            this.repository = repository;
+            this.securityService = securityService;
+        }
+    }
+}
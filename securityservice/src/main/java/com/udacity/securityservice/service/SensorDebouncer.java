@@ -0,0 +1,361 @@
+package com.udacity.securityservice.service;
+
+import com.udacity.securityservice.data.Sensor;
+import com.udacity.securityservice.data.SensorType;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Absorbs sensor noise before it reaches the {@link SecurityService}. A new reading is passed on
+ * only once the sensor has held it for the minimum stable time of its {@link SensorType}; a reading
+ * that flips back before then never leaves the debouncer. A sensor that changes too often within
+ * the flap window is quarantined: its readings are held back until the quarantine ends, after which
+ * its latest reading is passed on like any other.
+ *
+ * Readings are only recorded when they arrive. Settled readings are passed on by {@link #poll()},
+ * called either by the caller or every few milliseconds after {@link #start(long)}, as one batch,
+ * for example to {@code securityService::changeSensorActivationStatuses}. To debounce the ingestion
+ * gateway, give {@link #offerAll(Map)} to the {@code SensorEventBatcher} as its sink.
+ *
+ * The debouncer never changes a sensor itself, that is left to the sink. Sensors may still be changed
+ * elsewhere, for example when arming the system resets them, so a sensor with no reading pending is
+ * compared against its current state rather than the last reading passed on.
+ *
+ * A reading that repeats the state of an already active sensor is absorbed, unless reporting it
+ * again would change the alarm status, as it does while the alarm is pending. Such a repeat is
+ * passed on at the next poll, so a sensor that stays triggered still raises the alarm.
+ */
+public final class SensorDebouncer implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SensorDebouncer.class);
+
+    private final Map<SensorType, Settings> settings;
+    private final Consumer<Map<Sensor, Boolean>> sink;
+    private final LongSupplier nanoClock;
+    private final BooleanSupplier repeatedActivationMatters;
+    // guarded by this
+    private final Map<UUID, Tracked> tracked = new HashMap<>();
+    // sensors with a reading that has not been passed on yet, guarded by this
+    private final Set<Tracked> pending = new LinkedHashSet<>();
+    private ScheduledExecutorService poller;
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder absorbed = new LongAdder();
+    private final LongAdder forwarded = new LongAdder();
+    private final LongAdder quarantines = new LongAdder();
+
+    public SensorDebouncer(Consumer<Map<Sensor, Boolean>> sink) {
+        this(defaultSettings(), sink, System::nanoTime);
+    }
+
+    /**
+     * Debounces the readings of sensors of the security service and passes them on to it.
+     * @param settings Debounce settings of each sensor type. Types without settings are passed on at the next poll.
+     * @param nanoClock Source of {@link System#nanoTime()}-like timestamps.
+     */
+    public SensorDebouncer(Map<SensorType, Settings> settings, SecurityService securityService, LongSupplier nanoClock) {
+        this(settings, securityService::changeSensorActivationStatuses,
+                securityService::isChangedByRepeatedActivation, nanoClock);
+    }
+
+    /**
+     * @param settings Debounce settings of each sensor type. Types without settings are passed on at the next poll.
+     * @param sink Receives the settled readings, called on the polling thread.
+     * @param nanoClock Source of {@link System#nanoTime()}-like timestamps.
+     */
+    public SensorDebouncer(Map<SensorType, Settings> settings, Consumer<Map<Sensor, Boolean>> sink,
+                           LongSupplier nanoClock) {
+        this(settings, sink, () -> false, nanoClock);
+    }
+
+    /**
+     * @param settings Debounce settings of each sensor type. Types without settings are passed on at the next poll.
+     * @param sink Receives the settled readings, called on the polling thread.
+     * @param repeatedActivationMatters Tells whether reporting an already active sensor as active again
+     * would change anything, see {@code SecurityService.isChangedByRepeatedActivation()}.
+     * @param nanoClock Source of {@link System#nanoTime()}-like timestamps.
+     */
+    public SensorDebouncer(Map<SensorType, Settings> settings, Consumer<Map<Sensor, Boolean>> sink,
+                           BooleanSupplier repeatedActivationMatters, LongSupplier nanoClock) {
+        this.settings = new EnumMap<>(SensorType.class);
+        this.settings.putAll(settings);
+        this.sink = sink;
+        this.nanoClock = nanoClock;
+        this.repeatedActivationMatters = repeatedActivationMatters;
+    }
+
+    /**
+     * Doors and windows settle within tens of milliseconds; motion sensors chatter for longer.
+     */
+    public static Map<SensorType, Settings> defaultSettings() {
+        Map<SensorType, Settings> defaults = new EnumMap<>(SensorType.class);
+        defaults.put(SensorType.DOOR, new Settings(50, 10, 1_000, 60_000));
+        defaults.put(SensorType.WINDOW, new Settings(50, 10, 1_000, 60_000));
+        defaults.put(SensorType.MOTION, new Settings(250, 20, 2_000, 60_000));
+        return defaults;
+    }
+
+    /**
+     * Records a raw reading of the sensor.
+     */
+    public void offer(Sensor sensor, boolean active) {
+        long now = nanoClock.getAsLong();
+        received.increment();
+        synchronized (this) {
+            record(sensor, active, now);
+        }
+    }
+
+    /**
+     * Records a batch of raw readings, in iteration order.
+     */
+    public void offerAll(Map<Sensor, Boolean> readings) {
+        long now = nanoClock.getAsLong();
+        received.add(readings.size());
+        synchronized (this) {
+            for (Map.Entry<Sensor, Boolean> reading : readings.entrySet()) {
+                record(reading.getKey(), Boolean.TRUE.equals(reading.getValue()), now);
+            }
+        }
+    }
+
+    /**
+     * Passes every reading that has settled to the sink, in one batch.
+     * @return the number of readings passed on
+     */
+    public int poll() {
+        long now = nanoClock.getAsLong();
+        Map<Sensor, Boolean> settled = new LinkedHashMap<>();
+        synchronized (this) {
+            Iterator<Tracked> it = pending.iterator();
+            while (it.hasNext()) {
+                Tracked t = it.next();
+                if (t.quarantinedUntil - now > 0 || now - t.readingSince < t.settings.minStableNanos) {
+                    continue;
+                }
+                it.remove();
+                t.stable = t.reading;
+                settled.put(t.sensor, t.reading);
+            }
+        }
+        if (!settled.isEmpty()) {
+            sink.accept(settled);
+            forwarded.add(settled.size());
+        }
+        return settled.size();
+    }
+
+    /**
+     * Polls on a background thread from now on.
+     * @param periodMillis Time between polls; readings are passed on up to this much after they settle.
+     */
+    public synchronized SensorDebouncer start(long periodMillis) {
+        if (poller != null) {
+            throw new IllegalStateException("Already polling");
+        }
+        poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "sensor-debouncer");
+            t.setDaemon(true);
+            return t;
+        });
+        poller.scheduleWithFixedDelay(() -> {
+            try {
+                poll();
+            } catch (RuntimeException e) {
+                log.error("Unable to pass on settled sensor readings", e);
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    /**
+     * @return true if the sensor's readings are being held back for flapping
+     */
+    public synchronized boolean isQuarantined(Sensor sensor) {
+        Tracked t = tracked.get(sensor.getSensorId());
+        return t != null && t.quarantinedUntil - nanoClock.getAsLong() > 0;
+    }
+
+    /**
+     * Stops tracking the sensor, for example after it has been removed. A pending reading is dropped.
+     */
+    public synchronized void forget(Sensor sensor) {
+        Tracked t = tracked.remove(sensor.getSensorId());
+        if (t != null) {
+            pending.remove(t);
+        }
+    }
+
+    public long getReceivedReadings() {
+        return received.sum();
+    }
+
+    /**
+     * @return the number of readings that repeated the previous one or were superseded before they settled
+     */
+    public long getAbsorbedReadings() {
+        return absorbed.sum();
+    }
+
+    public long getForwardedReadings() {
+        return forwarded.sum();
+    }
+
+    public long getQuarantines() {
+        return quarantines.sum();
+    }
+
+    public synchronized int getPendingReadings() {
+        return pending.size();
+    }
+
+    /**
+     * Stops polling. Readings that have not settled yet are not passed on.
+     */
+    @Override
+    public synchronized void close() {
+        if (poller != null) {
+            poller.shutdownNow();
+            poller = null;
+        }
+    }
+
+    private void record(Sensor sensor, boolean active, long now) {
+        Tracked t = tracked.get(sensor.getSensorId());
+        if (t == null) {
+            Settings s = settings.getOrDefault(sensor.getSensorType(), Settings.NONE);
+            t = new Tracked(sensor, sensor.isActive(), s, now);
+            tracked.put(sensor.getSensorId(), t);
+        } else if (t.reading == t.stable) {
+            // nothing pending, so the sensor itself is the baseline; it may have been changed elsewhere since
+            t.stable = sensor.isActive();
+            t.reading = t.stable;
+        }
+        if (active == t.reading) {
+            if (active && t.stable && repeatedActivationMatters.getAsBoolean()) {
+                pending.add(t); // already active, but reporting it again escalates the alarm
+                return;
+            }
+            absorbed.increment();
+            return;
+        }
+        if (t.reading != t.stable) {
+            absorbed.increment(); // the reading it replaces never settled
+        }
+        t.reading = active;
+        t.readingSince = now;
+        if (t.flapped(now)) {
+            if (t.quarantinedUntil - now <= 0) {
+                quarantines.increment();
+                log.warn("Sensor {} is flapping, holding back its readings for {} ms", sensor.getName(),
+                        TimeUnit.NANOSECONDS.toMillis(t.settings.quarantineNanos));
+            }
+            t.quarantinedUntil = now + t.settings.quarantineNanos; // for as long as it keeps flapping
+        }
+        if (active == t.stable) {
+            pending.remove(t); // back where it was, nothing to pass on
+        } else {
+            pending.add(t);
+        }
+    }
+
+    /**
+     * How one sensor type is debounced.
+     */
+    public static final class Settings {
+        static final Settings NONE = new Settings(0, 0, 0, 0);
+
+        private final long minStableNanos;
+        private final int flapTransitions;
+        private final long flapWindowNanos;
+        private final long quarantineNanos;
+
+        /**
+         * @param minStableMillis How long a reading must hold before it is passed on.
+         * @param flapTransitions How many changes within the flap window quarantine a sensor. Zero never quarantines.
+         * @param flapWindowMillis Window the changes are counted in.
+         * @param quarantineMillis How long a flapping sensor is held back.
+         */
+        public Settings(long minStableMillis, int flapTransitions, long flapWindowMillis, long quarantineMillis) {
+            if (minStableMillis < 0 || flapTransitions < 0 || flapWindowMillis < 0 || quarantineMillis < 0) {
+                throw new IllegalArgumentException("Debounce settings can't be negative");
+            }
+            this.minStableNanos = TimeUnit.MILLISECONDS.toNanos(minStableMillis);
+            this.flapTransitions = flapTransitions;
+            this.flapWindowNanos = TimeUnit.MILLISECONDS.toNanos(flapWindowMillis);
+            this.quarantineNanos = TimeUnit.MILLISECONDS.toNanos(quarantineMillis);
+        }
+
+        public long getMinStableMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(minStableNanos);
+        }
+
+        public int getFlapTransitions() {
+            return flapTransitions;
+        }
+
+        public long getFlapWindowMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(flapWindowNanos);
+        }
+
+        public long getQuarantineMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(quarantineNanos);
+        }
+    }
+
+    /**
+     * Debounce state of one sensor.
+     */
+    private static final class Tracked {
+        private final Sensor sensor;
+        private final Settings settings;
+        // times of the latest changes, as a ring
+        private final long[] changes;
+        private int nextChange;
+        private long changeCount;
+        private boolean stable;
+        private boolean reading;
+        private long readingSince;
+        private long quarantinedUntil;
+
+        private Tracked(Sensor sensor, boolean active, Settings settings, long now) {
+            this.sensor = sensor;
+            this.settings = settings;
+            this.changes = new long[settings.flapTransitions];
+            this.stable = active;
+            this.reading = active;
+            this.readingSince = now;
+            this.quarantinedUntil = now;
+        }
+
+        /**
+         * Records a change.
+         * @return true if it makes as many changes within the flap window as flapping takes
+         */
+        private boolean flapped(long now) {
+            if (changes.length == 0) {
+                return false;
+            }
+            changes[nextChange] = now;
+            nextChange = (nextChange + 1) % changes.length;
+            changeCount++;
+            // the slot written next holds the oldest of the latest changes
+            return changeCount >= changes.length && now - changes[nextChange] <= settings.flapWindowNanos;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.udacity.securityservice.service;
+
+import com.udacity.securityservice.data.AlarmStatus;
+import com.udacity.securityservice.data.ArmingStatus;
+import java.util.Objects;
+
+/**
+ * The alarm status, arming status and last image verdict of a {@link SecurityService} as one
+ * immutable value, so a transition can replace all three with a single compare-and-set. Every
+ * changed value carries a higher version than the one it was derived from, which puts the writes
+ * of concurrent transitions in order.
+ */
+final class SystemState {
+    private final AlarmStatus alarmStatus;
+    private final ArmingStatus armingStatus;
+    private final Boolean catDetected;
+    private final long version;
+
+    SystemState(AlarmStatus alarmStatus, ArmingStatus armingStatus, Boolean catDetected, long version) {
+        this.alarmStatus = alarmStatus;
+        this.armingStatus = armingStatus;
+        this.catDetected = catDetected;
+        this.version = version;
+    }
+
+    AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+
+    Boolean getCatDetected() {
+        return catDetected;
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return this state if nothing changes, so callers can tell a no-op by identity
+     */
+    SystemState with(AlarmStatus alarmStatus, ArmingStatus armingStatus, Boolean catDetected) {
+        if (alarmStatus == this.alarmStatus && armingStatus == this.armingStatus
+                && Objects.equals(catDetected, this.catDetected)) {
+            return this;
+        }
+        return new SystemState(alarmStatus, armingStatus, catDetected, version + 1);
+    }
+
+    SystemState withAlarmStatus(AlarmStatus alarmStatus) {
+        return with(alarmStatus, armingStatus, catDetected);
+    }
+
+    @Override
+    public String toString() {
+        return "SystemState{" + alarmStatus + ", " + armingStatus + ", cat=" + catDetected + ", v" + version + "}";
+    }
+}
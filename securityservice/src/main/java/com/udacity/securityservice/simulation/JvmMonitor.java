@@ -0,0 +1,103 @@
+package com.udacity.securityservice.simulation;
+
+import com.udacity.securityservice.metrics.LatencyHistogram;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * Watches the heap and the garbage collector while a simulation runs. Every collection the JVM
+ * reports is recorded as a pause, except forced ones and those of collectors that only report
+ * their concurrent cycles, such as ZGC's and Shenandoah's "Cycles" collectors. The JVM reports
+ * pauses in whole milliseconds.
+ */
+final class JvmMonitor implements AutoCloseable {
+
+    // GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION, without needing jdk.management
+    private static final String GC_NOTIFICATION = "com.sun.management.gc.notification";
+
+    private final LatencyHistogram pauses = new LatencyHistogram();
+    private final LatencyHistogram totalPauses = new LatencyHistogram();
+    private final List<NotificationEmitter> emitters = new ArrayList<>();
+    private final NotificationListener listener = this::collected;
+
+    JvmMonitor() {
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector instanceof NotificationEmitter && !isConcurrent(collector.getName())) {
+                NotificationEmitter emitter = (NotificationEmitter) collector;
+                emitter.addNotificationListener(listener, n -> GC_NOTIFICATION.equals(n.getType()), null);
+                emitters.add(emitter);
+            }
+        }
+    }
+
+    private void collected(Notification notification, Object handback) {
+        CompositeData info = (CompositeData) notification.getUserData();
+        if ("System.gc()".equals(info.get("gcCause"))) {
+            return; // the simulator's own, to measure the heap
+        }
+        CompositeData gcInfo = (CompositeData) info.get("gcInfo");
+        long pause = TimeUnit.MILLISECONDS.toNanos((Long) gcInfo.get("duration"));
+        pauses.record(pause);
+        totalPauses.record(pause);
+    }
+
+    /**
+     * @return the pauses since the caller last reset it, for one interval
+     */
+    LatencyHistogram getPauses() {
+        return pauses;
+    }
+
+    /**
+     * @return the same pauses again, to reset independently for a whole run
+     */
+    LatencyHistogram getTotalPauses() {
+        return totalPauses;
+    }
+
+    long getHeapUsedBytes() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * @return how much of the heap the last collection of each pool left in use, the figure that
+     * grows when something leaks
+     */
+    long getHeapAfterGcBytes() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            MemoryUsage afterGc = pool.getType() == MemoryType.HEAP ? pool.getCollectionUsage() : null;
+            if (afterGc != null) {
+                used += afterGc.getUsed();
+            }
+        }
+        return used;
+    }
+
+    @Override
+    public void close() {
+        for (NotificationEmitter emitter : emitters) {
+            try {
+                emitter.removeNotificationListener(listener);
+            } catch (ListenerNotFoundException e) {
+                // already gone
+            }
+        }
+        emitters.clear();
+    }
+
+    private static boolean isConcurrent(String collector) {
+        return collector.endsWith("Cycles") || collector.contains("Concurrent");
+    }
+}
@@ -0,0 +1,113 @@
+package com.udacity.securityservice.simulation;
+
+import com.udacity.imageservice.ImageService;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Image service whose verdicts are decided in advance, so a simulation sees the same cats on every
+ * run. The verdicts either repeat a fixed script or are drawn with a fixed probability from a
+ * seed, and each call can be made to take as long as a real classifier would.
+ *
+ * The n-th call always gets the n-th verdict, whichever thread makes it; the images of a batch are
+ * calls in the order of the batch.
+ */
+public final class ScriptedImageService implements ImageService {
+
+    private final boolean[] script;
+    private final double catProbability;
+    private final long seed;
+    private final long delayNanos;
+    private final AtomicLong calls = new AtomicLong();
+
+    /**
+     * @param script Verdicts to give in turn, starting over after the last one.
+     * @param delayMicros How long each call takes.
+     */
+    public ScriptedImageService(List<Boolean> script, long delayMicros) {
+        if (script.isEmpty()) {
+            throw new IllegalArgumentException("The script needs at least one verdict");
+        }
+        this.script = new boolean[script.size()];
+        for (int i = 0; i < script.size(); i++) {
+            this.script[i] = script.get(i);
+        }
+        this.catProbability = 0;
+        this.seed = 0;
+        this.delayNanos = delayNanos(delayMicros);
+    }
+
+    /**
+     * @param catProbability Chance between 0 and 1 that an image shows a cat.
+     * @param seed Seed the verdicts are drawn from.
+     * @param delayMicros How long each call takes.
+     */
+    public ScriptedImageService(double catProbability, long seed, long delayMicros) {
+        if (catProbability < 0 || catProbability > 1) {
+            throw new IllegalArgumentException("The cat probability must be between 0 and 1");
+        }
+        this.script = null;
+        this.catProbability = catProbability;
+        this.seed = seed;
+        this.delayNanos = delayNanos(delayMicros);
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+        long call = calls.getAndIncrement();
+        if (delayNanos > 0) {
+            LockSupport.parkNanos(delayNanos);
+        }
+        return verdict(call);
+    }
+
+    /**
+     * Takes as long as a single call, like a service that classifies a whole batch in one round
+     * trip. Each image still counts as a call of its own.
+     */
+    @Override
+    public List<Boolean> imageContainsCatBatch(List<BufferedImage> images, float confidenceThreshold) {
+        long first = calls.getAndAdd(images.size());
+        if (delayNanos > 0) {
+            LockSupport.parkNanos(delayNanos);
+        }
+        List<Boolean> verdicts = new ArrayList<>(images.size());
+        for (int i = 0; i < images.size(); i++) {
+            verdicts.add(verdict(first + i));
+        }
+        return verdicts;
+    }
+
+    /**
+     * @return the verdict of the given call, counting from zero
+     */
+    public boolean verdict(long call) {
+        if (script != null) {
+            return script[(int) (call % script.length)];
+        }
+        // top 53 bits of a mixed counter, as a double in [0, 1)
+        return (mix(seed + call) >>> 11) * 0x1.0p-53 < catProbability;
+    }
+
+    public long getCalls() {
+        return calls.get();
+    }
+
+    private static long delayNanos(long delayMicros) {
+        if (delayMicros < 0) {
+            throw new IllegalArgumentException("The delay can't be negative");
+        }
+        return TimeUnit.MICROSECONDS.toNanos(delayMicros);
+    }
+
+    // the SplitMix64 finalizer, so neighbouring calls get unrelated verdicts
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
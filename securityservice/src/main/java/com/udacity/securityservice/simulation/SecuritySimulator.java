@@ -0,0 +1,660 @@
+package com.udacity.securityservice.simulation;
+
+import com.udacity.securityservice.application.StatusListener;
+import com.udacity.securityservice.data.AlarmStatus;
+import com.udacity.securityservice.data.ArmingStatus;
+import com.udacity.securityservice.data.InMemorySecurityRepositoryImpl;
+import com.udacity.securityservice.data.Sensor;
+import com.udacity.securityservice.data.SensorType;
+import com.udacity.securityservice.metrics.LatencyHistogram;
+import com.udacity.securityservice.metrics.LatencySnapshot;
+import com.udacity.securityservice.service.CameraFramePipeline;
+import com.udacity.securityservice.service.SecurityService;
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Drives a {@link SecurityService} without the GUI, to find how far it scales and whether it
+ * leaks over hours of running. The service gets an in-memory repository and a
+ * {@link ScriptedImageService}, so only the service itself is measured.
+ *
+ * Sensor events arrive at random, on average at the configured rate, and pick their sensor from a
+ * Zipf distribution, so a few sensors are busy and most are quiet. Each camera sends frames at a
+ * fixed rate from its own thread, one at a time or through a {@link CameraFramePipeline}, and the
+ * household now and then arms or disarms the system.
+ * Events are sent when they are due whether or not the previous ones have finished, and their
+ * latency is counted from when they were due. A run ends once every event due before its end has
+ * been sent, so an overloaded service stretches the run rather than losing events, and the totals
+ * count the events that were due after the warm up. With the same seed they are the same on every
+ * run, which a test can make instant with a {@link Clock} that moves on as soon as it is waited on.
+ *
+ * Arguments are name=value pairs, for example {@code sensors=100000 events=50000 duration=2h}; see
+ * {@link #main(String[])} for the names.
+ */
+public final class SecuritySimulator {
+
+    private static final Logger log = LoggerFactory.getLogger(SecuritySimulator.class);
+
+    // set by the listener when the calling thread's event changed the alarm status
+    private static final ThreadLocal<boolean[]> TRANSITIONED = ThreadLocal.withInitial(() -> new boolean[1]);
+
+    private final Settings settings;
+    private final Clock clock;
+    private final SecurityService securityService;
+    private final ScriptedImageService imageService;
+    private final Sensor[] sensors;
+    // cumulative Zipf weights of the sensors, by sensor index
+    private final double[] popularity;
+    private final LatencyHistogram sensorEventLatency = new LatencyHistogram();
+    private final LatencyHistogram transitionLatency = new LatencyHistogram();
+    private final LatencyHistogram frameLatency = new LatencyHistogram();
+    private final LatencyHistogram totalSensorEventLatency = new LatencyHistogram();
+    private final LatencyHistogram totalTransitionLatency = new LatencyHistogram();
+    private final LatencyHistogram totalFrameLatency = new LatencyHistogram();
+    private final LongAdder sensorEvents = new LongAdder();
+    private final LongAdder frames = new LongAdder();
+    // events and frames due after the warm up
+    private final LongAdder measuredSensorEvents = new LongAdder();
+    private final LongAdder measuredFrames = new LongAdder();
+    private final LongAdder alarms = new LongAdder();
+    private final LongAdder alarmTransitions = new LongAdder();
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    private volatile boolean running;
+    // of the current run, set before the drivers start
+    private long end;
+    private long measureFrom;
+    // while frames are batched, from start to stop
+    private volatile CameraFramePipeline framePipeline;
+
+    public SecuritySimulator(Settings settings) {
+        this(settings, Clock.SYSTEM);
+    }
+
+    /**
+     * @param clock Time the drivers wait on and measure latency with.
+     */
+    public SecuritySimulator(Settings settings, Clock clock) {
+        this.settings = settings;
+        this.clock = clock;
+        this.imageService = new ScriptedImageService(settings.catProbability, settings.seed,
+                settings.classificationMicros);
+        this.securityService = new SecurityService(
+                new InMemorySecurityRepositoryImpl(AlarmStatus.NO_ALARM, ArmingStatus.ARMED_HOME), imageService);
+        this.sensors = new Sensor[settings.sensors];
+        this.popularity = new double[settings.sensors];
+        double total = 0;
+        for (int i = 0; i < settings.sensors; i++) {
+            sensors[i] = new Sensor("sensor " + i, SensorType.values()[i % SensorType.values().length]);
+            securityService.addSensor(sensors[i]);
+            total += 1 / Math.pow(i + 1, settings.sensorSkew);
+            popularity[i] = total;
+        }
+        securityService.addStatusListener(new StatusListener() {
+            @Override
+            public void notify(AlarmStatus status) {
+                TRANSITIONED.get()[0] = true;
+                alarmTransitions.increment();
+                if (status == AlarmStatus.ALARM) {
+                    alarms.increment();
+                }
+            }
+
+            @Override
+            public void catDetected(boolean catDetected) {
+            }
+
+            @Override
+            public void sensorStatusChanged() {
+            }
+        });
+    }
+
+    /**
+     * @return the service under test, to read its metrics or register them with JMX
+     */
+    public SecurityService getSecurityService() {
+        return securityService;
+    }
+
+    public ScriptedImageService getImageService() {
+        return imageService;
+    }
+
+    /**
+     * Runs the simulation, reporting on every interval, and returns the report of the whole run
+     * after the warm up. A full collection is forced at the end of the warm up and before the final
+     * report, so the heap growth of the final report is what the service kept, not garbage.
+     * @param duration How long to run, including the warm up.
+     * @param warmUp Time before measuring starts, so the JIT and the heap have settled.
+     * @param reportInterval How often to report.
+     * @param reports Receives a report of every interval, from the calling thread.
+     */
+    public SimulationReport run(Duration duration, Duration warmUp, Duration reportInterval,
+                                Consumer<SimulationReport> reports) throws InterruptedException {
+        if (reportInterval.isZero() || reportInterval.isNegative()) {
+            throw new IllegalArgumentException("The report interval must be positive");
+        }
+        List<Thread> threads = new ArrayList<>();
+        try (JvmMonitor jvm = new JvmMonitor()) {
+            running = true;
+            long started = clock.nanoTime();
+            end = started + duration.toNanos();
+            measureFrom = started + Math.min(warmUp.toNanos(), duration.toNanos());
+            measuredSensorEvents.reset();
+            measuredFrames.reset();
+            totalSensorEventLatency.reset();
+            totalTransitionLatency.reset();
+            totalFrameLatency.reset();
+            Totals totals = warmUp.isZero() ? new Totals(jvm) : null;
+            start(threads, started);
+
+            long intervalStarted = started;
+            while (intervalStarted < end && failure.get() == null) {
+                long intervalEnd = Math.min(intervalStarted + reportInterval.toNanos(), end);
+                if (totals == null) {
+                    // the warm up ends on an interval of its own
+                    intervalEnd = Math.min(intervalEnd, measureFrom);
+                }
+                sleepUntil(intervalEnd);
+                long now = clock.nanoTime();
+                SimulationReport report = new SimulationReport(now - started, now - intervalStarted,
+                        sensorEvents.sumThenReset(), frames.sumThenReset(), alarms.sumThenReset(),
+                        alarmTransitions.sumThenReset(), snapshot(sensorEventLatency), snapshot(transitionLatency),
+                        snapshot(frameLatency), snapshot(jvm.getPauses()), jvm.getHeapUsedBytes(),
+                        jvm.getHeapAfterGcBytes(), totals == null ? 0 : jvm.getHeapAfterGcBytes() - totals.baselineHeap);
+                reports.accept(report);
+                if (totals != null) {
+                    totals.add(report);
+                } else if (now >= measureFrom) {
+                    totals = new Totals(jvm);
+                    now = totals.started;
+                }
+                intervalStarted = now;
+            }
+            finish(threads);
+            if (failure.get() != null) {
+                throw new IllegalStateException("The simulation failed", failure.get());
+            }
+            if (totals == null) {
+                totals = new Totals(jvm);
+            }
+            totals.addUnreported();
+            long finished = clock.nanoTime();
+            LatencySnapshot pauses = LatencySnapshot.of(jvm.getTotalPauses());
+            System.gc();
+            return new SimulationReport(finished - started, finished - totals.started, measuredSensorEvents.sum(),
+                    measuredFrames.sum(), totals.measuredAlarms, totals.measuredTransitions,
+                    LatencySnapshot.of(totalSensorEventLatency),
+                    LatencySnapshot.of(totalTransitionLatency), LatencySnapshot.of(totalFrameLatency), pauses,
+                    jvm.getHeapUsedBytes(), jvm.getHeapAfterGcBytes(), jvm.getHeapAfterGcBytes() - totals.baselineHeap);
+        } finally {
+            stop(threads);
+        }
+    }
+
+    /**
+     * Alarm counts of the measured part of a run; the events and frames are counted by when they
+     * were due. Creating one ends the warm up: it forces a collection to take the heap baseline and
+     * clears what was recorded so far, including what came in during the collection.
+     */
+    private final class Totals {
+        private final long started;
+        private final long baselineHeap;
+        private long measuredAlarms;
+        private long measuredTransitions;
+
+        Totals(JvmMonitor jvm) {
+            System.gc();
+            this.baselineHeap = jvm.getHeapAfterGcBytes();
+            jvm.getTotalPauses().reset();
+            sensorEvents.reset();
+            frames.reset();
+            alarms.reset();
+            alarmTransitions.reset();
+            sensorEventLatency.reset();
+            transitionLatency.reset();
+            frameLatency.reset();
+            jvm.getPauses().reset();
+            this.started = clock.nanoTime();
+        }
+
+        void add(SimulationReport report) {
+            measuredAlarms += report.getAlarms();
+            measuredTransitions += report.getAlarmTransitions();
+        }
+
+        /**
+         * Adds what the drivers did after the last report, before they stopped.
+         */
+        void addUnreported() {
+            measuredAlarms += alarms.sumThenReset();
+            measuredTransitions += alarmTransitions.sumThenReset();
+        }
+    }
+
+    private void start(List<Thread> threads, long started) {
+        if (settings.sensorEventsPerSecond > 0 && sensors.length > 0) {
+            double meanGapNanos = 1e9 * settings.drivers / settings.sensorEventsPerSecond;
+            for (int d = 0; d < settings.drivers; d++) {
+                SplittableRandom random = new SplittableRandom(settings.seed * 31 + d);
+                threads.add(thread("simulation-sensors-" + d, () -> driveSensors(random, meanGapNanos, started)));
+            }
+        }
+        if (settings.framesPerSecond > 0) {
+            if (settings.frameBatchSize > 0) {
+                framePipeline = new CameraFramePipeline(securityService, settings.frameBatchSize,
+                        settings.frameBatchWaitMillis, TimeUnit.MILLISECONDS, Runtime.getRuntime().availableProcessors());
+            }
+            long periodNanos = (long) (1e9 / settings.framesPerSecond);
+            for (int c = 0; c < settings.cameras; c++) {
+                String camera = "camera " + c;
+                long firstFrame = started + periodNanos * c / settings.cameras;
+                threads.add(thread("simulation-camera-" + c, () -> driveCamera(camera, periodNanos, firstFrame)));
+            }
+        }
+        if (settings.armingChangesPerMinute > 0) {
+            SplittableRandom random = new SplittableRandom(settings.seed * 37);
+            double meanGapNanos = 60e9 / settings.armingChangesPerMinute;
+            threads.add(thread("simulation-household", () -> driveHousehold(random, meanGapNanos, started)));
+        }
+        threads.forEach(Thread::start);
+    }
+
+    private Thread thread(String name, Runnable driver) {
+        Thread t = new Thread(() -> {
+            try {
+                driver.run();
+            } catch (RuntimeException e) {
+                log.error("Simulation driver {} failed", Thread.currentThread().getName(), e);
+                failure.compareAndSet(null, e);
+                running = false; // the other drivers stop too
+            }
+        }, name);
+        t.setDaemon(true);
+        return t;
+    }
+
+    /**
+     * Waits for the drivers to send what was due before the end, then stops.
+     */
+    private void finish(List<Thread> threads) throws InterruptedException {
+        for (Thread t : threads) {
+            t.join();
+        }
+        stop(threads);
+    }
+
+    private void stop(List<Thread> threads) throws InterruptedException {
+        running = false;
+        for (Thread t : threads) {
+            LockSupport.unpark(t); // may be waiting for an event due long after the end
+            t.join();
+        }
+        threads.clear();
+        if (framePipeline != null) {
+            framePipeline.close(); // waits for the frames still in it
+            framePipeline = null;
+        }
+    }
+
+    private void driveSensors(SplittableRandom random, double meanGapNanos, long started) {
+        boolean[] transitioned = TRANSITIONED.get();
+        for (long due = started + nextGap(random, meanGapNanos); running && due < end;
+             due += nextGap(random, meanGapNanos)) {
+            sleepUntil(due);
+            Sensor sensor = sensors[pickSensor(random)];
+            transitioned[0] = false;
+            securityService.changeSensorActivationStatus(sensor, !sensor.isActive());
+            long latency = clock.nanoTime() - due;
+            boolean measured = due >= measureFrom;
+            sensorEventLatency.record(latency);
+            if (transitioned[0]) {
+                transitionLatency.record(latency);
+            }
+            if (measured) {
+                totalSensorEventLatency.record(latency);
+                if (transitioned[0]) {
+                    totalTransitionLatency.record(latency);
+                }
+                measuredSensorEvents.increment();
+            }
+            sensorEvents.increment();
+        }
+    }
+
+    private void driveCamera(String camera, long periodNanos, long firstFrame) {
+        BufferedImage frame = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+        CameraFramePipeline pipeline = framePipeline;
+        for (long due = firstFrame; running && due < end; due += periodNanos) {
+            sleepUntil(due);
+            boolean measured = due >= measureFrom;
+            if (pipeline == null) {
+                securityService.processImage(frame);
+                frameProcessed(due, measured);
+            } else {
+                long frameDue = due;
+                // frames replaced by a newer one of the camera are counted, but have no latency
+                pipeline.submit(camera, frame).thenRun(() -> frameProcessed(frameDue, measured));
+            }
+            frames.increment();
+            if (measured) {
+                measuredFrames.increment();
+            }
+        }
+    }
+
+    private void frameProcessed(long due, boolean measured) {
+        long latency = clock.nanoTime() - due;
+        frameLatency.record(latency);
+        if (measured) {
+            totalFrameLatency.record(latency);
+        }
+    }
+
+    /**
+     * Disarms the system, which also silences an alarm, and arms it again home or away.
+     */
+    private void driveHousehold(SplittableRandom random, double meanGapNanos, long started) {
+        for (long due = started + nextGap(random, meanGapNanos); running && due < end;
+             due += nextGap(random, meanGapNanos)) {
+            sleepUntil(due);
+            if (securityService.getArmingStatus() != ArmingStatus.DISARMED) {
+                securityService.setArmingStatus(ArmingStatus.DISARMED);
+            } else {
+                securityService.setArmingStatus(random.nextBoolean() ? ArmingStatus.ARMED_HOME : ArmingStatus.ARMED_AWAY);
+            }
+        }
+    }
+
+    private int pickSensor(SplittableRandom random) {
+        int i = Arrays.binarySearch(popularity, random.nextDouble(popularity[popularity.length - 1]));
+        return i >= 0 ? i : Math.min(-i - 1, popularity.length - 1);
+    }
+
+    /**
+     * @return an exponentially distributed gap, so events arrive as a Poisson process
+     */
+    private static long nextGap(SplittableRandom random, double meanGapNanos) {
+        return (long) (-Math.log(1 - random.nextDouble()) * meanGapNanos);
+    }
+
+    /**
+     * Waits until the given time, or returns at once when the simulation stops or is behind.
+     */
+    private void sleepUntil(long due) {
+        long remaining;
+        while (running && (remaining = due - clock.nanoTime()) > 0) {
+            clock.sleep(remaining);
+        }
+    }
+
+    private static LatencySnapshot snapshot(LatencyHistogram histogram) {
+        LatencySnapshot snapshot = LatencySnapshot.of(histogram);
+        histogram.reset();
+        return snapshot;
+    }
+
+    /**
+     * Arguments, all optional, as name=value pairs:
+     * sensors, cameras, events (sensor events per second), fps (frames per second and camera),
+     * skew (Zipf exponent of sensor popularity, 0 for uniform), cats (chance of a cat in a frame),
+     * classify (microseconds per classification), batch (frames classified together, 0 for one at a
+     * time), batchwait (milliseconds a frame waits for a batch), arming (arming changes per minute),
+     * drivers (sensor event threads), seed, and duration, warmup and report as times like
+     * 90s, 30m or 8h.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        Settings settings = Settings.DEFAULT;
+        Duration duration = Duration.ofMinutes(5);
+        Duration warmUp = Duration.ofSeconds(30);
+        Duration reportInterval = Duration.ofSeconds(10);
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("Expected name=value but got " + arg);
+            }
+            String value = arg.substring(eq + 1);
+            switch (arg.substring(0, eq)) {
+                case "sensors":
+                    settings = settings.withSensors(Integer.parseInt(value));
+                    break;
+                case "events":
+                    settings = settings.withSensorEvents(Double.parseDouble(value), settings.sensorSkew);
+                    break;
+                case "skew":
+                    settings = settings.withSensorEvents(settings.sensorEventsPerSecond, Double.parseDouble(value));
+                    break;
+                case "cameras":
+                    settings = settings.withCameras(Integer.parseInt(value), settings.framesPerSecond);
+                    break;
+                case "fps":
+                    settings = settings.withCameras(settings.cameras, Double.parseDouble(value));
+                    break;
+                case "cats":
+                    settings = settings.withImages(Double.parseDouble(value), settings.classificationMicros);
+                    break;
+                case "classify":
+                    settings = settings.withImages(settings.catProbability, Long.parseLong(value));
+                    break;
+                case "batch":
+                    settings = settings.withFrameBatches(Integer.parseInt(value), settings.frameBatchWaitMillis);
+                    break;
+                case "batchwait":
+                    settings = settings.withFrameBatches(settings.frameBatchSize, Long.parseLong(value));
+                    break;
+                case "arming":
+                    settings = settings.withArmingChanges(Double.parseDouble(value));
+                    break;
+                case "drivers":
+                    settings = settings.withDrivers(Integer.parseInt(value));
+                    break;
+                case "seed":
+                    settings = settings.withSeed(Long.parseLong(value));
+                    break;
+                case "duration":
+                    duration = parseDuration(value);
+                    break;
+                case "warmup":
+                    warmUp = parseDuration(value);
+                    break;
+                case "report":
+                    reportInterval = parseDuration(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown argument " + arg);
+            }
+        }
+
+        System.out.println(settings);
+        SecuritySimulator simulator = new SecuritySimulator(settings);
+        simulator.getSecurityService().getMetrics().register("simulation");
+        try {
+            SimulationReport total = simulator.run(duration, warmUp, reportInterval, System.out::println);
+            System.out.println("total after warm up:");
+            System.out.println(total);
+        } finally {
+            simulator.getSecurityService().getMetrics().unregister();
+        }
+    }
+
+    private static Duration parseDuration(String value) {
+        long amount = Long.parseLong(value.substring(0, value.length() - 1));
+        switch (value.charAt(value.length() - 1)) {
+            case 's':
+                return Duration.ofSeconds(amount);
+            case 'm':
+                return Duration.ofMinutes(amount);
+            case 'h':
+                return Duration.ofHours(amount);
+            default:
+                throw new IllegalArgumentException("Expected a time like 90s, 30m or 8h but got " + value);
+        }
+    }
+
+    /**
+     * Time as the simulation sees it.
+     */
+    public interface Clock {
+        /**
+         * Real time.
+         */
+        Clock SYSTEM = new Clock() {
+            @Override
+            public long nanoTime() {
+                return System.nanoTime();
+            }
+
+            @Override
+            public void sleep(long nanos) {
+                LockSupport.parkNanos(nanos);
+            }
+        };
+
+        /**
+         * @return a {@link System#nanoTime()}-like timestamp
+         */
+        long nanoTime();
+
+        /**
+         * Waits for up to the given time. May return early, for example when the simulation stops and
+         * unparks the thread.
+         */
+        void sleep(long nanos);
+    }
+
+    /**
+     * Shape of the simulated household. Start from {@link #DEFAULT} and change what matters.
+     */
+    public static final class Settings {
+        public static final Settings DEFAULT = new Settings(1_000, 1_000, 1.0, 4, 2, 0.01, 5_000, 0,
+                CameraFramePipeline.DEFAULT_MAX_WAIT_MILLIS, 1, Math.max(1, Runtime.getRuntime().availableProcessors() / 2), 1);
+
+        private final int sensors;
+        private final double sensorEventsPerSecond;
+        private final double sensorSkew;
+        private final int cameras;
+        private final double framesPerSecond;
+        private final double catProbability;
+        private final long classificationMicros;
+        private final int frameBatchSize;
+        private final long frameBatchWaitMillis;
+        private final double armingChangesPerMinute;
+        private final int drivers;
+        private final long seed;
+
+        private Settings(int sensors, double sensorEventsPerSecond, double sensorSkew, int cameras,
+                         double framesPerSecond, double catProbability, long classificationMicros,
+                         int frameBatchSize, long frameBatchWaitMillis, double armingChangesPerMinute,
+                         int drivers, long seed) {
+            if (sensors < 0 || sensorEventsPerSecond < 0 || sensorSkew < 0 || cameras < 0 || framesPerSecond < 0
+                    || classificationMicros < 0 || frameBatchSize < 0 || frameBatchWaitMillis < 0
+                    || armingChangesPerMinute < 0) {
+                throw new IllegalArgumentException("Simulation settings can't be negative");
+            }
+            if (catProbability < 0 || catProbability > 1) {
+                throw new IllegalArgumentException("The cat probability must be between 0 and 1");
+            }
+            if (drivers < 1) {
+                throw new IllegalArgumentException("At least one driver thread is needed");
+            }
+            this.sensors = sensors;
+            this.sensorEventsPerSecond = sensorEventsPerSecond;
+            this.sensorSkew = sensorSkew;
+            this.cameras = cameras;
+            this.framesPerSecond = framesPerSecond;
+            this.catProbability = catProbability;
+            this.classificationMicros = classificationMicros;
+            this.frameBatchSize = frameBatchSize;
+            this.frameBatchWaitMillis = frameBatchWaitMillis;
+            this.armingChangesPerMinute = armingChangesPerMinute;
+            this.drivers = drivers;
+            this.seed = seed;
+        }
+
+        public Settings withSensors(int sensors) {
+            return new Settings(sensors, sensorEventsPerSecond, sensorSkew, cameras, framesPerSecond,
+                    catProbability, classificationMicros, frameBatchSize, frameBatchWaitMillis, armingChangesPerMinute,
+                    drivers, seed);
+        }
+
+        /**
+         * @param eventsPerSecond Sensor events per second, over all sensors.
+         * @param skew Exponent of the Zipf distribution the sensors are picked from; 0 picks them uniformly.
+         */
+        public Settings withSensorEvents(double eventsPerSecond, double skew) {
+            return new Settings(sensors, eventsPerSecond, skew, cameras, framesPerSecond,
+                    catProbability, classificationMicros, frameBatchSize, frameBatchWaitMillis, armingChangesPerMinute,
+                    drivers, seed);
+        }
+
+        /**
+         * @param framesPerSecond Frames every camera sends per second.
+         */
+        public Settings withCameras(int cameras, double framesPerSecond) {
+            return new Settings(sensors, sensorEventsPerSecond, sensorSkew, cameras, framesPerSecond,
+                    catProbability, classificationMicros, frameBatchSize, frameBatchWaitMillis, armingChangesPerMinute,
+                    drivers, seed);
+        }
+
+        /**
+         * @param catProbability Chance between 0 and 1 that a frame shows a cat.
+         * @param classificationMicros How long the scripted image service takes per frame.
+         */
+        public Settings withImages(double catProbability, long classificationMicros) {
+            return new Settings(sensors, sensorEventsPerSecond, sensorSkew, cameras, framesPerSecond,
+                    catProbability, classificationMicros, frameBatchSize, frameBatchWaitMillis, armingChangesPerMinute,
+                    drivers, seed);
+        }
+
+        /**
+         * Sends the frames through a {@link CameraFramePipeline} instead of one at a time.
+         * @param batchSize Most frames classified together; 0 sends every frame on its own.
+         * @param maxWaitMillis Longest a frame waits for others to share its batch.
+         */
+        public Settings withFrameBatches(int batchSize, long maxWaitMillis) {
+            return new Settings(sensors, sensorEventsPerSecond, sensorSkew, cameras, framesPerSecond,
+                    catProbability, classificationMicros, batchSize, maxWaitMillis, armingChangesPerMinute,
+                    drivers, seed);
+        }
+
+        public Settings withArmingChanges(double perMinute) {
+            return new Settings(sensors, sensorEventsPerSecond, sensorSkew, cameras, framesPerSecond,
+                    catProbability, classificationMicros, frameBatchSize, frameBatchWaitMillis, perMinute,
+                    drivers, seed);
+        }
+
+        /**
+         * @param drivers Threads sending sensor events, which share the event rate.
+         */
+        public Settings withDrivers(int drivers) {
+            return new Settings(sensors, sensorEventsPerSecond, sensorSkew, cameras, framesPerSecond,
+                    catProbability, classificationMicros, frameBatchSize, frameBatchWaitMillis, armingChangesPerMinute,
+                    drivers, seed);
+        }
+
+        public Settings withSeed(long seed) {
+            return new Settings(sensors, sensorEventsPerSecond, sensorSkew, cameras, framesPerSecond,
+                    catProbability, classificationMicros, frameBatchSize, frameBatchWaitMillis, armingChangesPerMinute,
+                    drivers, seed);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("sensors=%d events=%.0f/s skew=%.2f cameras=%d fps=%.1f cats=%.3f classify=%dus"
+                            + " batch=%d batchwait=%dms arming=%.1f/min drivers=%d seed=%d", sensors,
+                    sensorEventsPerSecond, sensorSkew, cameras, framesPerSecond, catProbability, classificationMicros,
+                    frameBatchSize, frameBatchWaitMillis, armingChangesPerMinute, drivers, seed);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.udacity.securityservice.simulation;
+
+import com.udacity.securityservice.metrics.LatencySnapshot;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What a simulation measured over one reporting interval, or over the whole run for the final
+ * report. Latencies of sensor events are counted from when the event was due, not from when the
+ * driver got round to it, so a service that falls behind shows up as latency rather than as a
+ * quietly lower event rate.
+ */
+public final class SimulationReport {
+
+    private static final double BYTES_PER_MEGABYTE = 1024.0 * 1024.0;
+
+    private final long elapsedNanos;
+    private final long intervalNanos;
+    private final long sensorEvents;
+    private final long frames;
+    private final long alarms;
+    private final long alarmTransitions;
+    private final LatencySnapshot sensorEventLatency;
+    private final LatencySnapshot transitionLatency;
+    private final LatencySnapshot frameLatency;
+    private final LatencySnapshot gcPauses;
+    private final long heapUsedBytes;
+    private final long heapAfterGcBytes;
+    private final long heapGrowthBytes;
+
+    SimulationReport(long elapsedNanos, long intervalNanos, long sensorEvents, long frames, long alarms,
+                     long alarmTransitions, LatencySnapshot sensorEventLatency, LatencySnapshot transitionLatency,
+                     LatencySnapshot frameLatency, LatencySnapshot gcPauses, long heapUsedBytes,
+                     long heapAfterGcBytes, long heapGrowthBytes) {
+        this.elapsedNanos = elapsedNanos;
+        this.intervalNanos = intervalNanos;
+        this.sensorEvents = sensorEvents;
+        this.frames = frames;
+        this.alarms = alarms;
+        this.alarmTransitions = alarmTransitions;
+        this.sensorEventLatency = sensorEventLatency;
+        this.transitionLatency = transitionLatency;
+        this.frameLatency = frameLatency;
+        this.gcPauses = gcPauses;
+        this.heapUsedBytes = heapUsedBytes;
+        this.heapAfterGcBytes = heapAfterGcBytes;
+        this.heapGrowthBytes = heapGrowthBytes;
+    }
+
+    /**
+     * @return time since the simulation started
+     */
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    /**
+     * @return length of the interval this report covers
+     */
+    public long getIntervalMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(intervalNanos);
+    }
+
+    public long getSensorEvents() {
+        return sensorEvents;
+    }
+
+    /**
+     * @return camera frames sent, including those a newer frame of the camera replaced in a batch
+     */
+    public long getFrames() {
+        return frames;
+    }
+
+    public double getSensorEventsPerSecond() {
+        return perSecond(sensorEvents);
+    }
+
+    public double getFramesPerSecond() {
+        return perSecond(frames);
+    }
+
+    /**
+     * @return how often the alarm went off
+     */
+    public long getAlarms() {
+        return alarms;
+    }
+
+    /**
+     * @return how often the alarm status changed at all
+     */
+    public long getAlarmTransitions() {
+        return alarmTransitions;
+    }
+
+    /**
+     * @return time from a sensor event being due until the service had applied it
+     */
+    public LatencySnapshot getSensorEventLatency() {
+        return sensorEventLatency;
+    }
+
+    /**
+     * @return the sensor event latency of only those events that changed the alarm status
+     */
+    public LatencySnapshot getTransitionLatency() {
+        return transitionLatency;
+    }
+
+    /**
+     * @return time from a camera frame being due until the service had acted on its verdict
+     */
+    public LatencySnapshot getFrameLatency() {
+        return frameLatency;
+    }
+
+    public LatencySnapshot getGcPauses() {
+        return gcPauses;
+    }
+
+    public long getHeapUsedBytes() {
+        return heapUsedBytes;
+    }
+
+    /**
+     * @return heap still in use after the last collection
+     */
+    public long getHeapAfterGcBytes() {
+        return heapAfterGcBytes;
+    }
+
+    /**
+     * @return how much the heap in use after collection has grown since the end of the warm up
+     */
+    public long getHeapGrowthBytes() {
+        return heapGrowthBytes;
+    }
+
+    private double perSecond(long count) {
+        return intervalNanos == 0 ? 0 : count / (intervalNanos / 1e9);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("t=%ds events=%d (%.0f/s) frames=%d (%.0f/s) alarms=%d transitions=%d%n"
+                        + "  sensor events: %s%n  transitions:   %s%n  frames:        %s%n"
+                        + "  gc pauses:     %s%n  heap used=%.1f MB after gc=%.1f MB growth=%+.1f MB",
+                TimeUnit.NANOSECONDS.toSeconds(elapsedNanos), sensorEvents, getSensorEventsPerSecond(), frames,
+                getFramesPerSecond(), alarms, alarmTransitions, sensorEventLatency, transitionLatency, frameLatency,
+                gcPauses, heapUsedBytes / BYTES_PER_MEGABYTE, heapAfterGcBytes / BYTES_PER_MEGABYTE,
+                heapGrowthBytes / BYTES_PER_MEGABYTE);
+    }
+}
@@ -3,7 +3,11 @@ module com.udacity.securityservice {
     requires com.google.common;
     requires com.google.gson;
     requires java.prefs;
+    requires java.management;
+    requires jdk.jfr;
+    requires org.slf4j;
     requires com.udacity.imageservice;
     requires com.miglayout.swing;
     opens com.udacity.securityservice.data to com.google.gson;
+    exports com.udacity.securityservice.metrics;
 }
\ No newline at end of file
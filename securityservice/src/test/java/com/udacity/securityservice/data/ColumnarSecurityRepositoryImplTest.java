@@ -0,0 +1,108 @@
+package com.udacity.securityservice.data;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ColumnarSecurityRepositoryImplTest {
+
+    private ColumnarSecurityRepositoryImpl repository;
+
+    @BeforeEach
+    void init() {
+        repository = new ColumnarSecurityRepositoryImpl();
+    }
+
+    @Test
+    void given_sensorFromRepository_when_setActive_then_repositoryCountsIt() {
+        // Given
+        Sensor sensor = new Sensor("door", SensorType.DOOR);
+        repository.addSensor(sensor);
+
+        // When
+        repository.getSensor(sensor.getSensorId()).setActive(true);
+
+        // Then
+        assertTrue(repository.hasActiveSensors());
+        assertTrue(repository.getSensor(sensor.getSensorId()).getActive());
+        assertEquals(sensor, repository.getSensors().iterator().next());
+    }
+
+    @Test
+    void given_removedSensor_when_viewUpdated_then_sensorStaysRemoved() {
+        // Given
+        Sensor sensor = new Sensor("door", SensorType.DOOR);
+        repository.addSensor(sensor);
+        Sensor view = repository.getSensor(sensor.getSensorId());
+        repository.removeSensor(sensor);
+
+        // When
+        view.setActive(true);
+
+        // Then
+        assertNull(repository.getSensor(sensor.getSensorId()));
+        assertFalse(repository.hasActiveSensors());
+        assertTrue(view.getActive());
+    }
+
+    @Test
+    void given_sensors_when_removedWhileIteratingSnapshot_then_noException() {
+        // Given
+        for (int i = 0; i < 10; i++) {
+            repository.addSensor(new Sensor("sensor " + i, SensorType.WINDOW));
+        }
+
+        // When
+        List<Sensor> seen = new ArrayList<>();
+        for (Sensor sensor : repository.getSensors()) {
+            seen.add(sensor);
+            repository.removeSensor(sensor);
+        }
+
+        // Then
+        assertEquals(10, seen.size());
+        assertTrue(repository.getSensors().isEmpty());
+    }
+
+    @Test
+    void given_viewsToggledOnAnotherThread_when_iterating_then_readsStayConsistent() throws InterruptedException {
+        // Given
+        for (int i = 0; i < 1_000; i++) {
+            repository.addSensor(new Sensor("sensor " + i, SensorType.MOTION));
+        }
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            try {
+                for (int round = 0; round < 20; round++) {
+                    for (Sensor sensor : repository.getSensors()) {
+                        sensor.setActive(!sensor.getActive());
+                        if (round % 5 == 0) {
+                            repository.removeSensor(sensor);
+                            repository.addSensor(new Sensor(sensor.getName(), sensor.getSensorType()));
+                        }
+                    }
+                }
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+
+        // When
+        writer.start();
+        while (writer.isAlive()) {
+            for (Sensor sensor : repository.getSensors()) {
+                assertNotNull(sensor.getName());
+                assertEquals(SensorType.MOTION, sensor.getSensorType());
+            }
+        }
+        writer.join();
+
+        // Then
+        assertNull(failure.get());
+        assertEquals(1_000, repository.getSensors().size());
+    }
+}
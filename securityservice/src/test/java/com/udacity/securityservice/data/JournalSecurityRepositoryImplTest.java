@@ -0,0 +1,153 @@
+package com.udacity.securityservice.data;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class JournalSecurityRepositoryImplTest {
+
+    private Path directory;
+
+    @BeforeEach
+    void init() throws IOException {
+        directory = Files.createTempDirectory("security-journal");
+    }
+
+    @AfterEach
+    void cleanUp() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Test
+    void given_changes_when_reopened_then_stateIsRecovered() {
+        // Given
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        Sensor window = new Sensor("window", SensorType.WINDOW);
+        try (JournalSecurityRepositoryImpl repository = new JournalSecurityRepositoryImpl(directory)) {
+            repository.addSensor(door);
+            repository.addSensor(window);
+            door.setActive(true);
+            door.setName("front door");
+            repository.updateSensor(door);
+            repository.removeSensor(window);
+            repository.setArmingStatus(ArmingStatus.ARMED_AWAY);
+            repository.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+        }
+
+        // When
+        try (JournalSecurityRepositoryImpl repository = new JournalSecurityRepositoryImpl(directory)) {
+            // Then
+            assertEquals(1, repository.getSensors().size());
+            Sensor recovered = repository.getSensors().iterator().next();
+            assertEquals(door.getSensorId(), recovered.getSensorId());
+            assertEquals("front door", recovered.getName());
+            assertEquals(SensorType.DOOR, recovered.getSensorType());
+            assertTrue(recovered.getActive());
+            assertEquals(ArmingStatus.ARMED_AWAY, repository.getArmingStatus());
+            assertEquals(AlarmStatus.PENDING_ALARM, repository.getAlarmStatus());
+        }
+    }
+
+    @Test
+    void given_batchUpdate_when_reopened_then_everySensorInTheBatchIsRecovered() {
+        // Given
+        List<Sensor> batch = new ArrayList<>();
+        try (JournalSecurityRepositoryImpl repository = new JournalSecurityRepositoryImpl(directory)) {
+            for (int i = 0; i < 5_000; i++) {
+                Sensor sensor = new Sensor("sensor " + i, SensorType.MOTION);
+                repository.addSensor(sensor);
+                sensor.setActive(i % 2 == 0);
+                batch.add(sensor);
+            }
+            repository.updateSensors(batch);
+            repository.setAlarmStatus(AlarmStatus.ALARM);
+        }
+
+        // When
+        try (JournalSecurityRepositoryImpl repository = new JournalSecurityRepositoryImpl(directory)) {
+            // Then
+            assertEquals(batch.size(), repository.getSensors().size());
+            for (Sensor sensor : batch) {
+                assertEquals(sensor.getActive(), repository.getSensor(sensor.getSensorId()).getActive());
+            }
+            assertEquals(AlarmStatus.ALARM, repository.getAlarmStatus());
+        }
+    }
+
+    @Test
+    void given_compactedJournal_when_reopened_then_snapshotAndTailAreRecovered() throws IOException {
+        // Given
+        Sensor motion = new Sensor("motion", SensorType.MOTION);
+        try (JournalSecurityRepositoryImpl repository = new JournalSecurityRepositoryImpl(directory, Integer.MAX_VALUE)) {
+            for (int i = 0; i < 100; i++) {
+                repository.addSensor(new Sensor("sensor " + i, SensorType.WINDOW));
+            }
+            repository.compact();
+            repository.addSensor(motion);
+            repository.setArmingStatus(ArmingStatus.ARMED_HOME);
+        }
+
+        // When
+        try (JournalSecurityRepositoryImpl repository = new JournalSecurityRepositoryImpl(directory)) {
+            // Then
+            assertEquals(101, repository.getSensors().size());
+            assertTrue(repository.getSensors().contains(motion));
+            assertEquals(ArmingStatus.ARMED_HOME, repository.getArmingStatus());
+        }
+        try (Stream<Path> journals = Files.list(directory)) {
+            assertEquals(1, journals.filter(p -> p.getFileName().toString().endsWith(".log")).count());
+        }
+    }
+
+    @Test
+    void given_tornRecord_when_reopened_then_intactRecordsAreRecovered() throws IOException {
+        // Given
+        try (JournalSecurityRepositoryImpl repository = new JournalSecurityRepositoryImpl(directory)) {
+            repository.addSensor(new Sensor("door", SensorType.DOOR));
+            repository.addSensor(new Sensor("window", SensorType.WINDOW));
+        }
+        Path journal = directory.resolve("journal-0.log");
+        try (FileChannel c = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+            c.truncate(c.size() - 3);
+        }
+
+        // When
+        try (JournalSecurityRepositoryImpl repository = new JournalSecurityRepositoryImpl(directory)) {
+            repository.addSensor(new Sensor("motion", SensorType.MOTION));
+        }
+        try (JournalSecurityRepositoryImpl repository = new JournalSecurityRepositoryImpl(directory)) {
+            // Then
+            assertEquals(2, repository.getSensors().size());
+        }
+    }
+
+    @Test
+    void given_manySensors_when_backgroundCompactionRuns_then_everySensorIsRecovered() {
+        // Given
+        int count = 100_000;
+        try (JournalSecurityRepositoryImpl repository = new JournalSecurityRepositoryImpl(directory, 10_000)) {
+            for (int i = 0; i < count; i++) {
+                repository.addSensor(new Sensor("sensor " + i, SensorType.values()[i % 3]));
+            }
+        }
+
+        // When
+        try (JournalSecurityRepositoryImpl repository = new JournalSecurityRepositoryImpl(directory)) {
+            // Then
+            assertEquals(count, repository.getSensors().size());
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.udacity.securityservice.data;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+
+public class PretendDatabaseSecurityRepositoryImplTest {
+
+    // long enough that a test never sees the delayed flush
+    private static final long NEVER_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private Preferences node;
+
+    @BeforeEach
+    void init() {
+        node = Preferences.userRoot().node("udasecurity-test-" + UUID.randomUUID());
+    }
+
+    @AfterEach
+    void cleanUp() throws BackingStoreException {
+        node.removeNode();
+    }
+
+    @Test
+    void given_writeBehind_when_changedRepeatedly_then_onlyTheLatestStateIsWrittenOnFlush() {
+        // Given
+        PretendDatabaseSecurityRepositoryImpl repository =
+                new PretendDatabaseSecurityRepositoryImpl(node, NEVER_MILLIS, 100, false);
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        repository.addSensor(door);
+        door.setActive(true);
+        repository.updateSensor(door);
+        door.setName("front door");
+        repository.updateSensor(door);
+        repository.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+        repository.setAlarmStatus(AlarmStatus.ALARM);
+        assertNull(node.get("ALARM_STATUS", null));
+        assertNull(sensorPrefs().getByteArray(door.getSensorId().toString(), null));
+
+        // When
+        repository.flush();
+
+        // Then
+        assertEquals(AlarmStatus.ALARM.toString(), node.get("ALARM_STATUS", null));
+        Sensor stored = SensorCodec.decode(sensorPrefs().getByteArray(door.getSensorId().toString(), null));
+        assertEquals("front door", stored.getName());
+        assertTrue(stored.isActive());
+        repository.close();
+    }
+
+    @Test
+    void given_writeBehind_when_maxPendingWritesReached_then_flushedWithoutWaitingForTheDelay() throws InterruptedException {
+        // Given
+        PretendDatabaseSecurityRepositoryImpl repository =
+                new PretendDatabaseSecurityRepositoryImpl(node, NEVER_MILLIS, 3, false);
+        repository.setArmingStatus(ArmingStatus.ARMED_HOME);
+        repository.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+        assertNull(node.get("ARMING_STATUS", null));
+
+        // When
+        repository.setAlarmStatus(AlarmStatus.ALARM);
+
+        // Then
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (node.get("ALARM_STATUS", null) == null && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(AlarmStatus.ALARM.toString(), node.get("ALARM_STATUS", null));
+        assertEquals(ArmingStatus.ARMED_HOME.toString(), node.get("ARMING_STATUS", null));
+        repository.close();
+    }
+
+    @Test
+    void given_pendingWrites_when_closed_then_theyArePersisted() {
+        // Given
+        PretendDatabaseSecurityRepositoryImpl repository =
+                new PretendDatabaseSecurityRepositoryImpl(node, NEVER_MILLIS, 100, false);
+        Sensor window = new Sensor("window", SensorType.WINDOW);
+        Sensor motion = new Sensor("motion", SensorType.MOTION);
+        repository.addSensor(window);
+        repository.addSensor(motion);
+        repository.removeSensor(motion);
+        repository.setArmingStatus(ArmingStatus.ARMED_AWAY);
+
+        // When
+        repository.close();
+
+        // Then
+        PretendDatabaseSecurityRepositoryImpl reopened = new PretendDatabaseSecurityRepositoryImpl(node, 0, 1, false);
+        assertEquals(1, reopened.getSensors().size());
+        assertEquals(window, reopened.getSensors().iterator().next());
+        assertEquals(ArmingStatus.ARMED_AWAY, reopened.getArmingStatus());
+    }
+
+    @Test
+    void given_sensors_when_stored_then_eachHasItsOwnKey() throws BackingStoreException {
+        // Given
+        PretendDatabaseSecurityRepositoryImpl repository = new PretendDatabaseSecurityRepositoryImpl(node, 0, 1, false);
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        Sensor window = new Sensor("window", SensorType.WINDOW);
+        repository.addSensor(door);
+        repository.addSensor(window);
+
+        // When
+        window.setActive(true);
+        repository.updateSensor(window);
+        repository.removeSensor(door);
+
+        // Then
+        assertArrayEquals(new String[]{window.getSensorId().toString()}, sensorPrefs().keys());
+        Sensor stored = SensorCodec.decode(sensorPrefs().getByteArray(window.getSensorId().toString(), null));
+        assertEquals("window", stored.getName());
+        assertTrue(stored.isActive());
+        assertNull(node.get("SENSORS", null));
+    }
+
+    @Test
+    void given_legacySensorBlob_when_loaded_then_sensorsAreMovedToTheirOwnKeys() throws BackingStoreException {
+        // Given
+        UUID door = UUID.randomUUID();
+        UUID motion = UUID.randomUUID();
+        node.put("SENSORS", "[{\"sensorId\":\"" + door + "\",\"name\":\"door\",\"active\":true,\"sensorType\":\"DOOR\"},"
+                + "{\"sensorId\":\"" + motion + "\",\"name\":\"motion\",\"active\":false,\"sensorType\":\"MOTION\"}]");
+
+        // When
+        PretendDatabaseSecurityRepositoryImpl repository = new PretendDatabaseSecurityRepositoryImpl(node, 0, 1, false);
+
+        // Then
+        assertNull(node.get("SENSORS", null));
+        assertEquals(2, sensorPrefs().keys().length);
+        Sensor migratedDoor = SensorCodec.decode(sensorPrefs().getByteArray(door.toString(), null));
+        assertEquals("door", migratedDoor.getName());
+        assertEquals(SensorType.DOOR, migratedDoor.getSensorType());
+        assertTrue(migratedDoor.isActive());
+        Sensor migratedMotion = SensorCodec.decode(sensorPrefs().getByteArray(motion.toString(), null));
+        assertEquals(SensorType.MOTION, migratedMotion.getSensorType());
+        assertFalse(migratedMotion.isActive());
+        assertEquals(2, repository.getSensors().size());
+        assertTrue(repository.hasActiveSensors());
+    }
+
+    @Test
+    void given_sensorsStillLoading_when_readOrChanged_then_theCallWaitsForTheLoad() throws Exception {
+        // Given
+        Sensor door = new Sensor(UUID.randomUUID(), "door", SensorType.DOOR, true);
+        sensorPrefs().putByteArray(door.getSensorId().toString(), SensorCodec.encode(door));
+        List<Runnable> loads = new ArrayList<>();
+        PretendDatabaseSecurityRepositoryImpl repository = new PretendDatabaseSecurityRepositoryImpl(node, 0, 1, loads::add);
+        Sensor window = new Sensor("window", SensorType.WINDOW);
+
+        // When
+        CompletableFuture<Boolean> active = CompletableFuture.supplyAsync(repository::hasActiveSensors);
+        CompletableFuture<Void> added = CompletableFuture.runAsync(() -> repository.addSensor(window));
+        Thread.sleep(50);
+        assertFalse(active.isDone());
+        assertFalse(added.isDone());
+        loads.forEach(Runnable::run);
+
+        // Then
+        assertTrue(active.get(5, TimeUnit.SECONDS));
+        added.get(5, TimeUnit.SECONDS);
+        assertEquals(2, repository.getSensors().size());
+        assertTrue(repository.getSensors().contains(door));
+        assertTrue(repository.getSensors().contains(window));
+    }
+
+    @Test
+    void given_unreadableSensor_when_loaded_then_itIsSkippedAndChangesStillWork() throws Exception {
+        // Given
+        Sensor door = new Sensor(UUID.randomUUID(), "door", SensorType.DOOR, false);
+        sensorPrefs().putByteArray(door.getSensorId().toString(), SensorCodec.encode(door));
+        sensorPrefs().put(UUID.randomUUID().toString(), "{not a sensor");
+        PretendDatabaseSecurityRepositoryImpl repository = new PretendDatabaseSecurityRepositoryImpl(node, 0, 1, true);
+
+        // When
+        repository.whenSensorsLoaded().get(5, TimeUnit.SECONDS);
+        Sensor window = new Sensor("window", SensorType.WINDOW);
+        repository.addSensor(window);
+
+        // Then
+        assertEquals(2, repository.getSensors().size());
+        assertTrue(repository.getSensors().contains(door));
+        assertEquals(window, repository.getSensor(window.getSensorId()));
+    }
+
+    private Preferences sensorPrefs() {
+        return node.node("sensors");
+    }
+}
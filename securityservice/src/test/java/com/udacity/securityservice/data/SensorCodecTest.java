@@ -0,0 +1,94 @@
+package com.udacity.securityservice.data;
+
+import static org.junit.jupiter.api.Assertions.*;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+public class SensorCodecTest {
+
+    @Test
+    void given_sensor_when_encodedAndDecoded_then_allFieldsSurvive() {
+        // Given
+        for (SensorType type : SensorType.values()) {
+            for (boolean active : new boolean[]{true, false}) {
+                Sensor sensor = new Sensor("K\u00fcchenfenster \uD83D\uDC31 " + type, type);
+                sensor.setActive(active);
+
+                // When
+                Sensor decoded = SensorCodec.decode(SensorCodec.encode(sensor));
+
+                // Then
+                assertEquals(sensor.getSensorId(), decoded.getSensorId());
+                assertEquals(sensor.getName(), decoded.getName());
+                assertEquals(type, decoded.getSensorType());
+                assertEquals(active, decoded.getActive());
+            }
+        }
+    }
+
+    @Test
+    void given_jsonFromOlderVersion_when_decoded_then_sensorIsRead() {
+        // Given
+        Sensor sensor = new Sensor("door", SensorType.DOOR);
+        sensor.setActive(true);
+        byte[] json = new Gson().toJson(sensor).getBytes(StandardCharsets.UTF_8);
+
+        // When
+        Sensor decoded = SensorCodec.decode(json);
+
+        // Then
+        assertEquals(sensor.getSensorId(), decoded.getSensorId());
+        assertTrue(decoded.getActive());
+    }
+
+    @Test
+    void given_statuses_when_encodedAndDecoded_then_valuesSurvive() {
+        for (AlarmStatus status : AlarmStatus.values()) {
+            assertEquals(status, SensorCodec.decodeAlarmStatus(SensorCodec.encode(status)));
+        }
+        for (ArmingStatus status : ArmingStatus.values()) {
+            assertEquals(status, SensorCodec.decodeArmingStatus(SensorCodec.encode(status)));
+        }
+    }
+
+    @Test
+    void given_manySensors_when_encoded_then_binaryIsSmallerThanJson() {
+        // Given
+        Set<Sensor> sensors = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            sensors.add(new Sensor("Sensor " + i, SensorType.values()[i % 3]));
+        }
+        int capacity = sensors.stream().mapToInt(SensorCodec::maxEncodedSize).sum();
+        ByteBuffer buffer = ByteBuffer.allocate(capacity);
+
+        // When
+        sensors.forEach(s -> SensorCodec.write(s, buffer));
+        int jsonBytes = new Gson().toJson(sensors).getBytes(StandardCharsets.UTF_8).length;
+
+        // Then
+        // the id, one byte of type and flag, and the short ASCII name behind its one byte length
+        int expected = sensors.stream().mapToInt(s -> 16 + 1 + 1 + s.getName().length()).sum();
+        assertEquals(expected, buffer.position());
+        // {"sensorId":"<id>","name":"<name>","active":false,"sensorType":"<type>"}: 87 bytes with the id,
+        // plus the name, the flag and the type, comma separated in brackets
+        int expectedJson = sensors.stream().mapToInt(s -> 87 + s.getName().length() + "false".length()
+                + s.getSensorType().toString().length()).sum() + sensors.size() + 1;
+        assertEquals(expectedJson, jsonBytes);
+        // so a window named "Sensor 1234" takes 29 bytes as binary and 109 as JSON
+        assertEquals(29, SensorCodec.encode(new Sensor("Sensor 1234", SensorType.WINDOW)).length - 1);
+        assertEquals(109, new Gson().toJson(new Sensor("Sensor 1234", SensorType.WINDOW))
+                .getBytes(StandardCharsets.UTF_8).length);
+        assertTrue(buffer.position() * 3 < jsonBytes);
+
+        buffer.flip();
+        for (int i = 0; i < sensors.size(); i++) {
+            assertTrue(sensors.contains(SensorCodec.read(buffer)));
+        }
+        assertFalse(buffer.hasRemaining());
+    }
+}
@@ -0,0 +1,164 @@
+package com.udacity.securityservice.data;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+public class SensorStoreTest {
+
+    private SensorStore store;
+
+    @BeforeEach
+    void init() {
+        store = new SensorStore();
+    }
+
+    @Test
+    void given_renamedSensor_when_put_then_sortedViewHasOneEntryInNewOrder() {
+        // Given
+        Sensor a = new Sensor("a", SensorType.DOOR);
+        Sensor b = new Sensor("b", SensorType.DOOR);
+        store.put(a);
+        store.put(b);
+
+        // When
+        a.setName("c");
+        store.put(a);
+
+        // Then
+        List<Sensor> sorted = new ArrayList<>(store.view());
+        assertEquals(List.of(b, a), sorted);
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    void given_activeChanges_when_putAndRemove_then_activeCountFollows() {
+        // Given
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        Sensor window = new Sensor("window", SensorType.WINDOW);
+        store.put(door);
+        store.put(window);
+        assertFalse(store.hasActiveSensors());
+
+        // When
+        door.setActive(true);
+        store.put(door);
+        window.setActive(true);
+        store.put(window);
+        store.put(window);
+
+        // Then
+        assertEquals(2, store.getActiveCount());
+
+        door.setActive(false);
+        store.put(door);
+        assertEquals(1, store.getActiveCount());
+
+        store.remove(window.getSensorId());
+        assertEquals(0, store.getActiveCount());
+        assertFalse(store.hasActiveSensors());
+    }
+
+    @Test
+    void given_sensorId_when_get_then_sensorIsFound() {
+        // Given
+        Sensor motion = new Sensor("motion", SensorType.MOTION);
+        store.put(motion);
+
+        // Then
+        assertSame(motion, store.get(motion.getSensorId()));
+        assertTrue(store.view().contains(motion));
+        assertNull(store.remove(new Sensor("other", SensorType.MOTION).getSensorId()));
+    }
+
+    @Test
+    void given_sensorsInViewOrder_when_putAll_then_theyAreStoredAndCounted() {
+        // Given
+        List<Sensor> sensors = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            sensors.add(new Sensor(UUID.randomUUID(), "sensor " + i, SensorType.values()[i % 3], i % 4 == 0));
+        }
+        Collections.sort(sensors);
+
+        // When
+        store.putAll(sensors);
+
+        // Then
+        assertEquals(sensors, new ArrayList<>(store.view()));
+        assertEquals(25, store.getActiveCount());
+        assertSame(sensors.get(10), store.get(sensors.get(10).getSensorId()));
+        Sensor renamed = sensors.get(0);
+        renamed.setName("zz");
+        store.put(renamed);
+        assertEquals(renamed, new ArrayList<>(store.view()).get(99));
+    }
+
+    @Test
+    void given_sensorsOutOfOrderOrRepeated_when_putAll_then_theyAreStoredOneByOne() {
+        // Given
+        Sensor b = new Sensor(UUID.randomUUID(), "b", SensorType.DOOR, true);
+        Sensor a = new Sensor(UUID.randomUUID(), "a", SensorType.DOOR, false);
+        Sensor c = new Sensor(UUID.randomUUID(), "c", SensorType.DOOR, true);
+        Sensor cAgain = new Sensor(c.getSensorId(), "c", SensorType.DOOR, false);
+
+        // When
+        store.putAll(List.of(b, a, c, cAgain));
+
+        // Then
+        assertEquals(List.of(a, b, c), new ArrayList<>(store.view()));
+        assertEquals(1, store.getActiveCount());
+        assertSame(cAgain, store.get(c.getSensorId()));
+    }
+
+    @Test
+    void given_snapshot_when_storeChangesWhileIterating_then_itKeepsItsSensors() {
+        // Given
+        Sensor a = new Sensor("a", SensorType.DOOR);
+        Sensor b = new Sensor("b", SensorType.DOOR);
+        store.put(a);
+        store.put(b);
+        Set<Sensor> snapshot = store.snapshot();
+
+        // When
+        List<Sensor> seen = new ArrayList<>();
+        for (Sensor sensor : snapshot) {
+            seen.add(sensor);
+            store.remove(a.getSensorId());
+            store.put(new Sensor("c", SensorType.WINDOW));
+        }
+
+        // Then
+        assertEquals(List.of(a, b), seen);
+        assertEquals(2, snapshot.size());
+        assertTrue(snapshot.contains(a));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.add(a));
+        List<Sensor> now = new ArrayList<>(store.snapshot());
+        assertEquals(b, now.get(0));
+        assertEquals("c", now.get(1).getName());
+    }
+
+    @Test
+    void given_onlyActiveFlagsChange_when_snapshotTakenAgain_then_itIsReused() {
+        // Given
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        store.put(door);
+        Set<Sensor> snapshot = store.snapshot();
+
+        // When
+        door.setActive(true);
+        store.put(door);
+        Set<Sensor> afterActivation = store.snapshot();
+        door.setName("front door");
+        store.put(door);
+
+        // Then
+        assertSame(snapshot, afterActivation);
+        assertNotSame(snapshot, store.snapshot());
+    }
+}
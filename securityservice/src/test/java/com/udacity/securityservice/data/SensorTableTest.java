@@ -0,0 +1,129 @@
+package com.udacity.securityservice.data;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+public class SensorTableTest {
+
+    private SensorTable table;
+
+    @BeforeEach
+    void init() {
+        table = new SensorTable(new Object());
+    }
+
+    @Test
+    void given_sensor_when_put_then_viewReadsAndWritesTheRow() {
+        // Given
+        Sensor sensor = new Sensor("door", SensorType.DOOR);
+
+        // When
+        Sensor row = table.put(sensor);
+        row.setActive(true);
+        row.setName("front door");
+
+        // Then
+        Sensor found = table.get(sensor.getSensorId());
+        assertEquals(sensor, found);
+        assertEquals("front door", found.getName());
+        assertEquals(SensorType.DOOR, found.getSensorType());
+        assertTrue(found.getActive());
+        assertEquals(1, table.getActiveCount());
+    }
+
+    @Test
+    void given_randomPutsAndRemoves_when_compared_then_tableMatchesMap() {
+        // Given
+        Random random = new Random(42);
+        Map<UUID, Boolean> expected = new HashMap<>();
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            ids.add(UUID.randomUUID());
+        }
+
+        // When
+        for (int i = 0; i < 50_000; i++) {
+            UUID id = ids.get(random.nextInt(ids.size()));
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(id) != null, table.remove(id));
+            } else {
+                boolean active = random.nextBoolean();
+                table.put(id, "sensor", SensorType.WINDOW, active);
+                expected.put(id, active);
+            }
+        }
+
+        // Then
+        assertEquals(expected.size(), table.size());
+        assertEquals(expected.values().stream().filter(a -> a).count(), table.getActiveCount());
+        for (UUID id : ids) {
+            Sensor row = table.get(id);
+            assertEquals(expected.get(id), row == null ? null : row.getActive());
+        }
+    }
+
+    @Test
+    void given_rowMovedByRemove_when_viewUsed_then_viewFollowsItsSensor() {
+        // Given
+        Sensor first = table.put(new Sensor("first", SensorType.DOOR));
+        Sensor last = table.put(new Sensor("last", SensorType.MOTION));
+
+        // When
+        table.remove(first.getSensorId());
+        first.setActive(true);
+
+        // Then
+        assertEquals("last", last.getName());
+        assertEquals("first", first.getName());
+        assertTrue(first.getActive());
+        assertFalse(table.contains(first.getSensorId()));
+        assertEquals(0, table.getActiveCount());
+    }
+
+    @Test
+    void given_snapshot_when_rowsRemovedWhileIterating_then_removedRowsAreSkipped() {
+        // Given
+        Sensor first = table.put(new Sensor("first", SensorType.DOOR));
+        Sensor second = table.put(new Sensor("second", SensorType.WINDOW));
+        Sensor third = table.put(new Sensor("third", SensorType.MOTION));
+        Iterator<Sensor> iterator = table.snapshot().iterator();
+
+        // When
+        Sensor seen = iterator.next();
+        table.remove(second.getSensorId());
+        List<Sensor> rest = new ArrayList<>();
+        iterator.forEachRemaining(rest::add);
+
+        // Then
+        assertEquals(first, seen);
+        assertEquals(List.of(third), rest);
+    }
+
+    @Test
+    void given_millionSensors_when_sized_then_columnsTakeUnder32BytesPerSensor() {
+        // Given
+        int count = 1_000_000;
+        SensorTable large = new SensorTable(new Object(), count);
+
+        // When
+        for (int i = 0; i < count; i++) {
+            large.put(UUID.randomUUID(), "Sensor " + (i % 1_000), SensorType.values()[i % 3], i % 7 == 0);
+        }
+
+        // Then
+        // 21 bytes of columns per row, one active bit per row and an index at most half full
+        long expected = count * 21L + (count + 63) / 64 * 8L + (1 << 21) * 4L;
+        assertEquals(count, large.size());
+        assertEquals(expected, large.footprintBytes());
+        assertTrue(large.footprintBytes() < 32L * count);
+    }
+}
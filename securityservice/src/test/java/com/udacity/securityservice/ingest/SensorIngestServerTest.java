@@ -0,0 +1,134 @@
+package com.udacity.securityservice.ingest;
+
+import static org.junit.jupiter.api.Assertions.*;
+import com.udacity.securityservice.data.*;
+import com.udacity.securityservice.service.SecurityService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+public class SensorIngestServerTest {
+
+    private Path directory;
+    private JournalSecurityRepositoryImpl repository;
+    private SecurityService securityService;
+    private SensorEventBatcher batcher;
+    private SensorIngestServer server;
+
+    @BeforeEach
+    void init() throws IOException {
+        directory = Files.createTempDirectory("sensor-ingest");
+        repository = new JournalSecurityRepositoryImpl(directory);
+        securityService = new SecurityService(repository, (image, threshold) -> false);
+        batcher = new SensorEventBatcher(repository::getSensor, securityService::changeSensorActivationStatuses, 64, 2, 1024);
+        InetSocketAddress loopback = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        server = new SensorIngestServer(batcher, loopback, loopback).start();
+    }
+
+    @AfterEach
+    void cleanUp() throws IOException {
+        server.close();
+        batcher.close();
+        repository.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Test
+    void given_line_when_parsed_then_sensorIdAndStateAreRead() {
+        // Given
+        UUID id = UUID.randomUUID();
+        byte[] line = ("  " + id + "\tInActive\r").getBytes(StandardCharsets.US_ASCII);
+
+        // When
+        SensorEvent event = SensorEventParser.parse(line, 0, line.length, 7);
+
+        // Then
+        assertEquals(id, event.getSensorId());
+        assertFalse(event.isActive());
+        assertEquals(7, event.getReceivedNanos());
+        assertNull(SensorEventParser.parse("nonsense 1".getBytes(StandardCharsets.US_ASCII), 0, 10, 0));
+    }
+
+    @Test
+    void given_manyConnections_when_sensorsReport_then_alarmStateFollows() throws Exception {
+        // Given
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        List<Sensor> sensors = new ArrayList<>();
+        List<Socket> sockets = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Sensor sensor = new Sensor("device " + i, SensorType.WINDOW);
+            securityService.addSensor(sensor);
+            sensors.add(sensor);
+            sockets.add(new Socket(InetAddress.getLoopbackAddress(), server.getTcpPort()));
+        }
+
+        // When
+        for (int i = 0; i < sockets.size(); i++) {
+            OutputStream out = sockets.get(i).getOutputStream();
+            out.write(SensorEventParser.formatLine(sensors.get(i).getSensorId(), true));
+            out.write("garbage\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+        }
+
+        // Then
+        awaitTrue(() -> batcher.getAppliedEvents() == sensors.size());
+        assertTrue(repository.getSensors().stream().allMatch(Sensor::getActive));
+        assertEquals(AlarmStatus.ALARM, securityService.getAlarmStatus());
+        assertEquals(sensors.size(), server.getMalformedLines());
+        assertEquals(sensors.size(), batcher.getLatency().getCount());
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+        awaitTrue(() -> server.getOpenConnections() == 0);
+    }
+
+    @Test
+    void given_datagram_when_received_then_everyLineIsApplied() throws Exception {
+        // Given
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        Sensor window = new Sensor("window", SensorType.WINDOW);
+        securityService.addSensor(door);
+        securityService.addSensor(window);
+        byte[] payload = (SensorEventParser.format(door.getSensorId(), true) + "\n"
+                + SensorEventParser.format(window.getSensorId(), true) + "\n"
+                + SensorEventParser.format(UUID.randomUUID(), true)).getBytes(StandardCharsets.US_ASCII);
+
+        // When
+        try (DatagramSocket socket = new DatagramSocket()) {
+            socket.send(new DatagramPacket(payload, payload.length, InetAddress.getLoopbackAddress(), server.getUdpPort()));
+        }
+
+        // Then
+        awaitTrue(() -> batcher.getAppliedEvents() == 3);
+        assertEquals(1, batcher.getUnknownSensorEvents());
+        assertTrue(repository.getSensor(door.getSensorId()).getActive());
+        assertTrue(repository.getSensor(window.getSensorId()).getActive());
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out");
+            Thread.sleep(5);
+        }
+    }
+}
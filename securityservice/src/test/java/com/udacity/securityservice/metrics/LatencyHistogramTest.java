@@ -0,0 +1,55 @@
+package com.udacity.securityservice.metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class LatencyHistogramTest {
+
+    @Test
+    void given_values_when_percentileRequested_then_itIsWithinBucketPrecision() {
+        // Given
+        LatencyHistogram histogram = new LatencyHistogram();
+        Random random = new Random(1);
+        long[] values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) Math.exp(random.nextDouble() * 20); // spread over many powers of two
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        // When
+        long p50 = histogram.getValueAtPercentile(50);
+        long p99 = histogram.getValueAtPercentile(99);
+
+        // Then
+        assertEquals(values.length, histogram.getCount());
+        assertEquals(values[values.length - 1], histogram.getMaxNanos());
+        assertWithin(values[values.length / 2 - 1], p50);
+        assertWithin(values[values.length * 99 / 100 - 1], p99);
+        assertEquals(histogram.getMaxNanos(), histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    void given_everyBucket_when_boundsComputed_then_bucketsAreContiguous() {
+        // Given
+        long previousUpper = -1;
+
+        // When
+        for (int bucket = 0; LatencyHistogram.upperBound(bucket) != Long.MAX_VALUE; bucket++) {
+            long upper = LatencyHistogram.upperBound(bucket);
+
+            // Then
+            assertEquals(bucket, LatencyHistogram.bucket(previousUpper + 1));
+            assertEquals(bucket, LatencyHistogram.bucket(upper));
+            previousUpper = upper;
+        }
+        assertEquals(LatencyHistogram.bucket(Long.MAX_VALUE), LatencyHistogram.bucket(previousUpper + 1));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(actual >= expected && actual <= expected + expected / 32 + 1, expected + " vs " + actual);
+    }
+}
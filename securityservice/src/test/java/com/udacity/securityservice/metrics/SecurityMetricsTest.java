@@ -0,0 +1,187 @@
+package com.udacity.securityservice.metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+import com.udacity.securityservice.data.*;
+import com.udacity.securityservice.service.SecurityService;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+public class SecurityMetricsTest {
+
+    @Test
+    void given_activity_when_metricsRead_then_transitionsLatenciesAndGaugesAreCounted() {
+        // Given
+        SecurityService securityService = new SecurityService(new InMemorySecurityRepositoryImpl(),
+                (image, threshold) -> true);
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        securityService.addSensor(door);
+        securityService.addSensor(new Sensor("window", SensorType.WINDOW));
+
+        // When
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        securityService.changeSensorActivationStatus(door, true);
+        securityService.processImage(new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB));
+        SecurityMetrics metrics = securityService.getMetrics();
+
+        // Then
+        assertEquals(1, metrics.getArmingTransitions(ArmingStatus.DISARMED, ArmingStatus.ARMED_AWAY));
+        assertEquals(1, metrics.getAlarmTransitions(AlarmStatus.NO_ALARM, AlarmStatus.PENDING_ALARM));
+        assertEquals(0, metrics.getAlarmTransitions(AlarmStatus.PENDING_ALARM, AlarmStatus.ALARM));
+        assertEquals(1, metrics.getImageClassificationLatency().getCount());
+        assertEquals(1, metrics.getImageProcessingLatency().getCount());
+        assertEquals(1, metrics.getCatsDetected());
+        assertTrue(metrics.getRepositoryWriteLatency().getCount() >= 5); // two sensors, arming, alarm, door
+        assertEquals(2, metrics.getSensorCount());
+        assertEquals(1, metrics.getActiveSensorCount());
+
+        metrics.reset();
+        assertEquals(0, metrics.getAlarmTransitions(AlarmStatus.NO_ALARM, AlarmStatus.PENDING_ALARM));
+        assertEquals(0, metrics.getRepositoryWriteLatency().getCount());
+    }
+
+    @Test
+    void given_repositoryCountingActiveSensors_when_gaugeRead_then_sensorsAreNotWalked() {
+        // Given
+        InMemorySecurityRepositoryImpl counted = new InMemorySecurityRepositoryImpl();
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        counted.addSensor(door);
+        counted.addSensor(new Sensor("window", SensorType.WINDOW));
+        door.setActive(true);
+        counted.updateSensor(door);
+        SecurityRepository repository = new UnwalkableRepository(counted);
+
+        // When
+        int active = new SecurityMetrics(repository).getActiveSensorCount();
+
+        // Then
+        assertEquals(1, active);
+    }
+
+    @Test
+    void given_registeredMetrics_when_readOverJmx_then_attributesAreOpenTypes() throws Exception {
+        // Given
+        SecurityService securityService = new SecurityService(new InMemorySecurityRepositoryImpl(),
+                (image, threshold) -> false);
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+        ObjectName name = securityService.getMetrics().register("metrics test");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        try {
+            // When
+            TabularData arming = (TabularData) server.getAttribute(name, "ArmingTransitions");
+            CompositeData writes = (CompositeData) server.getAttribute(name, "RepositoryWriteLatency");
+            Object sensors = server.getAttribute(name, "SensorCount");
+
+            // Then
+            assertEquals(1L, arming.get(new Object[] {"DISARMED->ARMED_HOME"}).get("value"));
+            assertEquals(1L, writes.get("count"));
+            assertEquals(0, sensors);
+        } finally {
+            securityService.getMetrics().unregister();
+        }
+        assertFalse(server.isRegistered(name));
+    }
+
+    @Test
+    void given_jfrRecording_when_stateChanges_then_transitionAndImageEventsAreRecorded() throws Exception {
+        // Given
+        SecurityService securityService = new SecurityService(new InMemorySecurityRepositoryImpl(),
+                (image, threshold) -> true);
+        Path file = Files.createTempFile("security-metrics", ".jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable("com.udacity.securityservice.AlarmTransition");
+            recording.enable("com.udacity.securityservice.ArmingTransition");
+            recording.enable("com.udacity.securityservice.ImageClassification");
+            recording.start();
+
+            // When
+            securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+            securityService.processImage(new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB));
+            recording.stop();
+            recording.dump(file);
+        }
+
+        // Then
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Files.delete(file);
+        List<String> names = events.stream().map(e -> e.getEventType().getName()).collect(Collectors.toList());
+        assertEquals(List.of("com.udacity.securityservice.ArmingTransition",
+                "com.udacity.securityservice.ImageClassification",
+                "com.udacity.securityservice.AlarmTransition"), names);
+        RecordedEvent alarm = events.get(2);
+        assertEquals("NO_ALARM", alarm.getString("from"));
+        assertEquals("ALARM", alarm.getString("to"));
+        assertTrue(events.get(1).getBoolean("catDetected"));
+    }
+
+    /**
+     * Passes everything on, except that it refuses to hand out the sensors.
+     */
+    private static final class UnwalkableRepository implements SecurityRepository {
+        private final SecurityRepository delegate;
+
+        UnwalkableRepository(SecurityRepository delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void addSensor(Sensor sensor) {
+            delegate.addSensor(sensor);
+        }
+
+        @Override
+        public void removeSensor(Sensor sensor) {
+            delegate.removeSensor(sensor);
+        }
+
+        @Override
+        public void updateSensor(Sensor sensor) {
+            delegate.updateSensor(sensor);
+        }
+
+        @Override
+        public void setAlarmStatus(AlarmStatus alarmStatus) {
+            delegate.setAlarmStatus(alarmStatus);
+        }
+
+        @Override
+        public void setArmingStatus(ArmingStatus armingStatus) {
+            delegate.setArmingStatus(armingStatus);
+        }
+
+        @Override
+        public Set<Sensor> getSensors() {
+            throw new AssertionError("the sensors were walked");
+        }
+
+        @Override
+        public int getActiveSensorCount() {
+            return delegate.getActiveSensorCount();
+        }
+
+        @Override
+        public AlarmStatus getAlarmStatus() {
+            return delegate.getAlarmStatus();
+        }
+
+        @Override
+        public ArmingStatus getArmingStatus() {
+            return delegate.getArmingStatus();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.udacity.securityservice.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import com.udacity.securityservice.application.StatusListener;
+import com.udacity.securityservice.data.AlarmStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class AsyncStatusListenerTest {
+
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private List<String> events;
+    private AsyncStatusListener listener;
+
+    @BeforeEach
+    void init() {
+        events = Collections.synchronizedList(new ArrayList<>());
+        listener = new AsyncStatusListener(new RecordingListener(events), tasks::add);
+    }
+
+    @Test
+    void given_burstOfEvents_when_delivered_then_redundantEventsAreMerged() {
+        // Given
+        listener.notify(AlarmStatus.PENDING_ALARM);
+        listener.sensorStatusChanged();
+        listener.sensorStatusChanged();
+        listener.notify(AlarmStatus.ALARM);
+        listener.sensorStatusChanged();
+        listener.catDetected(true);
+
+        // When
+        assertEquals(3, listener.getQueueDepth());
+        assertEquals(1, tasks.size());
+        runTasks();
+
+        // Then
+        assertEquals(List.of("alarm ALARM", "sensors", "cat true"), events);
+        assertEquals(3, listener.getMergedEvents());
+        assertEquals(3, listener.getDeliveredEvents());
+        assertEquals(0, listener.getQueueDepth());
+    }
+
+    @Test
+    void given_closedListener_when_eventsArrive_then_theyAreDropped() {
+        // Given
+        listener.sensorStatusChanged();
+
+        // When
+        listener.close();
+        listener.notify(AlarmStatus.NO_ALARM);
+        runTasks();
+
+        // Then
+        assertTrue(events.isEmpty());
+        assertEquals(2, listener.getDroppedEvents());
+    }
+
+    @Test
+    void given_slowListener_when_eventsArrive_then_producerIsNotBlocked() throws InterruptedException {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch received = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        AsyncStatusListener slow = new AsyncStatusListener(new RecordingListener(events) {
+            @Override
+            public void sensorStatusChanged() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.sensorStatusChanged();
+                received.countDown();
+            }
+        }, executor);
+
+        // When
+        long started = System.nanoTime();
+        for (int i = 0; i < 10_000; i++) {
+            slow.sensorStatusChanged();
+            slow.notify(AlarmStatus.values()[i % 3]);
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        release.countDown();
+
+        // Then
+        assertTrue(received.await(5, TimeUnit.SECONDS));
+        // a drain may still have to hand the executor back, so it can only be shut down once every event is taken
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((slow.getQueueDepth() > 0 || slow.getMergedEvents() + slow.getDeliveredEvents() < 20_000)
+                && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(elapsedMillis < 1_000);
+        assertEquals(0, slow.getQueueDepth());
+        assertEquals(0, slow.getDroppedEvents());
+        assertEquals("alarm " + AlarmStatus.values()[9_999 % 3], events.get(events.size() - 1));
+        assertEquals(20_000, slow.getMergedEvents() + slow.getDeliveredEvents());
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private static class RecordingListener implements StatusListener {
+        private final List<String> events;
+
+        private RecordingListener(List<String> events) {
+            this.events = events;
+        }
+
+        @Override
+        public void notify(AlarmStatus status) {
+            events.add("alarm " + status);
+        }
+
+        @Override
+        public void catDetected(boolean catDetected) {
+            events.add("cat " + catDetected);
+        }
+
+        @Override
+        public void sensorStatusChanged() {
+            events.add("sensors");
+        }
+    }
+}
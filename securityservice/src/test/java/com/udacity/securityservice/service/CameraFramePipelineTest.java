@@ -0,0 +1,265 @@
+package com.udacity.securityservice.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import com.udacity.imageservice.ImageService;
+import com.udacity.securityservice.data.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+public class CameraFramePipelineTest {
+
+    private final BufferedImage cat = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+    private final BufferedImage empty = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+    // size of every batch the image service was asked about
+    private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+    private volatile boolean failing;
+    // when set, the image service waits for it before answering
+    private volatile CountDownLatch answer;
+    private SecurityService securityService;
+    private CameraFramePipeline pipeline;
+
+    @BeforeEach
+    void init() {
+        ImageService imageService = new ImageService() {
+            @Override
+            public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+                throw new AssertionError("Frames should be classified in batches");
+            }
+
+            @Override
+            public List<Boolean> imageContainsCatBatch(List<BufferedImage> images, float confidenceThreshold) {
+                if (failing) {
+                    throw new IllegalStateException("The image service is down");
+                }
+                batchSizes.add(images.size());
+                if (answer != null) {
+                    try {
+                        answer.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                List<Boolean> verdicts = new ArrayList<>();
+                for (BufferedImage image : images) {
+                    verdicts.add(image == cat);
+                }
+                return verdicts;
+            }
+        };
+        securityService = new SecurityService(
+                new InMemorySecurityRepositoryImpl(AlarmStatus.NO_ALARM, ArmingStatus.ARMED_HOME), imageService);
+    }
+
+    @AfterEach
+    void close() {
+        if (pipeline != null) {
+            pipeline.close();
+        }
+    }
+
+    @Test
+    void given_framesOfManyCameras_when_batchFills_then_theyAreClassifiedTogether() throws Exception {
+        // Given
+        pipeline = new CameraFramePipeline(securityService, 4, 10, TimeUnit.SECONDS, 2);
+        List<CompletableFuture<Boolean>> verdicts = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < 8; i++) {
+            verdicts.add(pipeline.submit("camera " + i, empty));
+        }
+
+        // Then
+        for (CompletableFuture<Boolean> verdict : verdicts) {
+            assertFalse(verdict.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(List.of(4, 4), batchSizes);
+        assertEquals(2, pipeline.getBatches());
+        assertEquals(8, pipeline.getClassifiedFrames());
+        assertEquals(8, securityService.getMetrics().getImageClassificationLatency().getCount());
+    }
+
+    @Test
+    void given_fewFrames_when_maxWaitPasses_then_partialBatchIsClassified() throws Exception {
+        // Given
+        pipeline = new CameraFramePipeline(securityService, 100, 20, TimeUnit.MILLISECONDS, 2);
+
+        // When
+        CompletableFuture<Boolean> verdict = pipeline.submit("front door", cat);
+
+        // Then
+        assertTrue(verdict.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of(1), batchSizes);
+        assertEquals(AlarmStatus.ALARM, securityService.getAlarmStatus());
+    }
+
+    @Test
+    void given_catOnOneCamera_when_anotherShowsNone_then_catStillCounts() throws Exception {
+        // Given
+        pipeline = new CameraFramePipeline(securityService, 1, 0, TimeUnit.MILLISECONDS, 2);
+        pipeline.submit("kitchen", cat).get(5, TimeUnit.SECONDS);
+
+        // When
+        pipeline.submit("garage", empty).get(5, TimeUnit.SECONDS);
+
+        // Then
+        // no cat anywhere with all sensors inactive would have cleared the alarm
+        assertEquals(AlarmStatus.ALARM, securityService.getAlarmStatus());
+    }
+
+    @Test
+    void given_catGoneFromEveryCamera_when_sensorsInactive_then_alarmClears() throws Exception {
+        // Given
+        pipeline = new CameraFramePipeline(securityService, 1, 0, TimeUnit.MILLISECONDS, 2);
+        pipeline.submit("kitchen", cat).get(5, TimeUnit.SECONDS);
+        assertEquals(AlarmStatus.ALARM, securityService.getAlarmStatus());
+
+        // When
+        pipeline.submit("kitchen", empty).get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertEquals(AlarmStatus.NO_ALARM, securityService.getAlarmStatus());
+    }
+
+    @Test
+    void given_newerFrameOfSameCamera_when_batched_then_olderFrameIsDropped() throws Exception {
+        // Given
+        pipeline = new CameraFramePipeline(securityService, 8, 1, TimeUnit.SECONDS, 2);
+
+        // When
+        CompletableFuture<Boolean> older = pipeline.submit("kitchen", cat);
+        CompletableFuture<Boolean> newer = pipeline.submit("kitchen", empty);
+
+        // Then
+        assertFalse(newer.get(5, TimeUnit.SECONDS));
+        assertTrue(older.isCancelled());
+        assertThrows(CancellationException.class, older::join);
+        assertEquals(List.of(1), batchSizes);
+        assertEquals(1, pipeline.getSupersededFrames());
+        assertEquals(AlarmStatus.NO_ALARM, securityService.getAlarmStatus());
+    }
+
+    @Test
+    void given_imageServiceFails_when_batchClassified_then_verdictsFailAndStateIsKept() {
+        // Given
+        pipeline = new CameraFramePipeline(securityService, 1, 0, TimeUnit.MILLISECONDS, 2);
+        failing = true;
+
+        // When
+        CompletableFuture<Boolean> verdict = pipeline.submit("kitchen", cat);
+
+        // Then
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> verdict.get(5, TimeUnit.SECONDS));
+        assertTrue(failure.getCause() instanceof IllegalStateException);
+        assertEquals(1, pipeline.getFailedFrames());
+        assertEquals(AlarmStatus.NO_ALARM, securityService.getAlarmStatus());
+    }
+
+    @Test
+    void given_framesWaiting_when_closed_then_theyAreClassifiedFirst() {
+        // Given
+        pipeline = new CameraFramePipeline(securityService, 100, 10, TimeUnit.SECONDS, 2);
+        CompletableFuture<Boolean> verdict = pipeline.submit("kitchen", cat);
+
+        // When
+        pipeline.close();
+
+        // Then
+        assertTrue(verdict.isDone());
+        assertTrue(verdict.join());
+        assertThrows(IllegalStateException.class, () -> pipeline.submit("kitchen", cat));
+    }
+
+    @Test
+    void given_catOnCameraThatStopsSending_when_horizonPasses_then_itNoLongerCounts() throws Exception {
+        // Given
+        pipeline = new CameraFramePipeline(securityService, 1, 0, 200, TimeUnit.MILLISECONDS, 2);
+        pipeline.submit("kitchen", cat).get(5, TimeUnit.SECONDS);
+        assertEquals(AlarmStatus.ALARM, securityService.getAlarmStatus());
+
+        // When
+        awaitTrue(() -> securityService.getAlarmStatus() == AlarmStatus.NO_ALARM);
+
+        // Then
+        assertEquals(1, pipeline.getExpiredVerdicts());
+        pipeline.submit("kitchen", cat).get(5, TimeUnit.SECONDS);
+        assertEquals(AlarmStatus.ALARM, securityService.getAlarmStatus());
+    }
+
+    @Test
+    void given_catsOnTwoCameras_when_removed_then_theSiteVerdictFollows() throws Exception {
+        // Given
+        pipeline = new CameraFramePipeline(securityService, 1, 0, TimeUnit.MILLISECONDS, 2);
+        pipeline.submit("kitchen", cat).get(5, TimeUnit.SECONDS);
+        pipeline.submit("garage", cat).get(5, TimeUnit.SECONDS);
+
+        // When
+        pipeline.removeCamera("kitchen");
+        AlarmStatus oneLeft = securityService.getAlarmStatus();
+        pipeline.removeCamera("garage");
+
+        // Then
+        assertEquals(AlarmStatus.ALARM, oneLeft);
+        assertEquals(AlarmStatus.NO_ALARM, securityService.getAlarmStatus());
+        pipeline.removeCamera("attic"); // never seen
+        assertEquals(AlarmStatus.NO_ALARM, securityService.getAlarmStatus());
+    }
+
+    @Test
+    void given_frameBeingClassified_when_cameraRemoved_then_itsVerdictIsDropped() throws Exception {
+        // Given
+        pipeline = new CameraFramePipeline(securityService, 1, 0, TimeUnit.MILLISECONDS, 2);
+        answer = new CountDownLatch(1);
+        CompletableFuture<Boolean> verdict = pipeline.submit("kitchen", cat);
+        awaitTrue(() -> !batchSizes.isEmpty());
+
+        // When
+        pipeline.removeCamera("kitchen");
+        answer.countDown();
+
+        // Then
+        assertThrows(CancellationException.class, () -> verdict.get(5, TimeUnit.SECONDS));
+        assertEquals(1, pipeline.getSupersededFrames());
+        assertEquals(AlarmStatus.NO_ALARM, securityService.getAlarmStatus());
+        assertTrue(pipeline.submit("kitchen", cat).get(5, TimeUnit.SECONDS));
+        assertEquals(AlarmStatus.ALARM, securityService.getAlarmStatus());
+    }
+
+    @Test
+    void given_verdictArrivesAfterTheHorizon_when_applied_then_itIsDropped() throws Exception {
+        // Given
+        AtomicLong nowNanos = new AtomicLong();
+        pipeline = new CameraFramePipeline(securityService, 1, 0, 50, TimeUnit.MILLISECONDS, 2, nowNanos::get);
+        answer = new CountDownLatch(1);
+        CompletableFuture<Boolean> verdict = pipeline.submit("kitchen", cat);
+        awaitTrue(() -> !batchSizes.isEmpty());
+        nowNanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(100)); // past the horizon while it is classified
+
+        // When
+        answer.countDown();
+
+        // Then
+        assertThrows(CancellationException.class, () -> verdict.get(5, TimeUnit.SECONDS));
+        assertEquals(AlarmStatus.NO_ALARM, securityService.getAlarmStatus());
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
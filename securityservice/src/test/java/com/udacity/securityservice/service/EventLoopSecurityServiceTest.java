@@ -0,0 +1,169 @@
+package com.udacity.securityservice.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import com.udacity.securityservice.application.StatusListener;
+import com.udacity.securityservice.data.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+public class EventLoopSecurityServiceTest {
+
+    private Path directory;
+    private JournalSecurityRepositoryImpl repository;
+    private EventLoopSecurityService eventLoop;
+
+    @BeforeEach
+    void init() throws IOException {
+        directory = Files.createTempDirectory("security-event-loop");
+        repository = new JournalSecurityRepositoryImpl(directory);
+        eventLoop = new EventLoopSecurityService(new SecurityService(repository, (image, threshold) -> true), Runnable::run);
+    }
+
+    @AfterEach
+    void cleanUp() throws IOException {
+        eventLoop.close();
+        repository.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Test
+    void given_manyProducers_when_submitting_then_everyCommandRunsOnTheLoopThread() throws Exception {
+        // Given
+        int producers = 8;
+        int commandsPerProducer = 2_000;
+        List<Sensor> sensors = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            Sensor sensor = new Sensor("sensor " + i, SensorType.values()[i % 3]);
+            sensors.add(sensor);
+            eventLoop.addSensor(sensor);
+        }
+        Set<Thread> listenerThreads = ConcurrentHashMap.newKeySet();
+        eventLoop.submit(s -> {
+            s.addStatusListener(new RecordingListener(listenerThreads));
+            return null;
+        }).join();
+        eventLoop.setArmingStatus(ArmingStatus.ARMED_AWAY).join();
+
+        // When
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<AlarmStatus>> results = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            List<CompletableFuture<AlarmStatus>> own = new ArrayList<>();
+            Thread t = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < commandsPerProducer; i++) {
+                    Sensor sensor = sensors.get((producer + i) % sensors.size());
+                    own.add(eventLoop.changeSensorActivationStatus(sensor, i % 2 == 0));
+                }
+                synchronized (results) {
+                    results.addAll(own);
+                }
+            });
+            threads.add(t);
+            t.start();
+        }
+        start.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+        CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).join();
+
+        // Then
+        assertEquals(producers * commandsPerProducer, results.size());
+        assertEquals(1, listenerThreads.size());
+        assertFalse(listenerThreads.contains(Thread.currentThread()));
+
+        AlarmStatus afterDisarm = eventLoop.setArmingStatus(ArmingStatus.DISARMED).join();
+        assertEquals(AlarmStatus.NO_ALARM, afterDisarm);
+    }
+
+    @Test
+    void given_catImage_when_processedWhileArmedHome_then_alarmIsRaised() {
+        // Given
+        eventLoop.setArmingStatus(ArmingStatus.ARMED_HOME);
+
+        // When
+        AlarmStatus status = eventLoop.processImage(null).join();
+
+        // Then
+        assertEquals(AlarmStatus.ALARM, status);
+    }
+
+    @Test
+    void given_listenerThrowsError_when_commandApplied_then_futureFailsAndLoopCarriesOn() {
+        // Given
+        StatusListener failing = new RecordingListener(ConcurrentHashMap.newKeySet()) {
+            @Override
+            public void notify(AlarmStatus status) {
+                throw new AssertionError("listener is broken");
+            }
+        };
+        eventLoop.submit(s -> {
+            s.addStatusListener(failing);
+            return null;
+        }).join();
+
+        // When
+        CompletableFuture<AlarmStatus> broken = eventLoop.setArmingStatus(ArmingStatus.DISARMED)
+                .thenCompose(status -> eventLoop.submit(s -> {
+                    s.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+                    return s.getAlarmStatus();
+                }));
+
+        // Then
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> broken.get(5, TimeUnit.SECONDS));
+        assertTrue(failure.getCause() instanceof AssertionError);
+        eventLoop.submit(s -> {
+            s.removeStatusListener(failing);
+            return null;
+        }).join();
+        assertEquals(AlarmStatus.NO_ALARM, eventLoop.setArmingStatus(ArmingStatus.DISARMED).join());
+    }
+
+    private static class RecordingListener implements StatusListener {
+        private final Set<Thread> threads;
+
+        private RecordingListener(Set<Thread> threads) {
+            this.threads = threads;
+        }
+
+        @Override
+        public void notify(AlarmStatus status) {
+            threads.add(Thread.currentThread());
+        }
+
+        @Override
+        public void catDetected(boolean catDetected) {
+            threads.add(Thread.currentThread());
+        }
+
+        @Override
+        public void sensorStatusChanged() {
+            threads.add(Thread.currentThread());
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.udacity.securityservice.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import com.udacity.securityservice.data.*;
+import com.udacity.securityservice.eventlog.BinarySecurityEventLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class SecurityEventReplayerTest {
+
+    private Path logFile;
+
+    @BeforeEach
+    void init() throws IOException {
+        logFile = Files.createTempFile("security-events", ".log");
+    }
+
+    @AfterEach
+    void cleanUp() throws IOException {
+        Files.deleteIfExists(logFile);
+    }
+
+    @Test
+    void given_recordedRandomWorkload_when_replayed_then_alarmSequenceIsReproduced() {
+        // Given
+        Random random = new Random(7);
+        InMemorySecurityRepositoryImpl repository = new InMemorySecurityRepositoryImpl();
+        SecurityService securityService = new SecurityService(repository, (image, threshold) -> false);
+        List<Sensor> sensors = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Sensor sensor = new Sensor("sensor " + i, SensorType.values()[i % 3]);
+            securityService.addSensor(sensor); // before logging starts, so they come from the captured state
+            sensors.add(sensor);
+        }
+        long recorded = 0;
+        try (BinarySecurityEventLog eventLog = new BinarySecurityEventLog(logFile)) {
+            securityService.setEventLog(eventLog);
+            for (int i = 0; i < 200_000; i++) {
+                Sensor sensor = sensors.get(random.nextInt(sensors.size()));
+                int action = random.nextInt(100);
+                if (action < 60) {
+                    securityService.changeSensorActivationStatus(sensor, random.nextBoolean());
+                } else if (action < 70) {
+                    Map<Sensor, Boolean> changes = new LinkedHashMap<>();
+                    for (int j = 0; j < 5; j++) {
+                        changes.put(sensors.get(random.nextInt(sensors.size())), random.nextBoolean());
+                    }
+                    securityService.changeSensorActivationStatuses(changes);
+                } else if (action < 85) {
+                    securityService.catDetected(random.nextInt(4) == 0);
+                } else if (action < 95) {
+                    securityService.setArmingStatus(ArmingStatus.values()[random.nextInt(3)]);
+                } else if (action < 97) {
+                    Sensor added = new Sensor("sensor " + sensors.size(), SensorType.MOTION);
+                    securityService.addSensor(added);
+                    sensors.add(added);
+                } else if (action < 98 && sensors.size() > 1) {
+                    securityService.removeSensor(sensors.remove(random.nextInt(sensors.size())));
+                } else {
+                    sensor.setActive(!sensor.getActive());
+                    securityService.changeSensorActivationStatus(sensor);
+                }
+            }
+            recorded = eventLog.getRecords();
+        }
+
+        // When
+        SecurityEventReplayer.ReplayResult result = SecurityEventReplayer.replay(logFile);
+
+        // Then
+        assertTrue(result.isReproduced(), result.getFirstMismatch());
+        assertEquals(0, result.getMismatches());
+        assertEquals(recorded, result.getEvents());
+        assertTrue(result.getAlarmChanges() > 0);
+        assertEquals(securityService.getAlarmStatus(), result.getFinalAlarmStatus());
+    }
+
+    @Test
+    void given_logWithDifferentDecision_when_replayed_then_mismatchIsReported() {
+        // Given
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        try (BinarySecurityEventLog eventLog = new BinarySecurityEventLog(logFile)) {
+            eventLog.stateCaptured(AlarmStatus.NO_ALARM, ArmingStatus.DISARMED, null, List.of());
+            eventLog.armingStatusChanged(ArmingStatus.ARMED_AWAY);
+            eventLog.sensorAdded(door);
+            eventLog.sensorActivationChanged(door, true);
+            eventLog.alarmStatusChanged(AlarmStatus.ALARM); // the rules say PENDING_ALARM
+        }
+
+        // When
+        SecurityEventReplayer.ReplayResult result = SecurityEventReplayer.replay(logFile);
+
+        // Then
+        assertFalse(result.isReproduced());
+        assertEquals(1, result.getMismatches());
+        assertTrue(result.getFirstMismatch().contains("PENDING_ALARM"));
+        assertEquals(AlarmStatus.PENDING_ALARM, result.getFinalAlarmStatus());
+    }
+}
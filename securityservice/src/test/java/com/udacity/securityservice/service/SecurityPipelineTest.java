@@ -0,0 +1,237 @@
+package com.udacity.securityservice.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import com.udacity.securityservice.application.StatusListener;
+import com.udacity.securityservice.data.*;
+import com.udacity.securityservice.ingest.SensorEventParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SecurityPipelineTest {
+
+    private SecurityPipeline pipeline;
+
+    @AfterEach
+    void cleanUp() {
+        if (pipeline != null) {
+            pipeline.close();
+        }
+    }
+
+    @Test
+    void given_reportLines_when_published_then_sensorsAndAlarmFollow() {
+        // Given
+        InMemorySecurityRepositoryImpl repository = new InMemorySecurityRepositoryImpl(AlarmStatus.NO_ALARM,
+                ArmingStatus.ARMED_AWAY);
+        SecurityService securityService = new SecurityService(repository, (image, threshold) -> false);
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        securityService.addSensor(door);
+        pipeline = new SecurityPipeline(securityService);
+        byte[] line = SensorEventParser.formatLine(door.getSensorId(), true);
+        byte[] closed = SensorEventParser.formatLine(door.getSensorId(), false);
+        byte[] garbage = "not a report\n".getBytes(StandardCharsets.US_ASCII);
+        byte[] stranger = SensorEventParser.formatLine(new Sensor("stranger", SensorType.MOTION).getSensorId(), true);
+
+        // When
+        pipeline.publishLine(line, 0, line.length);
+        pipeline.publishLine(line, 0, line.length);
+        pipeline.publishLine(garbage, 0, garbage.length);
+        pipeline.publishLine(stranger, 0, stranger.length);
+        pipeline.publishLine(closed, 0, closed.length);
+        pipeline.publishLine(closed, 0, closed.length);
+        pipeline.drain();
+
+        // Then
+        assertEquals(AlarmStatus.ALARM, securityService.getAlarmStatus()); // active again while pending
+        assertEquals(AlarmStatus.ALARM, repository.getAlarmStatus());
+        assertFalse(repository.getSensor(door.getSensorId()).getActive());
+        assertEquals(3, pipeline.getAppliedEvents());
+        assertEquals(1, pipeline.getSuppressedEvents());
+        assertEquals(1, pipeline.getMalformedLines());
+        assertEquals(1, pipeline.getUnknownSensorEvents());
+        assertEquals(6, pipeline.getLatency().getCount());
+    }
+
+    @Test
+    void given_offsetOrLengthOutsideLine_when_published_then_countedAsMalformedAndPipelineCarriesOn() {
+        // Given
+        SecurityService securityService = new SecurityService(new InMemorySecurityRepositoryImpl(),
+                (image, threshold) -> false);
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        securityService.addSensor(door);
+        pipeline = new SecurityPipeline(securityService, 64, Map.of());
+        byte[] line = SensorEventParser.formatLine(door.getSensorId(), true);
+
+        // When
+        boolean negativeLength = pipeline.publishLine(line, 0, -1);
+        boolean negativeOffset = pipeline.publishLine(line, -1, line.length);
+        boolean pastTheEnd = pipeline.publishLine(line, 1, line.length);
+        boolean valid = pipeline.publishLine(line, 0, line.length);
+        pipeline.drain();
+
+        // Then
+        assertFalse(negativeLength);
+        assertFalse(negativeOffset);
+        assertFalse(pastTheEnd);
+        assertTrue(valid);
+        assertEquals(3, pipeline.getMalformedLines());
+        assertTrue(door.getActive());
+    }
+
+    @Test
+    void given_flappingSensor_when_quarantineEnds_then_itsLatestStateIsApplied() {
+        // Given
+        SecurityService securityService = new SecurityService(new InMemorySecurityRepositoryImpl(),
+                (image, threshold) -> false);
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        securityService.addSensor(door);
+        Map<SensorType, SensorDebouncer.Settings> settings = new EnumMap<>(SensorType.class);
+        settings.put(SensorType.DOOR, new SensorDebouncer.Settings(0, 4, 10_000, 1_000));
+        AtomicLong nowNanos = new AtomicLong();
+        pipeline = new SecurityPipeline(securityService, 64, settings, nowNanos::get);
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            pipeline.publish(door, i % 2 == 0); // quarantined from the fourth change, while inactive
+        }
+        pipeline.drain();
+        boolean activeDuringQuarantine = door.getActive();
+        nowNanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(1_000));
+        pipeline.releaseQuarantined();
+        pipeline.drain();
+
+        // Then
+        assertEquals(1, pipeline.getQuarantines());
+        assertTrue(activeDuringQuarantine);
+        assertFalse(door.getActive());
+        assertEquals(4, pipeline.getAppliedEvents()); // three changes before the quarantine and the release
+    }
+
+    @Test
+    void given_quarantinedSensor_when_removed_then_itsReleaseDoesNotBringItBack() {
+        // Given
+        InMemorySecurityRepositoryImpl repository = new InMemorySecurityRepositoryImpl();
+        SecurityService securityService = new SecurityService(repository, (image, threshold) -> false);
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        securityService.addSensor(door);
+        Map<SensorType, SensorDebouncer.Settings> settings = new EnumMap<>(SensorType.class);
+        settings.put(SensorType.DOOR, new SensorDebouncer.Settings(0, 4, 10_000, 100));
+        AtomicLong nowNanos = new AtomicLong();
+        pipeline = new SecurityPipeline(securityService, 64, settings, nowNanos::get);
+        for (int i = 0; i < 10; i++) {
+            pipeline.publish(door, i % 2 == 0);
+        }
+        pipeline.drain();
+
+        // When
+        pipeline.removeSensor(door);
+        nowNanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(200)); // past the quarantine
+        pipeline.releaseQuarantined();
+        pipeline.drain();
+
+        // Then
+        assertEquals(1, pipeline.getQuarantines());
+        assertNull(repository.getSensor(door.getSensorId()));
+        assertTrue(securityService.getSensors().isEmpty());
+        assertEquals(4, pipeline.getAppliedEvents()); // three changes before the quarantine and the removal
+    }
+
+    @Test
+    void given_listenerThrowsError_when_eventsNotified_then_stagesCarryOn() throws Exception {
+        // Given
+        SecurityService securityService = new SecurityService(new InMemorySecurityRepositoryImpl(),
+                (image, threshold) -> false);
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        securityService.addSensor(door);
+        securityService.addStatusListener(new StatusListener() {
+            private boolean failed;
+
+            @Override
+            public void notify(AlarmStatus status) {
+            }
+
+            @Override
+            public void catDetected(boolean catDetected) {
+            }
+
+            @Override
+            public void sensorStatusChanged() {
+                if (!failed) {
+                    failed = true;
+                    throw new AssertionError("listener is broken");
+                }
+            }
+        });
+        pipeline = new SecurityPipeline(securityService, 64, Map.of());
+        pipeline.publish(door, true);
+        CompletableFuture.runAsync(pipeline::drain).get(5, TimeUnit.SECONDS);
+
+        // When
+        pipeline.publish(door, false);
+        CompletableFuture.runAsync(pipeline::drain).get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertFalse(door.getActive());
+        assertEquals(2, pipeline.getAppliedEvents());
+    }
+
+    @Test
+    void given_sameWorkload_when_pipelinedOrCalledDirectly_then_bothGoThroughTheSameStates() {
+        // Given
+        int events = 100_000;
+        SecurityService direct = newArmedService();
+        SecurityService pipelined = newArmedService();
+        List<Sensor> directSensors = new ArrayList<>(direct.getSensors());
+        List<Sensor> pipelinedSensors = new ArrayList<>(pipelined.getSensors());
+        // no flap detection, so both see exactly the same changes
+        pipeline = new SecurityPipeline(pipelined, SecurityPipeline.DEFAULT_RING_SIZE, Map.of());
+
+        // When
+        Random random = new Random(3);
+        int alarms = 0;
+        for (int i = 1; i <= events; i++) {
+            int sensor = random.nextInt(directSensors.size());
+            boolean active = random.nextBoolean();
+            direct.changeSensorActivationStatus(directSensors.get(sensor), active);
+            pipeline.publish(pipelinedSensors.get(sensor), active);
+            if (i % 50 == 0) {
+                pipeline.drain();
+                assertEquals(direct.getAlarmStatus(), pipelined.getAlarmStatus());
+                if (direct.getAlarmStatus() == AlarmStatus.ALARM) {
+                    alarms++;
+                }
+                // so the alarm is not where every run ends up
+                direct.setAlarmStatus(AlarmStatus.NO_ALARM);
+                pipelined.setAlarmStatus(AlarmStatus.NO_ALARM);
+            }
+        }
+        pipeline.drain();
+
+        // Then
+        assertTrue(alarms > 0);
+        for (int i = 0; i < directSensors.size(); i++) {
+            assertEquals(directSensors.get(i).getActive(), pipelinedSensors.get(i).getActive());
+        }
+        assertEquals(events, pipeline.getAppliedEvents() + pipeline.getSuppressedEvents());
+    }
+
+    private static SecurityService newArmedService() {
+        SecurityService securityService = new SecurityService(
+                new InMemorySecurityRepositoryImpl(AlarmStatus.NO_ALARM, ArmingStatus.ARMED_AWAY),
+                (image, threshold) -> false);
+        for (int i = 0; i < 64; i++) {
+            securityService.addSensor(new Sensor("sensor " + i, SensorType.values()[i % 3]));
+        }
+        return securityService;
+    }
+}
@@ -0,0 +1,110 @@
+package com.udacity.securityservice.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import com.udacity.securityservice.data.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SecurityServiceAllocationTest {
+
+    private static final int SENSORS = 10_000;
+    // anything allocated per sensor costs at least one object header
+    private static final long SMALLEST_OBJECT_BYTES = 16;
+    // the state, the transition and the iterators of one call
+    private static final long BYTES_PER_CALL = 1_024;
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private InMemorySecurityRepositoryImpl repository;
+    private SecurityService securityService;
+    private List<Sensor> sensors;
+
+    @BeforeEach
+    void init() {
+        repository = new InMemorySecurityRepositoryImpl(AlarmStatus.NO_ALARM, ArmingStatus.ARMED_HOME);
+        securityService = new SecurityService(repository, (image, threshold) -> false);
+        sensors = new ArrayList<>(SENSORS);
+        for (int i = 0; i < SENSORS; i++) {
+            Sensor sensor = new Sensor("sensor " + i, SensorType.values()[i % 3]);
+            securityService.addSensor(sensor);
+            sensors.add(sensor);
+        }
+    }
+
+    @Test
+    void given_inactiveSensors_when_armingChanges_then_nothingIsAllocatedPerSensor() {
+        // Given
+        rearm(100); // warm up
+
+        // When
+        long before = threads.getCurrentThreadAllocatedBytes();
+        rearm(100);
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        // Then
+        assertTrue(allocated / 100 < BYTES_PER_CALL, "allocated " + allocated / 100 + " bytes per call");
+    }
+
+    @Test
+    void given_activeSensors_when_armed_then_theyAreDeactivatedWithoutObjectsPerSensor() {
+        // Given
+        activateAll();
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY); // warm up
+        activateAll();
+
+        // When
+        long before = threads.getCurrentThreadAllocatedBytes();
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        // Then
+        assertFalse(repository.hasActiveSensors());
+        assertTrue(allocated < SENSORS * SMALLEST_OBJECT_BYTES, "allocated " + allocated + " bytes");
+    }
+
+    @Test
+    void given_sensors_when_comparedAndStoredUnchanged_then_nothingIsAllocated() {
+        // Given
+        compareAndStoreAll(); // warm up
+
+        // When
+        long before = threads.getCurrentThreadAllocatedBytes();
+        int inOrder = compareAndStoreAll();
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        // Then
+        assertTrue(inOrder > SENSORS / 2); // "sensor 9" sorts after "sensor 10", but most neighbours are in order
+        assertTrue(allocated < BYTES_PER_CALL, "allocated " + allocated + " bytes");
+    }
+
+    private void rearm(int times) {
+        for (int i = 0; i < times; i++) {
+            securityService.setArmingStatus(i % 2 == 0 ? ArmingStatus.ARMED_AWAY : ArmingStatus.ARMED_HOME);
+        }
+    }
+
+    private void activateAll() {
+        for (Sensor sensor : sensors) {
+            sensor.setActive(true);
+            repository.updateSensor(sensor);
+        }
+    }
+
+    /**
+     * @return how many neighbours in the list are in sensor order
+     */
+    private int compareAndStoreAll() {
+        int inOrder = 0;
+        for (int i = 1; i < sensors.size(); i++) {
+            if (sensors.get(i - 1).compareTo(sensors.get(i)) < 0) {
+                inOrder++;
+            }
+            repository.updateSensor(sensors.get(i));
+        }
+        return inOrder;
+    }
+}
@@ -0,0 +1,106 @@
+package com.udacity.securityservice.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import com.udacity.imageservice.ImageService;
+import com.udacity.securityservice.data.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class SecurityServiceAsyncImageTest {
+
+    private final BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+    // futures handed out by the image service, completed by the tests
+    private final List<CompletableFuture<Boolean>> scans = new ArrayList<>();
+    private SecurityService securityService;
+
+    @BeforeEach
+    void init() {
+        ImageService imageService = new ImageService() {
+            @Override
+            public boolean imageContainsCat(BufferedImage image, float confidenceThreshold) {
+                throw new AssertionError("The blocking call should not be used");
+            }
+
+            @Override
+            public CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image, float confidenceThreshold) {
+                CompletableFuture<Boolean> scan = new CompletableFuture<>();
+                scans.add(scan);
+                return scan;
+            }
+        };
+        securityService = new SecurityService(
+                new InMemorySecurityRepositoryImpl(AlarmStatus.NO_ALARM, ArmingStatus.ARMED_HOME), imageService);
+    }
+
+    @Test
+    void given_scanRunning_when_verdictArrives_then_itIsAppliedOnlyThen() {
+        // Given
+        CompletableFuture<Boolean> result = securityService.processImageAsync(image);
+        assertFalse(result.isDone());
+        assertEquals(AlarmStatus.NO_ALARM, securityService.getAlarmStatus());
+
+        // When
+        scans.get(0).complete(true);
+
+        // Then
+        assertTrue(result.join());
+        assertEquals(AlarmStatus.ALARM, securityService.getAlarmStatus());
+        assertEquals(1, securityService.getMetrics().getImageClassificationLatency().getCount());
+    }
+
+    @Test
+    void given_newerScan_when_olderVerdictArrives_then_onlyTheNewerIsApplied() {
+        // Given
+        CompletableFuture<Boolean> older = securityService.processImageAsync(image);
+        CompletableFuture<Boolean> newer = securityService.processImageAsync(image);
+
+        // When
+        boolean olderCompleted = scans.get(0).complete(true);
+        scans.get(1).complete(false);
+
+        // Then
+        assertFalse(olderCompleted); // cancelled by the newer scan
+        assertTrue(scans.get(0).isCancelled());
+        CompletionException failure = assertThrows(CompletionException.class, older::join);
+        assertTrue(failure.getCause() instanceof CancellationException);
+        assertFalse(newer.join());
+        assertEquals(AlarmStatus.NO_ALARM, securityService.getAlarmStatus());
+    }
+
+    @Test
+    void given_slowImageService_when_timeoutPasses_then_scanFailsAndStateIsKept() {
+        // Given
+        CompletableFuture<Boolean> result = securityService.processImageAsync(image, 50, TimeUnit.MILLISECONDS);
+
+        // When
+        CompletionException failure = assertThrows(CompletionException.class, result::join);
+        scans.get(0).complete(true); // too late
+
+        // Then
+        assertTrue(failure.getCause() instanceof TimeoutException);
+        assertEquals(AlarmStatus.NO_ALARM, securityService.getAlarmStatus());
+        assertEquals(0, securityService.getMetrics().getImageProcessingLatency().getCount());
+    }
+
+    @Test
+    void given_blockingImageService_when_calledAsync_then_defaultRunsItOffTheCaller() {
+        // Given
+        Thread caller = Thread.currentThread();
+        ImageService blocking = (image, threshold) -> Thread.currentThread() != caller;
+
+        // When
+        boolean offCaller = blocking.imageContainsCatAsync(image, 50).join();
+
+        // Then
+        assertTrue(offCaller);
+    }
+}
@@ -0,0 +1,112 @@
+package com.udacity.securityservice.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import com.udacity.securityservice.application.StatusListener;
+import com.udacity.securityservice.data.*;
+import com.udacity.securityservice.eventlog.SecurityEventLog;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SecurityServiceConcurrencyTest {
+
+    private static final int SENSORS_PER_THREAD = 4;
+
+    @Test
+    void given_racingTransitions_when_allDone_then_writesAndNotificationsFollowTheFinalState() throws Exception {
+        // Given
+        int threads = 8;
+        InMemorySecurityRepositoryImpl repository = new InMemorySecurityRepositoryImpl(AlarmStatus.NO_ALARM,
+                ArmingStatus.ARMED_AWAY);
+        SecurityService securityService = new SecurityService(repository, (image, threshold) -> false);
+        List<AlarmStatus> notified = new ArrayList<>();
+        securityService.addStatusListener(new StatusListener() {
+            @Override
+            public void notify(AlarmStatus status) {
+                notified.add(status); // called under the service's write ordering, never concurrently
+            }
+
+            @Override
+            public void catDetected(boolean catDetected) {
+            }
+
+            @Override
+            public void sensorStatusChanged() {
+            }
+        });
+        AtomicInteger recordedChanges = new AtomicInteger();
+        securityService.setEventLog(new SecurityEventLog() {
+            @Override
+            public void alarmStatusChanged(AlarmStatus alarmStatus) {
+                recordedChanges.incrementAndGet();
+            }
+        });
+
+        // When
+        race(securityService, threads, 20_000, 11);
+
+        // Then
+        assertFalse(notified.isEmpty());
+        assertEquals(securityService.getAlarmStatus(), repository.getAlarmStatus());
+        assertEquals(securityService.getAlarmStatus(), notified.get(notified.size() - 1));
+        assertEquals(notified.size(), recordedChanges.get());
+        for (int i = 1; i < notified.size(); i++) {
+            assertNotEquals(notified.get(i - 1), notified.get(i), "notified without a change at " + i);
+        }
+    }
+
+    /**
+     * Each thread flips its own sensors and now and then reports an image verdict or resets the alarm.
+     */
+    private static void race(SecurityService securityService, int threads, int operationsPerThread, long seed)
+            throws InterruptedException {
+        List<List<Sensor>> sensorsByThread = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            List<Sensor> sensors = new ArrayList<>();
+            for (int i = 0; i < SENSORS_PER_THREAD; i++) {
+                Sensor sensor = new Sensor("sensor " + t + "-" + i, SensorType.values()[i % 3]);
+                securityService.addSensor(sensor);
+                sensors.add(sensor);
+            }
+            sensorsByThread.add(sensors);
+        }
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            List<Sensor> sensors = sensorsByThread.get(t);
+            Random random = new Random(seed + t);
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < operationsPerThread; i++) {
+                        int action = random.nextInt(100);
+                        if (action < 90) {
+                            Sensor sensor = sensors.get(random.nextInt(sensors.size()));
+                            securityService.changeSensorActivationStatus(sensor, random.nextBoolean());
+                        } else if (action < 98) {
+                            securityService.catDetected(random.nextInt(4) == 0);
+                        } else {
+                            securityService.setAlarmStatus(AlarmStatus.NO_ALARM);
+                        }
+                    }
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            }, "security-race-" + t);
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(List.of(), failures);
+    }
+}
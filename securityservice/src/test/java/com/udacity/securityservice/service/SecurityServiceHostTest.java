@@ -0,0 +1,251 @@
+package com.udacity.securityservice.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import com.udacity.securityservice.data.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+public class SecurityServiceHostTest {
+
+    // every repository the host opened, by site
+    private final Map<String, List<SiteRepository>> repositories = new ConcurrentHashMap<>();
+    private final Set<String> failingSites = ConcurrentHashMap.newKeySet();
+    private SecurityServiceHost host;
+
+    @AfterEach
+    void close() {
+        if (host != null) {
+            host.close();
+        }
+    }
+
+    private SecurityServiceHost newHost(long idleTimeoutMillis) {
+        host = new SecurityServiceHost(this::openRepository, (image, threshold) -> false, idleTimeoutMillis);
+        return host;
+    }
+
+    private SecurityRepository openRepository(String siteId) {
+        SiteRepository repository = new SiteRepository(siteId);
+        repositories.computeIfAbsent(siteId, s -> new ArrayList<>()).add(repository);
+        return repository;
+    }
+
+    @Test
+    void given_newSite_when_used_then_itIsActivatedOnce() {
+        // Given
+        newHost(0);
+
+        // When
+        host.runOnSite("north", service -> service.setArmingStatus(ArmingStatus.ARMED_HOME));
+        ArmingStatus arming = host.withSite("north", SecurityService::getArmingStatus);
+        host.runOnSite("south", service -> service.setAlarmStatus(AlarmStatus.PENDING_ALARM));
+
+        // Then
+        assertEquals(ArmingStatus.ARMED_HOME, arming);
+        assertEquals(1, repositories.get("north").size());
+        assertEquals(1, repositories.get("south").size());
+        assertEquals(2, host.getActiveSiteCount());
+        assertTrue(host.isActive("north"));
+        assertFalse(host.isActive("east"));
+    }
+
+    @Test
+    void given_idleSite_when_timeoutPasses_then_itIsFlushedClosedAndReactivatedOnUse() throws InterruptedException {
+        // Given
+        newHost(20);
+        host.runOnSite("north", service -> service.setArmingStatus(ArmingStatus.ARMED_AWAY));
+        SiteRepository first = repositories.get("north").get(0);
+
+        // When
+        awaitTrue(() -> first.closed);
+
+        // Then
+        assertTrue(first.flushed);
+        assertFalse(host.isActive("north"));
+        host.runOnSite("north", service -> service.setAlarmStatus(AlarmStatus.ALARM));
+        assertEquals(2, repositories.get("north").size());
+        assertFalse(repositories.get("north").get(1).closed);
+    }
+
+    @Test
+    void given_repositoryFailsToClose_when_evictedWhileIdle_then_evictionCarriesOn() throws InterruptedException {
+        // Given
+        newHost(20);
+        failingSites.add("north");
+        host.runOnSite("north", service -> service.setArmingStatus(ArmingStatus.ARMED_HOME));
+        host.runOnSite("south", service -> service.setArmingStatus(ArmingStatus.ARMED_HOME));
+
+        // When
+        awaitTrue(() -> repositories.get("north").get(0).closed && repositories.get("south").get(0).closed);
+        host.runOnSite("east", service -> service.setArmingStatus(ArmingStatus.ARMED_HOME));
+
+        // Then
+        awaitTrue(() -> repositories.get("east").get(0).closed);
+        assertEquals(0, host.getActiveSiteCount());
+    }
+
+    @Test
+    void given_repositoryFailsToClose_when_evictedDirectly_then_failureIsReportedAndSiteIsGone() {
+        // Given
+        newHost(0);
+        failingSites.add("north");
+        host.runOnSite("north", service -> service.setArmingStatus(ArmingStatus.ARMED_HOME));
+
+        // When
+        assertThrows(IllegalStateException.class, () -> host.evict("north"));
+
+        // Then
+        assertFalse(host.isActive("north"));
+        assertTrue(repositories.get("north").get(0).flushed);
+        assertFalse(host.evict("north"));
+    }
+
+    @Test
+    void given_manyThreads_when_usingSitesWhileTheEvictorRuns_then_noneUsesAClosedRepository() throws Exception {
+        // Given
+        newHost(1);
+        int threads = 4;
+        AtomicInteger actions = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        // When
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int worker = t;
+            workers.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 2_000; i++) {
+                    String siteId = "site " + (i + worker) % 3;
+                    AlarmStatus status = i % 2 == 0 ? AlarmStatus.PENDING_ALARM : AlarmStatus.NO_ALARM;
+                    host.runOnSite(siteId, service -> service.setAlarmStatus(status));
+                    actions.incrementAndGet();
+                    if (i % 100 == 0) {
+                        Thread.sleep(2); // long enough for the evictor to catch the site idle
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> w : workers) {
+            w.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Then
+        assertEquals(threads * 2_000, actions.get());
+        for (List<SiteRepository> opened : repositories.values()) {
+            for (SiteRepository repository : opened) {
+                assertFalse(repository.usedWhileClosed);
+                assertFalse(repository.openedBeforePreviousClosed);
+            }
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    /**
+     * In-memory repository of one site that remembers whether it was flushed and closed, and whether
+     * it was used after closing.
+     */
+    private final class SiteRepository implements SecurityRepository, AutoCloseable {
+        private final String siteId;
+        private final InMemorySecurityRepositoryImpl delegate = new InMemorySecurityRepositoryImpl();
+        private final boolean openedBeforePreviousClosed;
+        private volatile boolean flushed;
+        private volatile boolean closed;
+        private volatile boolean usedWhileClosed;
+
+        SiteRepository(String siteId) {
+            this.siteId = siteId;
+            List<SiteRepository> previous = repositories.getOrDefault(siteId, List.of());
+            this.openedBeforePreviousClosed = previous.stream().anyMatch(r -> !r.closed);
+        }
+
+        private SecurityRepository use() {
+            if (closed) {
+                usedWhileClosed = true;
+            }
+            return delegate;
+        }
+
+        @Override
+        public void addSensor(Sensor sensor) {
+            use().addSensor(sensor);
+        }
+
+        @Override
+        public void removeSensor(Sensor sensor) {
+            use().removeSensor(sensor);
+        }
+
+        @Override
+        public void updateSensor(Sensor sensor) {
+            use().updateSensor(sensor);
+        }
+
+        @Override
+        public void updateSensors(Collection<Sensor> sensors) {
+            use().updateSensors(sensors);
+        }
+
+        @Override
+        public void setAlarmStatus(AlarmStatus alarmStatus) {
+            use().setAlarmStatus(alarmStatus);
+        }
+
+        @Override
+        public void setArmingStatus(ArmingStatus armingStatus) {
+            use().setArmingStatus(armingStatus);
+        }
+
+        @Override
+        public Set<Sensor> getSensors() {
+            return use().getSensors();
+        }
+
+        @Override
+        public AlarmStatus getAlarmStatus() {
+            return use().getAlarmStatus();
+        }
+
+        @Override
+        public ArmingStatus getArmingStatus() {
+            return use().getArmingStatus();
+        }
+
+        @Override
+        public void flush() {
+            flushed = true;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            if (failingSites.contains(siteId)) {
+                throw new IllegalStateException("The disk is full");
+            }
+        }
+    }
+}
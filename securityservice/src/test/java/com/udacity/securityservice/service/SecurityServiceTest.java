@@ -155,17 +155,7 @@ public class SecurityServiceTest {
     @Test
     void given_inactiveSensors_undetectedCats_then_changeToNoAlarmState(){
         // Given
-        Sensor sensor1 = new Sensor(getRandomString(), SensorType.DOOR);
-        Sensor sensor2 = new Sensor(getRandomString(), SensorType.WINDOW);
-
-        sensor1.setActive(false);
-        sensor2.setActive(false);
-
-        Set<Sensor> sensors = new HashSet<>();
-        sensors.add(sensor1);
-        sensors.add(sensor2);
-
-        when(securityRepository.getSensors()).thenReturn(sensors);
+        when(securityRepository.hasActiveSensors()).thenReturn(false);
         when(fakeImageService.imageContainsCat(any(), anyFloat())).thenReturn(false);
 
         // When
@@ -255,6 +245,70 @@ public class SecurityServiceTest {
         verify(securityRepository, never()).setArmingStatus(ArmingStatus.DISARMED);
     }
 
+    @Test
+    void given_armedSystem_when_batchActivatesTwoSensors_then_alarmStatusIsStoredOnce() {
+        // Given
+        when(securityRepository.getAlarmStatus()).thenReturn(AlarmStatus.NO_ALARM);
+        when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_AWAY);
+        Sensor other = new Sensor(UUID.randomUUID().toString(), SensorType.WINDOW);
+        Map<Sensor, Boolean> changes = new LinkedHashMap<>();
+        changes.put(sensor, true);
+        changes.put(other, true);
+        securityService.addStatusListener(statusListener);
+
+        // When
+        securityService.changeSensorActivationStatuses(changes);
+
+        // Then
+        verify(securityRepository, times(1)).setAlarmStatus(AlarmStatus.ALARM);
+        verify(securityRepository, never()).setAlarmStatus(AlarmStatus.PENDING_ALARM);
+        verify(securityRepository, times(1)).updateSensors(List.of(sensor, other));
+        verify(securityRepository, never()).updateSensor(any(Sensor.class));
+        verify(statusListener, times(1)).notify(AlarmStatus.ALARM);
+        verify(statusListener, times(1)).sensorStatusChanged();
+        assertTrue(sensor.getActive());
+        assertTrue(other.getActive());
+    }
+
+    @Test
+    void given_pendingAlarm_when_batchChangesCancelOut_then_alarmStatusIsUnchanged() {
+        // Given
+        when(securityRepository.getAlarmStatus()).thenReturn(AlarmStatus.PENDING_ALARM);
+        when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_HOME);
+        Sensor other = new Sensor(UUID.randomUUID().toString(), SensorType.WINDOW);
+        sensor.setActive(true);
+        Map<Sensor, Boolean> changes = new LinkedHashMap<>();
+        changes.put(sensor, false);
+        changes.put(other, true);
+
+        // When
+        securityService.changeSensorActivationStatuses(changes);
+
+        // Then
+        verify(securityRepository, never()).setAlarmStatus(any(AlarmStatus.class));
+        verify(securityRepository, times(1)).updateSensors(anyCollection());
+    }
+
+    @Test
+    void given_activeSensors_when_systemArmed_then_sensorsAreWrittenInOneBatch() {
+        // Given
+        Sensor other = new Sensor(UUID.randomUUID().toString(), SensorType.WINDOW);
+        sensor.setActive(true);
+        other.setActive(true);
+        when(securityRepository.getSensors()).thenReturn(new HashSet<>(List.of(sensor, other)));
+        when(securityRepository.getAlarmStatus()).thenReturn(AlarmStatus.PENDING_ALARM);
+        securityService.addStatusListener(statusListener);
+
+        // When
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+
+        // Then
+        verify(securityRepository, times(1)).setAlarmStatus(AlarmStatus.NO_ALARM);
+        verify(securityRepository, times(1)).updateSensors(anyCollection());
+        verify(securityRepository, never()).updateSensor(any(Sensor.class));
+        verify(statusListener, times(1)).sensorStatusChanged();
+    }
+
     private String getRandomString() {
         return UUID.randomUUID().toString();
     }
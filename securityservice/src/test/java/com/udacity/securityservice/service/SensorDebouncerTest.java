@@ -0,0 +1,183 @@
+package com.udacity.securityservice.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import com.udacity.securityservice.data.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class SensorDebouncerTest {
+
+    private final List<Map<Sensor, Boolean>> batches = new ArrayList<>();
+    private long nowNanos;
+    private SensorDebouncer debouncer;
+    private Sensor door;
+
+    @BeforeEach
+    void init() {
+        Map<SensorType, SensorDebouncer.Settings> settings = new EnumMap<>(SensorType.class);
+        settings.put(SensorType.DOOR, new SensorDebouncer.Settings(50, 5, 1_000, 10_000));
+        debouncer = new SensorDebouncer(settings, batches::add, () -> nowNanos);
+        door = new Sensor("front door", SensorType.DOOR);
+    }
+
+    @Test
+    void given_readingThatFlipsBack_when_polled_then_nothingIsPassedOn() {
+        // Given
+        debouncer.offer(door, true);
+        advanceMillis(10);
+        debouncer.offer(door, false);
+
+        // When
+        advanceMillis(100);
+        int settled = debouncer.poll();
+
+        // Then
+        assertEquals(0, settled);
+        assertTrue(batches.isEmpty());
+        assertEquals(0, debouncer.getPendingReadings());
+        assertEquals(1, debouncer.getAbsorbedReadings()); // the bounce never settled
+    }
+
+    @Test
+    void given_steadyReading_when_heldForMinimumStableTime_then_itIsPassedOnOnce() {
+        // Given
+        debouncer.offer(door, true);
+        advanceMillis(20);
+        debouncer.offer(door, true);
+
+        // When
+        advanceMillis(29);
+        int early = debouncer.poll();
+        advanceMillis(1);
+        int settled = debouncer.poll();
+        int again = debouncer.poll();
+
+        // Then
+        assertEquals(0, early);
+        assertEquals(1, settled);
+        assertEquals(0, again);
+        assertEquals(List.of(Map.of(door, true)), batches);
+    }
+
+    @Test
+    void given_flappingSensor_when_quarantined_then_onlyItsLatestReadingIsPassedOnAfterwards() {
+        // Given
+        for (int i = 0; i < 6; i++) {
+            debouncer.offer(door, i % 2 == 0);
+            advanceMillis(100);
+        }
+        debouncer.offer(door, true);
+
+        // When
+        advanceMillis(5_000);
+        int duringQuarantine = debouncer.poll();
+        advanceMillis(6_000);
+        int afterQuarantine = debouncer.poll();
+
+        // Then
+        assertEquals(0, duringQuarantine);
+        assertEquals(1, afterQuarantine);
+        assertEquals(1, debouncer.getQuarantines());
+        assertFalse(debouncer.isQuarantined(door));
+        assertEquals(List.of(Map.of(door, true)), batches);
+    }
+
+    @Test
+    void given_noisyDoorInFrontOfService_when_itChatters_then_alarmIsNotRaised() {
+        // Given
+        SecurityService securityService = new SecurityService(new InMemorySecurityRepositoryImpl(), (image, threshold) -> false);
+        securityService.addSensor(door);
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        SensorDebouncer debounced = new SensorDebouncer(SensorDebouncer.defaultSettings(),
+                securityService::changeSensorActivationStatuses, () -> nowNanos);
+
+        // When
+        for (int i = 0; i < 1_000; i++) {
+            debounced.offer(door, true);
+            advanceMillis(5);
+            debounced.offer(door, false);
+            advanceMillis(5);
+            debounced.poll();
+        }
+
+        // Then
+        assertEquals(AlarmStatus.NO_ALARM, securityService.getAlarmStatus());
+        assertFalse(door.getActive());
+        assertEquals(0, debounced.getForwardedReadings());
+        assertEquals(2_000, debounced.getReceivedReadings());
+    }
+
+    @Test
+    void given_sensorResetElsewhere_when_sameReadingArrivesAgain_then_itIsPassedOn() {
+        // Given
+        debouncer.offer(door, true);
+        advanceMillis(50);
+        debouncer.poll();
+        door.setActive(true); // applied by the sink
+        door.setActive(false); // reset when the system is armed
+
+        // When
+        advanceMillis(100);
+        debouncer.offer(door, true);
+        advanceMillis(50);
+        int settled = debouncer.poll();
+
+        // Then
+        assertEquals(1, settled);
+        assertEquals(List.of(Map.of(door, true), Map.of(door, true)), batches);
+    }
+
+    @Test
+    void given_pendingAlarm_when_activeSensorReportsActiveAgain_then_alarmIsRaised() {
+        // Given
+        SecurityService securityService = new SecurityService(new InMemorySecurityRepositoryImpl(), (image, threshold) -> false);
+        securityService.addSensor(door);
+        securityService.setArmingStatus(ArmingStatus.ARMED_HOME);
+        SensorDebouncer debounced = new SensorDebouncer(SensorDebouncer.defaultSettings(), securityService, () -> nowNanos);
+        debounced.offer(door, true);
+        advanceMillis(50);
+        debounced.poll();
+        assertEquals(AlarmStatus.PENDING_ALARM, securityService.getAlarmStatus());
+
+        // When
+        advanceMillis(1_000);
+        debounced.offer(door, true);
+        int settled = debounced.poll();
+
+        // Then
+        assertEquals(1, settled);
+        assertEquals(AlarmStatus.ALARM, securityService.getAlarmStatus());
+        assertEquals(0, debounced.getAbsorbedReadings());
+    }
+
+    @Test
+    void given_noAlarm_when_activeSensorReportsActiveAgain_then_repeatIsAbsorbed() {
+        // Given
+        SecurityService securityService = new SecurityService(new InMemorySecurityRepositoryImpl(), (image, threshold) -> false);
+        securityService.addSensor(door);
+        SensorDebouncer debounced = new SensorDebouncer(SensorDebouncer.defaultSettings(), securityService, () -> nowNanos);
+        debounced.offer(door, true);
+        advanceMillis(50);
+        debounced.poll();
+
+        // When
+        advanceMillis(1_000);
+        debounced.offer(door, true);
+        int settled = debounced.poll();
+
+        // Then
+        assertEquals(0, settled);
+        assertEquals(1, debounced.getAbsorbedReadings());
+        assertEquals(AlarmStatus.NO_ALARM, securityService.getAlarmStatus());
+    }
+
+    private void advanceMillis(long millis) {
+        nowNanos += TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
@@ -0,0 +1,119 @@
+package com.udacity.securityservice.simulation;
+
+import static org.junit.jupiter.api.Assertions.*;
+import com.udacity.securityservice.data.AlarmStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SecuritySimulatorTest {
+
+    @Test
+    void given_scriptedImageService_when_called_then_verdictsAreTheSameOnEveryRun() {
+        // Given
+        ScriptedImageService scripted = new ScriptedImageService(List.of(true, false, false), 0);
+        ScriptedImageService drawn = new ScriptedImageService(0.25, 7, 0);
+        ScriptedImageService again = new ScriptedImageService(0.25, 7, 0);
+
+        // When
+        int cats = 0;
+        for (int i = 0; i < 10_000; i++) {
+            boolean cat = drawn.imageContainsCat(null, 50);
+            assertEquals(cat, again.imageContainsCat(null, 50));
+            cats += cat ? 1 : 0;
+        }
+
+        // Then
+        assertTrue(scripted.imageContainsCat(null, 50));
+        assertFalse(scripted.imageContainsCat(null, 50));
+        assertFalse(scripted.imageContainsCat(null, 50));
+        assertTrue(scripted.imageContainsCat(null, 50));
+        assertEquals(10_000, drawn.getCalls());
+        assertTrue(cats > 2_300 && cats < 2_700, cats + " cats");
+    }
+
+    @Test
+    void given_shortSimulation_when_run_then_everyEventDueIsSentAndMeasured() throws InterruptedException {
+        // Given
+        SecuritySimulator.Settings settings = SecuritySimulator.Settings.DEFAULT
+                .withSensors(500)
+                .withSensorEvents(2_000, 1.0)
+                .withCameras(2, 20)
+                .withImages(0.05, 0)
+                .withArmingChanges(600) // disarming silences the alarm, so it keeps changing
+                .withDrivers(1);
+        SecuritySimulator simulator = new SecuritySimulator(settings, new JumpingClock());
+        SecuritySimulator again = new SecuritySimulator(settings, new JumpingClock());
+        List<SimulationReport> reports = new ArrayList<>();
+
+        // When
+        SimulationReport total = simulator.run(Duration.ofMillis(2_500), Duration.ofMillis(500),
+                Duration.ofMillis(500), reports::add);
+        SimulationReport repeated = again.run(Duration.ofMillis(2_500), Duration.ofMillis(500),
+                Duration.ofMillis(500), report -> { });
+
+        // Then
+        assertFalse(reports.isEmpty());
+        assertEquals(0, reports.get(0).getHeapGrowthBytes()); // still warming up
+        // about 4,000 events are due in the two measured seconds, the same ones with the same seed
+        assertEquals(repeated.getSensorEvents(), total.getSensorEvents());
+        assertTrue(total.getSensorEvents() > 3_500 && total.getSensorEvents() < 4_500,
+                total.getSensorEvents() + " events");
+        assertEquals(total.getSensorEvents(), total.getSensorEventLatency().getCount());
+        // 40 frames of each camera
+        assertEquals(80, total.getFrames());
+        assertEquals(80, total.getFrameLatency().getCount());
+        assertTrue(total.getHeapAfterGcBytes() > 0);
+        assertNotNull(simulator.getSecurityService().getAlarmStatus());
+        assertTrue(simulator.getSecurityService().getMetrics().getAlarmTransitions(
+                AlarmStatus.NO_ALARM, AlarmStatus.PENDING_ALARM) > 0);
+    }
+
+    @Test
+    void given_manyCameras_when_framesAreBatched_then_everyCamerasLatestFrameIsClassified() throws InterruptedException {
+        // Given
+        SecuritySimulator simulator = new SecuritySimulator(SecuritySimulator.Settings.DEFAULT
+                .withSensorEvents(0, 1.0)
+                .withCameras(50, 20)
+                .withImages(0.01, 0)
+                .withFrameBatches(16, 20)
+                .withArmingChanges(0), new JumpingClock());
+
+        // When
+        SimulationReport total = simulator.run(Duration.ofMillis(1_500), Duration.ofMillis(500),
+                Duration.ofMillis(500), report -> { });
+
+        // Then
+        // 20 frames of each camera are due in the measured second
+        assertEquals(1_000, total.getFrames());
+        // frames replaced by a newer one of their camera have no verdict, but the last of each camera has
+        long classified = total.getFrameLatency().getCount();
+        assertTrue(classified >= 50 && classified <= 1_000, classified + " frames classified");
+        assertTrue(simulator.getImageService().getCalls() >= classified);
+    }
+
+    /**
+     * Moves on to whatever time a thread waits for at once, so a simulation runs as fast as it can
+     * while every event is still due at the same time as in real time.
+     */
+    private static final class JumpingClock implements SecuritySimulator.Clock {
+        private final AtomicLong now = new AtomicLong();
+        private final ThreadLocal<long[]> lastRead = ThreadLocal.withInitial(() -> new long[1]);
+
+        @Override
+        public long nanoTime() {
+            long time = now.get();
+            lastRead.get()[0] = time;
+            return time;
+        }
+
+        @Override
+        public void sleep(long nanos) {
+            long until = lastRead.get()[0] + nanos;
+            now.accumulateAndGet(until, Math::max);
+        }
+    }
+}